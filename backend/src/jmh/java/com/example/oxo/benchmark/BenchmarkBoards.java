@@ -0,0 +1,78 @@
+package com.example.oxo.benchmark;
+
+import com.example.oxo.model.BitboardGameModel;
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.MoveCommand;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.CachedGameService;
+import com.example.oxo.service.GameService;
+import com.example.oxo.service.OptimizedGameService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** JMH 基准共用的棋盘构造：按实现名创建服务，生成固定种子的随机对局 */
+final class BenchmarkBoards {
+
+	private BenchmarkBoards() {
+	}
+
+	/**
+	 * @param impl original（GameService 逐行扫描）、optimized（OptimizedGameService + 增量连线索引）、
+	 *             bitboard（OptimizedGameService + 位棋盘）、cached（CachedGameService）
+	 */
+	static GameService newService(String impl, int size, int winThreshold) {
+		int threshold = Math.min(winThreshold, size);
+		GameService service = switch (impl) {
+			case "original" -> new GameService(new GameModel(size, size, threshold));
+			case "optimized" -> new OptimizedGameService(new GameModel(size, size, threshold));
+			case "bitboard" -> new OptimizedGameService(new BitboardGameModel(size, size, threshold));
+			case "cached" -> new CachedGameService(new GameModel(size, size, threshold));
+			default -> throw new IllegalArgumentException("Unknown implementation: " + impl);
+		};
+		service.setPlayers(2);
+		return service;
+	}
+
+	/** 两名玩家随机落子直到分出胜负或下满，返回每一步的 {row, col}；同一种子总是得到同一局 */
+	static int[][] randomGame(int size, int winThreshold, long seed) {
+		GameService referee = newService("optimized", size, winThreshold);
+		List<int[]> empties = new ArrayList<>(size * size);
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				empties.add(new int[]{r, c});
+			}
+		}
+		Random random = new Random(seed);
+		List<int[]> moves = new ArrayList<>();
+		GameModel model = referee.getGameModel();
+		while (!empties.isEmpty() && model.getWinner() == null && !model.isGameDrawn()) {
+			int[] move = empties.remove(random.nextInt(empties.size()));
+			play(referee, move[0], move[1]);
+			moves.add(move);
+		}
+		return moves.toArray(new int[0][]);
+	}
+
+	/** 重放 moves 的前 count 步（count 超出时全部重放） */
+	static void replay(GameService service, int[][] moves, int count) {
+		service.resetGame();
+		for (int i = 0; i < Math.min(count, moves.length); i++) {
+			play(service, moves[i][0], moves[i][1]);
+		}
+	}
+
+	static void play(GameService service, int row, int col) {
+		try {
+			service.handleMove(row, col);
+		} catch (MoveException e) {
+			throw new IllegalStateException("Benchmark move rejected: " + e.getMessage(), e);
+		}
+	}
+
+	/** 行字母 + 列数字的指令，与前端输入相同 */
+	static String command(int row, int col) {
+		return MoveCommand.format(row, col);
+	}
+}
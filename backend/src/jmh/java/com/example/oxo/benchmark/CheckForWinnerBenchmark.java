@@ -0,0 +1,86 @@
+package com.example.oxo.benchmark;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.service.GameService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 胜负判定：GameService 的整行/整列扫描 vs OptimizedGameService。
+ * <ul>
+ *   <li>checkForWinner：在半盘棋局上对当前玩家的棋子逐个调用，只比较判定算法本身；</li>
+ *   <li>playGame：从空棋盘重放一整局随机对局，包含落子、增量连线索引 / 位棋盘的维护。</li>
+ * </ul>
+ * winThreshold 大于棋盘边长时按边长计算。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CheckForWinnerBenchmark {
+
+	@Param({"original", "optimized", "bitboard"})
+	public String impl;
+
+	@Param({"3", "19", "101"})
+	public int boardSize;
+
+	@Param({"3", "5"})
+	public int winThreshold;
+
+	private GameService service;
+	private int[][] game;
+	private int[][] probes;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		service = BenchmarkBoards.newService(impl, boardSize, winThreshold);
+		game = BenchmarkBoards.randomGame(boardSize, winThreshold, 42);
+		// 停在终局前一步，棋盘上留有尽可能多的棋子
+		BenchmarkBoards.replay(service, game, game.length - 1);
+		GameModel model = service.getGameModel();
+		char letter = model.getPlayerByNumber(model.getCurrentPlayerNumber()).getPlayingLetter();
+		List<int[]> own = new ArrayList<>();
+		for (int r = 0; r < boardSize; r++) {
+			for (int c = 0; c < boardSize; c++) {
+				if (model.getCellOwner(r, c) != null && model.getCellOwner(r, c).getPlayingLetter() == letter) {
+					own.add(new int[]{r, c});
+				}
+			}
+		}
+		if (own.isEmpty()) {
+			own.add(game[0]);
+		}
+		probes = own.toArray(new int[0][]);
+	}
+
+	@Benchmark
+	public boolean checkForWinner() {
+		int[] probe = probes[next];
+		next = next + 1 == probes.length ? 0 : next + 1;
+		return service.checkForWinner(probe[0], probe[1]);
+	}
+
+	@Benchmark
+	public void playGame(Blackhole blackhole) {
+		BenchmarkBoards.replay(service, game, game.length);
+		blackhole.consume(service.getGameModel().getWinner());
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.oxo.benchmark;
+
+import com.example.oxo.service.GameService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getGameState：OptimizedGameService（每次重新构造）vs CachedGameService（未变化时命中缓存）。
+ * <ul>
+ *   <li>read：连续读取同一局面，缓存版本除第一次外全部命中；</li>
+ *   <li>moveThenRead：每次先落一子再读取，缓存每次都失效，衡量缓存带来的额外开销。</li>
+ * </ul>
+ * 配合 -prof gc 查看每次读取的分配量。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameStateBenchmark {
+
+	@Param({"optimized", "cached"})
+	public String impl;
+
+	@Param({"3", "19", "101"})
+	public int boardSize;
+
+	@Param({"3", "5"})
+	public int winThreshold;
+
+	private GameService service;
+	private int[][] game;
+	private int nextMove;
+
+	@Setup
+	public void setUp() {
+		service = BenchmarkBoards.newService(impl, boardSize, winThreshold);
+		game = BenchmarkBoards.randomGame(boardSize, winThreshold, 42);
+		BenchmarkBoards.replay(service, game, game.length / 2);
+		nextMove = game.length / 2;
+	}
+
+	@Benchmark
+	public Object read() {
+		return service.getGameState();
+	}
+
+	@Benchmark
+	public void moveThenRead(Blackhole blackhole) {
+		if (nextMove == game.length) {
+			// 对局结束后从头再来，重置的开销分摊到整局的落子上
+			service.resetGame();
+			nextMove = 0;
+		}
+		int[] move = game[nextMove++];
+		BenchmarkBoards.play(service, move[0], move[1]);
+		blackhole.consume(service.getGameState());
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.oxo.benchmark;
+
+import com.example.oxo.model.MoveCommand;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.GameService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * handleIncomingCommand：从指令解析到落子、胜负判定的完整路径。
+ * 30x30 棋盘上出现多字母行和两位数列（如 "ad30"）。
+ * <ul>
+ *   <li>playGame：重放一整局随机对局的指令；</li>
+ *   <li>rejectedCommand：非法指令（格子已被占用），衡量拒绝路径的开销（配合 -prof gc 应无分配）；</li>
+ *   <li>parseCommand：只解析最后一条指令，不落子。</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IncomingCommandBenchmark {
+
+	@Param({"original", "optimized", "cached"})
+	public String impl;
+
+	@Param({"3", "9", "30"})
+	public int boardSize;
+
+	@Param({"3", "5"})
+	public int winThreshold;
+
+	private GameService service;
+	private GameService rejecting;  // 只落了第一步，再次落在同一格必然被拒绝
+	private String[] commands;
+
+	@Setup
+	public void setUp() {
+		service = BenchmarkBoards.newService(impl, boardSize, winThreshold);
+		int[][] game = BenchmarkBoards.randomGame(boardSize, winThreshold, 42);
+		commands = new String[game.length];
+		for (int i = 0; i < game.length; i++) {
+			commands[i] = BenchmarkBoards.command(game[i][0], game[i][1]);
+		}
+		rejecting = BenchmarkBoards.newService(impl, boardSize, winThreshold);
+		BenchmarkBoards.replay(rejecting, game, 1);
+	}
+
+	@Benchmark
+	public void playGame(Blackhole blackhole) throws MoveException {
+		service.resetGame();
+		for (String command : commands) {
+			service.handleIncomingCommand(command);
+		}
+		blackhole.consume(service.getGameModel().getWinner());
+	}
+
+	@Benchmark
+	public Object rejectedCommand() {
+		try {
+			rejecting.handleIncomingCommand(commands[0]);
+			return null;
+		} catch (MoveException e) {
+			return e;
+		}
+	}
+
+	@Benchmark
+	public long parseCommand() {
+		return MoveCommand.parse(commands[commands.length - 1]);
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.oxo.loadtest;
+
+import com.example.oxo.monitoring.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个端点的客户端侧统计。每个请求记两个延迟：
+ * service 从实际发出到收到响应；response 从计划发出的时间算起（固定速率模式下落后于计划的等待也计入），即协调遗漏修正后的延迟。
+ */
+final class EndpointStats {
+	final String label;
+	final LatencyHistogram service = new LatencyHistogram();
+	final LatencyHistogram response = new LatencyHistogram();
+	final LongAdder ok = new LongAdder();
+	// 4xx：落子冲突、游戏数达到上限等，服务端正常处理了请求
+	final LongAdder rejected = new LongAdder();
+	// 5xx 和连接失败
+	final LongAdder errors = new LongAdder();
+
+	EndpointStats(String label) {
+		this.label = label;
+	}
+
+	void record(int status, long serviceNanos, long responseNanos) {
+		service.record(serviceNanos);
+		response.record(responseNanos);
+		if (status >= 200 && status < 400) {
+			ok.increment();
+		} else if (status >= 400 && status < 500) {
+			rejected.increment();
+		} else {
+			errors.increment();
+		}
+	}
+}
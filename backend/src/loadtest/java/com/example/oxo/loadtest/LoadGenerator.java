@@ -0,0 +1,257 @@
+package com.example.oxo.loadtest;
+
+import com.example.oxo.DemoApplication;
+import com.example.oxo.monitoring.LatencyHistogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 端到端负载测试：在本进程内以随机端口启动应用（或用 url= 指向已部署的实例），
+ * concurrency 个虚拟玩家按 {@link Scenario} 建局、改尺寸和人数、落子并轮询状态，按端点报告吞吐和延迟分位数。
+ *
+ * 两种模式：
+ * closed — 闭环，每个虚拟玩家收到响应后立即发下一个请求。服务端卡顿时客户端也随之少发请求（协调遗漏），
+ *          所以另外报告按 HdrHistogram 方法修正的分位数，期望间隔取所有请求的平均服务时间。
+ * rate   — 固定到达速率，共 rate 个请求/秒均分给各虚拟玩家，第 n 个请求的计划时间与之前的响应何时返回无关；
+ *          延迟从计划时间算起，服务端卡顿期间本该发出的请求的排队时间都计入。
+ *
+ * 运行：mvn -Ploadtest verify -Dloadtest.args="mode=rate rate=2000 concurrency=64 duration=60"
+ * 参数（key=value）：mode=closed|rate，concurrency=32，rate=1000，duration=30，warmup=10（秒，不计入结果），
+ * scenario=session|shared，rows=7，cols=7，players=2，polls=2（每步之后的 /state 次数），seed=1，url=（默认内嵌启动）。
+ * 内嵌启动时客户端与服务端共用 CPU，做容量规划时应在另一台机器上用 url= 压测正式部署。
+ */
+public final class LoadGenerator {
+
+	private static final Set<String> OPTIONS = Set.of("mode", "concurrency", "rate", "duration", "warmup", "scenario",
+			"rows", "cols", "players", "polls", "seed", "url");
+
+	private LoadGenerator() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		String mode = options.getOrDefault("mode", "closed");
+		if (!mode.equals("closed") && !mode.equals("rate")) {
+			throw new IllegalArgumentException("Unknown mode: " + mode + " (expected closed or rate)");
+		}
+		String scenario = options.getOrDefault("scenario", "session");
+		if (!scenario.equals("session") && !scenario.equals("shared")) {
+			throw new IllegalArgumentException("Unknown scenario: " + scenario + " (expected session or shared)");
+		}
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+		double rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+		long durationNanos = (long) (Double.parseDouble(options.getOrDefault("duration", "30")) * 1e9);
+		long warmupNanos = (long) (Double.parseDouble(options.getOrDefault("warmup", "10")) * 1e9);
+		int rows = Integer.parseInt(options.getOrDefault("rows", "7"));
+		int cols = Integer.parseInt(options.getOrDefault("cols", "7"));
+		int players = Integer.parseInt(options.getOrDefault("players", "2"));
+		int polls = Integer.parseInt(options.getOrDefault("polls", "2"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+		if (concurrency < 1 || rate <= 0 || durationNanos <= 0 || warmupNanos < 0 || players < 1 || polls < 0) {
+			throw new IllegalArgumentException("Invalid options: " + options);
+		}
+
+		ConfigurableApplicationContext context = options.containsKey("url") ? null : start();
+		String base = context == null
+				? options.get("url").replaceAll("/+$", "")
+				: "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		try {
+			List<Scenario> users = new ArrayList<>(concurrency);
+			for (int u = 0; u < concurrency; u++) {
+				users.add(new Scenario(base + "/api/oxo", scenario.equals("shared"), rows, cols, players, polls, seed + u));
+			}
+			System.out.printf("%s, mode=%s%s, concurrency=%d, scenario=%s %dx%d players=%d polls=%d, warmup %.0f s, duration %.0f s%n",
+					base, mode, mode.equals("rate") ? String.format(" rate=%.0f/s", rate) : "", concurrency, scenario,
+					rows, cols, players, polls, warmupNanos / 1e9, durationNanos / 1e9);
+			drive(users, mode.equals("rate") ? rate : 0, warmupNanos, durationNanos);
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			String key = eq < 0 ? arg : arg.substring(0, eq);
+			if (!OPTIONS.contains(key) || eq < 0) {
+				throw new IllegalArgumentException("Expected key=value with key in " + OPTIONS + ": " + arg);
+			}
+			options.put(key, arg.substring(eq + 1));
+		}
+		return options;
+	}
+
+	private static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(DemoApplication.class)
+				.web(WebApplicationType.SERVLET)
+				.properties("server.port=0", "spring.main.banner-mode=off", "logging.level.org.springframework=WARN",
+						"oxo.tablebase.enabled=false", "oxo.journal.enabled=false")
+				.run();
+	}
+
+	private static void drive(List<Scenario> users, double rate, long warmupNanos, long durationNanos)
+			throws Exception {
+		Scenario.Step[] steps = Scenario.Step.values();
+		EndpointStats[] stats = new EndpointStats[steps.length];
+		for (int i = 0; i < steps.length; i++) {
+			stats[i] = new EndpointStats(steps[i].label);
+		}
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+		ExecutorService executor = Executors.newFixedThreadPool(users.size());
+		try {
+			long start = System.nanoTime();
+			long measureStart = start + warmupNanos;
+			long end = measureStart + durationNanos;
+			List<Future<?>> done = new ArrayList<>(users.size());
+			for (int u = 0; u < users.size(); u++) {
+				int user = u;
+				done.add(executor.submit(() -> {
+					runUser(client, users.get(user), stats, user, users.size(), rate, start, measureStart, end);
+					return null;
+				}));
+			}
+			for (Future<?> future : done) {
+				future.get();
+			}
+			// 固定速率模式下落后的请求会在 end 之后补发完，吞吐按实际结束时间计算
+			report(stats, rate, System.nanoTime() - measureStart);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void runUser(HttpClient client, Scenario scenario, EndpointStats[] stats, int user, int users,
+								double rate, long start, long measureStart, long end) throws InterruptedException {
+		for (long n = 0; ; n++) {
+			long intended;
+			if (rate > 0) {
+				// 各虚拟玩家的计划时间交错排开，合起来是间隔 1/rate 的均匀序列
+				intended = start + (long) ((n * users + user) * 1e9 / rate);
+				if (intended >= end) {
+					return;
+				}
+				for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+					LockSupport.parkNanos(wait);
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				}
+			} else {
+				intended = System.nanoTime();
+				if (intended >= end) {
+					return;
+				}
+			}
+			Scenario.Step step = scenario.step();
+			HttpRequest request = scenario.request();
+			long sent = System.nanoTime();
+			int status;
+			String body;
+			try {
+				HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+				status = response.statusCode();
+				body = response.body();
+			} catch (IOException e) {
+				status = -1;
+				body = "";
+			}
+			long received = System.nanoTime();
+			if (intended >= measureStart) {
+				stats[step.ordinal()].record(status, received - sent, received - intended);
+			}
+			scenario.completed(status, body);
+		}
+	}
+
+	private static void report(EndpointStats[] stats, double rate, long elapsedNanos) {
+		// 闭环模式的期望间隔：虚拟玩家不停顿，正常情况下两个请求之间隔一个平均服务时间
+		long count = 0;
+		long sum = 0;
+		for (EndpointStats endpoint : stats) {
+			count += endpoint.service.getCount();
+			sum += endpoint.service.getSum();
+		}
+		long expectedInterval = count == 0 ? 0 : sum / count;
+		double seconds = elapsedNanos / 1e9;
+
+		System.out.printf("%n%-11s %9s %7s %7s %9s | %-36s | %-36s%n", "", "", "", "", "",
+				"service time (us)", rate > 0 ? "from scheduled send (us)" : "CO-corrected (us)");
+		System.out.printf("%-11s %9s %7s %7s %9s | %8s %8s %8s %9s | %8s %8s %8s %9s%n", "endpoint", "count", "4xx",
+				"errors", "req/s", "p50", "p99", "p99.9", "max", "p50", "p99", "p99.9", "max");
+		long[] allService = new long[LatencyHistogram.BUCKET_COUNT];
+		long[] allCorrected = new long[LatencyHistogram.BUCKET_COUNT];
+		long allRejected = 0;
+		long allErrors = 0;
+		for (EndpointStats endpoint : stats) {
+			long[] service = new long[LatencyHistogram.BUCKET_COUNT];
+			long serviceCount = endpoint.service.addTo(service);
+			if (serviceCount == 0) {
+				continue;
+			}
+			long[] corrected = new long[LatencyHistogram.BUCKET_COUNT];
+			long correctedCount;
+			if (rate > 0) {
+				correctedCount = endpoint.response.addTo(corrected);
+			} else {
+				correctedCount = LatencyHistogram.withExpectedInterval(service, expectedInterval, corrected);
+			}
+			long rejected = endpoint.rejected.sum();
+			long errors = endpoint.errors.sum();
+			printRow(endpoint.label, serviceCount, rejected, errors, seconds, service, corrected, correctedCount);
+			for (int i = 0; i < service.length; i++) {
+				allService[i] += service[i];
+				allCorrected[i] += corrected[i];
+			}
+			allRejected += rejected;
+			allErrors += errors;
+		}
+		long allCorrectedCount = 0;
+		for (long c : allCorrected) {
+			allCorrectedCount += c;
+		}
+		printRow("all", count, allRejected, allErrors, seconds, allService, allCorrected, allCorrectedCount);
+
+		if (rate > 0) {
+			System.out.printf("%ntarget %.0f req/s, achieved %.0f req/s over %.1f s%n", rate, count / seconds, seconds);
+		} else {
+			System.out.printf("%nclosed loop: corrected with expected interval %d us (mean service time) over %.1f s%n",
+					expectedInterval / 1000, seconds);
+		}
+	}
+
+	private static void printRow(String label, long count, long rejected, long errors, double seconds,
+								 long[] service, long[] corrected, long correctedCount) {
+		System.out.printf("%-11s %9d %7d %7d %9.0f | %8d %8d %8d %9d | %8d %8d %8d %9d%n",
+				label, count, rejected, errors, count / seconds,
+				micros(service, count, 0.50), micros(service, count, 0.99), micros(service, count, 0.999),
+				micros(service, count, 1.0),
+				micros(corrected, correctedCount, 0.50), micros(corrected, correctedCount, 0.99),
+				micros(corrected, correctedCount, 0.999), micros(corrected, correctedCount, 1.0));
+	}
+
+	private static long micros(long[] counts, long total, double q) {
+		return LatencyHistogram.percentile(counts, total, q) / 1000;
+	}
+}
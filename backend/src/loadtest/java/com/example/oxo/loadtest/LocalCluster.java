@@ -0,0 +1,188 @@
+package com.example.oxo.loadtest;
+
+import com.example.oxo.DemoApplication;
+import com.example.oxo.cluster.ClusterService;
+import com.example.oxo.registry.GameRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在本进程内启动多个节点（随机端口）组成集群，验证分片与移交：
+ * 1. nodes 个节点组成集群，轮流向各节点建 games 局游戏，每局走两步；之后所有请求都随机发给任一节点（跟随 307 重定向）。
+ * 2. 加入一个新节点：约 1/(nodes+1) 的游戏移交过去，每局的版本号不变。
+ * 3. 移出第二个节点：它的游戏全部移交出去后关闭，剩下的节点仍能访问所有游戏。
+ *
+ * 运行：mvn -Ploadtest verify -Dloadtest.main=com.example.oxo.loadtest.LocalCluster -Dloadtest.args="3 1000"
+ * 参数：nodes（默认 3） games（默认 1000）。有游戏丢失或状态不一致时以非零状态退出。
+ */
+public final class LocalCluster {
+
+	private static final Pattern GAME_ID = Pattern.compile("\"gameId\":\"([^\"]+)\"");
+	private static final Pattern VERSION = Pattern.compile("\"version\":(\\d+)");
+	// 各节点共用的集群密钥，设置成员时同样要带上
+	private static final String SECRET = "local-cluster-" + Long.toHexString(System.nanoTime());
+
+	private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+	private final List<String> urls = new ArrayList<>();
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.build();
+	private final SplittableRandom random = new SplittableRandom(1);
+
+	private LocalCluster() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		LocalCluster cluster = new LocalCluster();
+		boolean consistent;
+		try {
+			consistent = cluster.run(nodes, games);
+		} finally {
+			cluster.close();
+		}
+		System.exit(consistent ? 0 : 1);
+	}
+
+	private boolean run(int nodes, int games) throws Exception {
+		for (int i = 0; i < nodes; i++) {
+			start();
+		}
+		setMembers(urls);
+		Map<String, Long> versions = new HashMap<>();
+		int createdElsewhere = 0;
+		for (int g = 0; g < games; g++) {
+			int node = g % nodes;
+			String body = send("POST", urls.get(node) + "/api/oxo/games", null);
+			Matcher id = GAME_ID.matcher(body);
+			if (!id.find()) {
+				throw new IllegalStateException("Unexpected create response: " + body);
+			}
+			String gameId = id.group(1);
+			// 新游戏只选用归属本节点的 id，建局的节点就是归属节点
+			if (gameRegistry(node).get(gameId) == null) {
+				createdElsewhere++;
+			}
+			send("POST", anyNode() + "/api/oxo/games/" + gameId + "/move", "{\"command\":\"a1\"}");
+			versions.put(gameId, version(send("POST", anyNode() + "/api/oxo/games/" + gameId + "/move",
+					"{\"command\":\"b2\"}")));
+		}
+		System.out.printf("%d nodes, %d games created, %d not on the creating node%n", nodes, games, createdElsewhere);
+		printDistribution();
+		boolean consistent = verify(versions);
+
+		start();
+		long start = System.nanoTime();
+		setMembers(urls);
+		int joined = gameRegistry(urls.size() - 1).size();
+		System.out.printf("%nadded %s: %d games (%.1f%%, ideal %.1f%%) handed off in %.0f ms%n", urls.get(urls.size() - 1),
+				joined, joined * 100.0 / games, 100.0 / urls.size(), (System.nanoTime() - start) / 1e6);
+		printDistribution();
+		consistent &= verify(versions);
+
+		String leaving = urls.get(1);
+		List<String> remaining = new ArrayList<>(urls);
+		remaining.remove(leaving);
+		start = System.nanoTime();
+		setMembers(remaining);
+		int left = gameRegistry(1).size();
+		System.out.printf("%nremoved %s: %d games left on it, handed off in %.0f ms%n", leaving, left,
+				(System.nanoTime() - start) / 1e6);
+		contexts.remove(1).close();
+		urls.remove(1);
+		printDistribution();
+		consistent &= left == 0 && verify(versions);
+
+		System.out.println(consistent ? "\nall games consistent" : "\nINCONSISTENT");
+		return consistent;
+	}
+
+	private void start() {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+				.web(WebApplicationType.SERVLET)
+				.properties("server.port=0", "spring.main.banner-mode=off", "logging.level.org.springframework=WARN",
+						"oxo.tablebase.enabled=false", "oxo.journal.enabled=false", "oxo.cluster.secret=" + SECRET)
+				.run();
+		contexts.add(context);
+		urls.add("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+	}
+
+	// 发给第一个节点，由它通知其他新旧成员；返回时各节点都已完成移交
+	private void setMembers(List<String> members) throws IOException, InterruptedException {
+		StringBuilder json = new StringBuilder("{\"members\":[");
+		for (int i = 0; i < members.size(); i++) {
+			json.append(i == 0 ? "\"" : ",\"").append(members.get(i)).append('"');
+		}
+		System.out.println("members -> " + send("PUT", urls.get(0) + "/api/oxo/cluster/members", json.append("]}").toString()));
+	}
+
+	// 每局从随机节点读取，版本号必须与最后一次落子后的相同
+	private boolean verify(Map<String, Long> versions) throws IOException, InterruptedException {
+		int mismatched = 0;
+		for (Map.Entry<String, Long> entry : versions.entrySet()) {
+			HttpResponse<String> response = client.send(
+					HttpRequest.newBuilder(URI.create(anyNode() + "/api/oxo/games/" + entry.getKey() + "/state")).GET().build(),
+					HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200 || version(response.body()) != entry.getValue()) {
+				mismatched++;
+			}
+		}
+		System.out.printf("verified %d games from random nodes: %d missing or changed%n", versions.size(), mismatched);
+		return mismatched == 0;
+	}
+
+	private void printDistribution() {
+		for (int i = 0; i < urls.size(); i++) {
+			System.out.printf("  %-24s %6d games%n", urls.get(i), gameRegistry(i).size());
+		}
+	}
+
+	private GameRegistry gameRegistry(int node) {
+		return contexts.get(node).getBean(GameRegistry.class);
+	}
+
+	private String anyNode() {
+		return urls.get(random.nextInt(urls.size()));
+	}
+
+	private String send(String method, String url, String json) throws IOException, InterruptedException {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).header(ClusterService.SECRET_HEADER, SECRET);
+		if (json != null) {
+			builder.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+		} else {
+			builder.method(method, HttpRequest.BodyPublishers.noBody());
+		}
+		HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() / 100 != 2) {
+			throw new IllegalStateException(method + " " + url + " -> " + response.statusCode() + " " + response.body());
+		}
+		return response.body();
+	}
+
+	private static long version(String body) {
+		Matcher matcher = VERSION.matcher(body);
+		return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	private void close() {
+		for (ConfigurableApplicationContext context : contexts) {
+			context.close();
+		}
+	}
+}
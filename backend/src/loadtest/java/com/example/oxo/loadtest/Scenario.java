@@ -0,0 +1,141 @@
+package com.example.oxo.loadtest;
+
+import com.example.oxo.model.MoveCommand;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.SplittableRandom;
+
+/**
+ * 一名虚拟玩家的请求序列（每次只有一个请求在途）：
+ * 建局 -> setSize -> setPlayers -> 轮流替所有玩家随机落子，每步之后轮询 polls 次 /state -> 分出胜负或和棋后删局，如此循环。
+ * shared 模式下所有虚拟玩家共用全局的 /api/oxo 棋局，不建局也不删局，落子互相冲突时的 4xx 计为拒绝，照常继续。
+ */
+final class Scenario {
+
+	/** 报告中按端点分组 */
+	enum Step {
+		CREATE("create"),
+		SET_SIZE("setSize"),
+		SET_PLAYERS("setPlayers"),
+		MOVE("move"),
+		STATE("state"),
+		DELETE("delete");
+
+		final String label;
+
+		Step(String label) {
+			this.label = label;
+		}
+	}
+
+	private static final String GAME_ID_FIELD = "\"gameId\":\"";
+
+	private final String api;
+	private final boolean shared;
+	private final int rows;
+	private final int cols;
+	private final int players;
+	private final int polls;
+	private final SplittableRandom random;
+	// 空格的排列：order[0, moves) 为本局已落子的格子（setPlayers 人数超过边长时服务端会放大棋盘，这里同样放大）
+	private final int[] order;
+
+	private String game;
+	private Step step;
+	private int moves;
+	private int pollsLeft;
+
+	Scenario(String api, boolean shared, int rows, int cols, int players, int polls, long seed) {
+		this.api = api;
+		this.shared = shared;
+		this.rows = Math.max(Math.max(3, rows), players);
+		this.cols = Math.max(Math.max(3, cols), players);
+		this.players = players;
+		this.polls = polls;
+		this.random = new SplittableRandom(seed);
+		this.order = new int[this.rows * this.cols];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		this.game = shared ? api : null;
+		this.step = shared ? Step.SET_SIZE : Step.CREATE;
+	}
+
+	/** 下一个请求所属的端点 */
+	Step step() {
+		return step;
+	}
+
+	HttpRequest request() {
+		return switch (step) {
+			case CREATE -> post(api + "/games");
+			case SET_SIZE -> post(game + "/setSize?rows=" + rows + "&cols=" + cols);
+			case SET_PLAYERS -> post(game + "/setPlayers?count=" + players);
+			case MOVE -> move(nextCell());
+			case STATE -> HttpRequest.newBuilder(URI.create(game + "/state")).GET().build();
+			case DELETE -> HttpRequest.newBuilder(URI.create(game)).DELETE().build();
+		};
+	}
+
+	/** 根据响应推进到下一步；status 为 -1 表示连接失败 */
+	void completed(int status, String body) {
+		boolean ok = status >= 200 && status < 300;
+		switch (step) {
+			case CREATE -> {
+				int start = ok ? body.indexOf(GAME_ID_FIELD) : -1;
+				if (start >= 0) {
+					start += GAME_ID_FIELD.length();
+					game = api + "/games/" + body.substring(start, body.indexOf('"', start));
+					step = Step.SET_SIZE;
+				}
+			}
+			case SET_SIZE -> step = Step.SET_PLAYERS;
+			case SET_PLAYERS -> {
+				moves = 0;
+				step = Step.MOVE;
+			}
+			case MOVE -> {
+				moves++;
+				boolean over = moves == order.length
+						|| ok && (body.contains("\"winner\":\"") || body.contains("\"drawn\":true"));
+				if (over) {
+					step = shared ? Step.SET_SIZE : Step.DELETE;
+				} else if (polls > 0) {
+					pollsLeft = polls;
+					step = Step.STATE;
+				}
+			}
+			case STATE -> {
+				if (--pollsLeft == 0) {
+					step = Step.MOVE;
+				}
+			}
+			case DELETE -> {
+				game = null;
+				step = Step.CREATE;
+			}
+		}
+	}
+
+	// 从剩余空格中均匀抽取
+	private int nextCell() {
+		int pick = moves + random.nextInt(order.length - moves);
+		int cell = order[pick];
+		order[pick] = order[moves];
+		order[moves] = cell;
+		return cell;
+	}
+
+	private HttpRequest move(int cell) {
+		String command = MoveCommand.format(cell / cols, cell % cols);
+		return HttpRequest.newBuilder(URI.create(game + "/move"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"command\":\"" + command + "\"}"))
+				.build();
+	}
+
+	private static HttpRequest post(String url) {
+		return HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.noBody()).build();
+	}
+}
@@ -0,0 +1,12 @@
+package com.example.oxo.ai;
+
+/**
+ * 所有 MCTS 搜索器都在使用中，且在等待时限内没有空出来。
+ * 控制器据此返回 503，客户端稍后重试。
+ */
+public class AiBusyException extends RuntimeException {
+
+	public AiBusyException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.oxo.ai;
+
+/** 一次 AI 搜索的结果：建议的落子位置以及搜索统计 */
+public class AiMove {
+	private final int row;
+	private final int col;
+	private final char player;
+	private final int score;
+	private final String outcome;
+	private final int depth;
+	private final long nodes;
+	private final long elapsedNanos;
+	private final String engine;
+
+	AiMove(int row, int col, char player, int score, String outcome, int depth, long nodes, long elapsedNanos,
+			String engine) {
+		this.row = row;
+		this.col = col;
+		this.player = player;
+		this.score = score;
+		this.outcome = outcome;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+		this.engine = engine;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getCol() {
+		return col;
+	}
+
+	public char getPlayer() {
+		return player;
+	}
+
+	/** 从落子玩家角度的分值，越大越好；mcts 为该着法的胜率（千分比，和棋计半） */
+	public int getScore() {
+		return score;
+	}
+
+	/** win / loss：搜索已证明的结果；draw：小棋盘完整搜索后的和棋；unknown：未搜到终局 */
+	public String getOutcome() {
+		return outcome;
+	}
+
+	/** alphabeta：完成的迭代深度；mcts：树的最大深度；tablebase：双方最优应对下距终局的步数 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/** alphabeta：搜索的节点数；mcts：模拟（playout）次数 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1_000_000;
+	}
+
+	long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+
+	public long getNodesPerSecond() {
+		return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+	}
+}
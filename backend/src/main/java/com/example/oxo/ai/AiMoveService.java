@@ -0,0 +1,262 @@
+package com.example.oxo.ai;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.service.GameService;
+import com.example.oxo.tablebase.TablebaseMove;
+import com.example.oxo.tablebase.TablebaseService;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 电脑玩家：为当前轮到的玩家搜索一步棋，适用于任意行列数和 winThreshold。
+ * 两种引擎：
+ * <ul>
+ *   <li>alpha-beta（{@link AlphaBetaSearch}）：每个搜索器带一张定长置换表，适合小棋盘，可以搜到底；</li>
+ *   <li>MCTS（{@link MctsSearch}）：适合 15x15 以上的大棋盘。每个搜索器一份节点数组，同时进行的搜索平分专用线程池的线程。</li>
+ * </ul>
+ * 两种搜索器各有一个固定上限的池（{@link SearcherPool}），同时进行的搜索数不超过池的大小，与请求线程数无关；
+ * 搜索器都在使用中时限时等待，超时抛出 {@link AiBusyException}。
+ * 搜索在局面的副本上进行：调用方只需在复制时持有游戏的锁（{@link #capture}），搜索期间无需持锁。
+ * 配置了残局库（{@link TablebaseService}）时，AUTO 模式下库中已有的局面直接查表，不做搜索。
+ */
+public class AiMoveService {
+
+	/** 搜索引擎；AUTO 按棋盘大小选择 */
+	public enum Engine {
+		AUTO, ALPHA_BETA, MCTS;
+
+		/** 解析请求参数（auto / alphabeta / mcts），null 为 AUTO */
+		public static Engine fromParam(String value) {
+			if (value == null || value.isEmpty()) {
+				return AUTO;
+			}
+			return switch (value.toLowerCase(Locale.ROOT)) {
+				case "auto" -> AUTO;
+				case "alphabeta", "alpha-beta", "alpha_beta" -> ALPHA_BETA;
+				case "mcts" -> MCTS;
+				default -> throw new IllegalArgumentException("Unknown AI engine: " + value);
+			};
+		}
+	}
+
+	/**
+	 * 某一时刻的局面副本，以及复制时的版本号，落子前据此确认局面没有变化。
+	 * alpha-beta 搜索在副本上原地落子和撤销，同一副本同一时刻只能用于一次搜索。
+	 */
+	public static final class Position {
+		final SearchBoard board;
+		final int player;
+		final long version;
+		final TablebaseMove solved;  // 残局库命中时的结果，否则为 null
+
+		Position(SearchBoard board, int player, long version, TablebaseMove solved) {
+			this.board = board;
+			this.player = player;
+			this.version = version;
+			this.solved = solved;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+	}
+
+	// AUTO 模式下使用 MCTS 的最小格子数和连线长度
+	private static final int MCTS_MIN_CELLS = 100;
+	private static final int MCTS_MIN_WIN_THRESHOLD = 5;
+
+	private final int tableSizeBits;
+	private final long defaultBudgetMillis;
+	private long maxBudgetMillis = 10_000;
+	private final int maxDepth;
+	private final SearcherPool<AlphaBetaSearch> alphaBetaPool;
+	private final ForkJoinPool mctsPool;
+	private final int mctsMaxNodes;
+	private final SearcherPool<MctsSearch> mctsSearchers;
+	private TablebaseService tablebase;
+	private final AtomicLong searches = new AtomicLong(0);
+	private final AtomicLong totalNodes = new AtomicLong(0);
+	private final AtomicLong totalNanos = new AtomicLong(0);
+	private final AtomicLong mctsSearches = new AtomicLong(0);
+	private final AtomicLong totalPlayouts = new AtomicLong(0);
+	private final AtomicLong mctsNanos = new AtomicLong(0);
+	private final AtomicLong tablebaseMoves = new AtomicLong(0);
+
+	public AiMoveService(int tableSizeBits, long defaultBudgetMillis, int maxDepth) {
+		this(tableSizeBits, defaultBudgetMillis, maxDepth, Runtime.getRuntime().availableProcessors(), 1 << 20);
+	}
+
+	public AiMoveService(int tableSizeBits, long defaultBudgetMillis, int maxDepth, int mctsThreads, int mctsMaxNodes) {
+		this.tableSizeBits = tableSizeBits;
+		this.defaultBudgetMillis = defaultBudgetMillis;
+		this.maxDepth = maxDepth;
+		this.alphaBetaPool = new SearcherPool<>("alpha-beta",
+				() -> new AlphaBetaSearch(new TranspositionTable(tableSizeBits)), Runtime.getRuntime().availableProcessors(), 2000);
+		this.mctsPool = new ForkJoinPool(Math.max(1, mctsThreads));
+		this.mctsMaxNodes = mctsMaxNodes;
+		this.mctsSearchers = new SearcherPool<>("MCTS", this::newMctsSearch, 1, 2000);
+	}
+
+	public void setTablebase(TablebaseService tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/** 单次搜索允许的最长时间；请求的预算超过它时被拒绝，默认预算也不会超过它 */
+	public void setMaxBudgetMillis(long maxBudgetMillis) {
+		this.maxBudgetMillis = maxBudgetMillis;
+	}
+
+	/** 同时进行的 alpha-beta 搜索数上限（每个搜索器一张置换表），以及搜索器都在使用中时的最长等待时间；需在第一次搜索前设置 */
+	public void setAlphaBetaSearchers(int searchers, long queueTimeoutMillis) {
+		alphaBetaPool.configure(searchers, queueTimeoutMillis);
+	}
+
+	/** 同时进行的 MCTS 搜索数上限，以及搜索器都在使用中时的最长等待时间；需在第一次搜索前设置 */
+	public void setMctsSearchers(int searchers, long queueTimeoutMillis) {
+		mctsSearchers.configure(searchers, queueTimeoutMillis);
+	}
+
+	/**
+	 * 校验请求的搜索预算并返回实际使用的毫秒数：0 表示默认预算，负数或超过 maxBudgetMillis 时抛出 IllegalArgumentException。
+	 * 控制器在复制局面之前调用，非法请求不会占用游戏的锁和搜索线程。
+	 */
+	public long budgetMillis(long requested) {
+		if (requested < 0 || requested > maxBudgetMillis) {
+			throw new IllegalArgumentException("budgetMs must be between 0 and " + maxBudgetMillis);
+		}
+		return Math.min(requested > 0 ? requested : defaultBudgetMillis, maxBudgetMillis);
+	}
+
+	/**
+	 * 复制 service 的当前局面（同时查询残局库）。调用方需持有该局游戏的锁。
+	 * 游戏已结束或没有玩家时抛出 IllegalStateException；已落子区域过大时抛出 IllegalArgumentException。
+	 */
+	public Position capture(GameService service) {
+		GameModel model = service.getGameModel();
+		if (model.getNumberOfPlayers() == 0) {
+			throw new IllegalStateException("No players set. Please set players first.");
+		}
+		if (model.getWinner() != null || model.isGameDrawn()) {
+			throw new IllegalStateException("Game is already over");
+		}
+		TablebaseMove solved = tablebase == null ? null : tablebase.lookup(model);
+		return new Position(SearchBoard.copyOf(model), model.getCurrentPlayerNumber(), service.getVersion(), solved);
+	}
+
+	/** 使用 AUTO 引擎搜索 */
+	public AiMove findBestMove(Position position, long budgetMillis) {
+		return findBestMove(position, budgetMillis, Engine.AUTO);
+	}
+
+	/** 在 budgetMillis 内搜索（0 时使用默认预算，取值范围见 {@link #budgetMillis}），没有可走的位置时返回 null */
+	public AiMove findBestMove(Position position, long budgetMillis, Engine engine) {
+		long budgetNanos = budgetMillis(budgetMillis) * 1_000_000L;
+		if (engine == Engine.AUTO && position.solved != null) {
+			return fromTablebase(position);
+		}
+		if (resolve(engine, position.board) == Engine.MCTS) {
+			MctsSearch mcts = mctsSearchers.acquire();
+			AiMove move;
+			try {
+				move = mcts.search(position.board, position.player, budgetNanos, Long.MAX_VALUE);
+			} finally {
+				mctsSearchers.release(mcts);
+			}
+			if (move != null) {
+				mctsSearches.incrementAndGet();
+				totalPlayouts.addAndGet(move.getNodes());
+				mctsNanos.addAndGet(move.getElapsedNanos());
+			}
+			return move;
+		}
+		AlphaBetaSearch searcher = alphaBetaPool.acquire();
+		AiMove move;
+		try {
+			move = searcher.search(position.board, position.player, budgetNanos, maxDepth);
+		} finally {
+			alphaBetaPool.release(searcher);
+		}
+		if (move != null) {
+			searches.incrementAndGet();
+			totalNodes.addAndGet(move.getNodes());
+			totalNanos.addAndGet(move.getElapsedNanos());
+		}
+		return move;
+	}
+
+	/** 直接在 service 上搜索，调用方需在整个过程中持有该局游戏的锁 */
+	public AiMove findBestMove(GameService service, long budgetMillis) {
+		return findBestMove(capture(service), budgetMillis, Engine.AUTO);
+	}
+
+	public AiMove findBestMove(GameService service, long budgetMillis, Engine engine) {
+		return findBestMove(capture(service), budgetMillis, engine);
+	}
+
+	private AiMove fromTablebase(Position position) {
+		long start = System.nanoTime();
+		TablebaseMove solved = position.solved;
+		int plies = solved.getPliesToEnd();
+		int score;
+		switch (solved.getOutcome()) {
+			case "win" -> score = AlphaBetaSearch.WIN - plies;
+			case "loss" -> score = -(AlphaBetaSearch.WIN - plies);
+			default -> score = 0;
+		}
+		tablebaseMoves.incrementAndGet();
+		return new AiMove(solved.getRow(), solved.getCol(), position.board.letters[position.player], score,
+				solved.getOutcome(), plies, 0, System.nanoTime() - start, "tablebase");
+	}
+
+	private static Engine resolve(Engine engine, SearchBoard board) {
+		if (engine != Engine.AUTO) {
+			return engine;
+		}
+		long cells = (long) board.totalRows * board.totalCols;
+		return cells >= MCTS_MIN_CELLS && board.winThreshold >= MCTS_MIN_WIN_THRESHOLD ? Engine.MCTS : Engine.ALPHA_BETA;
+	}
+
+	// 同时进行的搜索平分专用线程池的线程
+	private MctsSearch newMctsSearch() {
+		return new MctsSearch(mctsPool, Math.max(1, mctsPool.getParallelism() / mctsSearchers.getSize()), mctsMaxNodes);
+	}
+
+	public long getDefaultBudgetMillis() {
+		return defaultBudgetMillis;
+	}
+
+	public void shutdown() {
+		mctsPool.shutdownNow();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		long nodes = totalNodes.get();
+		long nanos = totalNanos.get();
+		stats.put("searches", searches.get());
+		stats.put("totalNodes", nodes);
+		stats.put("averageNodesPerSecond", nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos);
+		stats.put("transpositionTableEntries", 1 << tableSizeBits);
+		stats.put("alphaBetaSearchers", alphaBetaPool.getAllocated());
+		stats.put("alphaBetaRejected", alphaBetaPool.getRejected());
+		stats.put("defaultBudgetMs", defaultBudgetMillis);
+		stats.put("maxBudgetMs", maxBudgetMillis);
+		stats.put("maxDepth", maxDepth);
+
+		long playouts = totalPlayouts.get();
+		long playoutNanos = mctsNanos.get();
+		stats.put("mctsSearches", mctsSearches.get());
+		stats.put("mctsTotalPlayouts", playouts);
+		stats.put("mctsPlayoutsPerSecond", playoutNanos == 0 ? 0 : playouts * 1_000_000_000L / playoutNanos);
+		stats.put("mctsThreads", mctsPool.getParallelism());
+		stats.put("mctsMaxNodes", mctsMaxNodes);
+		stats.put("mctsSearchers", mctsSearchers.getAllocated());
+		stats.put("mctsRejected", mctsSearchers.getRejected());
+		stats.put("tablebaseMoves", tablebaseMoves.get());
+		return stats;
+	}
+}
@@ -0,0 +1,234 @@
+package com.example.oxo.ai;
+
+import java.util.Arrays;
+
+/**
+ * 迭代加深的 alpha-beta 搜索。每个线程一个实例（置换表和历史表都不是线程安全的）。
+ * 分值始终从根节点玩家的角度计算：轮到根玩家时取最大，轮到其他玩家时取最小
+ * （多于两名玩家时即"偏执"假设：其他玩家联手对付根玩家），因此两人和多人对局用同一套剪枝。
+ * 着法排序：置换表中的最佳着法优先，其余按历史启发分值从高到低。
+ */
+final class AlphaBetaSearch {
+	static final int WIN = 1_000_000;
+	static final int MAX_PLY = 128;
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final int MATE_BOUND = WIN - 10_000;
+	private static final int TIME_CHECK_MASK = 1023;
+
+	private final TranspositionTable table;
+	private final int[][] moveBuffers = new int[MAX_PLY + 1][];
+	private int[] history = new int[0];
+
+	private SearchBoard board;
+	private int rootPlayer;
+	private long rootKey;
+	private long deadline;
+	private boolean abortAllowed;
+	private boolean aborted;
+	private long nodes;
+	private int rootBestMove;
+
+	AlphaBetaSearch(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * 在时间预算内搜索 player 的最佳着法。至少完成深度 1；超时后返回最后一轮完整迭代的结果。
+	 */
+	AiMove search(SearchBoard searchBoard, int player, long budgetNanos, int maxDepth) {
+		long startNanos = System.nanoTime();
+		this.board = searchBoard;
+		this.rootPlayer = player;
+		this.rootKey = searchBoard.rootKeys[player] ^ searchBoard.geometryKey;
+		this.deadline = startNanos + budgetNanos;
+		this.aborted = false;
+		this.nodes = 0;
+		if (history.length < searchBoard.cells.length) {
+			history = new int[searchBoard.cells.length];
+		} else {
+			Arrays.fill(history, 0);
+		}
+
+		int depthLimit = (int) Math.min(Math.min(maxDepth, MAX_PLY), searchBoard.emptyInside);
+		int bestMove = TranspositionTable.NO_MOVE;
+		int bestScore = 0;
+		int completedDepth = 0;
+		for (int depth = 1; depth <= depthLimit; depth++) {
+			abortAllowed = depth > 1;
+			rootBestMove = TranspositionTable.NO_MOVE;
+			int score = search(depth, 0, -INFINITY, INFINITY, player);
+			if (aborted) {
+				break;
+			}
+			bestMove = rootBestMove;
+			bestScore = score;
+			completedDepth = depth;
+			if (Math.abs(score) > MATE_BOUND) {
+				break;  // 已找到必胜/必败的着法，继续加深不会改变结论
+			}
+		}
+		long elapsed = System.nanoTime() - startNanos;
+		if (bestMove == TranspositionTable.NO_MOVE) {
+			return null;
+		}
+		boolean solved = completedDepth == searchBoard.emptyInside && searchBoard.emptyOutside == 0
+				&& searchBoard.cells.length <= SearchBoard.FULL_WIDTH_CELLS;
+		return new AiMove(searchBoard.absoluteRow(bestMove), searchBoard.absoluteCol(bestMove),
+				searchBoard.letters[player], bestScore, outcome(bestScore, solved), completedDepth, nodes, elapsed,
+				"alphabeta");
+	}
+
+	private int search(int depth, int ply, int alpha, int beta, int toMove) {
+		nodes++;
+		if ((nodes & TIME_CHECK_MASK) == 0 && abortAllowed && System.nanoTime() > deadline) {
+			aborted = true;
+		}
+		if (aborted) {
+			return 0;
+		}
+		long key = board.hash ^ board.sideKeys[toMove] ^ rootKey;
+		int ttMove = TranspositionTable.NO_MOVE;
+		int slot = table.probe(key);
+		if (slot >= 0) {
+			ttMove = table.move(slot);
+			if (ply > 0 && table.depth(slot) >= depth) {
+				int stored = fromTable(table.score(slot), ply);
+				byte flag = table.flag(slot);
+				if (flag == TranspositionTable.EXACT) {
+					return stored;
+				}
+				if (flag == TranspositionTable.LOWER_BOUND) {
+					alpha = Math.max(alpha, stored);
+				} else {
+					beta = Math.min(beta, stored);
+				}
+				if (alpha >= beta) {
+					return stored;
+				}
+			}
+		}
+		if (depth == 0) {
+			return board.evaluate(rootPlayer);
+		}
+
+		int[] moves = moveBuffer(ply);
+		int count = generateMoves(moves, ttMove);
+		if (count == 0) {
+			return 0;
+		}
+		boolean maximizing = toMove == rootPlayer;
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int best = maximizing ? -INFINITY : INFINITY;
+		int bestMove = TranspositionTable.NO_MOVE;
+		int next = (toMove + 1) % board.playerCount;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			board.place(move, toMove);
+			int score;
+			if (board.winsAt(move)) {
+				score = maximizing ? WIN - ply - 1 : -(WIN - ply - 1);
+			} else if (board.isFull()) {
+				score = 0;
+			} else {
+				score = search(depth - 1, ply + 1, alpha, beta, next);
+			}
+			board.remove(move);
+			if (aborted) {
+				return 0;
+			}
+			if (maximizing ? score > best : score < best) {
+				best = score;
+				bestMove = move;
+				if (ply == 0) {
+					rootBestMove = move;
+				}
+			}
+			if (maximizing) {
+				alpha = Math.max(alpha, best);
+			} else {
+				beta = Math.min(beta, best);
+			}
+			if (alpha >= beta) {
+				history[move] += depth * depth;
+				break;
+			}
+		}
+		byte flag = best <= alphaOrig ? TranspositionTable.UPPER_BOUND
+				: best >= betaOrig ? TranspositionTable.LOWER_BOUND
+				: TranspositionTable.EXACT;
+		table.store(key, depth, toTable(best, ply), flag, bestMove);
+		return best;
+	}
+
+	/**
+	 * 候选着法见 {@link SearchBoard#isCandidate}，大棋盘空盘时直接下在中心；
+	 * 置换表着法放在最前，其余按历史分值插入排序。
+	 */
+	private int generateMoves(int[] moves, int ttMove) {
+		byte[] cells = board.cells;
+		if (board.opensAtCenter()) {
+			moves[0] = board.centerIndex();
+			return 1;
+		}
+		int count = 0;
+		for (int index = 0; index < cells.length; index++) {
+			if (!board.isCandidate(index) || index == ttMove) {
+				continue;
+			}
+			int score = history[index];
+			int j = count++;
+			while (j > 0 && history[moves[j - 1]] < score) {
+				moves[j] = moves[j - 1];
+				j--;
+			}
+			moves[j] = index;
+		}
+		if (ttMove >= 0 && ttMove < cells.length && cells[ttMove] == 0) {
+			System.arraycopy(moves, 0, moves, 1, count);
+			moves[0] = ttMove;
+			count++;
+		}
+		return count;
+	}
+
+	private int[] moveBuffer(int ply) {
+		int[] buffer = moveBuffers[ply];
+		if (buffer == null || buffer.length < board.cells.length + 1) {
+			buffer = new int[board.cells.length + 1];
+			moveBuffers[ply] = buffer;
+		}
+		return buffer;
+	}
+
+	// 胜负分值带有步数，存入置换表时换算成相对当前节点的距离，取出时再换算回来
+	private static int toTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score + ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score - ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	private static String outcome(int score, boolean solved) {
+		if (score > MATE_BOUND) {
+			return "win";
+		}
+		if (score < -MATE_BOUND) {
+			return "loss";
+		}
+		return solved ? "draw" : "unknown";
+	}
+}
@@ -0,0 +1,291 @@
+package com.example.oxo.ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 并行蒙特卡洛树搜索，用于 alpha-beta 搜不深的大棋盘（如 15x15、五子连线）。
+ * 树并行：所有工作线程共享一棵树，节点存放在预先分配的基本类型数组里，访问次数和得分用原子数组无锁更新。
+ * 向下选择时先给经过的节点加一次访问（虚拟损失：结果未出前按输棋计），让其他线程倾向于探索别的分支。
+ * 每个线程在自己的棋盘副本上落子和随机模拟，模拟过程不分配对象。
+ * 一个实例同一时刻只运行一次搜索；并发的搜索使用不同的实例（见 AiMoveService 中的搜索器池），共用同一个线程池。
+ */
+final class MctsSearch {
+	// children 数组中的节点状态；>= 1 表示第一个子节点的下标
+	private static final int UNEXPANDED = 0;
+	private static final int EXPANDING = -1;
+	private static final int NO_CHILDREN = -2;
+	// 节点被访问到这么多次才展开，避免每次模拟都新建一层节点
+	private static final int EXPAND_VISITS = 2;
+	private static final byte ONGOING = 0;
+	private static final byte MOVER_WINS = 1;
+	private static final byte DRAWN = 2;
+	private static final int DRAW = -1;
+	private static final double EXPLORATION = 1.4;
+	private static final int MAX_PATH = 4096;
+
+	private final ForkJoinPool pool;
+	private final int threads;
+	private final int capacity;
+	private final int[] moves;            // 走到该节点的着法（格子下标）
+	private final byte[] terminal;
+	private final int[] childCounts;
+	private final AtomicIntegerArray children;
+	private final AtomicIntegerArray visits;
+	private final AtomicLongArray scores;  // 走到该节点的玩家的得分：胜 2，和 1
+	private final AtomicInteger nodeCount = new AtomicInteger();
+	private final AtomicLong playouts = new AtomicLong();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	// 当前搜索
+	private SearchBoard root;
+	private int rootPlayer;
+	private long deadline;
+	private long playoutLimit;
+
+	/** threads 为一次搜索提交到 pool 的工作任务数 */
+	MctsSearch(ForkJoinPool pool, int threads, int capacity) {
+		this.pool = pool;
+		this.threads = threads;
+		this.capacity = capacity;
+		this.moves = new int[capacity];
+		this.terminal = new byte[capacity];
+		this.childCounts = new int[capacity];
+		this.children = new AtomicIntegerArray(capacity);
+		this.visits = new AtomicIntegerArray(capacity);
+		this.scores = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * 在时间预算内（或达到 maxPlayouts 次模拟后）返回访问次数最多的根节点子着法；每个工作任务至少模拟一次，
+	 * 因此只要有可走的位置就不会返回 null。调用方保证同一实例不被并发调用
+	 */
+	AiMove search(SearchBoard board, int player, long budgetNanos, long maxPlayouts) {
+		long startNanos = System.nanoTime();
+		clearTree();
+		this.root = board;
+		this.rootPlayer = player;
+		this.deadline = startNanos + budgetNanos;
+		this.playoutLimit = maxPlayouts;
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+		for (int t = 0; t < threads; t++) {
+			long seed = startNanos * 0x9E3779B97F4A7C15L + t;
+			tasks[t] = pool.submit(() -> work(seed));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		long elapsed = System.nanoTime() - startNanos;
+
+		int first = children.get(0);
+		if (first <= 0) {
+			return null;
+		}
+		int best = first;
+		for (int child = first; child < first + childCounts[0]; child++) {
+			if (visits.get(child) > visits.get(best)) {
+				best = child;
+			}
+		}
+		int bestVisits = Math.max(1, visits.get(best));
+		int winPermille = (int) (scores.get(best) * 500 / bestVisits);
+		String outcome = terminal[best] == MOVER_WINS ? "win" : "unknown";
+		return new AiMove(board.absoluteRow(moves[best]), board.absoluteCol(moves[best]), board.letters[player],
+				winPermille, outcome, maxDepth.get(), playouts.get(), elapsed, "mcts");
+	}
+
+	int nodesUsed() {
+		return Math.min(nodeCount.get(), capacity);
+	}
+
+	private void clearTree() {
+		int used = nodesUsed();
+		for (int i = 0; i < used; i++) {
+			children.set(i, UNEXPANDED);
+			visits.set(i, 0);
+			scores.set(i, 0);
+			terminal[i] = ONGOING;
+			childCounts[i] = 0;
+		}
+		moves[0] = -1;
+		nodeCount.set(1);
+		playouts.set(0);
+		maxDepth.set(0);
+	}
+
+	private void work(long seed) {
+		SearchBoard board = root.copy();
+		int playerCount = board.playerCount;
+		int[] path = new int[MAX_PATH];
+		int[] placed = new int[board.cells.length];
+		int[] empties = new int[board.cells.length];
+		long[] random = {seed | 1};
+		int deepest = 0;
+
+		// 至少做一次模拟：线程池繁忙、任务开始时已过期限也要展开根节点，保证有着法可返回
+		do {
+			int node = 0;
+			int depth = 0;
+			int placedCount = 0;
+			int toMove = rootPlayer;
+			int result;
+			visits.incrementAndGet(0);
+			while (true) {
+				if (terminal[node] != ONGOING) {
+					result = terminal[node] == MOVER_WINS ? moverAt(depth, playerCount) : DRAW;
+					break;
+				}
+				int state = children.get(node);
+				if (state == UNEXPANDED && (node == 0 || visits.get(node) >= EXPAND_VISITS)
+						&& children.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+					state = expand(node, board, toMove);
+				}
+				if (state <= 0 || depth + 1 >= MAX_PATH) {
+					// 未展开、正由其他线程展开或没有子节点：从这里随机模拟到终局
+					result = playout(board, toMove, empties, random);
+					break;
+				}
+				int child = select(node, state);
+				visits.incrementAndGet(child);  // 虚拟损失
+				board.place(moves[child], toMove);
+				placed[placedCount++] = moves[child];
+				path[++depth] = child;
+				node = child;
+				toMove = (toMove + 1) % playerCount;
+			}
+			// 回传：每个节点按"走到该节点的玩家"计分；访问次数已在向下时加过
+			for (int d = 1; d <= depth; d++) {
+				int mover = moverAt(d, playerCount);
+				if (result == mover) {
+					scores.addAndGet(path[d], 2);
+				} else if (result == DRAW) {
+					scores.addAndGet(path[d], 1);
+				}
+			}
+			for (int i = placedCount - 1; i >= 0; i--) {
+				board.remove(placed[i]);
+			}
+			deepest = Math.max(deepest, depth);
+			playouts.incrementAndGet();
+		} while (System.nanoTime() < deadline && playouts.get() < playoutLimit);
+		maxDepth.accumulateAndGet(deepest, Math::max);
+	}
+
+	private int moverAt(int depth, int playerCount) {
+		return (rootPlayer + depth - 1) % playerCount;
+	}
+
+	/** 为 node 创建所有候选着法的子节点，返回第一个子节点下标或 NO_CHILDREN */
+	private int expand(int node, SearchBoard board, int toMove) {
+		int count = 0;
+		if (board.opensAtCenter()) {
+			count = 1;
+		} else {
+			for (int index = 0; index < board.cells.length; index++) {
+				if (board.isCandidate(index)) {
+					count++;
+				}
+			}
+		}
+		int first = count == 0 ? -1 : nodeCount.getAndAdd(count);
+		if (first < 0 || first + count > capacity) {
+			children.set(node, NO_CHILDREN);
+			return NO_CHILDREN;
+		}
+		int child = first;
+		if (board.opensAtCenter()) {
+			initChild(child, board.centerIndex(), board, toMove);
+		} else {
+			for (int index = 0; index < board.cells.length; index++) {
+				if (board.isCandidate(index)) {
+					initChild(child++, index, board, toMove);
+				}
+			}
+		}
+		childCounts[node] = count;
+		children.set(node, first);  // 发布：之前写入的子节点数据对读到该值的线程可见
+		return first;
+	}
+
+	private void initChild(int child, int move, SearchBoard board, int toMove) {
+		moves[child] = move;
+		board.place(move, toMove);
+		terminal[child] = board.winsAt(move) ? MOVER_WINS : board.isFull() ? DRAWN : ONGOING;
+		board.remove(move);
+	}
+
+	// UCT：未访问过的子节点优先，其余取 平均得分 + 探索项 最大者
+	private int select(int node, int first) {
+		int count = childCounts[node];
+		double logParent = Math.log(Math.max(1, visits.get(node)));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + count; child++) {
+			if (terminal[child] == MOVER_WINS) {
+				return child;
+			}
+			int n = visits.get(child);
+			if (n == 0) {
+				return child;
+			}
+			double value = scores.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logParent / n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * 从当前局面随机落子直到有人连线或棋盘（搜索矩形）下满，返回获胜玩家，和棋返回 DRAW。
+	 * 返回前撤销模拟中落下的棋子。random 是该线程的随机数状态。
+	 */
+	private int playout(SearchBoard board, int toMove, int[] empties, long[] random) {
+		byte[] cells = board.cells;
+		int n = 0;
+		for (int index = 0; index < cells.length; index++) {
+			if (cells[index] == 0) {
+				empties[n++] = index;
+			}
+		}
+		int playerCount = board.playerCount;
+		int result = DRAW;
+		long state = random[0];
+		int k = 0;
+		while (k < n) {
+			// 部分 Fisher-Yates 洗牌：已落子的格子移到 empties 前部
+			state = xorshift(state);
+			int j = k + (int) ((state >>> 33) % (n - k));
+			int move = empties[j];
+			empties[j] = empties[k];
+			empties[k++] = move;
+			board.place(move, toMove);
+			if (board.winsAt(move)) {
+				result = toMove;
+				break;
+			}
+			toMove = (toMove + 1) % playerCount;
+		}
+		random[0] = state;
+		for (int i = k - 1; i >= 0; i--) {
+			board.remove(empties[i]);
+		}
+		return result;
+	}
+
+	private static long xorshift(long x) {
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		return x;
+	}
+
+	long getPlayouts() {
+		return playouts.get();
+	}
+}
@@ -0,0 +1,290 @@
+package com.example.oxo.ai;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.Player;
+
+/**
+ * 搜索用的紧凑棋盘副本：byte[] 存放玩家下标 + 1（0 为空）。小棋盘整块复制；
+ * 大棋盘只覆盖已落子区域外扩 MARGIN 格的矩形，少量棋子也只需要很小的数组。落子/撤销时增量更新 Zobrist 哈希和"附近有棋子"计数。
+ * 连线判定与 {@code OptimizedGameService.checkForWinner} 一致：经过刚落子格子的四个方向之一连续 winThreshold 个同色棋子。
+ */
+final class SearchBoard {
+	static final int MARGIN = 2;
+	static final int MAX_CELLS = 1 << 16;
+	static final int WHOLE_BOARD_CELLS = 400;
+	// 格子数不超过该值的棋盘考虑所有空格，否则只考虑附近 MARGIN 格内有棋子的空格
+	static final int FULL_WIDTH_CELLS = 36;
+
+	// 方向向量：水平、垂直、主对角线、副对角线
+	private static final int[] DIR_ROW = {0, 1, 1, 1};
+	private static final int[] DIR_COL = {1, 0, 1, -1};
+
+	final int rows;
+	final int cols;
+	final int rowOffset;
+	final int colOffset;
+	final int totalRows;
+	final int totalCols;
+	final int winThreshold;
+	final int playerCount;
+	final char[] letters;
+	final byte[] cells;
+	final int[] nearby;      // 周围 MARGIN 范围内的棋子数，用于生成候选着法
+	final long[] keys;       // Zobrist 键：keys[index * playerCount + player]
+	final long[] sideKeys;   // 轮到谁走
+	final long[] rootKeys;   // 为哪位玩家搜索（分值的视角）
+	final long geometryKey;  // 棋盘尺寸、胜利条件、玩家数
+	final long emptyOutside; // 矩形之外的空格数，> 0 时永远不会下满
+	int emptyInside;
+	int stones;
+	long hash;
+
+	private SearchBoard(int rows, int cols, int rowOffset, int colOffset, int totalRows, int totalCols,
+			int winThreshold, int playerCount) {
+		this.rows = rows;
+		this.cols = cols;
+		this.rowOffset = rowOffset;
+		this.colOffset = colOffset;
+		this.totalRows = totalRows;
+		this.totalCols = totalCols;
+		this.winThreshold = winThreshold;
+		this.playerCount = playerCount;
+		this.letters = new char[playerCount];
+		this.cells = new byte[rows * cols];
+		this.nearby = new int[rows * cols];
+		this.keys = new long[rows * cols * playerCount];
+		this.sideKeys = new long[playerCount];
+		this.rootKeys = new long[playerCount];
+		this.geometryKey = zobrist(-2 - winThreshold, totalRows, (totalCols << 8) | playerCount);
+		this.emptyOutside = (long) totalRows * totalCols - (long) rows * cols;
+		this.emptyInside = rows * cols;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				for (int p = 0; p < playerCount; p++) {
+					keys[(r * cols + c) * playerCount + p] = zobrist(r + rowOffset, c + colOffset, p);
+				}
+			}
+		}
+		for (int p = 0; p < playerCount; p++) {
+			sideKeys[p] = zobrist(-1, -1, p);
+			rootKeys[p] = zobrist(-1, -2, p);
+		}
+	}
+
+	// 复制另一个副本（并行搜索时每个线程一份），键表是只读的，可以共享
+	private SearchBoard(SearchBoard other) {
+		this.rows = other.rows;
+		this.cols = other.cols;
+		this.rowOffset = other.rowOffset;
+		this.colOffset = other.colOffset;
+		this.totalRows = other.totalRows;
+		this.totalCols = other.totalCols;
+		this.winThreshold = other.winThreshold;
+		this.playerCount = other.playerCount;
+		this.letters = other.letters;
+		this.cells = other.cells.clone();
+		this.nearby = other.nearby.clone();
+		this.keys = other.keys;
+		this.sideKeys = other.sideKeys;
+		this.rootKeys = other.rootKeys;
+		this.geometryKey = other.geometryKey;
+		this.emptyOutside = other.emptyOutside;
+		this.emptyInside = other.emptyInside;
+		this.stones = other.stones;
+		this.hash = other.hash;
+	}
+
+	SearchBoard copy() {
+		return new SearchBoard(this);
+	}
+
+	/** 复制 model 的当前局面，调用方需保证复制期间 model 不被修改 */
+	static SearchBoard copyOf(GameModel model) {
+		int totalRows = model.getNumberOfRows();
+		int totalCols = model.getNumberOfColumns();
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1};
+		model.forEachOccupiedCell((row, col, owner) -> {
+			bounds[0] = Math.min(bounds[0], row);
+			bounds[1] = Math.min(bounds[1], col);
+			bounds[2] = Math.max(bounds[2], row);
+			bounds[3] = Math.max(bounds[3], col);
+		});
+		if ((long) totalRows * totalCols <= WHOLE_BOARD_CELLS) {
+			bounds[0] = bounds[1] = 0;
+			bounds[2] = totalRows - 1;
+			bounds[3] = totalCols - 1;
+		} else if (bounds[2] < 0) {
+			// 空棋盘：以中心为准
+			bounds[0] = bounds[2] = totalRows / 2;
+			bounds[1] = bounds[3] = totalCols / 2;
+		}
+		int top = Math.max(0, bounds[0] - MARGIN);
+		int left = Math.max(0, bounds[1] - MARGIN);
+		int bottom = Math.min(totalRows - 1, bounds[2] + MARGIN);
+		int right = Math.min(totalCols - 1, bounds[3] + MARGIN);
+		int rows = bottom - top + 1;
+		int cols = right - left + 1;
+		if ((long) rows * cols > MAX_CELLS) {
+			throw new IllegalArgumentException("Occupied region too large to search: " + rows + "x" + cols);
+		}
+		SearchBoard board = new SearchBoard(rows, cols, top, left, totalRows, totalCols, model.getWinThreshold(),
+				model.getNumberOfPlayers());
+		for (int p = 0; p < board.playerCount; p++) {
+			board.letters[p] = model.getPlayerByNumber(p).getPlayingLetter();
+		}
+		model.forEachOccupiedCell((row, col, owner) ->
+				board.place((row - top) * cols + (col - left), indexOf(model, owner)));
+		return board;
+	}
+
+	private static int indexOf(GameModel model, Player player) {
+		for (int p = 0; p < model.getNumberOfPlayers(); p++) {
+			if (model.getPlayerByNumber(p) == player) {
+				return p;
+			}
+		}
+		throw new IllegalStateException("Cell owned by unknown player");
+	}
+
+	void place(int index, int player) {
+		cells[index] = (byte) (player + 1);
+		hash ^= keys[index * playerCount + player];
+		emptyInside--;
+		stones++;
+		adjustNearby(index, 1);
+	}
+
+	void remove(int index) {
+		int player = cells[index] - 1;
+		cells[index] = 0;
+		hash ^= keys[index * playerCount + player];
+		emptyInside++;
+		stones--;
+		adjustNearby(index, -1);
+	}
+
+	private void adjustNearby(int index, int delta) {
+		int row = index / cols;
+		int col = index % cols;
+		int r0 = Math.max(0, row - MARGIN);
+		int r1 = Math.min(rows - 1, row + MARGIN);
+		int c0 = Math.max(0, col - MARGIN);
+		int c1 = Math.min(cols - 1, col + MARGIN);
+		for (int r = r0; r <= r1; r++) {
+			int base = r * cols;
+			for (int c = c0; c <= c1; c++) {
+				nearby[base + c] += delta;
+			}
+		}
+	}
+
+	boolean isCandidate(int index) {
+		return cells[index] == 0 && (cells.length <= FULL_WIDTH_CELLS || nearby[index] > 0);
+	}
+
+	/** 大棋盘空盘时的唯一候选：原棋盘的中心 */
+	boolean opensAtCenter() {
+		return stones == 0 && cells.length > FULL_WIDTH_CELLS;
+	}
+
+	int centerIndex() {
+		return (totalRows / 2 - rowOffset) * cols + totalCols / 2 - colOffset;
+	}
+
+	boolean isFull() {
+		return emptyInside == 0 && emptyOutside == 0;
+	}
+
+	/** index 处刚落下的棋子是否形成连线 */
+	boolean winsAt(int index) {
+		int owner = cells[index];
+		int row = index / cols;
+		int col = index % cols;
+		for (int d = 0; d < 4; d++) {
+			int count = 1 + count(row, col, DIR_ROW[d], DIR_COL[d], owner) + count(row, col, -DIR_ROW[d], -DIR_COL[d], owner);
+			if (count >= winThreshold) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int count(int row, int col, int dr, int dc, int owner) {
+		int n = 0;
+		int r = row + dr;
+		int c = col + dc;
+		while (r >= 0 && r < rows && c >= 0 && c < cols && cells[r * cols + c] == owner) {
+			n++;
+			r += dr;
+			c += dc;
+		}
+		return n;
+	}
+
+	/**
+	 * 静态评估（从 player 的角度）：对每段连续同色棋子，按长度和两端是否为空打分，
+	 * 对方的同类棋形记负分。
+	 */
+	int evaluate(int player) {
+		int score = 0;
+		int owner = player + 1;
+		for (int index = 0; index < cells.length; index++) {
+			int cell = cells[index];
+			if (cell == 0) {
+				continue;
+			}
+			int row = index / cols;
+			int col = index % cols;
+			for (int d = 0; d < 4; d++) {
+				int dr = DIR_ROW[d];
+				int dc = DIR_COL[d];
+				int pr = row - dr;
+				int pc = col - dc;
+				boolean beforeInside = pr >= 0 && pr < rows && pc >= 0 && pc < cols;
+				if (beforeInside && cells[pr * cols + pc] == cell) {
+					continue;  // 只在一段连线的起点计算
+				}
+				int length = 1 + count(row, col, dr, dc, cell);
+				int nr = row + dr * length;
+				int nc = col + dc * length;
+				int open = (isOpen(pr, pc, beforeInside) ? 1 : 0)
+						+ (isOpen(nr, nc, nr >= 0 && nr < rows && nc >= 0 && nc < cols) ? 1 : 0);
+				if (open == 0) {
+					continue;
+				}
+				int value = open << (3 * Math.min(length, winThreshold - 1));
+				score += cell == owner ? value : -value;
+			}
+		}
+		return score;
+	}
+
+	// 矩形内的空格，或矩形外但仍在原棋盘内的格子（外扩区域外一定为空）
+	private boolean isOpen(int r, int c, boolean inside) {
+		if (inside) {
+			return cells[r * cols + c] == 0;
+		}
+		int absRow = r + rowOffset;
+		int absCol = c + colOffset;
+		return absRow >= 0 && absRow < totalRows && absCol >= 0 && absCol < totalCols;
+	}
+
+	int absoluteRow(int index) {
+		return index / cols + rowOffset;
+	}
+
+	int absoluteCol(int index) {
+		return index % cols + colOffset;
+	}
+
+	// 由绝对坐标和玩家导出的 Zobrist 键，同一局面在不同次搜索之间哈希一致，置换表可以跨步复用
+	private static long zobrist(int row, int col, int player) {
+		long h = (((long) row << 40) ^ ((long) col << 16) ^ player) + 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
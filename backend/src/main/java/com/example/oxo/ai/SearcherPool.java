@@ -0,0 +1,73 @@
+package com.example.oxo.ai;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 固定上限的搜索器池。搜索器占用大块内存（置换表、节点数组），第一次需要时才创建，最多 size 个；
+ * 都在使用中时最多等待 timeoutMillis，超时抛出 {@link AiBusyException}，请求线程再多也不会多占内存。
+ */
+final class SearcherPool<T> {
+	private final String name;
+	private final Supplier<T> factory;
+	private final BlockingQueue<T> idle = new LinkedBlockingQueue<>();
+	private final AtomicInteger allocated = new AtomicInteger(0);
+	private final AtomicLong rejected = new AtomicLong(0);
+	private volatile int size;
+	private volatile long timeoutMillis;
+
+	SearcherPool(String name, Supplier<T> factory, int size, long timeoutMillis) {
+		this.name = name;
+		this.factory = factory;
+		configure(size, timeoutMillis);
+	}
+
+	/** 需在第一次 acquire 之前调用 */
+	void configure(int size, long timeoutMillis) {
+		this.size = Math.max(1, size);
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	// 先取空闲的搜索器，其次在上限内新建，都不行时限时等待
+	T acquire() {
+		T searcher = idle.poll();
+		if (searcher != null) {
+			return searcher;
+		}
+		for (int current = allocated.get(); current < size; current = allocated.get()) {
+			if (allocated.compareAndSet(current, current + 1)) {
+				return factory.get();
+			}
+		}
+		try {
+			searcher = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (searcher == null) {
+			rejected.incrementAndGet();
+			throw new AiBusyException("All " + size + " " + name + " searchers are busy, try again later");
+		}
+		return searcher;
+	}
+
+	void release(T searcher) {
+		idle.add(searcher);
+	}
+
+	int getSize() {
+		return size;
+	}
+
+	int getAllocated() {
+		return allocated.get();
+	}
+
+	long getRejected() {
+		return rejected.get();
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.oxo.ai;
+
+/**
+ * 定长置换表：按 Zobrist 哈希的低位直接寻址，全部用基本类型数组，搜索过程中不分配对象。
+ * 冲突时新结果直接覆盖旧结果（搜索越深的结果越晚写入）。
+ */
+final class TranspositionTable {
+	static final byte EXACT = 1;
+	static final byte LOWER_BOUND = 2;  // 发生 beta 截断，真实值 >= score
+	static final byte UPPER_BOUND = 3;  // 没有着法超过 alpha，真实值 <= score
+	static final int NO_MOVE = -1;
+
+	private final long[] keys;
+	private final int[] scores;
+	private final int[] moves;
+	private final byte[] depths;
+	private final byte[] flags;
+	private final int mask;
+
+	TranspositionTable(int sizeBits) {
+		int size = 1 << sizeBits;
+		this.keys = new long[size];
+		this.scores = new int[size];
+		this.moves = new int[size];
+		this.depths = new byte[size];
+		this.flags = new byte[size];
+		this.mask = size - 1;
+	}
+
+	/** 查找 hash 对应的槽位，不存在时返回 -1 */
+	int probe(long hash) {
+		int slot = (int) hash & mask;
+		return flags[slot] != 0 && keys[slot] == hash ? slot : -1;
+	}
+
+	void store(long hash, int depth, int score, byte flag, int move) {
+		int slot = (int) hash & mask;
+		keys[slot] = hash;
+		scores[slot] = score;
+		moves[slot] = move;
+		depths[slot] = (byte) Math.min(depth, Byte.MAX_VALUE);
+		flags[slot] = flag;
+	}
+
+	int score(int slot) {
+		return scores[slot];
+	}
+
+	int move(int slot) {
+		return moves[slot];
+	}
+
+	int depth(int slot) {
+		return depths[slot];
+	}
+
+	byte flag(int slot) {
+		return flags[slot];
+	}
+
+	int capacity() {
+		return keys.length;
+	}
+}
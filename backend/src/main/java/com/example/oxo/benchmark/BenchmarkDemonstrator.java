@@ -1,107 +1,261 @@
 // backend/src/main/java/com/example/oxo/benchmark/BenchmarkDemonstrator.java
 package com.example.oxo.benchmark;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Random;
 
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.CachedGameService;
+import com.example.oxo.service.GameService;
+import com.example.oxo.service.OptimizedGameService;
+
+/**
+ * 性能优化演示：在独立的棋盘上直接驱动真实的 GameService / OptimizedGameService / CachedGameService，
+ * 先预热若干轮（丢弃结果），再测量若干轮，逐次记录耗时并给出均值和 p50/p99/p999。
+ * 由 {@link BenchmarkJobService} 在后台线程中执行，不占用请求线程。
+ * 单次调用用 System.nanoTime() 计时，包含几十纳秒的计时开销；需要精确数字时使用 JMH（mvn -Pjmh verify）。
+ */
 public class BenchmarkDemonstrator {
+    private static final int BOARD_SIZE = 19;
+    private static final int WIN_THRESHOLD = 5;
+    // 缓存场景中每次写（落子）之间的读取次数
+    private static final int READS_PER_WRITE = 100;
+    private static final long SEED = 42;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final int samplesPerIteration;
+
+    public BenchmarkDemonstrator(int warmupIterations, int iterations, int samplesPerIteration) {
+        this.warmupIterations = Math.max(0, warmupIterations);
+        this.iterations = Math.max(1, iterations);
+        this.samplesPerIteration = Math.max(1, samplesPerIteration);
+    }
 
-    public static Map<String, Object> run() {
+    /** 两个场景各 (预热 + 测量) 轮 */
+    public int getTotalSteps() {
+        return 2 * (warmupIterations + iterations);
+    }
+
+    public Map<String, Object> run(BenchmarkJob job) {
         Map<String, Object> results = new HashMap<>();
-        results.put("algorithmBenchmark", runAlgorithmBenchmark());
-        results.put("cacheBenchmark", runCacheBenchmark());
+        results.put("algorithmBenchmark", runAlgorithmBenchmark(job));
+        results.put("cacheBenchmark", runCacheBenchmark(job));
+        results.put("warmupIterations", warmupIterations);
+        results.put("iterations", iterations);
+        results.put("samplesPerIteration", samplesPerIteration);
         return results;
     }
 
+    /**
+     * 胜负判定：原始算法（整行整列扫描）与优化算法在同一串随机落子上的单步落子耗时。
+     * 每一步都经过 handleMove 的完整路径（校验、落子、checkForWinner），对局结束后重开（不计时）。
+     */
+    private Map<String, Object> runAlgorithmBenchmark(BenchmarkJob job) {
+        GameService original = newService(new GameService(new GameModel(BOARD_SIZE, BOARD_SIZE, WIN_THRESHOLD)));
+        GameService optimized = newService(new OptimizedGameService(new GameModel(BOARD_SIZE, BOARD_SIZE, WIN_THRESHOLD)));
+        long[] originalSamples = new long[iterations * samplesPerIteration];
+        long[] optimizedSamples = new long[iterations * samplesPerIteration];
+        long[] discard = new long[samplesPerIteration];
 
-    private static Map<String, Object> runAlgorithmBenchmark() {
-        final int boardSize = 19;
-        final int samples = 1000;
-
-        // 模拟原始算法的耗时： 这个循环的执行时间相对稳定，比方法调用可靠。
-        long originalDelayNs = 0;
-        for (int i = 0; i < samples; i++) {
-            long start = System.nanoTime();
-            for (int j = 0; j < 200; j++) {
-                Math.sin(j); 
-            }
-            originalDelayNs += (System.nanoTime() - start);
+        for (int round = 0; round < warmupIterations + iterations; round++) {
+            boolean measured = round >= warmupIterations;
+            int offset = measured ? (round - warmupIterations) * samplesPerIteration : 0;
+            // 两个实现交替运行、使用相同的落子序列，JIT 和 GC 条件尽量一致
+            timeMoves(original, SEED + round, measured ? originalSamples : discard, offset);
+            timeMoves(optimized, SEED + round, measured ? optimizedSamples : discard, offset);
+            step(job, "algorithm", round);
         }
-        long originalAvg = originalDelayNs / samples;
 
-        long optimizedDelayNs = 0;
-        for (int i = 0; i < samples; i++) {
-            long start = System.nanoTime();
-            for (int j = 0; j < 40; j++) {
-                Math.sin(j);
-            }
-            optimizedDelayNs += (System.nanoTime() - start);
-        }
-        long optimizedAvg = optimizedDelayNs / samples;
+        Map<String, Object> originalStats = summarize(originalSamples);
+        Map<String, Object> optimizedStats = summarize(optimizedSamples);
+        double originalAvg = (double) originalStats.get("meanNs");
+        double optimizedAvg = (double) optimizedStats.get("meanNs");
 
-        // 组装结果
         Map<String, Object> algoResults = new HashMap<>();
-        algoResults.put("boardSize", boardSize + "x" + boardSize);
-        algoResults.put("samples", samples);
-        algoResults.put("originalTimeNs", originalAvg);
-        algoResults.put("optimizedTimeNs", optimizedAvg);
-        double improvement = 100.0 * (originalAvg - optimizedAvg) / originalAvg;
-        algoResults.put("improvementPercent", improvement);
-
+        algoResults.put("boardSize", BOARD_SIZE + "x" + BOARD_SIZE);
+        algoResults.put("winThreshold", WIN_THRESHOLD);
+        algoResults.put("samples", originalSamples.length);
+        algoResults.put("originalTimeNs", Math.round(originalAvg));
+        algoResults.put("optimizedTimeNs", Math.round(optimizedAvg));
+        algoResults.put("improvementPercent", 100.0 * (originalAvg - optimizedAvg) / originalAvg);
+        algoResults.put("original", originalStats);
+        algoResults.put("optimized", optimizedStats);
         return algoResults;
     }
 
-    /**缓存性能演示。人为引入延迟来确保结果的确定性。
+    /**
+     * 缓存：读多写少（每 READS_PER_WRITE 次读取一次落子）时 getGameState 的单次耗时，
+     * OptimizedGameService 每次重新构造状态，CachedGameService 在两次落子之间命中缓存。
      */
-    private static Map<String, Object> runCacheBenchmark() {
-        final int writeOperations = 10;
-        final int readIterations = 1000;
-        final int readsPerWrite = readIterations / writeOperations;
-
-        // 1. 模拟无缓存的总耗时
-        // 每次读取都承担一次“高昂”的延迟
-        long noCacheTotalTime = 0;
-        for (int i = 0; i < readIterations; i++) {
-            try {
-                // 使用微秒级休眠来稳定地模拟高成本的I/O或计算
-                TimeUnit.MICROSECONDS.sleep(5); 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            noCacheTotalTime += 5000; 
-        }
+    private Map<String, Object> runCacheBenchmark(BenchmarkJob job) {
+        GameService noCache = newService(new OptimizedGameService(new GameModel(BOARD_SIZE, BOARD_SIZE, WIN_THRESHOLD)));
+        CachedGameService withCache = new CachedGameService(new GameModel(BOARD_SIZE, BOARD_SIZE, WIN_THRESHOLD));
+        newService(withCache);
+        long[] noCacheSamples = new long[iterations * samplesPerIteration];
+        long[] withCacheSamples = new long[iterations * samplesPerIteration];
+        long[] discard = new long[samplesPerIteration];
+        long hitsBefore = 0;
+        long missesBefore = 0;
+        int writes = 0;
 
-        // 2. 模拟有缓存的总耗时
-        // 只有在“写”操作（miss）后才承担一次“高昂”延迟，后续读取（hit）延迟极低
-        long withCacheTotalTime = 0;
-        for (int w = 0; w < writeOperations; w++) {
-            try {
-                TimeUnit.MICROSECONDS.sleep(5);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        for (int round = 0; round < warmupIterations + iterations; round++) {
+            boolean measured = round >= warmupIterations;
+            if (round == warmupIterations) {
+                hitsBefore = (long) withCache.getCacheStats().get("hits");
+                missesBefore = (long) withCache.getCacheStats().get("misses");
             }
-            withCacheTotalTime += 5000;
-            for (int r = 1; r < readsPerWrite; r++) {
-                withCacheTotalTime += 100; 
+            int offset = measured ? (round - warmupIterations) * samplesPerIteration : 0;
+            timeReads(noCache, SEED + round, measured ? noCacheSamples : discard, offset);
+            int roundWrites = timeReads(withCache, SEED + round, measured ? withCacheSamples : discard, offset);
+            if (measured) {
+                writes += roundWrites;
             }
+            step(job, "cache", round);
         }
-        
+
+        Map<String, Object> noCacheStats = summarize(noCacheSamples);
+        Map<String, Object> withCacheStats = summarize(withCacheSamples);
+        long noCacheTotal = sum(noCacheSamples);
+        long withCacheTotal = sum(withCacheSamples);
+        long hits = (long) withCache.getCacheStats().get("hits") - hitsBefore;
+        long misses = (long) withCache.getCacheStats().get("misses") - missesBefore;
+
         Map<String, Object> cacheResults = new HashMap<>();
-        cacheResults.put("writeOperations", writeOperations);
-        cacheResults.put("readIterations", readIterations);
-        cacheResults.put("noCacheTimeNs", noCacheTotalTime);
-        cacheResults.put("withCacheTimeNs", withCacheTotalTime);
-        
+        cacheResults.put("boardSize", BOARD_SIZE + "x" + BOARD_SIZE);
+        cacheResults.put("writeOperations", writes);
+        cacheResults.put("readIterations", withCacheSamples.length);
+        cacheResults.put("noCacheTimeNs", noCacheTotal);
+        cacheResults.put("withCacheTimeNs", withCacheTotal);
+        cacheResults.put("noCache", noCacheStats);
+        cacheResults.put("withCache", withCacheStats);
+
         Map<String, Object> stats = new HashMap<>();
-        stats.put("hits", (long)readIterations - writeOperations);
-        stats.put("misses", (long)writeOperations);
-        stats.put("hitRate", (double)(readIterations - writeOperations) / readIterations);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
         cacheResults.put("cacheStats", stats);
+        cacheResults.put("improvementPercent", 100.0 * (noCacheTotal - withCacheTotal) / noCacheTotal);
+        return cacheResults;
+    }
 
-        double improvement = 100.0 * (noCacheTotalTime - withCacheTotalTime) / noCacheTotalTime;
-        cacheResults.put("improvementPercent", improvement);
+    // 按 seed 打乱的顺序逐格落子，记录每次 handleMove 的耗时
+    private void timeMoves(GameService service, long seed, long[] out, int offset) {
+        MoveSequence moves = new MoveSequence(service, seed);
+        for (int i = 0; i < samplesPerIteration; i++) {
+            int cell = moves.next();
+            long start = System.nanoTime();
+            play(service, cell);
+            out[offset + i] = System.nanoTime() - start;
+        }
+    }
 
-        return cacheResults;
+    // 记录每次 getGameState 的耗时，其间按固定间隔落子（不计时），返回落子次数
+    private int timeReads(GameService service, long seed, long[] out, int offset) {
+        MoveSequence moves = new MoveSequence(service, seed);
+        int writes = 0;
+        Object sink = null;
+        for (int i = 0; i < samplesPerIteration; i++) {
+            if (i % READS_PER_WRITE == 0) {
+                play(service, moves.next());
+                writes++;
+            }
+            long start = System.nanoTime();
+            sink = service.getGameState();
+            out[offset + i] = System.nanoTime() - start;
+        }
+        if (sink == null) {
+            throw new IllegalStateException("getGameState returned null");
+        }
+        return writes;
+    }
+
+    /** 固定种子的随机落子顺序；对局结束或下满后重置棋盘并重新打乱 */
+    private static final class MoveSequence {
+        private final GameService service;
+        private final Random random;
+        private final int[] cells;
+        private int next;
+
+        MoveSequence(GameService service, long seed) {
+            this.service = service;
+            this.random = new Random(seed);
+            GameModel model = service.getGameModel();
+            this.cells = new int[model.getNumberOfRows() * model.getNumberOfColumns()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = i;
+            }
+            this.next = cells.length;
+        }
+
+        int next() {
+            GameModel model = service.getGameModel();
+            if (next == cells.length || model.getWinner() != null || model.isGameDrawn()) {
+                service.resetGame();
+                for (int i = cells.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int tmp = cells[i];
+                    cells[i] = cells[j];
+                    cells[j] = tmp;
+                }
+                next = 0;
+            }
+            return cells[next++];
+        }
+    }
+
+    private static void play(GameService service, int cell) {
+        int cols = service.getGameModel().getNumberOfColumns();
+        try {
+            service.handleMove(cell / cols, cell % cols);
+        } catch (MoveException e) {
+            throw new IllegalStateException("Benchmark move rejected: " + e.getMessage(), e);
+        }
+    }
+
+    private static <T extends GameService> T newService(T service) {
+        service.setPlayers(2);
+        return service;
+    }
+
+    private void step(BenchmarkJob job, String scenario, int round) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Benchmark interrupted");
+        }
+        String phase = round < warmupIterations
+                ? "warmup " + (round + 1) + "/" + warmupIterations
+                : "iteration " + (round - warmupIterations + 1) + "/" + iterations;
+        job.advance(scenario + ": " + phase);
+    }
+
+    private static Map<String, Object> summarize(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("samples", sorted.length);
+        stats.put("meanNs", (double) sum(sorted) / sorted.length);
+        stats.put("p50Ns", percentile(sorted, 0.50));
+        stats.put("p99Ns", percentile(sorted, 0.99));
+        stats.put("p999Ns", percentile(sorted, 0.999));
+        stats.put("minNs", sorted[0]);
+        stats.put("maxNs", sorted[sorted.length - 1]);
+        return stats;
+    }
+
+    // 最近秩法：不小于 q 比例样本的最小值
+    private static long percentile(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.example.oxo.benchmark;
+
+import java.util.Map;
+
+/** 一次异步基准任务的状态，供状态端点轮询；字段由任务线程写、请求线程读 */
+public class BenchmarkJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String jobId;
+    private final int totalSteps;
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile Status status = Status.QUEUED;
+    private volatile int completedSteps;
+    private volatile String currentStep = "queued";
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    BenchmarkJob(String jobId, int totalSteps) {
+        this.jobId = jobId;
+        this.totalSteps = totalSteps;
+    }
+
+    void start() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    /** 完成一步（一轮预热或测量） */
+    void advance(String step) {
+        completedSteps++;
+        currentStep = step;
+    }
+
+    void complete(Map<String, Object> result) {
+        this.result = result;
+        this.currentStep = "done";
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.COMPLETED;
+    }
+
+    void fail(Throwable cause) {
+        this.error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        this.currentStep = "failed";
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.FAILED;
+    }
+
+    boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** 0 到 1 之间的进度 */
+    public double getProgress() {
+        return totalSteps == 0 ? 1 : (double) completedSteps / totalSteps;
+    }
+
+    public String getCurrentStep() {
+        return currentStep;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /** 完成后为 {@link BenchmarkDemonstrator#run} 的结果，之前为 null */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.oxo.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在后台单线程中依次执行基准任务，请求线程只负责提交和查询。
+ * 同一时间只跑一个任务，避免多个任务互相干扰测量结果；排队的任务数有上限，
+ * 只保留最近 {@link #MAX_RETAINED_JOBS} 个任务的结果。
+ */
+public class BenchmarkJobService {
+    private static final int MAX_RETAINED_JOBS = 16;
+
+    private final BenchmarkDemonstrator demonstrator;
+    private final ExecutorService executor;
+    private final Map<String, BenchmarkJob> jobs = new LinkedHashMap<>();
+
+    public BenchmarkJobService(BenchmarkDemonstrator demonstrator, int maxQueuedJobs) {
+        this.demonstrator = demonstrator;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueuedJobs), runnable -> {
+                    Thread thread = new Thread(runnable, "oxo-benchmark");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /** 提交一个新任务并立即返回；排队已满时抛出 IllegalStateException */
+    public BenchmarkJob submit() {
+        BenchmarkJob job = new BenchmarkJob(UUID.randomUUID().toString(), demonstrator.getTotalSteps());
+        synchronized (jobs) {
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                throw new IllegalStateException("Too many benchmark jobs queued, try again later");
+            }
+            jobs.put(job.getJobId(), job);
+            evictFinished();
+        }
+        return job;
+    }
+
+    public BenchmarkJob get(String jobId) {
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    /** 所有保留的任务，按提交顺序 */
+    public List<BenchmarkJob> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(BenchmarkJob job) {
+        job.start();
+        try {
+            job.complete(demonstrator.run(job));
+        } catch (RuntimeException | Error e) {
+            job.fail(e);
+        }
+    }
+
+    // 超出保留数时丢弃最早的已结束任务，排队和运行中的任务始终保留
+    private void evictFinished() {
+        var iterator = jobs.values().iterator();
+        while (jobs.size() > MAX_RETAINED_JOBS && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.oxo.cluster;
+
+import com.example.oxo.registry.GameRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * 按游戏 id 路由 /api/oxo/games/{gameId}/** 的请求：本地有这局游戏（包括正在移交、尚未移走的）就在本地处理；
+ * 否则归属其他节点时返回 307，Location 为归属节点上的同一路径，客户端以相同的方法和请求体重发。
+ */
+public class ClusterRoutingInterceptor implements HandlerInterceptor {
+	private final ClusterService clusterService;
+	private final GameRegistry registry;
+
+	public ClusterRoutingInterceptor(ClusterService clusterService, GameRegistry registry) {
+		this.clusterService = clusterService;
+		this.registry = registry;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!clusterService.isClustered() || request.getDispatcherType() == DispatcherType.ASYNC) {
+			return true;
+		}
+		Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		Object gameId = variables instanceof Map<?, ?> map ? map.get("gameId") : null;
+		if (!(gameId instanceof String id) || registry.get(id) != null) {
+			return true;
+		}
+		String owner = clusterService.ownerOf(id);
+		if (owner == null || owner.equals(clusterService.getSelf())) {
+			return true;
+		}
+		clusterService.recordRedirect();
+		response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+		response.setHeader(HttpHeaders.LOCATION, locationOn(owner, request));
+		return false;
+	}
+
+	/** 同一请求在 owner 节点上的 URL */
+	public static String locationOn(String owner, HttpServletRequest request) {
+		String query = request.getQueryString();
+		return owner + request.getRequestURI() + (query != null ? "?" + query : "");
+	}
+}
@@ -0,0 +1,525 @@
+package com.example.oxo.cluster;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.wire.BoardStateDecoder;
+import com.example.oxo.wire.BoardStateEncoder;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 多节点分片：游戏 id 按 {@link HashRing} 分到各节点，每个节点只保存归属自己的游戏。
+ * 节点以基础 URL（如 http://10.0.0.2:8080）标识，成员列表为空时即单机模式，所有游戏都在本地。
+ *
+ * 成员变化后，本节点把不再归属自己的游戏按批移交给新的归属节点：持有这些游戏的锁，
+ * 把 PACKED 状态（与快照相同的编码）PUT 到对方的 /api/oxo/cluster/games，对方确认后标记为已移交并从注册表删除。
+ * 移交期间对这些游戏的请求等待锁，之后收到 {@link com.example.oxo.registry.GameMovedException}，被重定向到新节点，落子不会丢失。
+ * 对方明确拒绝（非 2xx）或没有连上时，游戏留在本地继续服务，由定期的 {@link #rebalance()} 重试。
+ * 请求已发出但结果不确定（响应超时等）时，对方可能已经接收：这些游戏同样标记为已移交、不再在本地落子，
+ * 之后按原样重发。每局带版本号，接收方已有同一局时只接受更新的版本，重发是幂等的，两边也不会各自继续落子。
+ * 重发之前环又把这些游戏分回本节点时，撤销移交标记，恢复在本地服务。
+ *
+ * 节点之间的请求（成员通知、移交）带共享密钥 {@link #SECRET_HEADER}，未配置密钥时这两个接口拒绝所有请求。
+ *
+ * 批的格式（小端）：gameCount(4) 重复 { idLength(1) id(ASCII) version(8) stateLength(4) PACKED 状态 }
+ */
+public class ClusterService {
+	public static final String HANDOFF_PATH = "/api/oxo/cluster/games";
+	public static final String MEMBERS_PATH = "/api/oxo/cluster/members";
+	/** 节点之间请求携带的共享密钥（oxo.cluster.secret） */
+	public static final String SECRET_HEADER = "X-Oxo-Cluster-Secret";
+	/** 移交请求中发送方的基础 URL */
+	public static final String NODE_HEADER = "X-Oxo-Cluster-Node";
+
+	/** 把接收到的游戏写入持久存储；返回之后才向发送方确认 */
+	@FunctionalInterface
+	public interface Persister {
+		void persist() throws IOException;
+	}
+
+	private final GameRegistry registry;
+	private final Supplier<String> selfSupplier;
+	private final int virtualNodes;
+	private final int batchSize;
+	private final Duration timeout;
+	private final HttpClient client;
+	// 同一时间只有一个线程在移交，定期重试与成员变化触发的移交不会重复发送同一局
+	private final Object handoffLock = new Object();
+	private volatile HashRing ring = HashRing.EMPTY;
+	private volatile String self;
+	private volatile String secret = "";
+	private volatile Persister persister;
+	private final LongAdder handedOff = new LongAdder();
+	private final LongAdder inDoubt = new LongAdder();
+	private final LongAdder reclaimed = new LongAdder();
+	private final LongAdder received = new LongAdder();
+	private final LongAdder staleIgnored = new LongAdder();
+	private final LongAdder handoffFailures = new LongAdder();
+	private final LongAdder redirects = new LongAdder();
+	private final Map<String, String> lastFailures = new ConcurrentHashMap<>();
+
+	/** self 在第一次需要时才解析：随机端口启动时，构造时还不知道端口 */
+	public ClusterService(GameRegistry registry, Supplier<String> self, int virtualNodes, int batchSize,
+						  long timeoutMillis) {
+		this.registry = registry;
+		this.selfSupplier = self;
+		this.virtualNodes = virtualNodes;
+		this.batchSize = batchSize;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(timeout)
+				.build();
+	}
+
+	/** 本节点的基础 URL；端口尚未确定时返回 null */
+	public String getSelf() {
+		String current = self;
+		if (current == null) {
+			current = normalize(selfSupplier.get());
+			self = current;
+		}
+		return current;
+	}
+
+	/** 节点之间共享的密钥；为空时本节点拒绝成员变更和移交请求 */
+	public void setSecret(String secret) {
+		this.secret = secret == null ? "" : secret;
+	}
+
+	/** presented 是否与配置的密钥一致（定长比较）；未配置密钥时总是 false */
+	public boolean isAuthorized(String presented) {
+		String expected = secret;
+		if (expected.isEmpty() || presented == null) {
+			return false;
+		}
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** 接收移交后调用 persister（如写快照），失败时本批作废；不设置时接收到的游戏只在内存中 */
+	public void setPersister(Persister persister) {
+		this.persister = persister;
+	}
+
+	public boolean isClustered() {
+		return !ring.isEmpty();
+	}
+
+	public List<String> getMembers() {
+		return ring.getNodes();
+	}
+
+	/** 归属节点；单机模式下返回 null */
+	public String ownerOf(String gameId) {
+		return ring.ownerOf(gameId);
+	}
+
+	/** 是否归属本节点；单机模式下总是 true */
+	public boolean isLocal(String gameId) {
+		String owner = ring.ownerOf(gameId);
+		return owner == null || owner.equals(getSelf());
+	}
+
+	/**
+	 * 替换成员列表并返回之前的列表。只更新哈希环，不移交游戏（见 {@link #handOff()}）。
+	 * URL 不合法时抛出 IllegalArgumentException。
+	 */
+	public List<String> setMembers(Collection<String> members) {
+		List<String> normalized = new ArrayList<>(members.size());
+		for (String member : members) {
+			normalized.add(normalize(member));
+		}
+		List<String> previous = ring.getNodes();
+		ring = HashRing.of(normalized, virtualNodes);
+		return previous;
+	}
+
+	/** 把新的成员列表通知 nodes 中除本节点外的节点，返回通知失败的节点 */
+	public List<String> announce(Collection<String> nodes) {
+		String members = membersJson(getMembers());
+		List<String> unreachable = new ArrayList<>();
+		for (String node : new LinkedHashSet<>(nodes)) {
+			if (node.equals(getSelf())) {
+				continue;
+			}
+			HttpRequest request = newRequest(node + MEMBERS_PATH + "?propagate=false")
+					.header("Content-Type", "application/json")
+					.PUT(HttpRequest.BodyPublishers.ofString(members))
+					.build();
+			try {
+				if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 != 2) {
+					unreachable.add(node);
+				}
+			} catch (IOException e) {
+				unreachable.add(node);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				unreachable.add(node);
+			}
+		}
+		return unreachable;
+	}
+
+	/** 把不归属本节点的游戏移交给各自的归属节点，返回成功移交的局数；移交结果不确定、现在又归属本节点的游戏恢复在本地服务 */
+	public int handOff() {
+		synchronized (handoffLock) {
+			HashRing current = ring;
+			String me = getSelf();
+			if (current.isEmpty() || me == null) {
+				return 0;
+			}
+			Map<String, List<GameSession>> byOwner = new HashMap<>();
+			List<GameSession> reclaim = new ArrayList<>();
+			registry.forEach(session -> {
+				String owner = current.ownerOf(session.getId());
+				if (!owner.equals(me)) {
+					byOwner.computeIfAbsent(owner, k -> new ArrayList<>()).add(session);
+				} else if (session.getMovedTo() != null) {
+					reclaim.add(session);
+				}
+			});
+			for (GameSession session : reclaim) {
+				reclaim(session, me);
+			}
+			int moved = 0;
+			for (Map.Entry<String, List<GameSession>> entry : byOwner.entrySet()) {
+				List<GameSession> sessions = entry.getValue();
+				for (int from = 0; from < sessions.size(); from += batchSize) {
+					moved += transfer(entry.getKey(), sessions.subList(from, Math.min(sessions.size(), from + batchSize)));
+				}
+			}
+			return moved;
+		}
+	}
+
+	/** 定期重试之前失败的移交，并处理成员变化期间按旧的环新建的游戏 */
+	@Scheduled(fixedDelayString = "${oxo.cluster.rebalance-interval-ms:10000}")
+	public void rebalance() {
+		if (isClustered()) {
+			handOff();
+		}
+	}
+
+	// 锁住整批游戏后编码并发送；对方确认后才标记为已移交，对方拒绝时原样解锁，游戏留在本地。
+	// 上次结果不确定而已标记移交的游戏状态不会再变化，照常加入批中重发
+	private int transfer(String owner, List<GameSession> batch) {
+		List<GameSession> locked = new ArrayList<>(batch.size());
+		List<byte[]> states = new ArrayList<>(batch.size());
+		long[] versions = new long[batch.size()];
+		try {
+			for (GameSession session : batch) {
+				session.getLock().lock();
+				if (registry.get(session.getId()) != session) {
+					session.getLock().unlock();
+					continue;
+				}
+				versions[locked.size()] = session.getGameService().getVersion();
+				locked.add(session);
+				states.add(BoardStateEncoder.encodePacked(session.getGameService()));
+			}
+			if (locked.isEmpty()) {
+				return 0;
+			}
+			HttpRequest request = newRequest(owner + HANDOFF_PATH)
+					.header("Content-Type", "application/octet-stream")
+					.header(NODE_HEADER, getSelf())
+					.PUT(HttpRequest.BodyPublishers.ofByteArray(encodeBatch(locked, versions, states)))
+					.build();
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() / 100 != 2) {
+				// 接收方整批处理，拒绝时没有创建任何游戏
+				fail(owner, "HTTP " + response.statusCode() + " " + response.body());
+				return 0;
+			}
+			for (GameSession session : locked) {
+				session.moveTo(owner);
+			}
+		} catch (ConnectException | HttpConnectTimeoutException e) {
+			fail(owner, e.toString());
+			return 0;
+		} catch (IOException e) {
+			markInDoubt(owner, locked);
+			fail(owner, e.toString());
+			return 0;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			markInDoubt(owner, locked);
+			return 0;
+		} finally {
+			for (GameSession session : locked) {
+				session.getLock().unlock();
+			}
+		}
+		for (GameSession session : locked) {
+			registry.remove(session.getId());
+		}
+		lastFailures.remove(owner);
+		handedOff.add(locked.size());
+		return locked.size();
+	}
+
+	// 请求可能已被对方处理：停止在本地落子（请求被重定向到 owner），留在注册表中等待重发；调用方持有这些游戏的锁
+	private void markInDoubt(String owner, List<GameSession> sessions) {
+		for (GameSession session : sessions) {
+			session.moveTo(owner);
+		}
+		inDoubt.add(sessions.size());
+	}
+
+	// 移交结果不确定之后环又把这局分回本节点：不会再有别的节点来接收它，恢复在本地服务，
+	// 否则请求会一直被重定向到旧的归属节点。对方若其实已经收下并继续落了子，
+	// 它会按新的环把更新的版本移交回来，覆盖本地副本（见 receive）
+	private void reclaim(GameSession session, String me) {
+		session.getLock().lock();
+		try {
+			if (registry.get(session.getId()) == session && session.getMovedTo() != null
+					&& me.equals(ring.ownerOf(session.getId()))) {
+				session.reclaim();
+				reclaimed.increment();
+			}
+		} finally {
+			session.getLock().unlock();
+		}
+	}
+
+	private void fail(String owner, String reason) {
+		handoffFailures.increment();
+		lastFailures.put(owner, reason);
+	}
+
+	/**
+	 * 接收 sender 移交来的一批游戏，返回局数。先完整解析整批再修改注册表：
+	 * 格式错误、sender 缺失或按本节点的环不应由 sender 移交（IllegalArgumentException），
+	 * 或容量不足（IllegalStateException）时，本批新建的游戏全部撤销，发送方保留全部游戏。
+	 * 本地已有同一局时，只有收到的版本更新才覆盖；相同或更旧的（重发、归属来回变化）保留本地副本。
+	 * 设置了 {@link Persister} 时，持久化完成才返回；持久化失败同样撤销新建的游戏（IllegalStateException）。
+	 */
+	public int receive(ByteBuffer batch, String sender) {
+		batch.order(ByteOrder.LITTLE_ENDIAN);
+		String[] ids;
+		long[] versions;
+		ByteBuffer[] states;
+		try {
+			int count = batch.getInt();
+			if (count < 0 || count > batch.remaining()) {
+				throw new IllegalArgumentException("Bad game count: " + count);
+			}
+			ids = new String[count];
+			versions = new long[count];
+			states = new ByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				byte[] id = new byte[batch.get() & 0xFF];
+				batch.get(id);
+				ids[i] = new String(id, StandardCharsets.US_ASCII);
+				versions[i] = batch.getLong();
+				int length = batch.getInt();
+				if (length < 0 || length > batch.remaining()) {
+					throw new IllegalArgumentException("Bad state length for game " + ids[i]);
+				}
+				states[i] = batch.slice(batch.position(), length);
+				batch.position(batch.position() + length);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated handoff batch");
+		}
+		checkSender(sender, ids);
+
+		// 第一步：确定每局写到哪个会话，本地没有的新建；失败时撤销本步新建的会话
+		GameSession[] targets = new GameSession[ids.length];
+		boolean[] fresh = new boolean[ids.length];
+		List<GameSession> created = new ArrayList<>();
+		int kept = 0;
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				GameSession local = registry.get(ids[i]);
+				if (local != null) {
+					long localVersion = versionOf(local);
+					// 已标记移交的本地副本（本节点上次移交结果不确定）不再变化，相同版本时以收到的为准
+					boolean newer = local.getMovedTo() == null ? versions[i] > localVersion : versions[i] >= localVersion;
+					if (!newer) {
+						kept++;
+						continue;
+					}
+					if (local.getMovedTo() == null) {
+						targets[i] = local;
+						continue;
+					}
+					registry.remove(ids[i]);
+				}
+				GameSession session = registry.create(ids[i]);
+				if (session == null) {
+					throw new IllegalStateException("Game " + ids[i] + " was created concurrently");
+				}
+				created.add(session);
+				targets[i] = session;
+				fresh[i] = true;
+			}
+
+			// 第二步：写入状态；已有的会话在锁内再比较一次版本，等锁期间本地可能又落了子
+			for (int i = 0; i < ids.length; i++) {
+				if (targets[i] == null) {
+					continue;
+				}
+				ByteBuffer state = states[i];
+				long version = versions[i];
+				boolean replace = fresh[i];
+				boolean restored = targets[i].execute(service -> {
+					if (!replace && service.getVersion() >= version) {
+						return false;
+					}
+					BoardStateDecoder.restorePacked(state, service);
+					return true;
+				});
+				if (!restored) {
+					kept++;
+				}
+			}
+			// 第三步：恢复出的状态不经过日志，确认之前先持久化，否则崩溃重启后这些游戏只剩空棋盘
+			Persister current = persister;
+			if (current != null && kept < ids.length) {
+				current.persist();
+			}
+		} catch (MoveException e) {
+			removeAll(created);
+			throw new IllegalArgumentException("Cannot restore game state: " + e.getMessage(), e);
+		} catch (IOException e) {
+			removeAll(created);
+			throw new IllegalStateException("Cannot persist received games: " + e.getMessage(), e);
+		} catch (RuntimeException e) {
+			removeAll(created);
+			throw e;
+		}
+		received.add(ids.length - kept);
+		staleIgnored.add(kept);
+		return ids.length;
+	}
+
+	// 每局在本节点的环上都必须归属本节点或 sender：第三个节点才是归属方时说明 sender 的成员列表已过期
+	private void checkSender(String sender, String[] ids) {
+		HashRing current = ring;
+		if (current.isEmpty()) {
+			return;
+		}
+		if (sender == null) {
+			throw new IllegalArgumentException("Missing " + NODE_HEADER + " header");
+		}
+		String from = normalize(sender);
+		String me = getSelf();
+		for (String id : ids) {
+			String owner = current.ownerOf(id);
+			if (!owner.equals(me) && !owner.equals(from)) {
+				throw new IllegalArgumentException("Game " + id + " belongs to " + owner + ", not " + from + " or " + me);
+			}
+		}
+	}
+
+	private void removeAll(List<GameSession> sessions) {
+		for (GameSession session : sessions) {
+			registry.remove(session.getId());
+		}
+	}
+
+	private static long versionOf(GameSession session) {
+		session.getLock().lock();
+		try {
+			return session.getGameService().getVersion();
+		} finally {
+			session.getLock().unlock();
+		}
+	}
+
+	public void recordRedirect() {
+		redirects.increment();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("self", String.valueOf(getSelf()));
+		stats.put("members", getMembers());
+		stats.put("virtualNodes", virtualNodes);
+		stats.put("localGames", registry.size());
+		stats.put("handedOff", handedOff.sum());
+		stats.put("handoffsInDoubt", inDoubt.sum());
+		stats.put("handoffsReclaimed", reclaimed.sum());
+		stats.put("received", received.sum());
+		stats.put("staleIgnored", staleIgnored.sum());
+		stats.put("secretConfigured", !secret.isEmpty());
+		stats.put("handoffFailures", handoffFailures.sum());
+		stats.put("redirects", redirects.sum());
+		stats.put("lastFailures", new HashMap<>(lastFailures));
+		return stats;
+	}
+
+	private HttpRequest.Builder newRequest(String url) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout);
+		String current = secret;
+		if (!current.isEmpty()) {
+			builder.header(SECRET_HEADER, current);
+		}
+		return builder;
+	}
+
+	static byte[] encodeBatch(List<GameSession> sessions, long[] versions, List<byte[]> states) {
+		int size = 4;
+		for (int i = 0; i < sessions.size(); i++) {
+			size += 13 + sessions.get(i).getId().length() + states.get(i).length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(sessions.size());
+		for (int i = 0; i < sessions.size(); i++) {
+			byte[] id = sessions.get(i).getId().getBytes(StandardCharsets.US_ASCII);
+			buffer.put((byte) id.length).put(id).putLong(versions[i]).putInt(states.get(i).length).put(states.get(i));
+		}
+		return buffer.array();
+	}
+
+	// 成员 URL 只允许 http(s)://主机[:端口]，所以可以直接拼进 JSON
+	private static String membersJson(List<String> members) {
+		StringBuilder json = new StringBuilder("{\"members\":[");
+		for (int i = 0; i < members.size(); i++) {
+			json.append(i == 0 ? "\"" : ",\"").append(members.get(i)).append('"');
+		}
+		return json.append("]}").toString();
+	}
+
+	private static String normalize(String url) {
+		if (url == null) {
+			return null;
+		}
+		URI uri;
+		try {
+			uri = URI.create(url.trim());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid node URL: " + url);
+		}
+		if (!("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) || uri.getHost() == null
+				|| !(uri.getRawPath() == null || uri.getRawPath().isEmpty() || uri.getRawPath().equals("/"))
+				|| uri.getRawQuery() != null || uri.getRawFragment() != null || uri.getRawUserInfo() != null) {
+			throw new IllegalArgumentException("Node URL must be http(s)://host[:port]: " + url);
+		}
+		return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.oxo.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 一致性哈希环（不可变，成员变化时整体替换）。每个节点在环上放 virtualNodes 个点，
+ * 游戏 id 的哈希值顺时针遇到的第一个点所属的节点即为该局的归属。
+ * 增加或移除一个节点时，只有约 1/节点数 的游戏改变归属，其余游戏不动。
+ */
+public final class HashRing {
+	public static final HashRing EMPTY = new HashRing(List.of(), new long[0], new int[0]);
+
+	private final List<String> nodes;
+	// 环上的点按哈希值升序，owners[i] 为 points[i] 所属节点在 nodes 中的下标
+	private final long[] points;
+	private final int[] owners;
+
+	private HashRing(List<String> nodes, long[] points, int[] owners) {
+		this.nodes = nodes;
+		this.points = points;
+		this.owners = owners;
+	}
+
+	public static HashRing of(Collection<String> nodes, int virtualNodes) {
+		List<String> members = nodes.stream().distinct().sorted().toList();
+		if (members.isEmpty()) {
+			return EMPTY;
+		}
+		int size = members.size() * virtualNodes;
+		// 按哈希值排序，相同时按下标定序：成员列表相同的节点算出完全相同的环
+		long[] hashes = new long[size];
+		Integer[] order = new Integer[size];
+		for (int n = 0; n < members.size(); n++) {
+			for (int v = 0; v < virtualNodes; v++) {
+				int i = n * virtualNodes + v;
+				hashes[i] = hash(members.get(n) + "#" + v);
+				order[i] = i;
+			}
+		}
+		Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compare(hashes[a], hashes[b]) : Integer.compare(a, b));
+		long[] points = new long[size];
+		int[] owners = new int[size];
+		for (int i = 0; i < size; i++) {
+			points[i] = hashes[order[i]];
+			owners[i] = order[i] / virtualNodes;
+		}
+		return new HashRing(members, points, owners);
+	}
+
+	/** 归属节点；环为空时返回 null */
+	public String ownerOf(String key) {
+		if (points.length == 0) {
+			return null;
+		}
+		int i = Arrays.binarySearch(points, hash(key));
+		if (i < 0) {
+			i = -i - 1;
+		}
+		return nodes.get(owners[i == points.length ? 0 : i]);
+	}
+
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	public boolean isEmpty() {
+		return nodes.isEmpty();
+	}
+
+	// 64 位 FNV-1a，再做一次 murmur3 的 fmix64 把短字符串的差异扩散到所有位
+	static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b & 0xFF;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -1,19 +1,300 @@
 package com.example.oxo.config;
 
+import com.example.oxo.ai.AiMoveService;
+import com.example.oxo.benchmark.BenchmarkDemonstrator;
+import com.example.oxo.benchmark.BenchmarkJobService;
+import com.example.oxo.cluster.ClusterService;
+import com.example.oxo.matchmaking.MatchmakingService;
+import com.example.oxo.model.BitboardGameModel;
+import com.example.oxo.model.GameModel;
 import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.persistence.GameJournal;
+import com.example.oxo.persistence.GamePersistence;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
 import com.example.oxo.service.CachedGameService;
 import com.example.oxo.service.GameService;
+import com.example.oxo.stream.GameEventHub;
+import com.example.oxo.stream.GameEventStream;
+import com.example.oxo.tablebase.TablebaseService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Path;
+import java.util.List;
 
 @Configuration
+@EnableScheduling
 public class ServiceConfig {
 
+    // 棋盘实现：list（默认，ArrayList 嵌套）或 bitboard（按玩家打包的位棋盘）
+    @Value("${oxo.board.impl:list}")
+    private String boardImpl;
+
+    // 格子数超过该值时自动使用稀疏棋盘
+    @Value("${oxo.board.sparse-threshold-cells:4194304}")
+    private long sparseThresholdCells;
+
+    // 状态快照重建时一并序列化为 JSON，读取直接写出字节
+    @Value("${oxo.cache.pre-serialize-json:true}")
+    private boolean preSerializeJson;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${oxo.registry.idle-timeout-ms:1800000}")
+    private long idleTimeoutMillis;
+
+    @Value("${oxo.registry.max-games:500000}")
+    private int maxGames;
+
+    // 匹配大厅：多久没有轮询的等待票过期（已结束的票同样保留这么久），以及同时存在的票数上限
+    @Value("${oxo.lobby.ticket-ttl-ms:60000}")
+    private long lobbyTicketTtlMillis;
+
+    @Value("${oxo.lobby.max-tickets:1000000}")
+    private int lobbyMaxTickets;
+
+    // 集群：本节点的基础 URL（留空时为 http://localhost:实际端口）和初始成员列表（留空为单机模式）
+    @Value("${oxo.cluster.self:}")
+    private String clusterSelf;
+
+    @Value("${oxo.cluster.members:}")
+    private String[] clusterMembers;
+
+    @Value("${oxo.cluster.virtual-nodes:160}")
+    private int clusterVirtualNodes;
+
+    @Value("${oxo.cluster.handoff-batch-size:256}")
+    private int clusterHandoffBatchSize;
+
+    @Value("${oxo.cluster.handoff-timeout-ms:5000}")
+    private long clusterHandoffTimeoutMillis;
+
+    // 节点之间共享的密钥，成员变更和移交请求都要携带；留空时这两个接口拒绝所有请求
+    @Value("${oxo.cluster.secret:}")
+    private String clusterSecret;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${oxo.stream.dispatcher-threads:4}")
+    private int streamDispatcherThreads;
+
+    @Value("${oxo.stream.queue-capacity:64}")
+    private int streamQueueCapacity;
+
+    @Value("${oxo.stream.timeout-ms:1800000}")
+    private long streamTimeoutMillis;
+
+    // 单次写出超过该时间的订阅者被断开，共享线程池为每个卡住的写入临时补一个线程（有上限）
+    @Value("${oxo.stream.send-timeout-ms:5000}")
+    private long streamSendTimeoutMillis;
+
+    @Value("${oxo.stream.max-stalled-sends:64}")
+    private int streamMaxStalledSends;
+
+    // 操作日志（内存映射，追加写），重启时回放恢复所有游戏
+    @Value("${oxo.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${oxo.journal.directory:data/journal}")
+    private String journalDirectory;
+
+    @Value("${oxo.journal.segment-size-bytes:67108864}")
+    private int journalSegmentSize;
+
+    @Value("${oxo.journal.fsync:INTERVAL}")
+    private GameJournal.FsyncPolicy journalFsyncPolicy;
+
+    @Value("${oxo.journal.fsync-interval-ms:10}")
+    private long journalFsyncIntervalMillis;
+
+    // 电脑玩家：每个 alpha-beta 搜索器的置换表大小（2 的幂次）、每步默认思考时间、最大搜索深度
+    @Value("${oxo.ai.tt-size-bits:18}")
+    private int aiTableSizeBits;
+
+    @Value("${oxo.ai.time-budget-ms:500}")
+    private long aiTimeBudgetMillis;
+
+    @Value("${oxo.ai.max-budget-ms:10000}")
+    private long aiMaxBudgetMillis;
+
+    @Value("${oxo.ai.max-depth:64}")
+    private int aiMaxDepth;
+
+    // 同时进行的 alpha-beta 搜索数（0 表示 CPU 核数，每个搜索器一张置换表），以及都在使用中时的最长等待，超时返回 503
+    @Value("${oxo.ai.alphabeta-searchers:0}")
+    private int aiAlphaBetaSearchers;
+
+    @Value("${oxo.ai.alphabeta-queue-timeout-ms:2000}")
+    private long aiAlphaBetaQueueTimeoutMillis;
+
+    // MCTS：并行线程数（0 表示 CPU 核数）和树的节点上限
+    @Value("${oxo.ai.mcts-threads:0}")
+    private int aiMctsThreads;
+
+    @Value("${oxo.ai.mcts-max-nodes:1048576}")
+    private int aiMctsMaxNodes;
+
+    // 同时进行的 MCTS 搜索数（每个搜索器一份节点数组），以及都在使用中时的最长等待，超时返回 503
+    @Value("${oxo.ai.mcts-searchers:2}")
+    private int aiMctsSearchers;
+
+    @Value("${oxo.ai.mcts-queue-timeout-ms:2000}")
+    private long aiMctsQueueTimeoutMillis;
+
+    // 残局库：小棋盘的完整解，由 TablebaseGenerator 离线生成；缺失的文件默认跳过，不在启动阶段现场生成
+    @Value("${oxo.tablebase.enabled:true}")
+    private boolean tablebaseEnabled;
+
+    @Value("${oxo.tablebase.directory:data/tablebase}")
+    private String tablebaseDirectory;
+
+    @Value("${oxo.tablebase.geometries:3x3,4x4/3,4x4/4}")
+    private String[] tablebaseGeometries;
+
+    @Value("${oxo.tablebase.generate-missing:false}")
+    private boolean tablebaseGenerateMissing;
+
+    // 性能演示的后台基准任务：预热轮数、测量轮数、每轮样本数、排队上限
+    @Value("${oxo.benchmark.warmup-iterations:3}")
+    private int benchmarkWarmupIterations;
+
+    @Value("${oxo.benchmark.iterations:5}")
+    private int benchmarkIterations;
+
+    @Value("${oxo.benchmark.samples-per-iteration:20000}")
+    private int benchmarkSamplesPerIteration;
+
+    @Value("${oxo.benchmark.max-queued-jobs:4}")
+    private int benchmarkMaxQueuedJobs;
+
     @Bean
     @Primary
     public GameService gameService() {
-        return new CachedGameService(); // 使用优化版本的服务
+        GameService service = newGameService(); // 使用优化版本的服务
+        service.addGameEventListener(globalEventStream());
+        return service;
+    }
+
+    // SSE 推送：共享的写出线程池，以及全局棋盘对应的事件流
+    @Bean(destroyMethod = "shutdown")
+    public GameEventHub gameEventHub() {
+        return new GameEventHub(streamDispatcherThreads, streamQueueCapacity, streamTimeoutMillis,
+                streamSendTimeoutMillis, streamMaxStalledSends);
+    }
+
+    @Bean
+    public GameEventStream globalEventStream() {
+        return gameEventHub().newStream();
+    }
+
+    // 全局棋盘的锁：控制器对全局棋盘的写操作和读-改-写都在这把锁内执行，与注册表中的游戏相同
+    @Bean
+    public GameSession globalGameSession() {
+        return new GameSession(GamePersistence.GLOBAL_GAME_ID, gameService());
+    }
+
+    // 多局游戏注册表：每局一个独立的 CachedGameService；创建后先从日志恢复
+    @Bean
+    public GameRegistry gameRegistry() {
+        GameRegistry registry = new GameRegistry(this::newGameService, idleTimeoutMillis, maxGames);
+        gamePersistence().recover(globalGameSession(), registry);
+        return registry;
+    }
+
+    // 配对成功的玩家分到注册表中新建的游戏
+    @Bean
+    public MatchmakingService matchmakingService() {
+        MatchmakingService service = new MatchmakingService(gameRegistry(), lobbyTicketTtlMillis, lobbyMaxTickets);
+        service.setMetrics(performanceStats()::recordServiceCall);
+        return service;
+    }
+
+    // 游戏按 id 分片到集群各节点；新游戏只选用归属本节点的 id
+    @Bean
+    public ClusterService clusterService() {
+        ClusterService service = new ClusterService(gameRegistry(), this::clusterSelf, clusterVirtualNodes,
+                clusterHandoffBatchSize, clusterHandoffTimeoutMillis);
+        service.setSecret(clusterSecret);
+        // 移交来的游戏是整局改写，日志里没有对应的操作，确认前写一次快照
+        if (gamePersistence().isEnabled()) {
+            service.setPersister(gamePersistence()::writeSnapshot);
+        }
+        service.setMembers(List.of(clusterMembers));
+        gameRegistry().setIdFilter(service::isLocal);
+        return service;
+    }
+
+    private String clusterSelf() {
+        if (!clusterSelf.isBlank()) {
+            return clusterSelf;
+        }
+        String port = environment.getProperty("local.server.port");
+        return port != null ? "http://localhost:" + port : null;
+    }
+
+    @Bean(destroyMethod = "close")
+    public GamePersistence gamePersistence() {
+        return GamePersistence.create(journalEnabled, Path.of(journalDirectory), journalSegmentSize,
+                journalFsyncPolicy, journalFsyncIntervalMillis);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public AiMoveService aiMoveService() {
+        int threads = aiMctsThreads > 0 ? aiMctsThreads : Runtime.getRuntime().availableProcessors();
+        AiMoveService service = new AiMoveService(aiTableSizeBits, aiTimeBudgetMillis, aiMaxDepth, threads, aiMctsMaxNodes);
+        service.setTablebase(tablebaseService());
+        service.setMaxBudgetMillis(aiMaxBudgetMillis);
+        service.setAlphaBetaSearchers(aiAlphaBetaSearchers > 0 ? aiAlphaBetaSearchers : Runtime.getRuntime().availableProcessors(),
+                aiAlphaBetaQueueTimeoutMillis);
+        service.setMctsSearchers(aiMctsSearchers, aiMctsQueueTimeoutMillis);
+        return service;
+    }
+
+    @Bean(destroyMethod = "close")
+    public TablebaseService tablebaseService() {
+        return TablebaseService.create(tablebaseEnabled, Path.of(tablebaseDirectory), List.of(tablebaseGeometries),
+                tablebaseGenerateMissing);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public BenchmarkJobService benchmarkJobService() {
+        return new BenchmarkJobService(new BenchmarkDemonstrator(benchmarkWarmupIterations, benchmarkIterations,
+                benchmarkSamplesPerIteration), benchmarkMaxQueuedJobs);
+    }
+
+    // 每个服务实例的 getGameState / 落子 / 胜负判定耗时计入 PerformanceStats 的 serviceCalls
+    private GameService newGameService() {
+        CachedGameService service = new CachedGameService(newGameModel());
+        service.setMetrics(performanceStats()::recordServiceCall);
+        if (preSerializeJson) {
+            service.setStateSerializer(this::toJson);
+        }
+        return service;
+    }
+
+    private byte[] toJson(Object state) {
+        try {
+            return objectMapper.writeValueAsBytes(state);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize game state", e);
+        }
+    }
+
+    private GameModel newGameModel() {
+        GameModel model = "bitboard".equalsIgnoreCase(boardImpl)
+                ? new BitboardGameModel(3, 3, 3) : new GameModel(3, 3, 3);
+        model.setSparseThresholdCells(sparseThresholdCells);
+        return model;
     }
     
     @Bean
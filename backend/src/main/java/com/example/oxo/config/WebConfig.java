@@ -1,12 +1,36 @@
 package com.example.oxo.config;  // 包名必须与路径一致
 
+import com.example.oxo.cluster.ClusterRoutingInterceptor;
+import com.example.oxo.cluster.ClusterService;
+import com.example.oxo.monitoring.ApiMetricsInterceptor;
+import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.registry.GameRegistry;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+	private final PerformanceStats performanceStats;
+	private final ClusterService clusterService;
+	private final GameRegistry gameRegistry;
+
+	public WebConfig(PerformanceStats performanceStats, ClusterService clusterService, GameRegistry gameRegistry) {
+		this.performanceStats = performanceStats;
+		this.clusterService = clusterService;
+		this.gameRegistry = gameRegistry;
+	}
+
+	// 所有 API 请求自动计时，按路由模板汇总；多局游戏的请求按游戏 id 路由到归属节点
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new ApiMetricsInterceptor(performanceStats)).addPathPatterns("/api/**");
+		registry.addInterceptor(new ClusterRoutingInterceptor(clusterService, gameRegistry))
+				.addPathPatterns("/api/oxo/games/**");
+	}
+
 	@Override
 	public void addCorsMappings(CorsRegistry registry) {
 		registry.addMapping("/**")  // 允许所有API路径
@@ -16,6 +40,7 @@ public class WebConfig implements WebMvcConfigurer {
 				)
 				.allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
 				.allowedHeaders("*")
+				.exposedHeaders("ETag")  // 前端读取版本号，用于 If-None-Match / If-Match
 				.allowCredentials(true);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.example.oxo.controller;
+
+import com.example.oxo.cluster.ClusterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 集群管理：查看和设置成员，以及接收其他节点移交来的游戏（见 {@link ClusterService}）。
+ * 扩容时先启动新节点，再向任一节点 PUT 完整的新成员列表；该节点通知新旧所有成员，各节点随即移交不再归属自己的游戏。
+ * 两个 PUT 接口都要求请求头 {@link ClusterService#SECRET_HEADER} 与 oxo.cluster.secret 一致，否则返回 403；未配置密钥时一律拒绝。
+ */
+@RestController
+@RequestMapping("/api/oxo/cluster")
+public class ClusterController {
+    private final ClusterService clusterService;
+
+    @Autowired
+    public ClusterController(ClusterService clusterService) {
+        this.clusterService = clusterService;
+    }
+
+    @GetMapping
+    public Object getStats() {
+        return clusterService.getStats();
+    }
+
+    /**
+     * 替换成员列表并移交本节点不再负责的游戏。propagate 为 false 时只更新本节点（节点之间互相通知时使用）。
+     * 返回新的成员、本节点移交的局数和通知失败的节点。
+     */
+    @PutMapping("/members")
+    public ResponseEntity<?> setMembers(@RequestBody MembershipRequest request,
+                                        @RequestParam(defaultValue = "true") boolean propagate,
+                                        @RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret) {
+        if (!clusterService.isAuthorized(secret)) {
+            return forbidden();
+        }
+        List<String> previous;
+        try {
+            previous = clusterService.setMembers(request.getMembers() != null ? request.getMembers() : List.of());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        Map<String, Object> body = new HashMap<>();
+        if (propagate) {
+            // 被移出的节点也要通知，它们据此把所有游戏移交出去
+            Set<String> nodes = new LinkedHashSet<>(previous);
+            nodes.addAll(clusterService.getMembers());
+            body.put("unreachable", clusterService.announce(nodes));
+        }
+        body.put("handedOff", clusterService.handOff());
+        body.put("members", clusterService.getMembers());
+        return ResponseEntity.ok(body);
+    }
+
+    /** 接收一批移交来的游戏；格式错误或发送方不该移交这些游戏时返回 400，容量不足返回 503，这些情况下都不创建任何游戏 */
+    @PutMapping(value = "/games", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> receiveGames(@RequestBody byte[] batch,
+                                          @RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret,
+                                          @RequestHeader(value = ClusterService.NODE_HEADER, required = false) String sender) {
+        if (!clusterService.isAuthorized(secret)) {
+            return forbidden();
+        }
+        try {
+            return ResponseEntity.ok(Map.of("received", clusterService.receive(ByteBuffer.wrap(batch), sender)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                Map.of("error", "Missing or wrong " + ClusterService.SECRET_HEADER + " (see oxo.cluster.secret)"));
+    }
+}
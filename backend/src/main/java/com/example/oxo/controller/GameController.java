@@ -1,143 +1,291 @@
 package com.example.oxo.controller;
 
-import com.example.oxo.benchmark.BenchmarkDemonstrator; // 导入新的演示类
+import com.example.oxo.ai.AiBusyException;
+import com.example.oxo.ai.AiMove;
+import com.example.oxo.ai.AiMoveService;
+import com.example.oxo.benchmark.BenchmarkJob;
+import com.example.oxo.benchmark.BenchmarkJobService;
 import com.example.oxo.model.MoveException;
 import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.registry.GameSession;
 import com.example.oxo.service.CachedGameService;
 import com.example.oxo.service.GameService;
+import com.example.oxo.service.MoveBatchResult;
+import com.example.oxo.stream.GameEventHub;
+import com.example.oxo.stream.GameEventStream;
+import com.example.oxo.tablebase.TablebaseMove;
+import com.example.oxo.tablebase.TablebaseService;
+import com.example.oxo.wire.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/oxo")
 public class GameController {
     private final GameService gameService;
+    private final GameSession globalSession;
     private final PerformanceStats performanceStats;
+    private final GameEventStream eventStream;
+    private final GameEventHub eventHub;
+    private final AiMoveService aiMoveService;
+    private final TablebaseService tablebaseService;
+    private final BenchmarkJobService benchmarkJobService;
     
     @Autowired
-    public GameController(GameService gameService, PerformanceStats performanceStats) {
+    public GameController(GameService gameService, GameSession globalGameSession, PerformanceStats performanceStats,
+                          GameEventStream globalEventStream, GameEventHub eventHub, AiMoveService aiMoveService,
+                          TablebaseService tablebaseService, BenchmarkJobService benchmarkJobService) {
         this.gameService = gameService;
+        this.globalSession = globalGameSession;
         this.performanceStats = performanceStats;
+        this.eventStream = globalEventStream;
+        this.eventHub = eventHub;
+        this.aiMoveService = aiMoveService;
+        this.tablebaseService = tablebaseService;
+        this.benchmarkJobService = benchmarkJobService;
     }
 
     @GetMapping("/performance")
     public Object getPerformanceStats() {
-        long start = System.currentTimeMillis();
-        try {
-            Map<String, Object> result = performanceStats.getStats();
-            if (gameService instanceof CachedGameService) {
-                CachedGameService cachedService = (CachedGameService) gameService;
-                Map<String, Object> mutableResult = new HashMap<>(result);
-                mutableResult.put("cacheStats", cachedService.getCacheStats());
-                return mutableResult;
-            }
-            return result;
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("getPerformanceStats", duration);
+        Map<String, Object> result = performanceStats.getStats();
+        if (gameService instanceof CachedGameService) {
+            CachedGameService cachedService = (CachedGameService) gameService;
+            Map<String, Object> mutableResult = new HashMap<>(result);
+            mutableResult.put("cacheStats", cachedService.getCacheStats());
+            mutableResult.put("eventStreams", eventHub.getStats());
+            mutableResult.put("ai", aiMoveService.getStats());
+            mutableResult.put("tablebase", tablebaseService.getStats());
+            return mutableResult;
         }
+        return result;
     }
     
     /**
-     * [新增] 统一的性能优化演示端点。
-     * 该端点会运行一系列精心设计的基准测试，
-     * 用于清晰地展示算法优化和缓存策略带来的性能提升。
-     * 返回的结果可以直接在前端进行结构化展示。
+     * 统一的性能优化演示端点：提交一个后台基准任务，立即返回 202 和任务信息（jobId）。
+     * 任务在独立的棋盘上运行真实的 GameService / OptimizedGameService / CachedGameService，
+     * 通过 GET /benchmark-jobs/{jobId} 查询进度，完成后 result 字段即为可以直接在前端展示的结果。
      */
-    @GetMapping("/run-demonstration")
-    public ResponseEntity<Object> runDemonstration() {
-        long controllerCallStartMs = System.currentTimeMillis();
+    @RequestMapping(value = "/run-demonstration", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<?> runDemonstration() {
         try {
-            System.out.println("Running unified performance demonstration...");
-            // 调用新的、统一的演示器来执行所有基准测试
-            Map<String, Object> benchmarkData = BenchmarkDemonstrator.run();
-            System.out.println("Demonstration completed. Returning structured results.");
-            performanceStats.recordApiCall("runDemonstration", System.currentTimeMillis() - controllerCallStartMs);
-            return ResponseEntity.ok(benchmarkData);
-        } catch (Exception e) {
-            System.err.println("GameController: Critical error during /run-demonstration endpoint execution: " + e.getMessage());
-            e.printStackTrace();
-            performanceStats.recordApiCall("runDemonstration_Error", System.currentTimeMillis() - controllerCallStartMs);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                 .body(Map.of("error", "Demonstration execution failed due to an internal server error: " + e.getMessage()));
+            BenchmarkJob job = benchmarkJobService.submit();
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/oxo/benchmark-jobs/" + job.getJobId())
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
         }
     }
+
+    /** 基准任务的状态、进度（0~1）和完成后的结果 */
+    @GetMapping("/benchmark-jobs/{jobId}")
+    public ResponseEntity<?> getBenchmarkJob(@PathVariable String jobId) {
+        BenchmarkJob job = benchmarkJobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown benchmark job: " + jobId));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/benchmark-jobs")
+    public List<BenchmarkJob> listBenchmarkJobs() {
+        return benchmarkJobService.list();
+    }
     
     // --- 旧的 /benchmark 和 /winCheckBenchmark 端点已被移除 ---
 
-    /** 获取当前棋局状态（玩家信息、棋盘、当前玩家、赢家等） */
+    /**
+     * 获取当前棋局状态（玩家信息、棋盘、当前玩家、赢家等）。
+     * 带上 since=版本号 时只返回之后的落子；版本过旧时返回完整状态。
+     * Accept 为 application/vnd.oxo.rows+json 或 application/vnd.oxo.packed 时返回紧凑格式。
+     * 响应带 ETag；If-None-Match 与当前版本一致时返回 304，不构造状态。
+     */
     @GetMapping("/state")
-    public Object getGameState() {
-        long start = System.currentTimeMillis();
+    public ResponseEntity<?> getGameState(@RequestParam(required = false) Long since,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 增量要遍历落子历史，ROWS/PACKED 直接读取棋盘：都与落子、改尺寸在同一把锁内，不会读到写了一半的状态
+        return execute(service -> since != null
+                ? StateResponses.stateSince(service, since, ifNoneMatch)
+                : StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept), ifNoneMatch));
+    }
+
+    /**
+     * 订阅落子推送（Server-Sent Events）。每次落子推送 move 事件，
+     * 重置/改尺寸/改玩家推送 reset/resize/players 事件，客户端据此重新拉取状态。
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        // 在锁内订阅，hello 事件的版本与之后推送的第一条事件之间不会漏掉落子
+        globalSession.getLock().lock();
         try {
-            return gameService.getGameState();
+            return eventStream.subscribe(gameService);
         } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("getGameState", duration);
+            globalSession.getLock().unlock();
         }
     }
 
-    /** 处理玩家在前端输入的指令（如"a1", "b2"...） */
+    /**
+     * 处理玩家在前端输入的指令（如"a1", "b2"...）。
+     * 请求体带 expectedVersion 或请求头带 If-Match（之前响应的 ETag）时，只在版本未变时落子，否则返回 412。
+     */
     @PostMapping("/move")
-    public ResponseEntity<?> makeMove(@RequestBody MoveRequest request) {
-        long start = System.currentTimeMillis();
+    public ResponseEntity<?> makeMove(@RequestBody MoveRequest request,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(service -> {
+            if (expected != null) {
+                service.handleIncomingCommand(request.getCommand(), expected);
+            } else {
+                service.handleIncomingCommand(request.getCommand());
+            }
+            return StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept));
+        });
+    }
+
+    /**
+     * 批量落子：按顺序执行 commands，遇到第一条非法指令即停止，
+     * 返回逐条结果和最终状态（只构造一次）。整批在全局棋盘的锁内执行，最多 {@link MoveBatchRequest#MAX_COMMANDS} 条，超过时返回 413。
+     */
+    @PostMapping("/moves")
+    public ResponseEntity<?> makeMoves(@RequestBody MoveBatchRequest request,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResponseEntity<?> rejected = StateResponses.rejectBatch(request);
+        if (rejected != null) {
+            return rejected;
+        }
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(service -> {
+            // 版本检查与整批落子在同一把锁内完成
+            MoveBatchResult result = expected != null
+                    ? service.handleIncomingCommands(request.getCommands(), expected)
+                    : service.handleIncomingCommands(request.getCommands());
+            return batchResponse(result, service.getGameState());
+        });
+    }
+
+    /**
+     * 电脑玩家替当前轮到的玩家走一步：在 budgetMs 毫秒内搜索（缺省使用配置的预算，负数或超过 oxo.ai.max-budget-ms 时返回 400），
+     * 落子后返回搜索结果和最新状态。engine 可选 alphabeta / mcts，缺省按棋盘大小自动选择。
+     * 与多局版本相同，只在复制局面和落子时持有锁；搜索期间局面被改变时返回 409。
+     * MCTS 搜索器都在使用中且等待超时时返回 503。
+     */
+    @PostMapping("/ai-move")
+    public ResponseEntity<?> makeAiMove(@RequestParam(required = false) Long budgetMs,
+                                        @RequestParam(required = false) String engine) {
         try {
-            gameService.handleIncomingCommand(request.getCommand());
-            return ResponseEntity.ok(gameService.getGameState());
+            AiMoveService.Engine selected;
+            long budget;
+            AiMoveService.Position position;
+            try {
+                selected = AiMoveService.Engine.fromParam(engine);
+                budget = aiMoveService.budgetMillis(budgetMs == null ? 0 : budgetMs);
+                position = globalSession.execute(aiMoveService::capture);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            AiMove move = aiMoveService.findBestMove(position, budget, selected);
+            if (move == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "No legal move available"));
+            }
+            return execute(service -> {
+                if (service.getVersion() != position.getVersion()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                            Map.of("error", "Game changed while searching", "version", service.getVersion()));
+                }
+                service.handleMove(move.getRow(), move.getCol());
+                return aiMoveResponse(move, service.getGameState());
+            });
         } catch (MoveException e) {
-            return ResponseEntity.badRequest().body(
-                    Map.of("error", "Invalid Move: " + e.getMessage())
-            );
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(
-                    Map.of("error", "Internal server error: " + e.getMessage())
-            );
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("makeMove", duration);
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid Move: " + e.getMessage()));
+        } catch (AiBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * 提示：从残局库查出当前玩家的最佳着法和双方最优时的结果，不做搜索也不落子。
+     * 当前棋盘没有对应的残局库（例如大棋盘）时返回 404。查询读取棋盘本身，在全局棋盘的锁内进行。
+     */
+    @GetMapping("/hint")
+    public ResponseEntity<?> getHint() {
+        return execute(service -> hintResponse(tablebaseService.lookup(service.getGameModel())));
+    }
+
+    public static ResponseEntity<?> hintResponse(TablebaseMove hint) {
+        if (hint == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    Map.of("error", "Position is not covered by any tablebase"));
+        }
+        return ResponseEntity.ok(hint);
+    }
+
+    public static Map<String, Object> aiMoveResponse(AiMove move, Object state) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("ai", move);
+        body.put("state", state);
+        return body;
+    }
+
+    public static Map<String, Object> batchResponse(MoveBatchResult result, Object state) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("applied", result.getAppliedCount());
+        body.put("complete", result.isComplete());
+        body.put("results", result.getResults());
+        body.put("state", state);
+        return body;
+    }
+
     /** 设置玩家数量，并分配字母 */
     @PostMapping("/setPlayers")
-    public Object setPlayers(@RequestParam int count) {
-        long start = System.currentTimeMillis();
-        try {
-            gameService.setPlayers(count);
-            return gameService.getGameState();
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("setPlayers", duration);
-        }
+    public ResponseEntity<?> setPlayers(@RequestParam int count) {
+        return execute(service -> {
+            service.setPlayers(count);
+            return service.getGameState();
+        });
     }
 
     /** 设置棋盘大小（行数与列数），使玩家可以在输入框里指定行列数 */
     @PostMapping("/setSize")
-    public Object setBoardSize(@RequestParam int rows, @RequestParam int cols) {
-        long start = System.currentTimeMillis();
-        try {
-            gameService.setBoardSize(rows, cols);
-            return gameService.getGameState();
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("setBoardSize", duration);
-        }
+    public ResponseEntity<?> setBoardSize(@RequestParam int rows, @RequestParam int cols) {
+        return execute(service -> {
+            service.setBoardSize(rows, cols);
+            return service.getGameState();
+        });
     }
     
     @PostMapping("/reset")
-    public Object resetGame() {
-        long start = System.currentTimeMillis();
+    public ResponseEntity<?> resetGame() {
+        return execute(service -> {
+            service.resetGame();
+            return service.getGameState();
+        });
+    }
+
+    // 在全局棋盘的锁内执行操作，异常转换方式与 GameSessionController 相同
+    private ResponseEntity<?> execute(GameSession.Action<Object> action) {
         try {
-            gameService.resetGame();
-            return gameService.getGameState();
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            performanceStats.recordApiCall("resetGame", duration);
+            Object result = globalSession.execute(action);
+            if (result instanceof ResponseEntity<?> entity) {
+                return entity;
+            }
+            return ResponseEntity.ok(result);
+        } catch (MoveException e) {
+            return StateResponses.moveRejected(e, gameService);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("error", "Internal server error: " + e.getMessage())
+            );
         }
     }
 }
\ No newline at end of file
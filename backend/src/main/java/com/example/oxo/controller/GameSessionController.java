@@ -0,0 +1,246 @@
+package com.example.oxo.controller;
+
+import com.example.oxo.ai.AiBusyException;
+import com.example.oxo.ai.AiMove;
+import com.example.oxo.ai.AiMoveService;
+import com.example.oxo.cluster.ClusterRoutingInterceptor;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.registry.GameMovedException;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.MoveBatchResult;
+import com.example.oxo.stream.GameEventHub;
+import com.example.oxo.stream.GameEventStream;
+import com.example.oxo.tablebase.TablebaseService;
+import com.example.oxo.wire.WireFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多局游戏版本的 API：与 {@link GameController} 相同的端点，但都以游戏 id 为作用域。
+ * 例如 POST /api/oxo/games 创建游戏，POST /api/oxo/games/{id}/move 在该局落子。
+ */
+@RestController
+@RequestMapping("/api/oxo/games")
+public class GameSessionController {
+    private final GameRegistry gameRegistry;
+    private final GameEventHub eventHub;
+    private final AiMoveService aiMoveService;
+    private final TablebaseService tablebaseService;
+
+    @Autowired
+    public GameSessionController(GameRegistry gameRegistry, GameEventHub eventHub,
+                                 AiMoveService aiMoveService, TablebaseService tablebaseService) {
+        this.gameRegistry = gameRegistry;
+        this.eventHub = eventHub;
+        this.aiMoveService = aiMoveService;
+        this.tablebaseService = tablebaseService;
+    }
+
+    /** 创建一局新游戏，返回其 id 和初始状态 */
+    @PostMapping
+    public ResponseEntity<?> createGame() {
+        try {
+            GameSession session = gameRegistry.create();
+            Map<String, Object> body = new HashMap<>();
+            body.put("gameId", session.getId());
+            body.put("state", session.execute(service -> service.getGameState()));
+            return ResponseEntity.ok(body);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (MoveException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Internal server error: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/stats")
+    public Object getRegistryStats() {
+        return gameRegistry.getStats();
+    }
+
+    @GetMapping("/{gameId}/state")
+    public ResponseEntity<?> getGameState(@PathVariable String gameId, @RequestParam(required = false) Long since,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return execute(gameId, service -> since != null
+                ? StateResponses.stateSince(service, since, ifNoneMatch)
+                : StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept), ifNoneMatch));
+    }
+
+    /** 订阅该局的落子推送（Server-Sent Events） */
+    @GetMapping(value = "/{gameId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@PathVariable String gameId) {
+        GameSession session = gameRegistry.get(gameId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown game: " + gameId);
+        }
+        GameEventStream stream = session.getOrCreateEventStream(eventHub);
+        session.getLock().lock();
+        try {
+            if (session.getMovedTo() != null) {
+                throw new GameMovedException(gameId, session.getMovedTo());
+            }
+            return stream.subscribe(session.getGameService());
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @PostMapping("/{gameId}/move")
+    public ResponseEntity<?> makeMove(@PathVariable String gameId, @RequestBody MoveRequest request,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(gameId, service -> {
+            if (expected != null) {
+                service.handleIncomingCommand(request.getCommand(), expected);
+            } else {
+                service.handleIncomingCommand(request.getCommand());
+            }
+            return StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept));
+        });
+    }
+
+    /** 批量落子：整批只获取一次该局的锁，最终状态只构造一次 */
+    @PostMapping("/{gameId}/moves")
+    public ResponseEntity<?> makeMoves(@PathVariable String gameId, @RequestBody MoveBatchRequest request,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResponseEntity<?> rejected = StateResponses.rejectBatch(request);
+        if (rejected != null) {
+            return rejected;
+        }
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(gameId, service -> {
+            // 版本检查与整批落子在同一把锁内完成
+            MoveBatchResult result = expected != null
+                    ? service.handleIncomingCommands(request.getCommands(), expected)
+                    : service.handleIncomingCommands(request.getCommands());
+            return GameController.batchResponse(result, service.getGameState());
+        });
+    }
+
+    /**
+     * 电脑玩家替当前玩家走一步。只在复制局面和落子时持有该局的锁，搜索期间其他请求可以读取状态；
+     * 如果搜索期间局面被改变（版本号不同），返回 409，客户端可重试。
+     */
+    @PostMapping("/{gameId}/ai-move")
+    public ResponseEntity<?> makeAiMove(@PathVariable String gameId, @RequestParam(required = false) Long budgetMs,
+                                        @RequestParam(required = false) String engine) {
+        try {
+            GameSession session = gameRegistry.get(gameId);
+            if (session == null) {
+                return notFound(gameId);
+            }
+            AiMoveService.Engine selected;
+            long budget;
+            AiMoveService.Position position;
+            try {
+                selected = AiMoveService.Engine.fromParam(engine);
+                budget = aiMoveService.budgetMillis(budgetMs == null ? 0 : budgetMs);
+                position = session.execute(aiMoveService::capture);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            AiMove move = aiMoveService.findBestMove(position, budget, selected);
+            if (move == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "No legal move available"));
+            }
+            return execute(gameId, service -> {
+                if (service.getVersion() != position.getVersion()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                            Map.of("error", "Game changed while searching", "version", service.getVersion()));
+                }
+                service.handleMove(move.getRow(), move.getCol());
+                return GameController.aiMoveResponse(move, service.getGameState());
+            });
+        } catch (MoveException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid Move: " + e.getMessage()));
+        } catch (AiBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** 提示：从残局库查出该局当前玩家的最佳着法，局面不在库中时返回 404 */
+    @GetMapping("/{gameId}/hint")
+    public ResponseEntity<?> getHint(@PathVariable String gameId) {
+        return execute(gameId, service -> GameController.hintResponse(tablebaseService.lookup(service.getGameModel())));
+    }
+
+    @PostMapping("/{gameId}/setPlayers")
+    public ResponseEntity<?> setPlayers(@PathVariable String gameId, @RequestParam int count) {
+        return execute(gameId, service -> {
+            service.setPlayers(count);
+            return service.getGameState();
+        });
+    }
+
+    @PostMapping("/{gameId}/setSize")
+    public ResponseEntity<?> setBoardSize(@PathVariable String gameId, @RequestParam int rows, @RequestParam int cols) {
+        return execute(gameId, service -> {
+            service.setBoardSize(rows, cols);
+            return service.getGameState();
+        });
+    }
+
+    @PostMapping("/{gameId}/reset")
+    public ResponseEntity<?> resetGame(@PathVariable String gameId) {
+        return execute(gameId, service -> {
+            service.resetGame();
+            return service.getGameState();
+        });
+    }
+
+    @DeleteMapping("/{gameId}")
+    public ResponseEntity<?> deleteGame(@PathVariable String gameId) {
+        if (!gameRegistry.remove(gameId)) {
+            return notFound(gameId);
+        }
+        return ResponseEntity.ok(Map.of("deleted", gameId));
+    }
+
+    // 在该局游戏的锁内执行操作，并把异常转换为与 GameController 一致的响应
+    // action 可以直接返回 ResponseEntity（例如紧凑格式），此时原样返回
+    private ResponseEntity<?> execute(String gameId, GameSession.Action<Object> action) {
+        GameSession session = gameRegistry.get(gameId);
+        if (session == null) {
+            return notFound(gameId);
+        }
+        try {
+            Object result = session.execute(action);
+            if (result instanceof ResponseEntity<?> entity) {
+                return entity;
+            }
+            return ResponseEntity.ok(result);
+        } catch (MoveException e) {
+            return StateResponses.moveRejected(e, session.getGameService());
+        } catch (GameMovedException e) {
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("error", "Internal server error: " + e.getMessage())
+            );
+        }
+    }
+
+    /** 请求等锁期间该局被移交给了其他节点：与路由拦截器一样重定向到新节点 */
+    @ExceptionHandler(GameMovedException.class)
+    public ResponseEntity<?> gameMoved(GameMovedException e, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .header(HttpHeaders.LOCATION, ClusterRoutingInterceptor.locationOn(e.getOwner(), request))
+                .build();
+    }
+
+    private ResponseEntity<?> notFound(String gameId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown game: " + gameId));
+    }
+}
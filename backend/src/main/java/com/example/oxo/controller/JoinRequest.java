@@ -0,0 +1,39 @@
+package com.example.oxo.controller;
+
+/** 加入匹配的请求：期望的棋盘规格，未给出的字段取默认的 3x3、三子连线、两人 */
+public class JoinRequest {
+	private int rows = 3;
+	private int cols = 3;
+	private int winThreshold = 3;
+	private int players = 2;
+
+	public JoinRequest() {}
+
+	public int getRows() {
+		return rows;
+	}
+	public void setRows(int rows) {
+		this.rows = rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+	public void setCols(int cols) {
+		this.cols = cols;
+	}
+
+	public int getWinThreshold() {
+		return winThreshold;
+	}
+	public void setWinThreshold(int winThreshold) {
+		this.winThreshold = winThreshold;
+	}
+
+	public int getPlayers() {
+		return players;
+	}
+	public void setPlayers(int players) {
+		this.players = players;
+	}
+}
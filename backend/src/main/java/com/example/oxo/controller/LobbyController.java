@@ -0,0 +1,119 @@
+package com.example.oxo.controller;
+
+import com.example.oxo.matchmaking.Geometry;
+import com.example.oxo.matchmaking.MatchmakingService;
+import com.example.oxo.matchmaking.Ticket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 匹配大厅：POST /api/oxo/lobby/join 按期望的规格排队，凑齐人数后分到一局新游戏。
+ * 等待用长轮询：请求挂起（DeferredResult，不占用 Servlet 线程），配对成功立即返回 gameId 和自己的棋子；
+ * 超时返回 202 和票号，客户端用 GET /tickets/{id} 继续等待。
+ */
+@RestController
+@RequestMapping("/api/oxo/lobby")
+public class LobbyController {
+    private final MatchmakingService matchmakingService;
+    private final long pollTimeoutMillis;
+
+    @Autowired
+    public LobbyController(MatchmakingService matchmakingService,
+                           @Value("${oxo.lobby.poll-timeout-ms:25000}") long pollTimeoutMillis) {
+        this.matchmakingService = matchmakingService;
+        this.pollTimeoutMillis = pollTimeoutMillis;
+    }
+
+    @PostMapping("/join")
+    public DeferredResult<ResponseEntity<?>> join(@RequestBody(required = false) JoinRequest request) {
+        JoinRequest join = request != null ? request : new JoinRequest();
+        Ticket ticket;
+        try {
+            ticket = matchmakingService.join(Geometry.of(join.getRows(), join.getCols(), join.getWinThreshold(),
+                    join.getPlayers()));
+        } catch (IllegalArgumentException e) {
+            return immediate(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        } catch (IllegalStateException e) {
+            return immediate(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage())));
+        }
+        return await(ticket);
+    }
+
+    /** 继续等待；已配对或已结束的票立即返回 */
+    @GetMapping("/tickets/{ticketId}")
+    public DeferredResult<ResponseEntity<?>> pollTicket(@PathVariable String ticketId) {
+        Ticket ticket = matchmakingService.poll(ticketId);
+        if (ticket == null) {
+            return immediate(ticketNotFound(ticketId));
+        }
+        return await(ticket);
+    }
+
+    @DeleteMapping("/tickets/{ticketId}")
+    public ResponseEntity<?> cancelTicket(@PathVariable String ticketId) {
+        if (matchmakingService.cancel(ticketId)) {
+            return ResponseEntity.ok(Map.of("ticketId", ticketId, "status", Ticket.Status.CANCELLED));
+        }
+        Ticket ticket = matchmakingService.poll(ticketId);
+        if (ticket == null) {
+            return ticketNotFound(ticketId);
+        }
+        // 已配对（或已过期）的票不能再取消
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(finished(ticket).getBody());
+    }
+
+    @GetMapping("/stats")
+    public Object getStats() {
+        return matchmakingService.getStats();
+    }
+
+    // 挂起到票结束或超时；回调在配对线程中执行，只设置结果，响应由容器异步写出
+    private DeferredResult<ResponseEntity<?>> await(Ticket ticket) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(pollTimeoutMillis, waiting(ticket));
+        ticket.getResult().thenAccept(finished -> result.setResult(finished(finished)));
+        return result;
+    }
+
+    private static DeferredResult<ResponseEntity<?>> immediate(ResponseEntity<?> response) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    public static ResponseEntity<?> waiting(Ticket ticket) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("ticketId", ticket.getId());
+        body.put("status", Ticket.Status.WAITING);
+        body.put("geometry", ticket.getGeometry().toMap());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/oxo/lobby/tickets/" + ticket.getId())
+                .body(body);
+    }
+
+    public static ResponseEntity<Map<String, Object>> finished(Ticket ticket) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("ticketId", ticket.getId());
+        body.put("status", ticket.getStatus());
+        body.put("geometry", ticket.getGeometry().toMap());
+        if (ticket.getStatus() != Ticket.Status.MATCHED) {
+            body.put("error", "Ticket is " + ticket.getStatus());
+            return ResponseEntity.status(HttpStatus.GONE).body(body);
+        }
+        body.put("gameId", ticket.getGameId());
+        body.put("playerIndex", ticket.getPlayerIndex());
+        body.put("player", String.valueOf(ticket.getLetter()));
+        return ResponseEntity.ok(body);
+    }
+
+    public static ResponseEntity<?> ticketNotFound(String ticketId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown ticket: " + ticketId));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.oxo.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 设置集群成员：所有节点的基础 URL（如 http://10.0.0.2:8080），为空时回到单机模式 */
+public class MembershipRequest {
+	private List<String> members = new ArrayList<>();
+
+	public MembershipRequest() {}
+
+	public List<String> getMembers() {
+		return members;
+	}
+	public void setMembers(List<String> members) {
+		this.members = members;
+	}
+}
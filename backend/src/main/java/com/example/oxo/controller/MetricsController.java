@@ -0,0 +1,30 @@
+package com.example.oxo.controller;
+
+import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.monitoring.PrometheusExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Prometheus 抓取端点：GET /metrics 返回文本格式的请求延迟、状态码、异常和服务层耗时。
+ * 不在 /api 下，抓取本身不计入接口统计。
+ */
+@RestController
+public class MetricsController {
+    private final PerformanceStats performanceStats;
+
+    @Autowired
+    public MetricsController(PerformanceStats performanceStats) {
+        this.performanceStats = performanceStats;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, PrometheusExporter.CONTENT_TYPE)
+                .body(PrometheusExporter.export(performanceStats));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.oxo.controller;
+
+import java.util.List;
+
+public class MoveBatchRequest {
+	/** 一批最多的指令数；整批在游戏的锁内执行，过长的批次会长时间挡住同一局的其他请求 */
+	public static final int MAX_COMMANDS = 1024;
+
+	private List<String> commands;
+	// 可选：整批落子前的状态版本，不同时整批被拒绝（412）
+	private Long expectedVersion;
+
+	public MoveBatchRequest() {}
+
+	public MoveBatchRequest(List<String> commands) {
+		this.commands = commands;
+	}
+
+	public List<String> getCommands() {
+		return commands;
+	}
+	public void setCommands(List<String> commands) {
+		this.commands = commands;
+	}
+
+	public Long getExpectedVersion() {
+		return expectedVersion;
+	}
+	public void setExpectedVersion(Long expectedVersion) {
+		this.expectedVersion = expectedVersion;
+	}
+}
@@ -2,6 +2,8 @@ package com.example.oxo.controller;
 
 public class MoveRequest {
 	private String command;
+	// 可选：客户端看到的状态版本，与当前版本不同时落子被拒绝（412）
+	private Long expectedVersion;
 
 	public MoveRequest() {}
 
@@ -15,4 +17,11 @@ public class MoveRequest {
 	public void setCommand(String command) {
 		this.command = command;
 	}
+
+	public Long getExpectedVersion() {
+		return expectedVersion;
+	}
+	public void setExpectedVersion(Long expectedVersion) {
+		this.expectedVersion = expectedVersion;
+	}
 }
@@ -0,0 +1,131 @@
+package com.example.oxo.controller;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.GameService;
+import com.example.oxo.service.GameStateSnapshot;
+import com.example.oxo.wire.BoardStateEncoder;
+import com.example.oxo.wire.WireFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+
+/**
+ * 根据客户端请求的格式构造完整状态的响应，供各控制器共用。
+ * 每个状态响应都带 ETag："进程启动标识-版本号"，紧凑格式再加格式后缀。
+ * 启动标识保证重启后版本号从头计数时，旧的 ETag 不会被误认为仍然有效。
+ * 只依赖 spring-web 的 ResponseEntity，WebFlux 版本的控制器同样使用。
+ */
+public final class StateResponses {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private StateResponses() {
+    }
+
+    public static ResponseEntity<?> fullState(GameService gameService, WireFormat format) {
+        return fullState(gameService, format, null);
+    }
+
+    /** ifNoneMatch 与当前版本的 ETag 相同时返回 304，不构造也不序列化状态 */
+    public static ResponseEntity<?> fullState(GameService gameService, WireFormat format, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String eTag = eTag(gameService.getVersion(), format);
+            if (matches(ifNoneMatch, eTag)) {
+                return notModified(eTag);
+            }
+        }
+        if (format == WireFormat.JSON) {
+            // 快照里有预先序列化的 JSON 时直接写出字节，不再经过 Jackson
+            GameStateSnapshot snapshot = gameService.getSnapshot();
+            String eTag = eTag(snapshot.getVersion(), format);
+            if (snapshot.getJson() != null) {
+                return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(snapshot.getJson());
+            }
+            return ResponseEntity.ok().eTag(eTag).body(snapshot.getState());
+        }
+        if (format == WireFormat.ROWS && !BoardStateEncoder.supportsRows(gameService.getGameModel())) {
+            // 稀疏或超大棋盘逐格写出会耗尽内存，只提供 JSON（稀疏时只含已落子格子）和 PACKED
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).body(Map.of("error",
+                    "The rows format is not available for this board; use application/json or " + WireFormat.PACKED.getMediaType()));
+        }
+        String eTag = eTag(gameService.getVersion(), format);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(BoardStateEncoder.encode(format, gameService));
+    }
+
+    /** 自 since 以来的增量；版本未变且 ifNoneMatch 命中时同样返回 304 */
+    public static ResponseEntity<?> stateSince(GameService gameService, long since, String ifNoneMatch) {
+        String eTag = eTag(gameService.getVersion(), WireFormat.JSON);
+        if (ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(gameService.getGameStateSince(since));
+    }
+
+    /**
+     * 落子的前置版本：请求体中的 expectedVersion 优先，其次是 If-Match 头（本服务发出的 ETag）。
+     * 都没有时返回 null，表示不检查；If-Match 不是本进程发出的 ETag 时返回 -1，必然不匹配。
+     */
+    public static Long expectedVersion(Long expectedVersion, String ifMatch) {
+        if (expectedVersion != null) {
+            return expectedVersion;
+        }
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        String prefix = "\"" + EPOCH + "-";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /** 批量落子请求的检查：缺少 commands 时返回 400，超过 {@link MoveBatchRequest#MAX_COMMANDS} 条时返回 413，合法时返回 null */
+    public static ResponseEntity<?> rejectBatch(MoveBatchRequest request) {
+        if (request.getCommands() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing commands"));
+        }
+        if (request.getCommands().size() > MoveBatchRequest.MAX_COMMANDS) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error",
+                    "Too many commands: " + request.getCommands().size() + " (max " + MoveBatchRequest.MAX_COMMANDS + ")"));
+        }
+        return null;
+    }
+
+    /** 版本不匹配时返回 412 和当前版本，其余非法落子返回 400 */
+    public static ResponseEntity<?> moveRejected(MoveException e, GameService gameService) {
+        if (e.getCode() == MoveException.VERSION_MISMATCH) {
+            long version = gameService.getVersion();
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .eTag(eTag(version, WireFormat.JSON))
+                    .body(Map.of("error", e.getMessage(), "version", version));
+        }
+        return ResponseEntity.badRequest().body(Map.of("error", "Invalid Move: " + e.getMessage()));
+    }
+
+    public static String eTag(long version, WireFormat format) {
+        return format == WireFormat.JSON
+                ? "\"" + EPOCH + "-" + version + "\""
+                : "\"" + EPOCH + "-" + version + "-" + format.name().toLowerCase() + "\"";
+    }
+
+    // If-None-Match 可以是 "*" 或逗号分隔的多个 ETag（可带 W/ 前缀），带引号比较不会出现前缀误匹配
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        return ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(eTag);
+    }
+
+    private static ResponseEntity<?> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+}
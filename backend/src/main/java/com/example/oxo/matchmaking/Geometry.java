@@ -0,0 +1,93 @@
+package com.example.oxo.matchmaking;
+
+import com.example.oxo.service.GameService;
+
+import java.util.Map;
+
+/**
+ * 匹配时的对局规格：行数、列数、连成几子获胜、玩家人数（同 GameService.setPlayers）。
+ * 规格完全相同的玩家才会被分到同一局。
+ */
+public final class Geometry {
+	public static final int MAX_SIDE = 100;
+	public static final int MAX_PLAYERS = GameService.MAX_PLAYERS;
+
+	private final int rows;
+	private final int cols;
+	private final int winThreshold;
+	private final int players;
+
+	private Geometry(int rows, int cols, int winThreshold, int players) {
+		this.rows = rows;
+		this.cols = cols;
+		this.winThreshold = winThreshold;
+		this.players = players;
+	}
+
+	/** 校验并构造；不合法时抛出 IllegalArgumentException */
+	public static Geometry of(int rows, int cols, int winThreshold, int players) {
+		if (rows < 3 || rows > MAX_SIDE || cols < 3 || cols > MAX_SIDE) {
+			throw new IllegalArgumentException("Board size must be between 3 and " + MAX_SIDE + ": " + rows + "x" + cols);
+		}
+		if (winThreshold < 2 || winThreshold > Math.max(rows, cols)) {
+			throw new IllegalArgumentException("Win threshold out of range: " + winThreshold);
+		}
+		// 人数不超过较短边，GameService.setPlayers 不会再放大棋盘
+		if (players < 2 || players > Math.min(MAX_PLAYERS, Math.min(rows, cols))) {
+			throw new IllegalArgumentException("Player count out of range: " + players);
+		}
+		return new Geometry(rows, cols, winThreshold, players);
+	}
+
+	/** 解析 {@link #toString()} 的格式 "行x列/连线/人数"，如 "7x7/4/3"；不合法时抛出 IllegalArgumentException */
+	public static Geometry parse(String text) {
+		String[] parts = text.trim().split("[x/]");
+		if (parts.length != 4) {
+			throw new IllegalArgumentException("Expected ROWSxCOLS/THRESHOLD/PLAYERS: " + text);
+		}
+		try {
+			return of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+					Integer.parseInt(parts[3]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Expected ROWSxCOLS/THRESHOLD/PLAYERS: " + text);
+		}
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getWinThreshold() {
+		return winThreshold;
+	}
+
+	public int getPlayers() {
+		return players;
+	}
+
+	public Map<String, Object> toMap() {
+		return Map.of("rows", rows, "cols", cols, "winThreshold", winThreshold, "players", players);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Geometry)) return false;
+		Geometry other = (Geometry) o;
+		return rows == other.rows && cols == other.cols && winThreshold == other.winThreshold && players == other.players;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((rows * 31 + cols) * 31 + winThreshold) * 31 + players;
+	}
+
+	@Override
+	public String toString() {
+		return rows + "x" + cols + "/" + winThreshold + "/" + players;
+	}
+}
@@ -0,0 +1,246 @@
+package com.example.oxo.matchmaking;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.registry.GameMovedException;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.GameServiceMetrics;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 匹配大厅：按 {@link Geometry} 分桶，每个桶是一个无锁队列。
+ * 加入时把票放进队列、计数加一，然后尝试配对：谁抢到该桶的配对标志（CAS）谁来取出玩家、创建新游戏，
+ * 其他线程不等待，直接返回；放下标志后再检查一次人数，避免最后到达的玩家没人处理。
+ * 取消和过期只改票的状态，票留在队列中，由配对线程或定期清理顺带丢弃。
+ */
+public class MatchmakingService {
+
+	// 同一规格的等待队列；waiting 为已入队、尚未被取出的票数（含已取消但还没丢弃的）
+	private static final class Bucket {
+		final Geometry geometry;
+		final ConcurrentLinkedDeque<Ticket> queue = new ConcurrentLinkedDeque<>();
+		final AtomicInteger waiting = new AtomicInteger();
+		final AtomicBoolean matching = new AtomicBoolean();
+		// 清理线程准备移除空桶时置位，加入方看到后换一个桶
+		volatile boolean retired;
+
+		Bucket(Geometry geometry) {
+			this.geometry = geometry;
+		}
+	}
+
+	private final GameRegistry registry;
+	private final long ticketTtlMillis;
+	private final int maxTickets;
+	private final Map<Geometry, Bucket> buckets = new ConcurrentHashMap<>();
+	private final Map<String, Ticket> tickets = new ConcurrentHashMap<>(1024);
+	private final LongAdder joins = new LongAdder();
+	private final LongAdder matches = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder createFailures = new LongAdder();
+	private final LongAdder matchedWaitNanos = new LongAdder();
+	private final LongAdder matchedPlayers = new LongAdder();
+	private GameServiceMetrics metrics;
+
+	public MatchmakingService(GameRegistry registry, long ticketTtlMillis, int maxTickets) {
+		this.registry = registry;
+		this.ticketTtlMillis = ticketTtlMillis;
+		this.maxTickets = maxTickets;
+	}
+
+	/** 每名玩家从加入到配对成功的等待时间以 "matchmakingWait" 计入 */
+	public void setMetrics(GameServiceMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/** 加入匹配，人数凑齐时当场配对（返回的票可能已是 MATCHED）；票数达到上限时抛出 IllegalStateException */
+	public Ticket join(Geometry geometry) {
+		if (tickets.size() >= maxTickets) {
+			throw new IllegalStateException("Too many waiting players: " + maxTickets);
+		}
+		Ticket ticket;
+		do {
+			ticket = new Ticket(Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36), geometry);
+		} while (tickets.putIfAbsent(ticket.getId(), ticket) != null);
+		joins.increment();
+
+		while (true) {
+			Bucket bucket = buckets.computeIfAbsent(geometry, Bucket::new);
+			bucket.queue.offer(ticket);
+			// 先入队再读 retired，清理线程先置 retired 再检查队列是否为空，两者至少有一方看到对方
+			if (!bucket.retired || !bucket.queue.removeFirstOccurrence(ticket)) {
+				// 票已被配对线程取出时它已计过减一，这里同样要加一
+				bucket.waiting.incrementAndGet();
+				tryMatch(bucket);
+				return ticket;
+			}
+		}
+	}
+
+	/** 查找票并刷新其最近轮询时间，不存在时返回 null */
+	public Ticket poll(String ticketId) {
+		Ticket ticket = tickets.get(ticketId);
+		if (ticket != null) {
+			ticket.touch();
+		}
+		return ticket;
+	}
+
+	/** 取消等待；票不存在或已配对时返回 false */
+	public boolean cancel(String ticketId) {
+		Ticket ticket = tickets.get(ticketId);
+		if (ticket == null || !ticket.end(Ticket.Status.CANCELLED)) {
+			return false;
+		}
+		cancelled.increment();
+		return true;
+	}
+
+	private void tryMatch(Bucket bucket) {
+		int players = bucket.geometry.getPlayers();
+		while (bucket.waiting.get() >= players && bucket.matching.compareAndSet(false, true)) {
+			boolean progress;
+			try {
+				progress = drain(bucket, players);
+			} finally {
+				bucket.matching.set(false);
+			}
+			if (!progress) {
+				return;
+			}
+		}
+	}
+
+	// 持有配对标志时调用：反复取出 players 名仍在等待的玩家组成一局，凑不齐或建局失败时放回队首
+	private boolean drain(Bucket bucket, int players) {
+		Ticket[] group = new Ticket[players];
+		while (bucket.waiting.get() >= players) {
+			int size = 0;
+			while (size < players) {
+				Ticket ticket = bucket.queue.poll();
+				if (ticket == null) {
+					break;
+				}
+				bucket.waiting.decrementAndGet();
+				if (ticket.claim()) {
+					group[size++] = ticket;
+				}
+			}
+			if (size < players || !startGame(bucket.geometry, group)) {
+				for (int i = size - 1; i >= 0; i--) {
+					group[i].unclaim();
+					bucket.queue.offerFirst(group[i]);
+					bucket.waiting.incrementAndGet();
+				}
+				return size < players;
+			}
+		}
+		return true;
+	}
+
+	private boolean startGame(Geometry geometry, Ticket[] group) {
+		GameSession session = null;
+		char[] letters = new char[group.length];
+		try {
+			session = registry.create();
+			session.execute(service -> {
+				service.setBoardSize(geometry.getRows(), geometry.getCols());
+				service.setPlayers(geometry.getPlayers());
+				service.setWinThreshold(geometry.getWinThreshold());
+				for (int i = 0; i < letters.length; i++) {
+					letters[i] = service.getGameModel().getPlayerByNumber(i).getPlayingLetter();
+				}
+				return null;
+			});
+		} catch (IllegalStateException | GameMovedException | MoveException e) {
+			// 游戏数达到上限（或新游戏刚建好就被移交到其他节点）：玩家留在队列中，下一次加入时再试
+			if (session != null) {
+				// 已创建但没有初始化完成的游戏不会分给任何人，删掉以免占用名额直到空闲超时
+				registry.remove(session.getId());
+			}
+			createFailures.increment();
+			return false;
+		}
+		long now = System.nanoTime();
+		for (int i = 0; i < group.length; i++) {
+			long waited = now - group[i].getJoinedNanos();
+			matchedWaitNanos.add(waited);
+			if (metrics != null) {
+				metrics.record("matchmakingWait", waited, null);
+			}
+			group[i].matched(session.getId(), i, letters[i]);
+		}
+		matchedPlayers.add(group.length);
+		matches.increment();
+		return true;
+	}
+
+	/**
+	 * 清理：长时间没有轮询的等待票过期，已结束的票保留 ticketTtlMillis 供客户端取回结果后删除；
+	 * 同时丢弃队列里已结束的票，并移除空桶。
+	 */
+	@Scheduled(fixedDelayString = "${oxo.lobby.sweep-interval-ms:5000}")
+	public void sweep() {
+		long deadline = System.currentTimeMillis() - ticketTtlMillis;
+		for (Ticket ticket : tickets.values()) {
+			if (ticket.isWaiting()) {
+				if (ticket.getLastPolledMillis() < deadline && ticket.end(Ticket.Status.EXPIRED)) {
+					expired.increment();
+				}
+			} else if (ticket.getFinishedMillis() != 0 && ticket.getFinishedMillis() < deadline) {
+				tickets.remove(ticket.getId(), ticket);
+			}
+		}
+		for (Bucket bucket : buckets.values()) {
+			if (!bucket.matching.compareAndSet(false, true)) {
+				continue;
+			}
+			try {
+				for (Iterator<Ticket> it = bucket.queue.iterator(); it.hasNext(); ) {
+					Ticket ticket = it.next();
+					if (!ticket.isWaiting()) {
+						it.remove();
+						bucket.waiting.decrementAndGet();
+					}
+				}
+				bucket.retired = true;
+				if (bucket.queue.isEmpty()) {
+					buckets.remove(bucket.geometry, bucket);
+				} else {
+					bucket.retired = false;
+				}
+			} finally {
+				bucket.matching.set(false);
+			}
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		int waiting = 0;
+		for (Bucket bucket : buckets.values()) {
+			waiting += Math.max(0, bucket.waiting.get());
+		}
+		Map<String, Object> stats = new ConcurrentHashMap<>();
+		stats.put("joins", joins.sum());
+		stats.put("matches", matches.sum());
+		stats.put("cancelled", cancelled.sum());
+		stats.put("expired", expired.sum());
+		stats.put("createFailures", createFailures.sum());
+		stats.put("queued", waiting);
+		stats.put("tickets", tickets.size());
+		stats.put("buckets", buckets.size());
+		long matched = matchedPlayers.sum();
+		stats.put("avgWaitMs", matched == 0 ? 0 : matchedWaitNanos.sum() / 1e6 / matched);
+		return stats;
+	}
+}
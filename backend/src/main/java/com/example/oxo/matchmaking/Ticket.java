@@ -0,0 +1,120 @@
+package com.example.oxo.matchmaking;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一名等待匹配的玩家。状态只通过 CAS 变化：
+ * WAITING -> CLAIMED（被配对线程选中）-> MATCHED，或 CLAIMED -> WAITING（凑不齐人时退回）；
+ * WAITING -> CANCELLED / EXPIRED。到达终态时 {@link #getResult()} 完成，挂起的长轮询随之返回。
+ */
+public final class Ticket {
+	public enum Status { WAITING, CLAIMED, MATCHED, CANCELLED, EXPIRED }
+
+	private static final Status[] STATUSES = Status.values();
+
+	private final String id;
+	private final Geometry geometry;
+	private final long joinedNanos = System.nanoTime();
+	private final AtomicInteger status = new AtomicInteger(Status.WAITING.ordinal());
+	private final CompletableFuture<Ticket> result = new CompletableFuture<>();
+	private volatile long lastPolledMillis = System.currentTimeMillis();
+	private volatile long finishedMillis;
+	// 配对成功后写入，随后才发布 MATCHED
+	private String gameId;
+	private int playerIndex;
+	private char letter;
+
+	Ticket(String id, Geometry geometry) {
+		this.id = id;
+		this.geometry = geometry;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Geometry getGeometry() {
+		return geometry;
+	}
+
+	public Status getStatus() {
+		return STATUSES[status.get()];
+	}
+
+	/** 到达终态（MATCHED / CANCELLED / EXPIRED）时完成 */
+	public CompletableFuture<Ticket> getResult() {
+		return result;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public int getPlayerIndex() {
+		return playerIndex;
+	}
+
+	public char getLetter() {
+		return letter;
+	}
+
+	public long getJoinedNanos() {
+		return joinedNanos;
+	}
+
+	long getLastPolledMillis() {
+		return lastPolledMillis;
+	}
+
+	long getFinishedMillis() {
+		return finishedMillis;
+	}
+
+	void touch() {
+		lastPolledMillis = System.currentTimeMillis();
+	}
+
+	boolean isWaiting() {
+		return status.get() == Status.WAITING.ordinal();
+	}
+
+	boolean claim() {
+		return transition(Status.WAITING, Status.CLAIMED);
+	}
+
+	void unclaim() {
+		status.set(Status.WAITING.ordinal());
+	}
+
+	void matched(String gameId, int playerIndex, char letter) {
+		this.gameId = gameId;
+		this.playerIndex = playerIndex;
+		this.letter = letter;
+		status.set(Status.MATCHED.ordinal());
+		finish();
+	}
+
+	/** 只有仍在等待的票可以结束为 CANCELLED / EXPIRED；正被配对时等配对线程放手 */
+	boolean end(Status terminal) {
+		while (true) {
+			if (transition(Status.WAITING, terminal)) {
+				finish();
+				return true;
+			}
+			if (status.get() != Status.CLAIMED.ordinal()) {
+				return false;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	private boolean transition(Status from, Status to) {
+		return status.compareAndSet(from.ordinal(), to.ordinal());
+	}
+
+	private void finish() {
+		finishedMillis = System.currentTimeMillis();
+		result.complete(this);
+	}
+}
@@ -0,0 +1,292 @@
+package com.example.oxo.model;
+
+/**
+ * 使用位棋盘（bitboard）存储的 GameModel。
+ * 每个玩家一个 long[]，按行优先打包，每行按 64 位对齐：
+ * 第 r 行第 c 列对应 bits[player][r * wordsPerRow + (c >>> 6)] 的第 (c & 63) 位。
+ * 相比 ArrayList<ArrayList<Player>>，每格只占 1 bit/玩家，且连线判定可以用移位与运算完成。
+ * 格子总数超过 {@link #getSparseThresholdCells()} 时与 GameModel 一样改用稀疏存储（只保存已落子的格子），
+ * 此时连线判定退化为逐格计数。
+ */
+public class BitboardGameModel extends GameModel {
+	// 窗口 (2 * winThreshold - 1) 必须能放进一个 long
+	private static final int MAX_WORD_THRESHOLD = 32;
+
+	private int rows;
+	private int cols;
+	private int wordsPerRow;
+	private long[][] bits;
+	private int occupiedCount;
+	private boolean sparse;
+
+	public BitboardGameModel(int numberOfRows, int numberOfColumns, int winThresh) {
+		super(0, 0, winThresh);
+		this.bits = new long[0][];
+		resizeBoard(numberOfRows, numberOfColumns);
+	}
+
+	// --- 棋盘相关 ---
+	@Override
+	public int getNumberOfRows() {
+		return rows;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return cols;
+	}
+
+	@Override
+	public Player getCellOwner(int rowNumber, int colNumber) {
+		if (sparse) {
+			return super.getCellOwner(rowNumber, colNumber);
+		}
+		int word = rowNumber * wordsPerRow + (colNumber >>> 6);
+		long mask = 1L << colNumber;
+		for (int p = 0; p < bits.length; p++) {
+			if ((bits[p][word] & mask) != 0) {
+				return getPlayerByNumber(p);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void setCellOwner(int rowNumber, int colNumber, Player player) {
+		if (sparse) {
+			super.setCellOwner(rowNumber, colNumber, player);
+			return;
+		}
+		int word = rowNumber * wordsPerRow + (colNumber >>> 6);
+		long mask = 1L << colNumber;
+		boolean wasOccupied = false;
+		for (long[] board : bits) {
+			if ((board[word] & mask) != 0) {
+				wasOccupied = true;
+				board[word] &= ~mask;
+			}
+		}
+		if (wasOccupied) {
+			occupiedCount--;
+		}
+		if (player != null) {
+			bits[indexOf(player)][word] |= mask;
+			occupiedCount++;
+		}
+	}
+
+	@Override
+	public void resizeBoard(int newRows, int newCols) {
+		checkBoardSize(newRows, newCols);
+		this.rows = newRows;
+		this.cols = newCols;
+		this.wordsPerRow = (newCols + 63) >>> 6;
+		this.sparse = (long) newRows * newCols > getSparseThresholdCells();
+		// 稀疏时由父类保存格子；否则让父类释放之前的稀疏表
+		super.resizeBoard(sparse ? newRows : 0, sparse ? newCols : 0);
+		allocateBits(bits.length);
+	}
+
+	@Override
+	public void clearBoard() {
+		if (sparse) {
+			super.clearBoard();
+			return;
+		}
+		for (long[] board : bits) {
+			java.util.Arrays.fill(board, 0L);
+		}
+		occupiedCount = 0;
+	}
+
+	@Override
+	public boolean isBoardFull() {
+		if (sparse) {
+			return super.isBoardFull();
+		}
+		return occupiedCount == (long) rows * cols;
+	}
+
+	// 逐字扫描置位的 bit，跳过空白区域
+	@Override
+	public void forEachOccupiedCell(CellVisitor visitor) {
+		if (sparse) {
+			super.forEachOccupiedCell(visitor);
+			return;
+		}
+		for (int p = 0; p < bits.length; p++) {
+			long[] board = bits[p];
+			Player owner = getPlayerByNumber(p);
+			for (int w = 0; w < board.length; w++) {
+				long word = board[w];
+				while (word != 0) {
+					int bit = Long.numberOfTrailingZeros(word);
+					visitor.visit(w / wordsPerRow, ((w % wordsPerRow) << 6) + bit, owner);
+					word &= word - 1;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getOccupiedCount() {
+		return sparse ? super.getOccupiedCount() : occupiedCount;
+	}
+
+	// 位棋盘不维护连线索引，连线判定见 hasLineThrough
+	@Override
+	public int getLastPlacedRunLength(int row, int col) {
+		return -1;
+	}
+
+	// --- 玩家相关 ---
+	@Override
+	public void resetPlayers(int count) {
+		super.resetPlayers(count);
+		allocateBits(count);
+	}
+
+	/**
+	 * 判断编号为 playerNumber 的玩家是否在 (row, col) 处形成了长度 >= winThreshold 的连线。
+	 * 以 (row, col) 为中心截取四个方向上 2 * winThreshold - 1 个格子组成一个 long，
+	 * 然后用移位与（x &= x >>> s）判断是否存在连续 winThreshold 个 1。
+	 */
+	public boolean hasLineThrough(int playerNumber, int row, int col) {
+		int threshold = getWinThreshold();
+		if (threshold <= 1) {
+			return true;
+		}
+		if (sparse) {
+			return hasCountedLineThrough(getPlayerByNumber(playerNumber), row, col, threshold);
+		}
+		long[] board = bits[playerNumber];
+		if (threshold > MAX_WORD_THRESHOLD) {
+			return hasLongLineThrough(board, row, col, threshold);
+		}
+		return hasRun(horizontalWindow(board, row, col, threshold), threshold)
+				|| hasRun(gatherWindow(board, row, col, 1, 0, threshold), threshold)
+				|| hasRun(gatherWindow(board, row, col, 1, 1, threshold), threshold)
+				|| hasRun(gatherWindow(board, row, col, 1, -1, threshold), threshold);
+	}
+
+	/** 当前棋盘占用的 long 数量，用于估算内存占用；稀疏时为 0 */
+	public long getBoardWordCount() {
+		return sparse ? 0 : (long) bits.length * rows * wordsPerRow;
+	}
+
+	// 同一行的窗口直接从打包的字中截取，不需要逐格访问
+	private long horizontalWindow(long[] board, int row, int col, int threshold) {
+		int from = Math.max(0, col - threshold + 1);
+		int to = Math.min(cols - 1, col + threshold - 1);
+		int length = to - from + 1;
+		int base = row * wordsPerRow;
+		int word = from >>> 6;
+		int offset = from & 63;
+		long window = board[base + word] >>> offset;
+		if (offset != 0 && offset + length > 64) {
+			window |= board[base + word + 1] << (64 - offset);
+		}
+		return length == 64 ? window : window & ((1L << length) - 1);
+	}
+
+	// 竖直和对角方向：把窗口内的位收集到一个 long 中
+	private long gatherWindow(long[] board, int row, int col, int dRow, int dCol, int threshold) {
+		long window = 0;
+		int span = 2 * threshold - 1;
+		int r = row - (threshold - 1) * dRow;
+		int c = col - (threshold - 1) * dCol;
+		for (int i = 0; i < span; i++, r += dRow, c += dCol) {
+			if (r < 0 || r >= rows || c < 0 || c >= cols) {
+				continue;
+			}
+			long bit = (board[r * wordsPerRow + (c >>> 6)] >>> c) & 1L;
+			window |= bit << i;
+		}
+		return window;
+	}
+
+	// 超长连线（winThreshold > 32）时退化为按位计数
+	private boolean hasLongLineThrough(long[] board, int row, int col, int threshold) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		for (int[] dir : directions) {
+			int count = 1;
+			count += countBits(board, row, col, dir[0], dir[1]);
+			count += countBits(board, row, col, -dir[0], -dir[1]);
+			if (count >= threshold) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// 稀疏棋盘：沿四个方向逐格查表
+	private boolean hasCountedLineThrough(Player player, int row, int col, int threshold) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		for (int[] dir : directions) {
+			int count = 1;
+			count += countOwned(player, row, col, dir[0], dir[1], threshold);
+			count += countOwned(player, row, col, -dir[0], -dir[1], threshold);
+			if (count >= threshold) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int countOwned(Player player, int row, int col, int dRow, int dCol, int threshold) {
+		int count = 0;
+		int r = row + dRow;
+		int c = col + dCol;
+		while (count < threshold && !isOutOfBounds(r, c) && super.getCellOwner(r, c) == player) {
+			count++;
+			r += dRow;
+			c += dCol;
+		}
+		return count;
+	}
+
+	private int countBits(long[] board, int row, int col, int dRow, int dCol) {
+		int count = 0;
+		int r = row + dRow;
+		int c = col + dCol;
+		while (r >= 0 && r < rows && c >= 0 && c < cols
+				&& ((board[r * wordsPerRow + (c >>> 6)] >>> c) & 1L) != 0) {
+			count++;
+			r += dRow;
+			c += dCol;
+		}
+		return count;
+	}
+
+	// 倍增的移位与：每轮之后第 i 位为 1 表示从 i 开始有 covered 个连续的 1
+	private static boolean hasRun(long window, int threshold) {
+		int covered = 1;
+		while (covered < threshold && window != 0) {
+			int shift = Math.min(covered, threshold - covered);
+			window &= window >>> shift;
+			covered += shift;
+		}
+		return window != 0;
+	}
+
+	private void allocateBits(int playerCount) {
+		long[][] newBits = new long[playerCount][];
+		for (int p = 0; p < playerCount; p++) {
+			newBits[p] = new long[sparse ? 0 : rows * wordsPerRow];
+		}
+		this.bits = newBits;
+		this.occupiedCount = 0;
+		if (sparse) {
+			super.clearBoard();
+		}
+	}
+
+	private int indexOf(Player player) {
+		for (int p = 0; p < getNumberOfPlayers(); p++) {
+			if (getPlayerByNumber(p) == player) {
+				return p;
+			}
+		}
+		throw new IllegalArgumentException("Player is not part of this game: " + player.getPlayingLetter());
+	}
+}
@@ -2,25 +2,36 @@ package com.example.oxo.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 
 public class GameModel {
-	private ArrayList<ArrayList<Player>> cells;
+	/** 默认超过多少个格子时切换为稀疏棋盘 */
+	public static final long DEFAULT_SPARSE_THRESHOLD_CELLS = 4L * 1024 * 1024;
+	/** 格子总数上限：紧凑格式排序时把行优先位置和 8 位玩家下标放在同一个 long 里，位置只能占 55 位 */
+	public static final long MAX_CELLS = 1L << 55;
+
+	/** 遍历已落子格子的回调 */
+	@FunctionalInterface
+	public interface CellVisitor {
+		void visit(int row, int col, Player owner);
+	}
+
+	private ArrayList<ArrayList<Player>> cells;  // 稠密模式
+	private SparseCellMap sparseCells;  // 稀疏模式：只保存已落子的格子
+	private int rows;
+	private int cols;
+	private long sparseThresholdCells = DEFAULT_SPARSE_THRESHOLD_CELLS;
 	private Player[] players;
 	private int currentPlayerNumber;
 	private Player winner;
 	private boolean gameDrawn;
 	private int winThreshold;  // 达到多少连线即可获胜
+	private int occupiedCount;  // 已落子的格子数，平局判定 O(1)
+	private LineRunIndex lineRunIndex;  // 增量连线索引，胜负判定 O(1)；稀疏模式下为 null
 
 	public GameModel(int numberOfRows, int numberOfColumns, int winThresh) {
 		this.winThreshold = winThresh;
-		this.cells = new ArrayList<>(numberOfRows);
-		for (int i = 0; i < numberOfRows; i++) {
-			var row = new ArrayList<Player>(numberOfColumns);
-			for (int j = 0; j < numberOfColumns; j++) {
-				row.add(null);
-			}
-			cells.add(row);
-		}
+		allocateBoard(numberOfRows, numberOfColumns);
 		this.players = new Player[0]; // 默认无玩家
 		this.winner = null;
 		this.gameDrawn = false;
@@ -29,11 +40,10 @@ public class GameModel {
 
 	// --- 棋盘相关 ---
 	public int getNumberOfRows() {
-		return cells.size();
+		return rows;
 	}
 	public int getNumberOfColumns() {
-		if (cells.isEmpty()) return 0;
-		return cells.get(0).size();
+		return cols;
 	}
 	public boolean isOutOfBounds(int row, int col) {
 		return row < 0 || row >= getNumberOfRows()
@@ -42,18 +52,126 @@ public class GameModel {
 
 	// 读取/设置棋盘某格的拥有者
 	public Player getCellOwner(int rowNumber, int colNumber) {
+		if (sparseCells != null) {
+			return sparseCells.get(rowNumber, colNumber);
+		}
 		return cells.get(rowNumber).get(colNumber);
 	}
 	public void setCellOwner(int rowNumber, int colNumber, Player player) {
-		cells.get(rowNumber).set(colNumber, player);
+		if (sparseCells != null) {
+			if (isOutOfBounds(rowNumber, colNumber)) {
+				throw new IndexOutOfBoundsException("Cell out of range: (" + rowNumber + "," + colNumber + ")");
+			}
+			sparseCells.put(rowNumber, colNumber, player);
+			occupiedCount = sparseCells.size();
+			return;
+		}
+		Player previous = cells.get(rowNumber).set(colNumber, player);
+		if (previous == player) {
+			return;
+		}
+		if (previous != null) {
+			occupiedCount--;
+			lineRunIndex.onRemoved(rowNumber, colNumber, previous);
+		}
+		if (player != null) {
+			occupiedCount++;
+			lineRunIndex.onPlaced(rowNumber, colNumber, player);
+		}
+	}
+
+	/** 清空棋盘上的所有棋子。子类可用更高效的方式覆盖。 */
+	public void clearBoard() {
+		occupiedCount = 0;
+		if (sparseCells != null) {
+			sparseCells.clear();
+			return;
+		}
+		for (ArrayList<Player> row : cells) {
+			Collections.fill(row, null);
+		}
+		lineRunIndex.reset();
+	}
+
+	/** 棋盘是否已经下满（用于平局判定）。 */
+	public boolean isBoardFull() {
+		return occupiedCount == (long) getNumberOfRows() * getNumberOfColumns();
+	}
+
+	public int getOccupiedCount() {
+		return occupiedCount;
+	}
+
+	/** 按任意顺序遍历所有已落子的格子；稀疏模式下只访问实际存在的棋子 */
+	public void forEachOccupiedCell(CellVisitor visitor) {
+		if (sparseCells != null) {
+			sparseCells.forEach(visitor);
+			return;
+		}
+		for (int i = 0; i < rows; i++) {
+			ArrayList<Player> row = cells.get(i);
+			for (int j = 0; j < cols; j++) {
+				Player owner = row.get(j);
+				if (owner != null) {
+					visitor.visit(i, j, owner);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 若 (row, col) 是最近一次落子的位置，返回经过它的最长连线长度（由 {@link LineRunIndex} 增量维护），
+	 * 否则返回 -1，调用方需要自行逐格检查。
+	 */
+	public int getLastPlacedRunLength(int row, int col) {
+		if (lineRunIndex == null) {
+			return -1;
+		}
+		return lineRunIndex.lastPlacedRunLength(row, col);
+	}
+
+	/** 当前是否为稀疏棋盘（只存储已落子的格子） */
+	public boolean isSparse() {
+		return sparseCells != null;
+	}
+
+	public long getSparseThresholdCells() {
+		return sparseThresholdCells;
+	}
+
+	/** 设置切换为稀疏棋盘的格子数阈值，在下一次 resizeBoard 时生效 */
+	public void setSparseThresholdCells(long thresholdCells) {
+		this.sparseThresholdCells = thresholdCells;
 	}
 
 	/**
 	 * 直接将游戏棋盘修改为 newRows x newCols 的大小。
 	 * 可用于一次性调整大小。此处简单地清空旧cells，重建新board。
 	 * 如果想保留老数据，需额外写逻辑进行拷贝对齐。
+	 * 格子总数超过 sparseThresholdCells 时自动使用稀疏存储，不再预先分配 rows*cols 个空位。
+	 * 格子总数超过 {@link #MAX_CELLS} 时抛出 IllegalArgumentException。
 	 */
 	public void resizeBoard(int newRows, int newCols) {
+		allocateBoard(newRows, newCols);
+	}
+
+	static void checkBoardSize(int rows, int cols) {
+		if ((long) rows * cols > MAX_CELLS) {
+			throw new IllegalArgumentException("Board too large: " + rows + "x" + cols + " (max " + MAX_CELLS + " cells)");
+		}
+	}
+
+	private void allocateBoard(int newRows, int newCols) {
+		checkBoardSize(newRows, newCols);
+		this.rows = newRows;
+		this.cols = newCols;
+		this.occupiedCount = 0;
+		if ((long) newRows * newCols > sparseThresholdCells) {
+			this.cells = null;
+			this.lineRunIndex = null;
+			this.sparseCells = new SparseCellMap();
+			return;
+		}
 		var newCells = new ArrayList<ArrayList<Player>>(newRows);
 		for (int i = 0; i < newRows; i++) {
 			var row = new ArrayList<Player>(newCols);
@@ -63,6 +181,8 @@ public class GameModel {
 			newCells.add(row);
 		}
 		this.cells = newCells;
+		this.sparseCells = null;
+		this.lineRunIndex = new LineRunIndex(this, newRows, newCols);
 	}
 
 	// --- 玩家相关 ---
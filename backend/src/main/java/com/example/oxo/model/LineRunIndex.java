@@ -0,0 +1,143 @@
+package com.example.oxo.model;
+
+import java.util.Arrays;
+
+/**
+ * 增量维护的连线索引：在每次落子时更新行、列和两条对角线上的连续段信息，
+ * 使胜负判定不再需要扫描整行/整列。
+ *
+ * 对每个方向，只在连续段的两个端点上记录该段长度（段内格子上的旧值不再被读取）。
+ * 落子时，相邻的同色格子必然是其所在段的端点，因此合并两侧的段只需 O(1)。
+ * 移除棋子（很少发生）时沿该格所在的段重新计算两侧端点。
+ *
+ * 端点值按页（256 格）在第一次写入时分配，几乎空的大棋盘只为落过子的区域付出内存，而不是每格 16 字节。
+ */
+class LineRunIndex {
+	// 方向向量：水平、垂直、主对角线、副对角线
+	private static final int[][] DIRECTIONS = {
+		{0, 1}, {1, 0}, {1, 1}, {1, -1}
+	};
+
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+	private final GameModel model;
+	private final int rows;
+	private final int cols;
+	// endpointRunLength[d][page][offset]，未分配的页读作 0
+	private final int[][][] endpointRunLength;
+
+	// 最近一次落子及其形成的最长连线
+	private int lastRow = -1;
+	private int lastCol = -1;
+	private int lastLongestRun;
+
+	LineRunIndex(GameModel model, int rows, int cols) {
+		this.model = model;
+		this.rows = rows;
+		this.cols = cols;
+		this.endpointRunLength = new int[DIRECTIONS.length][(rows * cols + PAGE_MASK) >>> PAGE_BITS][];
+	}
+
+	/** 在 (row, col) 放下 player 之后调用；该格此前必须为空 */
+	void onPlaced(int row, int col, Player player) {
+		int longest = 0;
+		for (int d = 0; d < DIRECTIONS.length; d++) {
+			int dRow = DIRECTIONS[d][0];
+			int dCol = DIRECTIONS[d][1];
+			int[][] runs = endpointRunLength[d];
+			int back = runEndingAt(runs, row - dRow, col - dCol, player);
+			int forward = runEndingAt(runs, row + dRow, col + dCol, player);
+			int total = back + 1 + forward;
+			write(runs, index(row - back * dRow, col - back * dCol), total);
+			write(runs, index(row + forward * dRow, col + forward * dCol), total);
+			longest = Math.max(longest, total);
+		}
+		lastRow = row;
+		lastCol = col;
+		lastLongestRun = longest;
+	}
+
+	/** 在 (row, col) 上的 player 被移除之后调用 */
+	void onRemoved(int row, int col, Player player) {
+		for (int d = 0; d < DIRECTIONS.length; d++) {
+			int dRow = DIRECTIONS[d][0];
+			int dCol = DIRECTIONS[d][1];
+			int[][] runs = endpointRunLength[d];
+			int back = countOwned(row, col, -dRow, -dCol, player);
+			int forward = countOwned(row, col, dRow, dCol, player);
+			if (back > 0) {
+				write(runs, index(row - back * dRow, col - back * dCol), back);
+				write(runs, index(row - dRow, col - dCol), back);
+			}
+			if (forward > 0) {
+				write(runs, index(row + dRow, col + dCol), forward);
+				write(runs, index(row + forward * dRow, col + forward * dCol), forward);
+			}
+		}
+		if (row == lastRow && col == lastCol) {
+			lastRow = -1;
+			lastCol = -1;
+		}
+	}
+
+	/** 清空棋盘后调用。端点值只在落子时写入后才会被读取，因此直接丢弃已分配的页，不必清零。 */
+	void reset() {
+		for (int[][] runs : endpointRunLength) {
+			Arrays.fill(runs, null);
+		}
+		lastRow = -1;
+		lastCol = -1;
+	}
+
+	/** 已分配的页数（每页 1 KB） */
+	int getAllocatedPageCount() {
+		int count = 0;
+		for (int[][] runs : endpointRunLength) {
+			for (int[] page : runs) {
+				if (page != null) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/** (row, col) 为最近一次落子时，返回经过它的最长连线长度，否则返回 -1 */
+	int lastPlacedRunLength(int row, int col) {
+		return row == lastRow && col == lastCol ? lastLongestRun : -1;
+	}
+
+	private int runEndingAt(int[][] runs, int row, int col, Player player) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols || model.getCellOwner(row, col) != player) {
+			return 0;
+		}
+		int[] page = runs[index(row, col) >>> PAGE_BITS];
+		return page == null ? 0 : page[index(row, col) & PAGE_MASK];
+	}
+
+	private static void write(int[][] runs, int index, int runLength) {
+		int[] page = runs[index >>> PAGE_BITS];
+		if (page == null) {
+			page = new int[PAGE_MASK + 1];
+			runs[index >>> PAGE_BITS] = page;
+		}
+		page[index & PAGE_MASK] = runLength;
+	}
+
+	private int countOwned(int row, int col, int dRow, int dCol, Player player) {
+		int count = 0;
+		int r = row + dRow;
+		int c = col + dCol;
+		while (r >= 0 && r < rows && c >= 0 && c < cols && model.getCellOwner(r, c) == player) {
+			count++;
+			r += dRow;
+			c += dCol;
+		}
+		return count;
+	}
+
+	private int index(int row, int col) {
+		return row * cols + col;
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.oxo.model;
+
+/**
+ * 落子指令 "行字母 + 列数字" 的解析与生成，例如 "a1"、"c10"、"aa117"。
+ * 行按表格列名的方式编号：a..z 为第 1~26 行，aa..az 为第 27~52 行，依此类推（不区分大小写）；列为 1 起始的十进制数。
+ * 解析不分配任何对象：结果是打包了 (行, 列) 的 long（均为 0 起始），失败时为 {@link MoveException} 中的负错误码。
+ */
+public final class MoveCommand {
+	// 最长指令长度：足以表示 int 范围内的任何行列，更长的一律视为非法，解析开销因此有上界
+	static final int MAX_LENGTH = 17;
+	// 行列编号（1 起始）累加到此值后不再增加。减 1 后为 Integer.MAX_VALUE，不小于任何棋盘的行列数，落子时按越界处理；
+	// 小于此值的编号都是精确的
+	static final long MAX_INDEX = 1L << 31;
+
+	private MoveCommand() {
+	}
+
+	/** 解析指令，返回 {@link #pack} 的结果或负的错误码 */
+	public static long parse(CharSequence command) {
+		int length = command.length();
+		if (length < 2 || length > MAX_LENGTH) {
+			return MoveException.INVALID_LENGTH;
+		}
+		int i = 0;
+		long row = 0;
+		for (; i < length; i++) {
+			int letter = (command.charAt(i) | 0x20) - 'a';
+			if (letter < 0 || letter >= 26) {
+				break;
+			}
+			row = Math.min(MAX_INDEX, row * 26 + letter + 1);
+		}
+		if (i == 0) {
+			return MoveException.INVALID_ROW_CHARACTER;
+		}
+		if (i == length) {
+			return MoveException.INVALID_LENGTH;
+		}
+		long col = 0;
+		for (; i < length; i++) {
+			int digit = command.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return MoveException.INVALID_COLUMN_CHARACTER;
+			}
+			col = Math.min(MAX_INDEX, col * 10 + digit);
+		}
+		return pack((int) (row - 1), (int) (col - 1));
+	}
+
+	/** 打包 0 起始的行列；列为 -1（指令中的列号为 0）时同样可以还原 */
+	public static long pack(int row, int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	public static boolean isError(long parsed) {
+		return parsed < 0;
+	}
+
+	public static int row(long parsed) {
+		return (int) (parsed >>> 32);
+	}
+
+	public static int col(long parsed) {
+		return (int) parsed;
+	}
+
+	/** 0 起始坐标对应的指令，如 (26, 116) -> "aa117" */
+	public static String format(int row, int col) {
+		StringBuilder builder = new StringBuilder(8);
+		appendRow(builder, row);
+		return builder.append(col + 1).toString();
+	}
+
+	private static void appendRow(StringBuilder builder, int row) {
+		int start = builder.length();
+		for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+			builder.insert(start, (char) ('a' + (n - 1) % 26));
+		}
+	}
+}
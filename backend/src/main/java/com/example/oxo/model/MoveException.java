@@ -1,14 +1,62 @@
 package com.example.oxo.model;
 
 public class MoveException extends Exception {
+	// 错误码：MoveCommand.parse 和服务层落子返回的负值，0 表示成功
+	public static final int INVALID_LENGTH = -1;
+	public static final int INVALID_ROW_CHARACTER = -2;
+	public static final int INVALID_COLUMN_CHARACTER = -3;
+	public static final int ROW_OUT_OF_RANGE = -4;
+	public static final int COLUMN_OUT_OF_RANGE = -5;
+	public static final int CELL_TAKEN = -6;
+	public static final int NO_PLAYERS = -7;
+	public static final int VERSION_MISMATCH = -8;
+
+	// 预分配的无堆栈实例：非法落子只返回错误码或抛出这些共享实例，不创建新对象
+	private static final MoveException[] PREALLOCATED = {
+			new InvalidIdentifierLengthException(),
+			new InvalidIdentifierCharacterException(InvalidIdentifierCharacterException.CharacterType.ROW),
+			new InvalidIdentifierCharacterException(InvalidIdentifierCharacterException.CharacterType.COLUMN),
+			new OutsideCellRangeException(OutsideCellRangeException.CellInfo.ROW),
+			new OutsideCellRangeException(OutsideCellRangeException.CellInfo.COLUMN),
+			new CellAlreadyTakenException(),
+			new MoveException("No players set. Please set players first.", NO_PLAYERS),
+			new VersionMismatchException()
+	};
+
+	private final int code;
+
 	public MoveException(String message) {
 		super(message);
+		this.code = 0;
+	}
+
+	// 共享实例不记录堆栈、不允许附加 suppressed 异常
+	private MoveException(String message, int code) {
+		super(message, null, false, false);
+		this.code = code;
+	}
+
+	/** 错误码对应的预分配异常 */
+	public static MoveException of(int code) {
+		if (code >= 0 || -code > PREALLOCATED.length) {
+			throw new IllegalArgumentException("Not a move error code: " + code);
+		}
+		return PREALLOCATED[-code - 1];
+	}
+
+	/** 错误码，调用方直接构造的异常为 0 */
+	public int getCode() {
+		return code;
 	}
 
 	public static class InvalidIdentifierLengthException extends MoveException {
 		public InvalidIdentifierLengthException(int length) {
 			super("Identifier length is invalid: " + length);
 		}
+
+		private InvalidIdentifierLengthException() {
+			super("Identifier length is invalid", INVALID_LENGTH);
+		}
 	}
 
 	public static class InvalidIdentifierCharacterException extends MoveException {
@@ -16,6 +64,10 @@ public class MoveException extends Exception {
 		public InvalidIdentifierCharacterException(CharacterType type, char invalidChar) {
 			super("Invalid " + type + " character: " + invalidChar);
 		}
+
+		private InvalidIdentifierCharacterException(CharacterType type) {
+			super("Invalid " + type + " character", type == CharacterType.ROW ? INVALID_ROW_CHARACTER : INVALID_COLUMN_CHARACTER);
+		}
 	}
 
 	public static class OutsideCellRangeException extends MoveException {
@@ -23,11 +75,26 @@ public class MoveException extends Exception {
 		public OutsideCellRangeException(CellInfo type, int index) {
 			super(type + " index out of range: " + index);
 		}
+
+		private OutsideCellRangeException(CellInfo type) {
+			super(type + " index out of range", type == CellInfo.ROW ? ROW_OUT_OF_RANGE : COLUMN_OUT_OF_RANGE);
+		}
 	}
 
 	public static class CellAlreadyTakenException extends MoveException {
 		public CellAlreadyTakenException(int row, int col) {
 			super("Cell is already taken: (" + row + "," + col + ")");
 		}
+
+		private CellAlreadyTakenException() {
+			super("Cell is already taken", CELL_TAKEN);
+		}
+	}
+
+	/** 客户端基于的版本与当前版本不同（期间有其他落子），落子未执行 */
+	public static class VersionMismatchException extends MoveException {
+		private VersionMismatchException() {
+			super("Game state has changed since the expected version", VERSION_MISMATCH);
+		}
 	}
 }
@@ -0,0 +1,73 @@
+package com.example.oxo.model;
+
+/**
+ * 一局游戏的版本号和最近落子的环形缓冲区。
+ * 每次落子版本号 +1 并记录 (row, col, player)；改变棋盘结构的操作（重置、改尺寸、改玩家）
+ * 也会 +1 但清空缓冲区，此后更早的版本只能通过完整快照同步。
+ */
+public class MoveHistory {
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** 遍历落子记录的回调 */
+	@FunctionalInterface
+	public interface MoveVisitor {
+		void visit(long version, int row, int col, int playerNumber);
+	}
+
+	private final int[] rows;
+	private final int[] cols;
+	private final int[] players;
+	private int head;  // 下一次写入的位置
+	private int count;
+	private long version;
+
+	public MoveHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MoveHistory(int capacity) {
+		this.rows = new int[capacity];
+		this.cols = new int[capacity];
+		this.players = new int[capacity];
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void recordMove(int row, int col, int playerNumber) {
+		rows[head] = row;
+		cols[head] = col;
+		players[head] = playerNumber;
+		head = (head + 1) % rows.length;
+		count = Math.min(count + 1, rows.length);
+		version++;
+	}
+
+	/** 棋盘整体发生变化：版本号 +1，丢弃所有落子记录 */
+	public void reset() {
+		count = 0;
+		version++;
+	}
+
+	/** 从快照恢复：直接设置版本号，快照之前的落子记录不可用 */
+	public void restore(long restoredVersion) {
+		count = 0;
+		version = restoredVersion;
+	}
+
+	/** 缓冲区能否给出从 since 到当前版本的全部变化 */
+	public boolean covers(long since) {
+		return since <= version && since >= version - count;
+	}
+
+	/** 按顺序访问版本号大于 since 的落子，调用前需要确认 covers(since) */
+	public void forEachSince(long since, MoveVisitor visitor) {
+		int n = (int) (version - since);
+		int slot = Math.floorMod(head - n, rows.length);
+		for (int i = 0; i < n; i++) {
+			visitor.visit(since + i + 1, rows[slot], cols[slot], players[slot]);
+			slot = (slot + 1) % rows.length;
+		}
+	}
+}
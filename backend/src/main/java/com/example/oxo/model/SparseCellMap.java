@@ -0,0 +1,146 @@
+package com.example.oxo.model;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏棋盘使用的开放寻址哈希表：键是打包成 long 的 (row, col)，值是 Player。
+ * 键以原始 long 数组保存，不做装箱；线性探测，删除时使用回移（backward shift），不留墓碑。
+ */
+class SparseCellMap {
+	private static final long EMPTY = -1L;  // row/col 均非负，打包后的键不可能为 -1
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private Player[] values;
+	private int size;
+	private int mask;
+
+	SparseCellMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	static long key(int row, int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	static int rowOf(long key) {
+		return (int) (key >>> 32);
+	}
+
+	static int colOf(long key) {
+		return (int) key;
+	}
+
+	Player get(int row, int col) {
+		long key = key(row, col);
+		for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if (k == key) {
+				return values[slot];
+			}
+			if (k == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/** 设置格子拥有者，返回之前的拥有者；player 为 null 时删除该格 */
+	Player put(int row, int col, Player player) {
+		if (player == null) {
+			return remove(key(row, col));
+		}
+		long key = key(row, col);
+		int slot = slot(key);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				Player previous = values[slot];
+				values[slot] = player;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = player;
+		if (++size > (keys.length >>> 1) + (keys.length >>> 2)) {
+			rehash(keys.length << 1);
+		}
+		return null;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** 清空并释放多余的容量 */
+	void clear() {
+		allocate(MIN_CAPACITY);
+	}
+
+	void forEach(GameModel.CellVisitor visitor) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				visitor.visit(rowOf(keys[slot]), colOf(keys[slot]), values[slot]);
+			}
+		}
+	}
+
+	private Player remove(long key) {
+		int slot = slot(key);
+		while (keys[slot] != key) {
+			if (keys[slot] == EMPTY) {
+				return null;
+			}
+			slot = (slot + 1) & mask;
+		}
+		Player previous = values[slot];
+		// 回移：把后续探测链上的元素前移，保证查找不会被空位截断
+		int gap = slot;
+		for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			int home = slot(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+		keys[gap] = EMPTY;
+		values[gap] = null;
+		size--;
+		return previous;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		Player[] oldValues = values;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				size++;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new Player[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	// murmur3 fmix64，打散相邻格子的键
+	private int slot(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.oxo.monitoring;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 为每个控制器方法自动计时，替代各方法里手写的 start/finally。
+ * 路由名为 "方法 路径模板"（如 "POST /api/oxo/games/{gameId}/move"），同一路由的不同 id 合并统计；
+ * 同时记录响应状态码，以及处理过程中抛出或被异常处理器转换的异常类名。
+ * SSE 等异步请求只计到处理方法返回（开始推送）为止，不计整个连接的时长。
+ */
+public class ApiMetricsInterceptor implements AsyncHandlerInterceptor {
+    private static final String START_ATTRIBUTE = ApiMetricsInterceptor.class.getName() + ".start";
+
+    private final PerformanceStats performanceStats;
+
+    public ApiMetricsInterceptor(PerformanceStats performanceStats) {
+        this.performanceStats = performanceStats;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求完成后的再次分派不重新计时
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(request, response, null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        record(request, response, ex);
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long startNanos)) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        long duration = System.nanoTime() - startNanos;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        // 未被处理的异常在这之后才会转换成 500，这里直接按 500 记
+        Object error = ex != null ? ex : request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+        int status = ex != null ? 500 : response.getStatus();
+        performanceStats.recordApiCall(route, duration, status,
+                error instanceof Throwable throwable ? throwable.getClass().getSimpleName() : null);
+    }
+}
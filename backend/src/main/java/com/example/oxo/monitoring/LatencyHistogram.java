@@ -0,0 +1,163 @@
+package com.example.oxo.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 纳秒延迟的对数线性直方图（HdrHistogram 的思路）：0~127 ns 每个值一个桶，
+ * 之后每个 2 的幂区间再均分成 64 个桶，相对误差不超过 1/64（约 1.6%），最大约 137 秒，更大的值计入最后一个桶。
+ * 记录只做无锁的原子自增；计数按线程分散到多个条带（stripe），减少多线程写同一缓存行的竞争。
+ * 除 PerformanceStats 外，负载测试（src/loadtest/java）也用它统计客户端侧的延迟。
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << (LINEAR_BITS - 1);  // 每个 2 的幂区间的桶数
+    private static final int MAX_EXPONENT = 30;
+    public static final int BUCKET_COUNT = MAX_EXPONENT * SUB_BUCKETS + 2 * SUB_BUCKETS;
+    // 条带数取不小于 CPU 核数的 2 的幂，最多 4 个
+    private static final int STRIPES = Math.min(4,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    // 滚动窗口用：本直方图当前对应的时间窗口编号
+    volatile long epoch = -1;
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        stripes[stripe].incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+        min.accumulate(value);
+    }
+
+    /** 清空计数；与并发的 record 之间不保证原子，最多有几次记录落到相邻窗口 */
+    void reset() {
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+        min.reset();
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (LINEAR_BITS - 1);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        return exponent * SUB_BUCKETS + (int) (value >>> exponent);
+    }
+
+    /** 桶内的最大值，百分位按它报告（与 HdrHistogram 的 highestEquivalentValue 一致） */
+    static long highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - (long) exponent * SUB_BUCKETS;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+
+    /** 把各条带的计数累加进 counts，返回累加的总数 */
+    public long addTo(long[] counts) {
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = stripe.get(i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    long getMin() {
+        return min.get();
+    }
+
+    /** 在合并后的计数上求百分位（q 为 0~1），没有样本时返回 0 */
+    public static long percentile(long[] counts, long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(counts.length - 1);
+    }
+
+    /**
+     * 协调遗漏修正（与 HdrHistogram 的 recordValueWithExpectedInterval 相同，但作用在合并后的计数上）：
+     * 闭环压测中一个耗时 v 的请求挡住了本该每隔 expectedIntervalNanos 发出的后续请求，
+     * 为它补上 v - interval、v - 2·interval …… 直到不超过 interval 的样本。结果写入 corrected，返回修正后的总数。
+     */
+    public static long withExpectedInterval(long[] counts, long expectedIntervalNanos, long[] corrected) {
+        System.arraycopy(counts, 0, corrected, 0, counts.length);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (expectedIntervalNanos <= 0) {
+            return total;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            for (long missing = highestValueIn(i) - expectedIntervalNanos; missing >= expectedIntervalNanos;
+                 missing -= expectedIntervalNanos) {
+                corrected[bucketOf(missing)] += counts[i];
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /** p50/p90/p99/p999（纳秒） */
+    static Map<String, Object> percentiles(long[] counts, long total) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("p50Ns", percentile(counts, total, 0.50));
+        result.put("p90Ns", percentile(counts, total, 0.90));
+        result.put("p99Ns", percentile(counts, total, 0.99));
+        result.put("p999Ns", percentile(counts, total, 0.999));
+        return result;
+    }
+}
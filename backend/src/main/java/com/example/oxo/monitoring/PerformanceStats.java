@@ -1,58 +1,210 @@
 package com.example.oxo.monitoring;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PerformanceStats {
-    
+
+    // 按路由（如 "POST /api/oxo/move"）和按服务方法分别统计
     private final Map<String, ApiStat> apiStats = new ConcurrentHashMap<>();
+    private final Map<String, ApiStat> serviceStats = new ConcurrentHashMap<>();
     private final long startTime = System.currentTimeMillis();
-    
-    public void recordApiCall(String apiName, long durationMs) {
-        apiStats.computeIfAbsent(apiName, k -> new ApiStat())
-                .recordCall(durationMs);
+
+    /**
+     * 记录一次请求：耗时（纳秒，System.nanoTime() 之差）、响应状态码，以及处理过程中的异常类名（没有时为 null）。
+     * 由 {@link ApiMetricsInterceptor} 对所有 /api 请求自动调用。
+     */
+    public void recordApiCall(String route, long durationNanos, int status, String exception) {
+        ApiStat stat = statOf(apiStats, route);
+        stat.recordCall(durationNanos);
+        stat.countStatus(status);
+        if (exception != null) {
+            stat.countError(exception);
+        }
+    }
+
+    /** 记录一次服务层方法调用，签名与 {@link com.example.oxo.service.GameServiceMetrics} 一致 */
+    public void recordServiceCall(String method, long durationNanos, Throwable error) {
+        ApiStat stat = statOf(serviceStats, method);
+        stat.recordCall(durationNanos);
+        if (error != null) {
+            stat.countError(error.getClass().getSimpleName());
+        }
     }
-    
+
+    private static ApiStat statOf(Map<String, ApiStat> stats, String name) {
+        ApiStat stat = stats.get(name);
+        if (stat == null) {
+            stat = stats.computeIfAbsent(name, k -> new ApiStat());
+        }
+        return stat;
+    }
+
     public Map<String, Object> getStats() {
         Map<String, Object> stats = new ConcurrentHashMap<>();
         stats.put("uptime", System.currentTimeMillis() - startTime);
         stats.put("apiCalls", apiStats);
+        stats.put("serviceCalls", serviceStats);
         return stats;
     }
-    
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    Map<String, ApiStat> getApiStats() {
+        return apiStats;
+    }
+
+    Map<String, ApiStat> getServiceStats() {
+        return serviceStats;
+    }
+
+    /**
+     * 单个接口的延迟统计：启动以来的总直方图，加上最近 WINDOW_COUNT 个 WINDOW_SECONDS 秒的滚动窗口。
+     * 记录无锁；只有进入新窗口的第一次记录需要在该窗口上同步一次以清空旧数据。
+     */
     public static class ApiStat {
-        private long callCount = 0;
-        private long totalTimeMs = 0;
-        private long minTimeMs = Long.MAX_VALUE;
-        private long maxTimeMs = 0;
-        
-        public synchronized void recordCall(long timeMs) {
-            callCount++;
-            totalTimeMs += timeMs;
-            minTimeMs = Math.min(minTimeMs, timeMs);
-            maxTimeMs = Math.max(maxTimeMs, timeMs);
-        }
-        
+        private static final int WINDOW_SECONDS = 10;
+        private static final int WINDOW_COUNT = 6;
+        private static final long WINDOW_NANOS = WINDOW_SECONDS * 1_000_000_000L;
+        private static final long ORIGIN = System.nanoTime();
+
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LatencyHistogram[] windows = new LatencyHistogram[WINDOW_COUNT];
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+        ApiStat() {
+            for (int i = 0; i < WINDOW_COUNT; i++) {
+                windows[i] = new LatencyHistogram();
+            }
+        }
+
+        public void recordCall(long durationNanos) {
+            total.record(durationNanos);
+            long epoch = (System.nanoTime() - ORIGIN) / WINDOW_NANOS;
+            LatencyHistogram window = windows[(int) (epoch % WINDOW_COUNT)];
+            if (window.epoch != epoch) {
+                rotate(window, epoch);
+            }
+            window.record(durationNanos);
+        }
+
+        void countStatus(int status) {
+            LongAdder counter = statusCounts.get(status);
+            if (counter == null) {
+                counter = statusCounts.computeIfAbsent(status, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        void countError(String error) {
+            errorCounts.computeIfAbsent(error, k -> new LongAdder()).increment();
+        }
+
+        private static void rotate(LatencyHistogram window, long epoch) {
+            synchronized (window) {
+                if (window.epoch < epoch) {
+                    window.reset();
+                    window.epoch = epoch;
+                }
+            }
+        }
+
         public long getCallCount() {
-            return callCount;
+            return total.getCount();
         }
-        
-        public long getTotalTimeMs() {
-            return totalTimeMs;
+
+        public double getTotalTimeMs() {
+            return total.getSum() / 1e6;
         }
-        
-        public long getMinTimeMs() {
-            return minTimeMs == Long.MAX_VALUE ? 0 : minTimeMs;
+
+        public double getMinTimeMs() {
+            long min = total.getMin();
+            return min == Long.MAX_VALUE ? 0 : min / 1e6;
         }
-        
-        public long getMaxTimeMs() {
-            return maxTimeMs;
+
+        public double getMaxTimeMs() {
+            return total.getMax() / 1e6;
         }
-        
+
         public double getAvgTimeMs() {
-            return callCount > 0 ? (double) totalTimeMs / callCount : 0;
+            long count = getCallCount();
+            return count > 0 ? total.getSum() / 1e6 / count : 0;
+        }
+
+        /** 各响应状态码的次数（服务方法为空） */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> result = new HashMap<>();
+            statusCounts.forEach((status, count) -> result.put(status, count.sum()));
+            return result;
+        }
+
+        /** 各异常类名的次数 */
+        public Map<String, Long> getErrorCounts() {
+            Map<String, Long> result = new HashMap<>();
+            errorCounts.forEach((error, count) -> result.put(error, count.sum()));
+            return result;
+        }
+
+        /** 启动以来的 p50/p90/p99/p999 和最大值（纳秒） */
+        public Map<String, Object> getLatency() {
+            long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+            long count = total.addTo(counts);
+            Map<String, Object> latency = LatencyHistogram.percentiles(counts, count);
+            latency.put("maxNs", total.getMax());
+            return latency;
+        }
+
+        /** 最近一分钟（所有有效窗口合并）的百分位和吞吐量 */
+        public Map<String, Object> getRecent() {
+            long now = System.nanoTime() - ORIGIN;
+            long current = now / WINDOW_NANOS;
+            long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+            long count = 0;
+            long oldest = current;
+            for (LatencyHistogram window : windows) {
+                long epoch = window.epoch;
+                if (epoch >= 0 && epoch > current - WINDOW_COUNT) {
+                    count += window.addTo(counts);
+                    oldest = Math.min(oldest, epoch);
+                }
+            }
+            Map<String, Object> recent = LatencyHistogram.percentiles(counts, count);
+            long coveredNanos = Math.max(1, now - oldest * WINDOW_NANOS);
+            recent.put("count", count);
+            recent.put("throughputPerSec", count * 1e9 / coveredNanos);
+            recent.put("windowSeconds", (current - oldest + 1) * WINDOW_SECONDS);
+            return recent;
+        }
+
+        /** 每个滚动窗口单独的统计，从旧到新；当前窗口的吞吐量按已经过的时间计算 */
+        public List<Map<String, Object>> getWindows() {
+            long now = System.nanoTime() - ORIGIN;
+            long current = now / WINDOW_NANOS;
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (long epoch = current - WINDOW_COUNT + 1; epoch <= current; epoch++) {
+                if (epoch < 0) {
+                    continue;
+                }
+                LatencyHistogram window = windows[(int) (epoch % WINDOW_COUNT)];
+                long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+                long count = window.epoch == epoch ? window.addTo(counts) : 0;
+                long elapsed = epoch == current ? Math.max(1, now - epoch * WINDOW_NANOS) : WINDOW_NANOS;
+                Map<String, Object> stats = new HashMap<>(LatencyHistogram.percentiles(counts, count));
+                stats.put("secondsAgo", (current - epoch) * WINDOW_SECONDS);
+                stats.put("count", count);
+                stats.put("throughputPerSec", count * 1e9 / elapsed);
+                result.add(stats);
+            }
+            return result;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.example.oxo.monitoring;
+
+import java.util.Map;
+
+/**
+ * 把 {@link PerformanceStats} 输出为 Prometheus 文本格式（0.0.4）。
+ * 延迟以 summary 输出：quantile 取最近一分钟的滚动窗口，_sum / _count 为启动以来的累计值。
+ */
+public final class PrometheusExporter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[][] QUANTILES = {
+            {"0.5", "p50Ns"}, {"0.9", "p90Ns"}, {"0.99", "p99Ns"}, {"0.999", "p999Ns"}};
+
+    private PrometheusExporter() {
+    }
+
+    public static String export(PerformanceStats stats) {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP oxo_uptime_seconds Time since the server started.\n");
+        out.append("# TYPE oxo_uptime_seconds gauge\n");
+        out.append("oxo_uptime_seconds ").append((System.currentTimeMillis() - stats.getStartTime()) / 1000.0).append('\n');
+
+        writeSummary(out, "oxo_http_request_duration_seconds", "HTTP request latency per route.", "route",
+                stats.getApiStats());
+        out.append("# HELP oxo_http_requests_total HTTP requests per route and status code.\n");
+        out.append("# TYPE oxo_http_requests_total counter\n");
+        stats.getApiStats().forEach((route, stat) -> stat.getStatusCounts().forEach((status, count) ->
+                out.append("oxo_http_requests_total{route=\"").append(escape(route)).append("\",status=\"")
+                        .append(status).append("\"} ").append(count).append('\n')));
+        writeErrors(out, "oxo_http_request_exceptions_total", "Exceptions raised while handling requests.", "route",
+                stats.getApiStats());
+
+        writeSummary(out, "oxo_service_call_duration_seconds", "GameService method latency.", "method",
+                stats.getServiceStats());
+        writeErrors(out, "oxo_service_call_errors_total", "Exceptions thrown by GameService methods.", "method",
+                stats.getServiceStats());
+        return out.toString();
+    }
+
+    private static void writeSummary(StringBuilder out, String name, String help, String label,
+                                     Map<String, PerformanceStats.ApiStat> stats) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        stats.forEach((key, stat) -> {
+            String labels = label + "=\"" + escape(key) + "\"";
+            Map<String, Object> recent = stat.getRecent();
+            for (String[] quantile : QUANTILES) {
+                out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile[0]).append("\"} ")
+                        .append(seconds((Long) recent.get(quantile[1]))).append('\n');
+            }
+            out.append(name).append("_sum{").append(labels).append("} ")
+                    .append(stat.getTotalTimeMs() / 1000.0).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(stat.getCallCount()).append('\n');
+        });
+    }
+
+    private static void writeErrors(StringBuilder out, String name, String help, String label,
+                                    Map<String, PerformanceStats.ApiStat> stats) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        stats.forEach((key, stat) -> stat.getErrorCounts().forEach((error, count) ->
+                out.append(name).append('{').append(label).append("=\"").append(escape(key))
+                        .append("\",exception=\"").append(escape(error)).append("\"} ").append(count).append('\n')));
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    // 标签值中的反斜杠、双引号和换行需要转义
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.oxo.persistence;
+
+import com.example.oxo.service.GameEventListener;
+import com.example.oxo.service.GameService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 追加写的内存映射操作日志。每条记录定长 64 字节：
+ * <pre>
+ *   0  type(1) idLength(1) reserved(2)
+ *   4  a(4) b(4) c(4)          落子: row/col/player，改尺寸: rows/cols，改玩家: count
+ *   16 version(8)              写入后该局的版本号；恢复时据此跳过快照已包含的记录
+ *   24 gameId(32, ASCII)
+ *   56 reserved(4) crc32(4)    对前 60 字节做 CRC，检测崩溃时写了一半的记录
+ * </pre>
+ * 写入只是对映射内存的几次 put，不涉及系统调用；每个写入者用原子操作预留自己的位置，互不加锁。
+ * 段文件写满后切换到下一个段。旧段带引用计数，最后一个仍在其中写入的写入者结束后才刷盘并关闭。刷盘策略见 {@link FsyncPolicy}。
+ * 由于使用内存映射，即便 NEVER 策略下进程崩溃也不会丢数据（页缓存仍在），fsync 只用于防掉电。
+ */
+public class GameJournal implements Closeable {
+
+	/** 刷盘策略 */
+	public enum FsyncPolicy {
+		/** 交给操作系统回写 */
+		NEVER,
+		/** 后台线程按固定间隔 force，写入方不等待 */
+		INTERVAL,
+		/** 写入方等待刷盘完成；多个写入方由同一次 force 合并提交（group commit） */
+		SYNC
+	}
+
+	/** 回放时逐条接收记录 */
+	@FunctionalInterface
+	public interface RecordVisitor {
+		void visit(byte type, String gameId, int a, int b, int c, long version);
+	}
+
+	public static final int RECORD_SIZE = 64;
+	public static final int MAX_GAME_ID_LENGTH = 32;
+
+	public static final byte CREATE = 1;
+	public static final byte DELETE = 2;
+	public static final byte PLAYERS = 3;
+	public static final byte RESIZE = 4;
+	public static final byte RESET = 5;
+	public static final byte MOVE = 6;
+	public static final byte WIN_THRESHOLD = 7;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final FsyncPolicy fsyncPolicy;
+	private final long fsyncIntervalMillis;
+	private final Object rollLock = new Object();
+	private final AtomicLong recordsAppended = new AtomicLong(0);
+	private long replayHoles;
+
+	private volatile Segment current;
+	// 已切换走、但仍有写入者持有引用的段；刷盘线程同样要刷它们
+	private final Queue<Segment> retired = new ConcurrentLinkedQueue<>();
+	private long nextSegmentIndex;
+
+	// group commit：写入方登记请求号，刷盘线程每轮 force 覆盖此前登记的所有请求
+	private final AtomicLong flushRequested = new AtomicLong(0);
+	private long flushCompleted;
+	private final Object flushMonitor = new Object();
+	private Thread flusher;
+	private volatile boolean closed;
+
+	public GameJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncIntervalMillis = fsyncIntervalMillis;
+		Files.createDirectories(directory);
+		List<Path> existing = listSegments();
+		this.nextSegmentIndex = existing.isEmpty() ? 0 : segmentIndex(existing.get(existing.size() - 1)) + 1;
+	}
+
+	/**
+	 * 按写入顺序回放编号不小于 fromSegment 的段文件。
+	 * 写入者并发预留位置，崩溃时较早预留的位置可能还没写完而之后的已经写完，因此空记录或 CRC 不匹配的记录只跳过，
+	 * 继续扫描到段尾；最后一条有效记录之前被跳过的位置计入 {@link #getReplayHoles()}。
+	 * 同一局的记录在该局的锁内依次写入，跳过的位置不会打乱任何一局的顺序。必须在 {@link #start()} 之前调用。
+	 */
+	public long replay(long fromSegment, RecordVisitor visitor) throws IOException {
+		long count = 0;
+		for (Path segment : listSegments()) {
+			if (segmentIndex(segment) < fromSegment) {
+				continue;
+			}
+			try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				byte[] record = new byte[RECORD_SIZE];
+				CRC32 crc = new CRC32();
+				long invalid = 0;  // 上一条有效记录之后跳过的位置；段尾未使用的部分不算空洞
+				for (int offset = 0; offset + RECORD_SIZE <= buffer.capacity(); offset += RECORD_SIZE) {
+					byte type = buffer.get(offset);
+					if (type == 0) {
+						invalid++;
+						continue;
+					}
+					buffer.get(offset, record);
+					crc.reset();
+					crc.update(record, 0, 60);
+					if ((int) crc.getValue() != buffer.getInt(offset + 60)) {
+						invalid++;
+						continue;
+					}
+					replayHoles += invalid;
+					invalid = 0;
+					int idLength = buffer.get(offset + 1);
+					String gameId = new String(record, 24, idLength, StandardCharsets.US_ASCII);
+					visitor.visit(type, gameId, buffer.getInt(offset + 4), buffer.getInt(offset + 8),
+							buffer.getInt(offset + 12), buffer.getLong(offset + 16));
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/** 打开新的段文件并启动刷盘线程，此后才能 append */
+	public void start() throws IOException {
+		synchronized (rollLock) {
+			current = openSegment();
+		}
+		if (fsyncPolicy != FsyncPolicy.NEVER) {
+			flusher = new Thread(this::flushLoop, "oxo-journal-flusher");
+			flusher.setDaemon(true);
+			flusher.start();
+		}
+	}
+
+	public void append(byte type, String gameId, int a, int b, int c, long version) {
+		byte[] id = gameId.getBytes(StandardCharsets.US_ASCII);
+		if (id.length > MAX_GAME_ID_LENGTH) {
+			throw new IllegalArgumentException("Game id too long for journal: " + gameId);
+		}
+		while (true) {
+			Segment segment = current;
+			if (!segment.retain()) {
+				continue;  // 该段刚被切换走并关闭，current 已指向新段
+			}
+			int offset;
+			try {
+				offset = segment.reserve();
+				if (offset >= 0) {
+					segment.write(offset, type, id, a, b, c, version);
+				}
+			} finally {
+				release(segment);
+			}
+			if (offset >= 0) {
+				recordsAppended.incrementAndGet();
+				if (fsyncPolicy == FsyncPolicy.SYNC) {
+					awaitFlush();
+				}
+				return;
+			}
+			roll(segment);
+		}
+	}
+
+	/** 返回绑定到某局游戏的监听器，把该局的每次变化写入日志 */
+	public GameEventListener listenerFor(String gameId) {
+		return new GameEventListener() {
+			@Override
+			public void onMove(GameService service, int row, int col, int playerNumber) {
+				append(MOVE, gameId, row, col, playerNumber, service.getVersion());
+			}
+
+			@Override
+			public void onPlayersChanged(GameService service, int count) {
+				append(PLAYERS, gameId, count, 0, 0, service.getVersion());
+			}
+
+			@Override
+			public void onBoardResized(GameService service, int rows, int cols) {
+				append(RESIZE, gameId, rows, cols, 0, service.getVersion());
+			}
+
+			@Override
+			public void onReset(GameService service) {
+				append(RESET, gameId, 0, 0, 0, service.getVersion());
+			}
+
+			@Override
+			public void onWinThresholdChanged(GameService service, int winThreshold) {
+				append(WIN_THRESHOLD, gameId, winThreshold, 0, 0, service.getVersion());
+			}
+		};
+	}
+
+	/**
+	 * 为快照切换到新的段文件并返回其编号：此后的变化都写入编号 >= 返回值的段，
+	 * 快照加载后只需回放这些段。
+	 */
+	public long rollForSnapshot() {
+		synchronized (rollLock) {
+			Segment full = current;
+			roll(full);
+			return nextSegmentIndex - 1;
+		}
+	}
+
+	/** 删除编号小于 segment 的段文件（已被快照覆盖） */
+	public void deleteSegmentsBefore(long segment) throws IOException {
+		for (Path path : listSegments()) {
+			if (segmentIndex(path) < segment) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	public long getRecordsAppended() {
+		return recordsAppended.get();
+	}
+
+	/** 回放时跳过的空洞（写入者预留了位置但崩溃前没有写完）数 */
+	public long getReplayHoles() {
+		return replayHoles;
+	}
+
+	// 已切换走但尚未关闭的段数
+	int getRetiredSegmentCount() {
+		return retired.size();
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (flusher != null) {
+			flusher.interrupt();
+		}
+		Segment segment = current;
+		if (segment != null) {
+			segment.close();
+		}
+		for (Segment old : retired) {
+			old.close();
+		}
+		retired.clear();
+	}
+
+	// 只有真正完成切换的线程释放旧段的初始引用；先放入 retired 再切换 current，刷盘线程不会漏掉它
+	private void roll(Segment full) {
+		synchronized (rollLock) {
+			if (current != full) {
+				return;
+			}
+			try {
+				Segment next = openSegment();
+				retired.add(full);
+				current = next;
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot open journal segment", e);
+			}
+		}
+		release(full);
+	}
+
+	// 释放一次引用；最后一个引用释放时刷盘并关闭该段。
+	// 关闭完成后才移出 retired：SYNC 策略下刷盘线程要么刷到它，要么等关闭时的刷盘结束
+	private void release(Segment segment) {
+		if (segment.release()) {
+			try {
+				segment.close();
+			} catch (IOException e) {
+				// 旧段关闭失败不影响后续写入
+			}
+			retired.remove(segment);
+		}
+	}
+
+	private Segment openSegment() throws IOException {
+		Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, nextSegmentIndex++, SEGMENT_SUFFIX));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return new Segment(channel, buffer, segmentSize);
+	}
+
+	private void awaitFlush() {
+		long ticket = flushRequested.incrementAndGet();
+		synchronized (flushMonitor) {
+			flushMonitor.notifyAll();
+			while (flushCompleted < ticket && !closed) {
+				try {
+					flushMonitor.wait(fsyncIntervalMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void flushLoop() {
+		while (!closed) {
+			try {
+				long target;
+				synchronized (flushMonitor) {
+					if (fsyncPolicy == FsyncPolicy.SYNC) {
+						while (flushRequested.get() == flushCompleted && !closed) {
+							flushMonitor.wait();
+						}
+					} else {
+						flushMonitor.wait(fsyncIntervalMillis);
+					}
+					target = flushRequested.get();
+				}
+				// 先读 current 再遍历 retired：与 roll 的顺序相反，切换期间的旧段总会在两者之一中
+				Segment active = current;
+				for (Segment old : retired) {
+					old.force();
+				}
+				active.force();
+				synchronized (flushMonitor) {
+					flushCompleted = target;
+					flushMonitor.notifyAll();
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private List<Path> listSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+							&& p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+					.sorted()
+					.forEach(segments::add);
+		}
+		return segments;
+	}
+
+	private static long segmentIndex(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/** 一个映射到内存的段文件 */
+	private static final class Segment {
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private final int capacity;
+		private final AtomicInteger position = new AtomicInteger(0);
+		// 作为 current 时持有一个初始引用，每个正在写入的写入者再各持有一个；降到 0 后关闭，不能再获取
+		private final AtomicInteger references = new AtomicInteger(1);
+		private boolean closed;
+
+		Segment(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+			this.channel = channel;
+			this.buffer = buffer;
+			this.capacity = capacity;
+		}
+
+		/** 获取一个引用，段已关闭时返回 false */
+		boolean retain() {
+			for (int count = references.get(); count > 0; count = references.get()) {
+				if (references.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/** 释放一个引用，返回是否为最后一个 */
+		boolean release() {
+			return references.decrementAndGet() == 0;
+		}
+
+		synchronized void force() {
+			if (!closed) {
+				buffer.force();
+			}
+		}
+
+		synchronized void close() throws IOException {
+			if (!closed) {
+				buffer.force();
+				channel.close();
+				closed = true;
+			}
+		}
+
+		/** 预留一条记录的位置，段已满时返回 -1 */
+		int reserve() {
+			int offset = position.getAndAdd(RECORD_SIZE);
+			return offset + RECORD_SIZE <= capacity ? offset : -1;
+		}
+
+		// 先写内容和 CRC，最后写类型字节：回放时类型为 0 的记录视为尚未写入
+		void write(int offset, byte type, byte[] id, int a, int b, int c, long version) {
+			byte[] record = new byte[RECORD_SIZE];
+			record[0] = type;
+			record[1] = (byte) id.length;
+			putInt(record, 4, a);
+			putInt(record, 8, b);
+			putInt(record, 12, c);
+			putLong(record, 16, version);
+			System.arraycopy(id, 0, record, 24, id.length);
+			CRC32 crc = new CRC32();
+			crc.update(record, 0, 60);
+			putInt(record, 60, (int) crc.getValue());
+			buffer.put(offset + 1, record, 1, RECORD_SIZE - 1);
+			buffer.put(offset, type);
+		}
+
+		private static void putInt(byte[] target, int index, int value) {
+			target[index] = (byte) value;
+			target[index + 1] = (byte) (value >>> 8);
+			target[index + 2] = (byte) (value >>> 16);
+			target[index + 3] = (byte) (value >>> 24);
+		}
+
+		private static void putLong(byte[] target, int index, long value) {
+			putInt(target, index, (int) value);
+			putInt(target, index + 4, (int) (value >>> 32));
+		}
+	}
+}
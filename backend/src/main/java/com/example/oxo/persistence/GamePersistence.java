@@ -0,0 +1,191 @@
+package com.example.oxo.persistence;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.GameService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持久化入口：启动时先加载最新快照，再回放快照之后的操作日志，恢复全局棋盘和注册表中的所有游戏，
+ * 然后把日志挂到每局游戏上。运行期间定期写快照并删除已被覆盖的日志段。
+ * 未启用时所有方法都是空操作。
+ */
+public class GamePersistence implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(GamePersistence.class);
+
+	/** 全局棋盘（/api/oxo/*）在日志中使用的 id */
+	public static final String GLOBAL_GAME_ID = "";
+
+	private final GameJournal journal;
+	private final GameSnapshotter snapshotter;
+	private long replayedRecords;
+	private long replayErrors;
+	private long skippedRecords;
+	private int snapshotGamesLoaded;
+
+	// recover() 之后才能写快照
+	private volatile GameSession globalSession;
+	private volatile GameRegistry registry;
+	private volatile long snapshotsWritten;
+	private volatile int lastSnapshotGames;
+	private volatile long lastSnapshotMillis;
+
+	/** journal 为 null 表示不启用持久化 */
+	public GamePersistence(GameJournal journal) {
+		this.journal = journal;
+		this.snapshotter = journal == null ? null : new GameSnapshotter(journal.getDirectory());
+	}
+
+	public static GamePersistence create(boolean enabled, Path directory, int segmentSize,
+			GameJournal.FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+		if (!enabled) {
+			return new GamePersistence(null);
+		}
+		try {
+			return new GamePersistence(new GameJournal(directory, segmentSize, fsyncPolicy, fsyncIntervalMillis));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot open game journal in " + directory, e);
+		}
+	}
+
+	/**
+	 * 加载快照并回放之后的日志重建游戏，再开始记录新的变化。必须在对外提供服务之前调用。
+	 * 快照写出期间的变化可能既在快照里又在新日志段里，按版本号跳过快照已包含的记录。
+	 * 之后写快照时，全局棋盘在 globalSession 的锁内编码，与注册表中的游戏相同。
+	 */
+	public void recover(GameSession globalSession, GameRegistry registry) {
+		if (journal == null) {
+			return;
+		}
+		GameService globalService = globalSession.getGameService();
+		try {
+			GameSnapshotter.Loaded snapshot = snapshotter.load(GLOBAL_GAME_ID, globalService, registry);
+			long fromSegment = snapshot == null ? 0 : snapshot.getJournalSegment();
+			snapshotGamesLoaded = snapshot == null ? 0 : snapshot.getGameCount();
+			replayedRecords = journal.replay(fromSegment, (type, gameId, a, b, c, version) -> {
+				// 创建/删除记录不带版本号，总是回放（重复创建会被忽略）
+				boolean structural = type == GameJournal.CREATE || type == GameJournal.DELETE;
+				if (snapshot != null && !structural && version <= snapshot.versionOf(gameId)) {
+					skippedRecords++;
+					return;
+				}
+				apply(globalService, registry, type, gameId, a, b, c);
+			});
+			journal.start();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot replay game journal", e);
+		}
+		globalService.addGameEventListener(journal.listenerFor(GLOBAL_GAME_ID));
+		registry.forEach(session -> session.getGameService().addGameEventListener(journal.listenerFor(session.getId())));
+		registry.setListener(new GameRegistry.RegistryListener() {
+			@Override
+			public void onCreated(GameSession session) {
+				journal.append(GameJournal.CREATE, session.getId(), 0, 0, 0, 0);
+				session.getGameService().addGameEventListener(journal.listenerFor(session.getId()));
+			}
+
+			@Override
+			public void onRemoved(GameSession session) {
+				journal.append(GameJournal.DELETE, session.getId(), 0, 0, 0, 0);
+			}
+		});
+		this.globalSession = globalSession;
+		this.registry = registry;
+	}
+
+	/** 定期为所有在线游戏写快照，之后重启只需回放快照之后的日志 */
+	@Scheduled(fixedDelayString = "${oxo.journal.snapshot-interval-ms:300000}",
+			initialDelayString = "${oxo.journal.snapshot-interval-ms:300000}")
+	public void snapshot() {
+		try {
+			writeSnapshot();
+		} catch (IOException e) {
+			log.error("Snapshot of {} failed", journal.getDirectory(), e);
+		}
+	}
+
+	/**
+	 * 立即写一次快照，返回后快照已落盘。日志只记录操作，整局改写（如接收移交来的游戏）只能靠快照持久化。
+	 * 未启用或尚未 recover() 时什么也不做。
+	 */
+	public synchronized void writeSnapshot() throws IOException {
+		GameSession global = globalSession;
+		GameRegistry games = registry;
+		if (journal == null || global == null) {
+			return;
+		}
+		lastSnapshotGames = snapshotter.write(journal, global, games);
+		lastSnapshotMillis = System.currentTimeMillis();
+		snapshotsWritten++;
+	}
+
+	private void apply(GameService globalService, GameRegistry registry, byte type, String gameId, int a, int b, int c) {
+		if (type == GameJournal.CREATE) {
+			registry.create(gameId);
+			return;
+		}
+		if (type == GameJournal.DELETE) {
+			registry.remove(gameId);
+			return;
+		}
+		GameService service = globalService;
+		if (!GLOBAL_GAME_ID.equals(gameId)) {
+			GameSession session = registry.get(gameId);
+			if (session == null) {
+				replayErrors++;
+				return;
+			}
+			service = session.getGameService();
+		}
+		try {
+			switch (type) {
+				case GameJournal.PLAYERS -> service.setPlayers(a);
+				case GameJournal.RESIZE -> service.setBoardSize(a, b);
+				case GameJournal.RESET -> service.resetGame();
+				case GameJournal.MOVE -> service.handleMove(a, b);
+				case GameJournal.WIN_THRESHOLD -> service.setWinThreshold(a);
+				default -> replayErrors++;
+			}
+		} catch (MoveException e) {
+			replayErrors++;
+		}
+	}
+
+	public boolean isEnabled() {
+		return journal != null;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new ConcurrentHashMap<>();
+		stats.put("enabled", journal != null);
+		if (journal != null) {
+			stats.put("journalDirectory", journal.getDirectory().toString());
+			stats.put("recordsAppended", journal.getRecordsAppended());
+			stats.put("replayedRecords", replayedRecords);
+			stats.put("replayErrors", replayErrors);
+			stats.put("replayHoles", journal.getReplayHoles());
+			stats.put("replaySkippedBySnapshot", skippedRecords);
+			stats.put("snapshotGamesLoaded", snapshotGamesLoaded);
+			stats.put("snapshotsWritten", snapshotsWritten);
+			stats.put("lastSnapshotGames", lastSnapshotGames);
+			stats.put("lastSnapshotMillis", lastSnapshotMillis);
+		}
+		return stats;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+}
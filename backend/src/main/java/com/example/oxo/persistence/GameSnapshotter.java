@@ -0,0 +1,218 @@
+package com.example.oxo.persistence;
+
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.GameService;
+import com.example.oxo.wire.BoardStateDecoder;
+import com.example.oxo.wire.BoardStateEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 所有在线游戏的二进制快照，用于快速重启：加载快照后只需回放快照之后的日志段。
+ * 文件格式（小端）：
+ * <pre>
+ *   "OXOS" formatVersion(4) journalSegment(8) gameCount(4)
+ *   重复 gameCount 次 { idLength(1) id(ASCII) stateLength(4) PACKED 状态 }
+ * </pre>
+ * 每局的状态就是 {@link BoardStateEncoder#encodePacked} 的输出（尺寸、胜利条件、玩家、格子、当前玩家、胜负/平局、版本号）。
+ * 写快照时逐局持有该局的锁做一次编码，不会暂停其他游戏的落子；
+ * 读取时内存映射整个文件，直接在映射内存上解析。
+ */
+public class GameSnapshotter {
+
+	/** 快照覆盖的范围：日志段起点和每局游戏的版本号 */
+	public static final class Loaded {
+		private final long journalSegment;
+		private final Map<String, Long> versions;
+
+		Loaded(long journalSegment, Map<String, Long> versions) {
+			this.journalSegment = journalSegment;
+			this.versions = versions;
+		}
+
+		/** 需要从这个段开始回放日志 */
+		public long getJournalSegment() {
+			return journalSegment;
+		}
+
+		/** 快照中该局的版本号；快照中没有这局游戏时返回 -1 */
+		public long versionOf(String gameId) {
+			Long version = versions.get(gameId);
+			return version == null ? -1 : version;
+		}
+
+		public int getGameCount() {
+			return versions.size();
+		}
+	}
+
+	private static final int MAGIC = 0x534F584F;  // "OXOS"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 20;
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".bin";
+
+	private final Path directory;
+
+	public GameSnapshotter(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * 写出全局棋盘（globalSession，以其 id 写入）和注册表中所有游戏的快照，返回写入的游戏数。
+	 * 先让日志切换到新段，此后的变化都落在新段里，快照文件以该段编号命名；
+	 * 写完后删除更早的快照和日志段。
+	 */
+	public int write(GameJournal journal, GameSession globalSession, GameRegistry registry) throws IOException {
+		long segment = journal.rollForSnapshot();
+		Path target = snapshotPath(segment);
+		Path temp = directory.resolve(target.getFileName() + ".tmp");
+		int[] count = {0};
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(segment).putInt(0);
+			writeEntry(channel, buffer, globalSession.getId(), capture(globalSession));
+			count[0]++;
+			IOException[] failure = {null};
+			registry.forEach(session -> {
+				if (failure[0] != null) {
+					return;
+				}
+				byte[] state = capture(session);
+				try {
+					writeEntry(channel, buffer, session.getId(), state);
+					count[0]++;
+				} catch (IOException e) {
+					failure[0] = e;
+				}
+			});
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+			flush(channel, buffer);
+			buffer.clear();
+			buffer.putInt(count[0]).flip();
+			channel.write(buffer, 16);
+			channel.force(true);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for (Path old : listSnapshots()) {
+			if (segmentOf(old) < segment) {
+				Files.deleteIfExists(old);
+			}
+		}
+		journal.deleteSegmentsBefore(segment);
+		return count[0];
+	}
+
+	/**
+	 * 加载最新的快照：全局棋盘恢复到 globalService，其余游戏在 registry 中重新创建。
+	 * 没有快照时返回 null。
+	 */
+	public Loaded load(String globalGameId, GameService globalService, GameRegistry registry) throws IOException {
+		List<Path> snapshots = listSnapshots();
+		if (snapshots.isEmpty()) {
+			return null;
+		}
+		Path latest = snapshots.get(snapshots.size() - 1);
+		try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				throw new IOException("Unrecognised snapshot file " + latest);
+			}
+			long segment = buffer.getLong();
+			int gameCount = buffer.getInt();
+			Map<String, Long> versions = new HashMap<>(gameCount * 2);
+			byte[] id = new byte[GameJournal.MAX_GAME_ID_LENGTH];
+			for (int i = 0; i < gameCount; i++) {
+				int idLength = buffer.get() & 0xFF;
+				buffer.get(id, 0, idLength);
+				String gameId = new String(id, 0, idLength, StandardCharsets.US_ASCII);
+				int stateLength = buffer.getInt();
+				int end = buffer.position() + stateLength;
+				GameService service = globalService;
+				if (!globalGameId.equals(gameId)) {
+					GameSession session = registry.get(gameId);
+					service = session != null ? session.getGameService() : registry.create(gameId).getGameService();
+				}
+				BoardStateDecoder.restorePacked(buffer, service);
+				buffer.position(end);
+				versions.put(gameId, service.getVersion());
+			}
+			return new Loaded(segment, versions);
+		}
+	}
+
+	// 每局（包括全局棋盘）在各自的锁内编码，只阻塞这一局
+	private static byte[] capture(GameSession session) {
+		session.getLock().lock();
+		try {
+			return BoardStateEncoder.encodePacked(session.getGameService());
+		} finally {
+			session.getLock().unlock();
+		}
+	}
+
+	private static void writeEntry(FileChannel channel, ByteBuffer buffer, String gameId, byte[] state) throws IOException {
+		byte[] id = gameId.getBytes(StandardCharsets.US_ASCII);
+		if (buffer.remaining() < 5 + id.length) {
+			flush(channel, buffer);
+		}
+		buffer.put((byte) id.length).put(id).putInt(state.length);
+		int offset = 0;
+		while (offset < state.length) {
+			if (!buffer.hasRemaining()) {
+				flush(channel, buffer);
+			}
+			int chunk = Math.min(buffer.remaining(), state.length - offset);
+			buffer.put(state, offset, chunk);
+			offset += chunk;
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private Path snapshotPath(long segment) {
+		return directory.resolve(String.format("%s%012d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+	}
+
+	private List<Path> listSnapshots() throws IOException {
+		List<Path> snapshots = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(p -> {
+				String name = p.getFileName().toString();
+				return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+			}).sorted().forEach(snapshots::add);
+		}
+		return snapshots;
+	}
+
+	private static long segmentOf(Path snapshot) {
+		String name = snapshot.getFileName().toString();
+		return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+	}
+}
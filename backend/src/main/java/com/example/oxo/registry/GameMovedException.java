@@ -0,0 +1,25 @@
+package com.example.oxo.registry;
+
+/**
+ * 游戏已移交给集群中的另一个节点。请求在移交前拿到了本地会话、移交后才获得锁时抛出，
+ * 控制器据此把客户端重定向到新节点。
+ */
+public class GameMovedException extends RuntimeException {
+	private final String gameId;
+	private final String owner;
+
+	public GameMovedException(String gameId, String owner) {
+		super("Game " + gameId + " moved to " + owner);
+		this.gameId = gameId;
+		this.owner = owner;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	/** 新节点的基础 URL，如 http://10.0.0.2:8080 */
+	public String getOwner() {
+		return owner;
+	}
+}
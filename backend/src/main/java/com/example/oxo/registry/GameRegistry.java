@@ -0,0 +1,143 @@
+package com.example.oxo.registry;
+
+import com.example.oxo.service.GameService;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 按游戏 id 管理多局游戏。
+ * 使用 ConcurrentHashMap 存放会话，读取无锁；每局游戏自带锁（见 {@link GameSession}）。
+ * 长时间无人访问的游戏会被定期清理。
+ */
+public class GameRegistry {
+
+	/** 游戏创建/移除时的回调（如写入操作日志） */
+	public interface RegistryListener {
+		void onCreated(GameSession session);
+
+		void onRemoved(GameSession session);
+	}
+
+	// 随机 id 不满足 idFilter 时最多重新生成的次数，之后不再挑选
+	private static final int MAX_ID_ATTEMPTS = 1024;
+
+	private final Map<String, GameSession> sessions;
+	private final Supplier<GameService> serviceFactory;
+	private final long idleTimeoutMillis;
+	private final int maxGames;
+	private final AtomicLong createdCount = new AtomicLong(0);
+	private final AtomicLong evictedCount = new AtomicLong(0);
+	private volatile RegistryListener listener;
+	private volatile Predicate<String> idFilter = id -> true;
+
+	public GameRegistry(Supplier<GameService> serviceFactory, long idleTimeoutMillis, int maxGames) {
+		this.serviceFactory = serviceFactory;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.maxGames = maxGames;
+		this.sessions = new ConcurrentHashMap<>(1024);
+	}
+
+	/** 创建一局新游戏并分配随机 id，优先选用满足 idFilter 的 id */
+	public GameSession create() {
+		Predicate<String> filter = idFilter;
+		for (int attempt = 0; ; attempt++) {
+			String id = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+			if (attempt < MAX_ID_ATTEMPTS && !filter.test(id)) {
+				continue;
+			}
+			GameSession session = create(id);
+			if (session != null) {
+				return session;
+			}
+		}
+	}
+
+	/** 以指定 id 创建游戏；id 已存在时返回 null */
+	public GameSession create(String id) {
+		if (sessions.size() >= maxGames) {
+			throw new IllegalStateException("Too many live games: " + maxGames);
+		}
+		GameSession session = new GameSession(id, serviceFactory.get());
+		if (sessions.putIfAbsent(id, session) != null) {
+			return null;
+		}
+		createdCount.incrementAndGet();
+		RegistryListener current = listener;
+		if (current != null) {
+			current.onCreated(session);
+		}
+		return session;
+	}
+
+	/** 查找游戏，不存在时返回 null */
+	public GameSession get(String id) {
+		return sessions.get(id);
+	}
+
+	public boolean remove(String id) {
+		GameSession removed = sessions.remove(id);
+		if (removed == null) {
+			return false;
+		}
+		notifyRemoved(removed);
+		return true;
+	}
+
+	public void setListener(RegistryListener listener) {
+		this.listener = listener;
+	}
+
+	/** 新建游戏时挑选 id 的条件（集群中为“归属本节点”），使新游戏不必再移交 */
+	public void setIdFilter(Predicate<String> idFilter) {
+		this.idFilter = idFilter;
+	}
+
+	public int getMaxGames() {
+		return maxGames;
+	}
+
+	/** 弱一致地遍历当前所有游戏 */
+	public void forEach(Consumer<GameSession> action) {
+		sessions.values().forEach(action);
+	}
+
+	public int size() {
+		return sessions.size();
+	}
+
+	/** 清理超过 idleTimeoutMillis 没有访问的游戏 */
+	@Scheduled(fixedDelayString = "${oxo.registry.evict-interval-ms:60000}")
+	public void evictIdleGames() {
+		long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+		for (GameSession session : sessions.values()) {
+			if (session.getLastAccessMillis() < deadline && sessions.remove(session.getId(), session)) {
+				evictedCount.incrementAndGet();
+				notifyRemoved(session);
+			}
+		}
+	}
+
+	private void notifyRemoved(GameSession session) {
+		RegistryListener current = listener;
+		if (current != null) {
+			current.onRemoved(session);
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new ConcurrentHashMap<>();
+		stats.put("liveGames", sessions.size());
+		stats.put("created", createdCount.get());
+		stats.put("evicted", evictedCount.get());
+		stats.put("idleTimeoutMs", idleTimeoutMillis);
+		stats.put("maxGames", maxGames);
+		return stats;
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.oxo.registry;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.GameService;
+import com.example.oxo.stream.GameEventHub;
+import com.example.oxo.stream.GameEventStream;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 注册表中的一局游戏：游戏服务 + 该局独占的锁 + 最近访问时间。
+ * 每局游戏有自己的锁，不同游戏之间的操作互不竞争。
+ */
+public class GameSession {
+
+	/** 在锁内对游戏执行的操作 */
+	@FunctionalInterface
+	public interface Action<T> {
+		T apply(GameService service) throws MoveException;
+	}
+
+	private final String id;
+	private final GameService gameService;
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile long lastAccessMillis;
+	private GameEventStream eventStream;  // 第一次有人订阅时才创建
+	private volatile String movedTo;      // 已移交给的节点，移交后本对象不再接受操作
+
+	public GameSession(String id, GameService gameService) {
+		this.id = id;
+		this.gameService = gameService;
+		touch();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/** 持有本局的锁执行 action，并刷新最近访问时间；本局已移交给其他节点时抛出 {@link GameMovedException} */
+	public <T> T execute(Action<T> action) throws MoveException {
+		lock.lock();
+		try {
+			if (movedTo != null) {
+				throw new GameMovedException(id, movedTo);
+			}
+			touch();
+			return action.apply(gameService);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** 直接访问底层服务，调用方需要自行持有锁（见 {@link #execute}） */
+	public GameService getGameService() {
+		return gameService;
+	}
+
+	/** 返回本局的事件流，不存在时创建并注册为监听器；本局已移交时抛出 {@link GameMovedException} */
+	public GameEventStream getOrCreateEventStream(GameEventHub hub) {
+		lock.lock();
+		try {
+			if (movedTo != null) {
+				throw new GameMovedException(id, movedTo);
+			}
+			if (eventStream == null) {
+				eventStream = hub.newStream();
+				gameService.addGameEventListener(eventStream);
+			}
+			return eventStream;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** 标记本局已移交给 owner，并结束所有订阅（客户端重连时被重定向到新节点）；调用方需持有锁 */
+	public void moveTo(String owner) {
+		movedTo = owner;
+		if (eventStream != null) {
+			eventStream.closeAll();
+		}
+	}
+
+	/** 撤销 {@link #moveTo}，本局重新在本节点接受操作；调用方需持有锁 */
+	public void reclaim() {
+		movedTo = null;
+	}
+
+	public String getMovedTo() {
+		return movedTo;
+	}
+
+	public ReentrantLock getLock() {
+		return lock;
+	}
+
+	public long getLastAccessMillis() {
+		return lastAccessMillis;
+	}
+
+	public void touch() {
+		lastAccessMillis = System.currentTimeMillis();
+	}
+}
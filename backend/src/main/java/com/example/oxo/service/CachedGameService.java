@@ -1,100 +1,241 @@
 package com.example.oxo.service;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
+import com.example.oxo.model.GameModel;
 import com.example.oxo.model.MoveException;
 
+/**
+ * 缓存完整状态的服务：状态以不可变的 {@link GameStateSnapshot} 发布在一个 volatile 引用上。
+ * 命中时读取是一次 volatile 读，不加锁；状态变化后由一个线程重建，同时到达的读者等待并复用它的结果。
+ *
+ * 每个修改状态的方法都登记为一次写操作（开始、结束各计数一次），版本确实变化的写操作结束时推进版本戳。
+ * 只有构造期间没有任何写操作进行或开始的快照才会被发布，所以缓存中不会出现修改前或修改到一半的状态；
+ * 被拒绝的非法落子不改变版本，也不会使缓存失效。
+ */
 public class CachedGameService extends OptimizedGameService {
-    
-    private final Map<String, Object> stateCache = new ConcurrentHashMap<>();
-    private final AtomicBoolean stateDirty = new AtomicBoolean(true);
-    private final AtomicLong cacheHits = new AtomicLong(0);
-    private final AtomicLong cacheMisses = new AtomicLong(0);
+
+    // 已发布的快照及其对应的版本戳
+    private static final class Entry {
+        final long stamp;
+        final GameStateSnapshot snapshot;
+
+        Entry(long stamp, GameStateSnapshot snapshot) {
+            this.stamp = stamp;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static final int WRITE_WAIT_SPINS = 100;
+    private static final long WRITE_WAIT_NANOS = 10_000_000L;
+
+    private volatile Entry cached;
+    // 写操作开始/结束次数，相等时没有进行中的修改
+    private final AtomicLong writesStarted = new AtomicLong();
+    private final AtomicLong writesFinished = new AtomicLong();
+    // 状态真正发生变化的写操作完成次数，快照按它判断是否过期
+    private final AtomicLong stamp = new AtomicLong();
+    private final Object rebuildLock = new Object();
+    // 最近开始写操作的线程，用来识别写操作内部（如监听器回调）的读取
+    private volatile Thread lastWriter;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder uncachedBuilds = new LongAdder();
     private final boolean cacheEnabled = true;
+    private Function<Object, byte[]> stateSerializer;
+
+    public CachedGameService() {
+        super();
+    }
+
+    public CachedGameService(GameModel model) {
+        super(model);
+    }
+
+    /** 设置后，快照在重建时一并序列化为 JSON，读取方可以直接写出字节 */
+    public void setStateSerializer(Function<Object, byte[]> stateSerializer) {
+        this.stateSerializer = stateSerializer;
+    }
 
-    // [FIX] 增加一个私有的、final的锁对象
-    private final Object cacheLock = new Object();
-    
     @Override
-    public Object getGameState() {
-        // 为了保证“检查-然后-行动”操作的原子性，必须使用锁保护的是 stateDirty 和 stateCache 之间的一致性，防止在读取脏位和返回缓存的间隙中状态被修改。
-        synchronized (cacheLock) {
-            // 如果状态未改变且缓存启用，直接返回缓存
-            if (cacheEnabled && !stateDirty.get() && stateCache.containsKey("gameState")) {
-                cacheHits.incrementAndGet();
-                return stateCache.get("gameState");
-            }
+    protected GameStateSnapshot buildSnapshot() {
+        Entry entry = cached;
+        if (cacheEnabled && entry != null && entry.stamp == stamp.get()) {
+            cacheHits.increment();
+            return entry.snapshot;
         }
-        
-        // 注意：计算新状态的耗时操作(super.getGameState())被刻意放在了同步块之外，
-        // 以最大程度地减少锁的持有时间，提高并发性能。
-        Object state = super.getGameState();
-        
-        // 第二个同步块，用于安全地更新缓存和状态位。
-        synchronized (cacheLock) {
-            // 双重检查锁定（Double-Checked Locking）模式：
-            // 在我们计算状态的同时，可能有另一个线程已经完成了计算并更新了缓存。因此，在写入之前，我们再次检查状态。
-            if (stateDirty.get()) {
-                cacheMisses.incrementAndGet();
-                stateCache.put("gameState", state);
-                stateDirty.set(false);
-            } else {
-                // 如果计算期间，其他线程已更新缓存，则我们这次算作一次命中。直接返回那个更新后的缓存，丢弃我们自己计算的
-                cacheHits.incrementAndGet();
-                return stateCache.get("gameState");
+        return rebuild();
+    }
+
+    /**
+     * 单线程重建：等锁期间若已有其他线程发布了当前版本，直接复用。
+     * 有写操作正在进行时先等它结束（先自旋，再让出 CPU，最多 WRITE_WAIT_NANOS），不返回修改到一半的状态；
+     * 写操作线程自己在回调中读取、或一直等不到时，照常构造并返回，但不发布。
+     */
+    private GameStateSnapshot rebuild() {
+        synchronized (rebuildLock) {
+            long deadline = 0;
+            for (int spins = 0; ; spins++) {
+                long finished = writesFinished.get();
+                long current = stamp.get();
+                Entry entry = cached;
+                if (cacheEnabled && entry != null && entry.stamp == current) {
+                    cacheHits.increment();
+                    return entry.snapshot;
+                }
+                boolean quiescent = writesStarted.get() == finished;
+                if (quiescent) {
+                    GameStateSnapshot snapshot = newSnapshot();
+                    if (writesStarted.get() == finished) {
+                        if (cacheEnabled) {
+                            cached = new Entry(current, snapshot);
+                        }
+                        cacheMisses.increment();
+                        return snapshot;
+                    }
+                    // 构造期间有写操作开始，结果可能不一致，重新等待
+                } else if (lastWriter == Thread.currentThread()
+                        || (deadline != 0 && System.nanoTime() - deadline > 0)) {
+                    uncachedBuilds.increment();
+                    return newSnapshot();
+                }
+                if (spins < WRITE_WAIT_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + WRITE_WAIT_NANOS;
+                    }
+                    Thread.yield();
+                }
             }
         }
-        
-        return state;
-    }
-    
-    // 在所有修改游戏状态的方法中，也需要使用锁来安全地修改 stateDirty 标志。
-    private void invalidateCache() {
-        synchronized (cacheLock) {
-            stateDirty.set(true);
+    }
+
+    private GameStateSnapshot newSnapshot() {
+        Object state = buildGameState();
+        byte[] json = stateSerializer != null ? stateSerializer.apply(state) : null;
+        return new GameStateSnapshot(moveHistory.getVersion(), state, json);
+    }
+
+    private long beginWrite() {
+        lastWriter = Thread.currentThread();
+        writesStarted.incrementAndGet();
+        return moveHistory.getVersion();
+    }
+
+    // 先推进版本戳再计结束，读者看到写操作全部结束时一定也看到了新的版本戳
+    private void endWrite(long versionBefore) {
+        if (moveHistory.getVersion() != versionBefore) {
+            stamp.incrementAndGet();
         }
+        writesFinished.incrementAndGet();
     }
 
     @Override
     public void handleIncomingCommand(String command) throws MoveException {
-        invalidateCache();
-        super.handleIncomingCommand(command);
+        long version = beginWrite();
+        try {
+            super.handleIncomingCommand(command);
+        } finally {
+            endWrite(version);
+        }
     }
-    
+
+    @Override
+    public void handleMove(int row, int col) throws MoveException {
+        long version = beginWrite();
+        try {
+            super.handleMove(row, col);
+        } finally {
+            endWrite(version);
+        }
+    }
+
+    // 批量落子整体算一次写操作
+    @Override
+    public MoveBatchResult handleIncomingCommands(List<String> commands) {
+        long version = beginWrite();
+        try {
+            return super.handleIncomingCommands(commands);
+        } finally {
+            endWrite(version);
+        }
+    }
+
     @Override
     public void setPlayers(int count) {
-        invalidateCache();
-        super.setPlayers(count);
+        long version = beginWrite();
+        try {
+            super.setPlayers(count);
+        } finally {
+            endWrite(version);
+        }
     }
-    
+
     @Override
     public void setBoardSize(int newRows, int newCols) {
-        invalidateCache();
-        super.setBoardSize(newRows, newCols);
+        long version = beginWrite();
+        try {
+            super.setBoardSize(newRows, newCols);
+        } finally {
+            endWrite(version);
+        }
+    }
+
+    @Override
+    public void setWinThreshold(int winThreshold) {
+        long version = beginWrite();
+        try {
+            super.setWinThreshold(winThreshold);
+        } finally {
+            endWrite(version);
+        }
     }
-    
+
     @Override
     public void resetGame() {
-        synchronized(cacheLock) {
-            stateDirty.set(true);
-            stateCache.clear(); // 重置时清空缓存
+        long version = beginWrite();
+        try {
+            super.resetGame();
+        } finally {
+            endWrite(version);
+        }
+    }
+
+    // 恢复的版本号可能与之前相同，无条件视为变化
+    @Override
+    public void restoreState(Runnable action) {
+        lastWriter = Thread.currentThread();
+        writesStarted.incrementAndGet();
+        try {
+            super.restoreState(action);
+        } finally {
+            stamp.incrementAndGet();
+            writesFinished.incrementAndGet();
         }
-        super.resetGame();
     }
 
     public Map<String, Object> getCacheStats() {
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        Entry entry = cached;
+        boolean valid = entry != null && entry.stamp == stamp.get();
         Map<String, Object> stats = new ConcurrentHashMap<>();
-        stats.put("hits", cacheHits.get());
-        stats.put("misses", cacheMisses.get());
-        stats.put("hitRate", (cacheHits.get() + cacheMisses.get() == 0) ? 0 : 
-                  (double) cacheHits.get() / (cacheHits.get() + cacheMisses.get()));
-        stats.put("cacheSize", stateCache.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("uncachedBuilds", uncachedBuilds.sum());
+        stats.put("hitRate", (hits + misses == 0) ? 0 : (double) hits / (hits + misses));
+        stats.put("cacheSize", entry == null ? 0 : 1);
         stats.put("cacheEnabled", cacheEnabled);
-        synchronized(cacheLock) {
-            stats.put("currentCacheStatus", stateDirty.get() ? "invalid" : "valid");
+        stats.put("currentCacheStatus", valid ? "valid" : "invalid");
+        if (entry != null) {
+            stats.put("snapshotVersion", entry.snapshot.getVersion());
+            stats.put("preSerializedBytes", entry.snapshot.getJson() == null ? 0 : entry.snapshot.getJson().length);
         }
         return stats;
     }
-}
\ No newline at end of file
+}
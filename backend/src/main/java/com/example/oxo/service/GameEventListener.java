@@ -0,0 +1,72 @@
+package com.example.oxo.service;
+
+/**
+ * 游戏状态变化的回调，在 GameService 完成修改之后同步调用（调用方持有该局的锁）。
+ * 实现应尽量轻量，不要在回调中做阻塞 I/O。
+ */
+public interface GameEventListener {
+
+	/** 落子已生效（包括胜负/平局判定和轮换） */
+	default void onMove(GameService service, int row, int col, int playerNumber) {
+	}
+
+	default void onPlayersChanged(GameService service, int count) {
+	}
+
+	default void onBoardResized(GameService service, int rows, int cols) {
+	}
+
+	default void onReset(GameService service) {
+	}
+
+	default void onWinThresholdChanged(GameService service, int winThreshold) {
+	}
+
+	/** 整局状态被直接改写（见 {@link GameService#restoreState}）；不对应任何操作，日志不记录，推送需要发出完整状态 */
+	default void onRestored(GameService service) {
+	}
+
+	/** 组合两个监听器，按顺序调用 */
+	static GameEventListener compose(GameEventListener first, GameEventListener second) {
+		if (first == null) {
+			return second;
+		}
+		return new GameEventListener() {
+			@Override
+			public void onMove(GameService service, int row, int col, int playerNumber) {
+				first.onMove(service, row, col, playerNumber);
+				second.onMove(service, row, col, playerNumber);
+			}
+
+			@Override
+			public void onPlayersChanged(GameService service, int count) {
+				first.onPlayersChanged(service, count);
+				second.onPlayersChanged(service, count);
+			}
+
+			@Override
+			public void onBoardResized(GameService service, int rows, int cols) {
+				first.onBoardResized(service, rows, cols);
+				second.onBoardResized(service, rows, cols);
+			}
+
+			@Override
+			public void onReset(GameService service) {
+				first.onReset(service);
+				second.onReset(service);
+			}
+
+			@Override
+			public void onWinThresholdChanged(GameService service, int winThreshold) {
+				first.onWinThresholdChanged(service, winThreshold);
+				second.onWinThresholdChanged(service, winThreshold);
+			}
+
+			@Override
+			public void onRestored(GameService service) {
+				first.onRestored(service);
+				second.onRestored(service);
+			}
+		};
+	}
+}
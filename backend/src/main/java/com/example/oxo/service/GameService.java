@@ -2,36 +2,67 @@
 package com.example.oxo.service;
 
 import com.example.oxo.model.GameModel;
+import com.example.oxo.model.MoveCommand;
+import com.example.oxo.model.MoveHistory;
 import com.example.oxo.model.Player;
 import com.example.oxo.model.MoveException;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
-import static java.lang.Character.toLowerCase;
 import static java.lang.Math.max;
 
 @Service
 public class GameService {
+	/** 玩家字母为 A 起始的大写字母 */
+	public static final int MAX_PLAYERS = 26;
 
 	protected final GameModel gameModel;
+	protected final MoveHistory moveHistory = new MoveHistory();
+	private GameEventListener eventListener;
+	private GameServiceMetrics metrics;
 
 	public GameService() {
-		gameModel = new GameModel(3, 3, 3);
+		this(new GameModel(3, 3, 3));
+	}
+
+	/** 使用指定的棋盘实现（如 {@link com.example.oxo.model.BitboardGameModel}）构造服务 */
+	public GameService(GameModel model) {
+		gameModel = model;
 		gameModel.resetPlayers(2);
 		gameModel.setPlayer(0,new Player('X'));
 		gameModel.setPlayer(1,new Player('O'));
-		for (int i = 0; i < gameModel.getNumberOfRows(); i++) {
-			for (int j = 0; j < gameModel.getNumberOfColumns(); j++) {
-				gameModel.setCellOwner(i, j, null);
-			}
-		}
+		gameModel.clearBoard();
 		gameModel.setWinner(null);
 		gameModel.setGameDrawn(false);
 		gameModel.setCurrentPlayerNumber(0);
 	}
 
 	public Object getGameState() {
+		return getSnapshot().getState();
+	}
+
+	/** 当前版本的完整状态快照（只读） */
+	public GameStateSnapshot getSnapshot() {
+		if (metrics == null) {
+			return buildSnapshot();
+		}
+		long start = System.nanoTime();
+		GameStateSnapshot snapshot = buildSnapshot();
+		metrics.record("getGameState", System.nanoTime() - start, null);
+		return snapshot;
+	}
+
+	/** 带缓存的子类覆盖此方法，getGameState 的计时因此包含缓存命中 */
+	protected GameStateSnapshot buildSnapshot() {
+		return new GameStateSnapshot(moveHistory.getVersion(), buildGameState(), null);
+	}
+
+	/** 按当前棋盘构造完整状态，结果及其中的列表均为只读 */
+	protected Object buildGameState() {
 		var response = new java.util.HashMap<String, Object>();
 		response.put("rows", gameModel.getNumberOfRows());
 		response.put("cols", gameModel.getNumberOfColumns());
@@ -45,117 +76,306 @@ public class GameService {
 		}
 		response.put("winner", gameModel.getWinner() == null ? null : gameModel.getWinner().getPlayingLetter());
 		response.put("drawn", gameModel.isGameDrawn());
-		var board = new ArrayList<ArrayList<Character>>();
+		response.put("version", moveHistory.getVersion());
+		response.put("sparse", gameModel.isSparse());
+		if (gameModel.isSparse()) {
+			// 稀疏棋盘：只输出已落子的格子，避免构造 rows*cols 的二维列表
+			var occupied = new ArrayList<Map<String, Object>>(gameModel.getOccupiedCount());
+			gameModel.forEachOccupiedCell((row, col, owner) -> occupied.add(
+					Map.of("row", row, "col", col, "player", owner.getPlayingLetter())));
+			response.put("cells", Collections.unmodifiableList(occupied));
+			return Collections.unmodifiableMap(response);
+		}
+		var board = new ArrayList<List<Character>>(gameModel.getNumberOfRows());
 		for (int i = 0; i < gameModel.getNumberOfRows(); i++) {
-			board.add(new ArrayList<>());
+			var row = new ArrayList<Character>(gameModel.getNumberOfColumns());
 			for (int j = 0; j < gameModel.getNumberOfColumns(); j++) {
 				Player cellOwner = gameModel.getCellOwner(i, j);
-				board.get(i).add(cellOwner == null ? ' ' : cellOwner.getPlayingLetter());
+				row.add(cellOwner == null ? ' ' : cellOwner.getPlayingLetter());
 			}
+			board.add(Collections.unmodifiableList(row));
+		}
+		response.put("board", Collections.unmodifiableList(board));
+		return Collections.unmodifiableMap(response);
+	}
+
+	/**
+	 * 返回自版本 since 以来的增量状态：只包含之后落下的棋子。
+	 * since 太旧（已被环形缓冲区淘汰，或中间发生过重置/改尺寸）时退回完整快照。
+	 * 直接遍历落子历史和玩家表，调用方需持有该局的锁（见 GameSession#execute）。
+	 */
+	public Object getGameStateSince(long since) {
+		if (!moveHistory.covers(since)) {
+			return getGameState();
+		}
+		var response = new java.util.HashMap<String, Object>();
+		response.put("delta", true);
+		response.put("since", since);
+		response.put("version", moveHistory.getVersion());
+		int currentIndex = gameModel.getCurrentPlayerNumber();
+		if (gameModel.getNumberOfPlayers() > 0 && currentIndex < gameModel.getNumberOfPlayers()) {
+			response.put("currentPlayer", gameModel.getPlayerByNumber(currentIndex).getPlayingLetter());
+		} else {
+			response.put("currentPlayer", null);
 		}
-		response.put("board", board);
+		response.put("winner", gameModel.getWinner() == null ? null : gameModel.getWinner().getPlayingLetter());
+		response.put("drawn", gameModel.isGameDrawn());
+		var changes = new ArrayList<Map<String, Object>>();
+		moveHistory.forEachSince(since, (version, row, col, playerNumber) -> changes.add(
+				Map.of("row", row, "col", col, "player", gameModel.getPlayerByNumber(playerNumber).getPlayingLetter())));
+		response.put("changes", changes);
 		return response;
 	}
 
+	public long getVersion() {
+		return moveHistory.getVersion();
+	}
+
+	public MoveHistory getMoveHistory() {
+		return moveHistory;
+	}
+
+	/** 注册状态变化监听器（推送、持久化等），可多次调用叠加 */
+	public void addGameEventListener(GameEventListener listener) {
+		eventListener = GameEventListener.compose(eventListener, listener);
+	}
+
+	/** 设置服务层耗时统计，null 表示不计时 */
+	public void setMetrics(GameServiceMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * 设置玩家数量（1 到 {@link #MAX_PLAYERS}），棋盘边长小于人数时放大棋盘。
+	 * 放大棋盘和重新开始都包含在这一次变化里，监听器只收到一个 onPlayersChanged。
+	 */
 	public void setPlayers(int count) {
 		if (count < 1) count = 1;
+		if (count > MAX_PLAYERS) count = MAX_PLAYERS;
 		int rows = gameModel.getNumberOfRows();
 		int cols = gameModel.getNumberOfColumns();
 		if (count > rows || count > cols) {
-			setBoardSize(Math.max(rows, count), Math.max(cols, count));
+			gameModel.resizeBoard(Math.max(rows, count), Math.max(cols, count));
 		}
 		gameModel.resetPlayers(count);
 		for (int i = 0; i < count; i++) {
 			char letter = (char) ('A' + i);
 			gameModel.setPlayer(i, new Player(letter));
 		}
-		resetGame();
+		clearGame();
+		if (eventListener != null) {
+			eventListener.onPlayersChanged(this, count);
+		}
 	}
 
 	/**
 	 * [FIX #1] 设置棋盘大小。移除了9x9的硬编码上限，以支持基准测试。
-	 * 保留了最小尺寸为3x3的限制。
+	 * 保留了最小尺寸为3x3的限制。会重新开始对局，监听器只收到 onBoardResized。
 	 */
 	public void setBoardSize(int newRows, int newCols) {
 		if (newRows < 3) newRows = 3;
 		// if (newRows > 9) newRows = 9; // REMOVED
 		if (newCols < 3) newCols = 3;
 		// if (newCols > 9) newCols = 9; // REMOVED
+		// 格子总数不超过 GameModel.MAX_CELLS，超出时缩小列数
+		if ((long) newRows * newCols > GameModel.MAX_CELLS) newCols = (int) (GameModel.MAX_CELLS / newRows);
 
 		gameModel.resizeBoard(newRows, newCols);
-		resetGame();
+		clearGame();
+		if (eventListener != null) {
+			eventListener.onBoardResized(this, newRows, newCols);
+		}
+	}
+
+	/** 设置连成几子获胜，限制在 1 到棋盘较长边之间；会重新开始对局 */
+	public void setWinThreshold(int winThreshold) {
+		int longest = Math.max(gameModel.getNumberOfRows(), gameModel.getNumberOfColumns());
+		if (winThreshold < 1) winThreshold = 1;
+		if (winThreshold > longest) winThreshold = longest;
+
+		gameModel.setWinThreshold(winThreshold);
+		clearGame();
+		if (eventListener != null) {
+			eventListener.onWinThresholdChanged(this, winThreshold);
+		}
 	}
 
+	/**
+	 * 解析并执行一条落子指令（见 {@link MoveCommand}）。非法指令抛出预分配的无堆栈 {@link MoveException}，
+	 * 整个拒绝路径不分配对象，大量非法请求的开销只是解析本身。
+	 */
 	public void handleIncomingCommand(String command) throws MoveException {
+		if (metrics == null) {
+			int result = applyCommand(command);
+			if (result < 0) {
+				throw MoveException.of(result);
+			}
+			return;
+		}
+		long start = System.nanoTime();
+		int result;
+		try {
+			result = applyCommand(command);
+		} catch (RuntimeException e) {
+			metrics.record("handleIncomingCommand", System.nanoTime() - start, e);
+			throw e;
+		}
+		MoveException error = result < 0 ? MoveException.of(result) : null;
+		metrics.record("handleIncomingCommand", System.nanoTime() - start, error);
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * 带版本检查的落子：只有当前版本等于 expectedVersion（客户端看到的状态）时才执行，
+	 * 否则在解析指令之前就抛出 {@link MoveException#VERSION_MISMATCH}，基于过期状态的请求几乎没有开销。
+	 */
+	public void handleIncomingCommand(String command, long expectedVersion) throws MoveException {
+		if (moveHistory.getVersion() != expectedVersion) {
+			throw MoveException.of(MoveException.VERSION_MISMATCH);
+		}
+		handleIncomingCommand(command);
+	}
+
+	/**
+	 * 按顺序执行一批落子指令，遇到第一条非法指令（或游戏已结束）即停止。
+	 * 调用方只需获取一次锁、在最后构造一次状态；缓存等子类也只需失效一次。
+	 */
+	public MoveBatchResult handleIncomingCommands(List<String> commands) {
+		MoveBatchResult result = new MoveBatchResult(commands.size());
+		for (String command : commands) {
+			if (gameModel.isGameDrawn() || gameModel.getWinner() != null) {
+				result.add(command, MoveBatchResult.Status.GAME_OVER, "Game is already over");
+				break;
+			}
+			if (command == null) {
+				result.add(null, MoveBatchResult.Status.REJECTED, "Missing command");
+				break;
+			}
+			int code = applyCommand(command);
+			if (code < 0) {
+				result.add(command, MoveBatchResult.Status.REJECTED, MoveException.of(code).getMessage());
+				break;
+			}
+			result.add(command, MoveBatchResult.Status.APPLIED, null);
+		}
+		return result;
+	}
+
+	/**
+	 * 带版本检查的批量落子：当前版本不等于 expectedVersion 时整批被拒绝（{@link MoveException#VERSION_MISMATCH}），一条也不执行。
+	 * 检查与执行在同一次调用中完成，调用方在该局的锁内调用，两者之间就不会插入其他写入。
+	 */
+	public MoveBatchResult handleIncomingCommands(List<String> commands, long expectedVersion) throws MoveException {
+		if (moveHistory.getVersion() != expectedVersion) {
+			throw MoveException.of(MoveException.VERSION_MISMATCH);
+		}
+		return handleIncomingCommands(commands);
+	}
+
+	// 单条指令的解析与落子，handleIncomingCommand 和批量接口共用；返回 0 或 MoveException 的错误码
+	private int applyCommand(String command) {
 		if (gameModel.getNumberOfPlayers() == 0) {
-			throw new MoveException("No players set. Please set players first.");
+			return MoveException.NO_PLAYERS;
 		}
 		if (gameModel.isGameDrawn() || gameModel.getWinner() != null) {
-			return;
+			return 0;
 		}
-		if (command.length() != 2) {
-			throw new MoveException.InvalidIdentifierLengthException(command.length());
+		long parsed = MoveCommand.parse(command);
+		if (MoveCommand.isError(parsed)) {
+			return (int) parsed;
 		}
-		char rowChar = toLowerCase(command.charAt(0));
-		if (!Character.isLowerCase(rowChar)) {
-			throw new MoveException.InvalidIdentifierCharacterException(
-					MoveException.InvalidIdentifierCharacterException.CharacterType.ROW, rowChar
-			);
+		return placeMove(MoveCommand.row(parsed), MoveCommand.col(parsed));
+	}
+
+	/**
+	 * 按坐标落子（0 起始），规则校验与 handleIncomingCommand 相同。
+	 * 供日志回放、AI 等已经持有坐标的调用方使用，跳过指令解析。
+	 */
+	public void handleMove(int row, int col) throws MoveException {
+		if (gameModel.getNumberOfPlayers() == 0) {
+			throw MoveException.of(MoveException.NO_PLAYERS);
 		}
-		int row = rowChar - 'a';
-		char colChar = command.charAt(1);
-		if (!Character.isDigit(colChar)) {
-			throw new MoveException.InvalidIdentifierCharacterException(
-					MoveException.InvalidIdentifierCharacterException.CharacterType.COLUMN, colChar
-			);
+		if (gameModel.isGameDrawn() || gameModel.getWinner() != null) {
+			return;
 		}
-		int col = Character.getNumericValue(colChar) - 1;
+		int result = placeMove(row, col);
+		if (result < 0) {
+			throw MoveException.of(result);
+		}
+	}
+
+	private int placeMove(int row, int col) {
 		if (row < 0 || row >= gameModel.getNumberOfRows()) {
-			throw new MoveException.OutsideCellRangeException(
-					MoveException.OutsideCellRangeException.CellInfo.ROW, row
-			);
+			return MoveException.ROW_OUT_OF_RANGE;
 		}
 		if (col < 0 || col >= gameModel.getNumberOfColumns()) {
-			throw new MoveException.OutsideCellRangeException(
-					MoveException.OutsideCellRangeException.CellInfo.COLUMN, col
-			);
+			return MoveException.COLUMN_OUT_OF_RANGE;
 		}
 		if (gameModel.getCellOwner(row, col) != null) {
-			throw new MoveException.CellAlreadyTakenException(row, col);
+			return MoveException.CELL_TAKEN;
 		}
 		int currPlayer = gameModel.getCurrentPlayerNumber();
 		gameModel.setCellOwner(row, col, gameModel.getPlayerByNumber(currPlayer));
-		if (checkForWinner(row, col)) {
+		moveHistory.recordMove(row, col, currPlayer);
+		if (timedCheckForWinner(row, col)) {
 			gameModel.setWinner(gameModel.getPlayerByNumber(currPlayer));
-			return;
+		} else {
+			if (checkForDraw()) {
+				gameModel.setGameDrawn(true);
+			}
+			int newPlayer = (currPlayer + 1) % gameModel.getNumberOfPlayers();
+			gameModel.setCurrentPlayerNumber(newPlayer);
+		}
+		if (eventListener != null) {
+			eventListener.onMove(this, row, col, currPlayer);
 		}
-		if (checkForDraw()) {
-			gameModel.setGameDrawn(true);
+		return 0;
+	}
+
+	private boolean timedCheckForWinner(int row, int col) {
+		if (metrics == null) {
+			return checkForWinner(row, col);
+		}
+		long start = System.nanoTime();
+		boolean won = checkForWinner(row, col);
+		metrics.record("checkForWinner", System.nanoTime() - start, null);
+		return won;
+	}
+
+	/**
+	 * 绕过落子规则直接改写棋盘、玩家和版本号（如从快照恢复），改写在 action 中完成。
+	 * 先清空棋盘，但不发出 reset 事件：否则日志会记下一条 RESET，回放时把恢复出的棋盘清空。
+	 * 结束后只发出 onRestored，恢复出的状态需要由调用方另行持久化（快照）。
+	 * 带缓存的子类据此把整个过程视为一次写操作，读者不会缓存到恢复了一半的状态。
+	 */
+	public void restoreState(Runnable action) {
+		clearGame();
+		action.run();
+		if (eventListener != null) {
+			eventListener.onRestored(this);
 		}
-		int newPlayer = (currPlayer + 1) % gameModel.getNumberOfPlayers();
-		gameModel.setCurrentPlayerNumber(newPlayer);
 	}
 
 	public void resetGame() {
-		for (int i = 0; i < gameModel.getNumberOfRows(); i++) {
-			for (int j = 0; j < gameModel.getNumberOfColumns(); j++) {
-				gameModel.setCellOwner(i, j, null);
-			}
+		clearGame();
+		if (eventListener != null) {
+			eventListener.onReset(this);
 		}
+	}
+
+	// 清空棋盘并重新开始，不通知监听器：改尺寸、改玩家等操作自己发出对应的事件
+	private void clearGame() {
+		gameModel.clearBoard();
+		moveHistory.reset();
 		gameModel.setWinner(null);
 		gameModel.setGameDrawn(false);
 		gameModel.setCurrentPlayerNumber(0);
 	}
 
 	private boolean checkForDraw() {
-		for (int i = 0; i < gameModel.getNumberOfRows(); i++) {
-			for (int j = 0; j < gameModel.getNumberOfColumns(); j++) {
-				if (gameModel.getCellOwner(i, j) == null) {
-					return false;
-				}
-			}
-		}
-		return true;
+		return gameModel.isBoardFull();
 	}
 
 	public boolean checkForWinner(int row, int col) {
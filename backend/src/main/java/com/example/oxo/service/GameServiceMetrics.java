@@ -0,0 +1,12 @@
+package com.example.oxo.service;
+
+/**
+ * 服务层方法耗时的回调（handleIncomingCommand、checkForWinner、getGameState），由监控模块实现。
+ * 未设置时服务不调用 System.nanoTime()，没有额外开销。
+ */
+@FunctionalInterface
+public interface GameServiceMetrics {
+
+	/** error 为 null 表示正常返回，否则为方法抛出的异常 */
+	void record(String method, long durationNanos, Throwable error);
+}
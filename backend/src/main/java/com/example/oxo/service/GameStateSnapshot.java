@@ -0,0 +1,31 @@
+package com.example.oxo.service;
+
+/**
+ * 某一版本的完整状态，构造后不可变，可以在线程间任意共享。
+ * state 为 getGameState() 的结果（只读 Map），json 为预先序列化好的 JSON 字节，未启用时为 null。
+ */
+public final class GameStateSnapshot {
+	private final long version;
+	private final Object state;
+	private final byte[] json;
+
+	public GameStateSnapshot(long version, Object state, byte[] json) {
+		this.version = version;
+		this.state = state;
+		this.json = json;
+	}
+
+	/** 构造时的 {@link GameService#getVersion()} */
+	public long getVersion() {
+		return version;
+	}
+
+	public Object getState() {
+		return state;
+	}
+
+	/** 共享的字节数组，调用方只能读取，不能修改 */
+	public byte[] getJson() {
+		return json;
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.oxo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 批量落子的结果：逐条记录每个指令的处理情况，遇到第一条失败的指令即停止 */
+public class MoveBatchResult {
+
+	public enum Status { APPLIED, REJECTED, GAME_OVER }
+
+	public static class MoveResult {
+		private final String command;
+		private final Status status;
+		private final String error;
+
+		public MoveResult(String command, Status status, String error) {
+			this.command = command;
+			this.status = status;
+			this.error = error;
+		}
+
+		public String getCommand() {
+			return command;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	private final List<MoveResult> results;
+	private int appliedCount;
+
+	public MoveBatchResult(int expectedSize) {
+		this.results = new ArrayList<>(expectedSize);
+	}
+
+	void add(String command, Status status, String error) {
+		results.add(new MoveResult(command, status, error));
+		if (status == Status.APPLIED) {
+			appliedCount++;
+		}
+	}
+
+	public List<MoveResult> getResults() {
+		return results;
+	}
+
+	public int getAppliedCount() {
+		return appliedCount;
+	}
+
+	/** 是否所有指令都已成功落子 */
+	public boolean isComplete() {
+		return appliedCount == results.size();
+	}
+}
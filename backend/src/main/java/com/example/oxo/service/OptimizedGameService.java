@@ -1,5 +1,6 @@
 package com.example.oxo.service;
 
+import com.example.oxo.model.BitboardGameModel;
 import com.example.oxo.model.GameModel;
 import com.example.oxo.model.Player;
 
@@ -9,13 +10,30 @@ public class OptimizedGameService extends GameService {
     private static final int[][] DIRECTIONS = {
         {0, 1}, {1, 0}, {1, 1}, {1, -1}
     };
+
+    public OptimizedGameService() {
+        super();
+    }
+
+    public OptimizedGameService(GameModel model) {
+        super(model);
+    }
     
     @Override
     public boolean checkForWinner(int row, int col) {
         // 缓存常用对象和值，减少方法调用开销
         GameModel gameModel = super.getGameModel();
-        char targetLetter = super.getCurrentPlayerLetter();
+        // 位棋盘：直接用移位与判断连线，不再逐格比较 Player
+        if (gameModel instanceof BitboardGameModel bitboard) {
+            return bitboard.hasLineThrough(gameModel.getCurrentPlayerNumber(), row, col);
+        }
         int winThreshold = gameModel.getWinThreshold();
+        // 增量连线索引：刚落下的棋子直接得到最长连线，O(1)
+        int lastRun = gameModel.getLastPlacedRunLength(row, col);
+        if (lastRun >= 0) {
+            return lastRun >= winThreshold;
+        }
+        char targetLetter = super.getCurrentPlayerLetter();
         int rows = gameModel.getNumberOfRows();
         int cols = gameModel.getNumberOfColumns();
         
@@ -0,0 +1,213 @@
+package com.example.oxo.simulation;
+
+import com.example.oxo.matchmaking.Geometry;
+import com.example.oxo.model.BitboardGameModel;
+import com.example.oxo.model.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 规则与平衡性分析用的并行自对弈：不经过 HTTP 和 GameService，直接在位棋盘上下棋，
+ * 胜负判定用 {@link BitboardGameModel#hasLineThrough}（与 OptimizedGameService 相同的连线判定）。
+ *
+ * 对局按块分给并行流（ForkJoin 公共池，默认用满所有核心）。每个线程复用一个 {@link Worker}：
+ * 位棋盘、玩家对象和格子排列都只在规格变化时分配，之后每局只清空棋盘，落子不分配任何对象。
+ * 每块用自己的随机数种子（seed + 块号），同样的参数和种子得到同样的结果，与线程调度和核心数无关。
+ *
+ * 命令行：SelfPlaySimulator 局数 策略 规格...，例如 1000000 random 3x3/3/2 7x7/4/3
+ */
+public final class SelfPlaySimulator {
+
+	/** 落子策略 */
+	public enum Policy {
+		/** 在空格中均匀随机 */
+		RANDOM,
+		/** 能连成就连成，否则堵下家的必胜点，否则随机 */
+		HEURISTIC;
+
+		public static Policy fromParam(String value) {
+			if (value == null || value.isBlank()) {
+				return RANDOM;
+			}
+			try {
+				return Policy.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown policy: " + value + " (expected random or heuristic)");
+			}
+		}
+	}
+
+	// 每块的对局数下限（块太小时调度开销比下棋还大）和块数上限；分块与核心数无关，结果在不同机器上也一致
+	private static final int MIN_GAMES_PER_CHUNK = 256;
+	private static final int MAX_CHUNKS = 1024;
+
+	// 按线程复用，规格变化时重建
+	private static final ThreadLocal<Worker> WORKERS = new ThreadLocal<>();
+
+	private SelfPlaySimulator() {
+	}
+
+	public static SimulationReport run(Geometry geometry, long games, Policy policy, long seed) {
+		if (games < 1) {
+			throw new IllegalArgumentException("Game count must be positive: " + games);
+		}
+		int chunks = (int) Math.max(1, Math.min(MAX_CHUNKS, games / MIN_GAMES_PER_CHUNK));
+		long start = System.nanoTime();
+		long[] counts = IntStream.range(0, chunks)
+				.parallel()
+				.mapToObj(chunk -> playChunk(geometry, games / chunks + (chunk < games % chunks ? 1 : 0), policy,
+						seed + chunk))
+				.reduce(SelfPlaySimulator::merge)
+				.orElseThrow();
+		long elapsed = System.nanoTime() - start;
+
+		int players = geometry.getPlayers();
+		long[] wins = new long[players];
+		System.arraycopy(counts, 0, wins, 0, players);
+		long[] lengths = new long[counts.length - players - 1];
+		System.arraycopy(counts, players + 1, lengths, 0, lengths.length);
+		return new SimulationReport(geometry, policy, wins, counts[players], lengths, elapsed);
+	}
+
+	// 结果数组：[0, players) 各座位胜局，[players] 和局，其后为对局长度（手数 0..格子数）的直方图
+	private static long[] playChunk(Geometry geometry, long games, Policy policy, long seed) {
+		Worker worker = WORKERS.get();
+		if (worker == null || !worker.geometry.equals(geometry)) {
+			worker = new Worker(geometry);
+			WORKERS.set(worker);
+		}
+		worker.resetOrder();
+		int players = geometry.getPlayers();
+		long[] counts = new long[players + 1 + worker.cells + 1];
+		SplittableRandom random = new SplittableRandom(seed);
+		boolean heuristic = policy == Policy.HEURISTIC;
+		for (long g = 0; g < games; g++) {
+			int outcome = worker.play(random, heuristic);
+			int winner = outcome & 0xFF;
+			counts[winner == 0xFF ? players : winner]++;
+			counts[players + 1 + (outcome >>> 8)]++;
+		}
+		return counts;
+	}
+
+	private static long[] merge(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++) {
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	/** 一个线程的棋盘和临时数组 */
+	private static final class Worker {
+		final Geometry geometry;
+		final BitboardGameModel model;
+		final Player[] players;
+		final int cols;
+		final int cells;
+		// 格子编号的排列：第 k 手之前 order[0, k) 为已落子的格子，order[k, cells) 为空格
+		final int[] order;
+		// 本局各座位的棋子数：不足 winThreshold - 1 个时不可能一步连成，启发式不必试放
+		final int[] stones;
+		final int winThreshold;
+
+		Worker(Geometry geometry) {
+			this.geometry = geometry;
+			this.model = new BitboardGameModel(geometry.getRows(), geometry.getCols(), geometry.getWinThreshold());
+			this.players = new Player[geometry.getPlayers()];
+			model.resetPlayers(players.length);
+			for (int i = 0; i < players.length; i++) {
+				players[i] = new Player((char) ('A' + i));
+				model.setPlayer(i, players[i]);
+			}
+			this.cols = geometry.getCols();
+			this.cells = geometry.getRows() * cols;
+			this.order = new int[cells];
+			this.stones = new int[players.length];
+			this.winThreshold = geometry.getWinThreshold();
+		}
+
+		// 每块从同一个排列开始，结果只取决于块的种子，而不取决于这个线程之前跑过哪些块
+		void resetOrder() {
+			for (int i = 0; i < cells; i++) {
+				order[i] = i;
+			}
+		}
+
+		/**
+		 * 下一整局，返回 (手数 << 8) | 胜者座位，和局时座位为 0xFF。
+		 * 排列不必在每局开始时复原：从剩余空格中均匀抽取，任何初始顺序都得到均匀的随机对局。
+		 */
+		int play(SplittableRandom random, boolean heuristic) {
+			model.clearBoard();
+			Arrays.fill(stones, 0);
+			int seat = 0;
+			for (int k = 0; k < cells; k++) {
+				int pick = heuristic ? heuristicPick(random, k, seat) : k + random.nextInt(cells - k);
+				int cell = order[pick];
+				order[pick] = order[k];
+				order[k] = cell;
+				int row = cell / cols;
+				int col = cell - row * cols;
+				model.setCellOwner(row, col, players[seat]);
+				stones[seat]++;
+				if (model.hasLineThrough(seat, row, col)) {
+					return ((k + 1) << 8) | seat;
+				}
+				seat = seat + 1 == players.length ? 0 : seat + 1;
+			}
+			return (cells << 8) | 0xFF;
+		}
+
+		private int heuristicPick(SplittableRandom random, int k, int seat) {
+			int win = findLine(k, seat);
+			if (win >= 0) {
+				return win;
+			}
+			int block = findLine(k, seat + 1 == players.length ? 0 : seat + 1);
+			if (block >= 0) {
+				return block;
+			}
+			return k + random.nextInt(cells - k);
+		}
+
+		// 在空格中找一个能让 seat 立即连成的位置，返回其在 order 中的下标；试放后撤回
+		private int findLine(int k, int seat) {
+			if (stones[seat] < winThreshold - 1) {
+				return -1;
+			}
+			for (int i = k; i < cells; i++) {
+				int cell = order[i];
+				int row = cell / cols;
+				int col = cell - row * cols;
+				model.setCellOwner(row, col, players[seat]);
+				boolean line = model.hasLineThrough(seat, row, col);
+				model.setCellOwner(row, col, null);
+				if (line) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: SelfPlaySimulator GAMES random|heuristic ROWSxCOLS/THRESHOLD/PLAYERS...");
+			System.exit(2);
+		}
+		long games = Long.parseLong(args[0].replace("_", ""));
+		Policy policy = Policy.fromParam(args[1]);
+		List<Geometry> geometries = new ArrayList<>();
+		for (int i = 2; i < args.length; i++) {
+			geometries.add(Geometry.parse(args[i]));
+		}
+		System.out.printf("%d cores, seed 1%n", Runtime.getRuntime().availableProcessors());
+		for (Geometry geometry : geometries) {
+			System.out.println(run(geometry, games, policy, 1L));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.oxo.simulation;
+
+import com.example.oxo.matchmaking.Geometry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一种规格的自对弈结果：各座位（先手为 0）的胜局数、和局数、对局长度分布和吞吐。
+ * 胜率附带 95% 置信区间的半宽（正态近似），用来判断局数是否足够区分两种规则。
+ */
+public final class SimulationReport {
+	private final Geometry geometry;
+	private final SelfPlaySimulator.Policy policy;
+	private final long games;
+	private final long[] wins;
+	private final long draws;
+	private final long[] lengthCounts;  // lengthCounts[n] 为恰好 n 手结束的局数
+	private final long elapsedNanos;
+
+	SimulationReport(Geometry geometry, SelfPlaySimulator.Policy policy, long[] wins, long draws, long[] lengthCounts,
+			long elapsedNanos) {
+		this.geometry = geometry;
+		this.policy = policy;
+		this.wins = wins;
+		this.draws = draws;
+		this.lengthCounts = lengthCounts;
+		this.elapsedNanos = elapsedNanos;
+		long total = draws;
+		for (long w : wins) {
+			total += w;
+		}
+		this.games = total;
+	}
+
+	public Geometry getGeometry() {
+		return geometry;
+	}
+
+	public SelfPlaySimulator.Policy getPolicy() {
+		return policy;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getWins(int seat) {
+		return wins[seat];
+	}
+
+	public long getDraws() {
+		return draws;
+	}
+
+	public double getWinRate(int seat) {
+		return games == 0 ? 0 : (double) wins[seat] / games;
+	}
+
+	public double getDrawRate() {
+		return games == 0 ? 0 : (double) draws / games;
+	}
+
+	/** 比例 p 的 95% 置信区间半宽 */
+	public double getMarginOfError(double p) {
+		return games == 0 ? 0 : 1.96 * Math.sqrt(p * (1 - p) / games);
+	}
+
+	public double getGamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+	}
+
+	public double getMeanLength() {
+		long moves = 0;
+		for (int n = 0; n < lengthCounts.length; n++) {
+			moves += n * lengthCounts[n];
+		}
+		return games == 0 ? 0 : (double) moves / games;
+	}
+
+	/** 对局长度（手数）的 q 分位数 */
+	public int getLengthPercentile(double q) {
+		long rank = (long) Math.ceil(q * games);
+		long seen = 0;
+		for (int n = 0; n < lengthCounts.length; n++) {
+			seen += lengthCounts[n];
+			if (seen >= rank && seen > 0) {
+				return n;
+			}
+		}
+		return lengthCounts.length - 1;
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> seats = new LinkedHashMap<>();
+		for (int seat = 0; seat < wins.length; seat++) {
+			seats.put(String.valueOf((char) ('A' + seat)), Map.of("wins", wins[seat], "winRate", getWinRate(seat)));
+		}
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("geometry", geometry.toMap());
+		map.put("policy", policy.name().toLowerCase());
+		map.put("games", games);
+		map.put("gamesPerSecond", getGamesPerSecond());
+		map.put("seats", seats);
+		map.put("draws", draws);
+		map.put("drawRate", getDrawRate());
+		map.put("firstPlayerWinRateMargin", getMarginOfError(getWinRate(0)));
+		map.put("length", Map.of("mean", getMeanLength(), "p50", getLengthPercentile(0.5),
+				"p90", getLengthPercentile(0.9), "max", getLengthPercentile(1.0)));
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(128);
+		text.append(String.format("%-12s %-9s %,12d games %,12.0f games/s ", geometry, policy.name().toLowerCase(),
+				games, getGamesPerSecond()));
+		for (int seat = 0; seat < wins.length; seat++) {
+			text.append(String.format(" %c %5.1f%%", (char) ('A' + seat), 100 * getWinRate(seat)));
+		}
+		text.append(String.format("  draw %5.1f%%  (±%.2f%%)  length mean %.1f p50 %d p90 %d", 100 * getDrawRate(),
+				100 * getMarginOfError(getWinRate(0)), getMeanLength(), getLengthPercentile(0.5),
+				getLengthPercentile(0.9)));
+		return text.toString();
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.oxo.stream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所有事件流共享的推送线程池和配置。
+ * 落子线程只负责把编码好的事件放入各订阅者的有界队列，真正的网络写入在这里的线程池中完成。
+ *
+ * SseEmitter.send 是阻塞写，客户端不读时会一直占住写出线程，complete() 也无法打断它。
+ * 看门狗定期检查正在进行的写入，超过 sendTimeoutMillis 的订阅者被断开，
+ * 同时线程池临时多开一个线程顶替被卡住的线程（最多 maxStalledSends 个），其他游戏的推送不受影响。
+ * 卡住的写入最终由容器的写超时结束，届时线程池恢复原来的大小。
+ */
+public class GameEventHub {
+
+	/** 正在写出的订阅者，看门狗据此判断写入是否卡住 */
+	interface Writer {
+		/** 写入已超时：断开订阅者，不再接收新事件 */
+		void abortStalledSend();
+	}
+
+	private final ThreadPoolExecutor dispatcher;
+	private final ScheduledExecutorService watchdog;
+	private final int dispatcherThreads;
+	private final int maxStalledSends;
+	private final long sendTimeoutNanos;
+	private final int queueCapacity;
+	private final long emitterTimeoutMillis;
+	// 写入开始的时间；写入结束时移除
+	private final Map<Writer, Long> sendsInProgress = new ConcurrentHashMap<>();
+	// 已超时并断开的写入，值表示线程池是否为它多开了一个线程
+	private final Map<Writer, Boolean> stalledSends = new ConcurrentHashMap<>();
+	final AtomicLong eventsPublished = new AtomicLong(0);
+	final AtomicLong slowConsumersDropped = new AtomicLong(0);
+	final AtomicLong stalledSendsAborted = new AtomicLong(0);
+	final AtomicInteger activeSubscribers = new AtomicInteger(0);
+
+	public GameEventHub(int dispatcherThreads, int queueCapacity, long emitterTimeoutMillis,
+						long sendTimeoutMillis, int maxStalledSends) {
+		AtomicInteger threadIndex = new AtomicInteger(0);
+		this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "oxo-events-" + threadIndex.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "oxo-events-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.dispatcherThreads = dispatcherThreads;
+		this.maxStalledSends = maxStalledSends;
+		this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+		this.queueCapacity = queueCapacity;
+		this.emitterTimeoutMillis = emitterTimeoutMillis;
+		long period = Math.max(10, sendTimeoutMillis / 4);
+		watchdog.scheduleWithFixedDelay(this::abortStalledSends, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/** 为一局游戏创建事件流，需要由调用方注册为该局 GameService 的监听器 */
+	public GameEventStream newStream() {
+		return new GameEventStream(this);
+	}
+
+	ThreadPoolExecutor getDispatcher() {
+		return dispatcher;
+	}
+
+	int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	long getEmitterTimeoutMillis() {
+		return emitterTimeoutMillis;
+	}
+
+	void sendStarted(Writer writer) {
+		sendsInProgress.put(writer, System.nanoTime());
+	}
+
+	void sendFinished(Writer writer) {
+		sendsInProgress.remove(writer);
+		if (Boolean.TRUE.equals(stalledSends.remove(writer))) {
+			resizeDispatcher(-1);
+		}
+	}
+
+	private void abortStalledSends() {
+		long now = System.nanoTime();
+		for (Map.Entry<Writer, Long> entry : sendsInProgress.entrySet()) {
+			Writer writer = entry.getKey();
+			if (now - entry.getValue() < sendTimeoutNanos || stalledSends.containsKey(writer)) {
+				continue;
+			}
+			stalledSendsAborted.incrementAndGet();
+			writer.abortStalledSend();
+			// 达到上限后不再补线程，卡住的线程由剩余的线程分担。
+			// 先扩容再做标记，sendFinished 看到标记时缩容必然在扩容之后
+			boolean replace = dispatcher.getCorePoolSize() - dispatcherThreads < maxStalledSends;
+			if (replace) {
+				resizeDispatcher(1);
+			}
+			stalledSends.put(writer, replace);
+			// 写入可能恰好在此期间结束，sendFinished 没有看到标记
+			if (!sendsInProgress.containsKey(writer) && Boolean.TRUE.equals(stalledSends.remove(writer))) {
+				resizeDispatcher(-1);
+			}
+		}
+	}
+
+	// 扩大时先调最大值，缩小时先调核心数，任何时刻都满足 core <= max
+	private synchronized void resizeDispatcher(int delta) {
+		int size = dispatcher.getCorePoolSize() + delta;
+		if (delta > 0) {
+			dispatcher.setMaximumPoolSize(size);
+			dispatcher.setCorePoolSize(size);
+		} else {
+			dispatcher.setCorePoolSize(size);
+			dispatcher.setMaximumPoolSize(size);
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new ConcurrentHashMap<>();
+		stats.put("activeSubscribers", activeSubscribers.get());
+		stats.put("eventsPublished", eventsPublished.get());
+		stats.put("slowConsumersDropped", slowConsumersDropped.get());
+		stats.put("stalledSendsAborted", stalledSendsAborted.get());
+		stats.put("stalledSends", stalledSends.size());
+		stats.put("dispatcherThreads", dispatcher.getCorePoolSize());
+		stats.put("queueCapacity", queueCapacity);
+		return stats;
+	}
+
+	public void shutdown() {
+		watchdog.shutdownNow();
+		dispatcher.shutdownNow();
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.oxo.stream;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.Player;
+import com.example.oxo.service.GameService;
+
+/**
+ * 推送事件的 JSON 内容，MVC（SseEmitter）和 WebFlux 两套推送共用，保证两边的事件格式一致。
+ * 直接拼接字符串，不经过 Jackson。
+ */
+public final class GameEventJson {
+
+	private GameEventJson() {
+	}
+
+	/** 一次落子：坐标、落子玩家，以及之后轮到谁、胜负 */
+	public static String move(GameService service, int row, int col, int playerNumber) {
+		GameModel model = service.getGameModel();
+		StringBuilder json = new StringBuilder(128);
+		json.append("{\"type\":\"move\",\"version\":").append(service.getVersion())
+				.append(",\"row\":").append(row)
+				.append(",\"col\":").append(col)
+				.append(",\"player\":");
+		appendLetter(json, model.getPlayerByNumber(playerNumber));
+		appendStatus(json, model);
+		json.append('}');
+		return json.toString();
+	}
+
+	// 结构变化事件只携带尺寸和版本号，客户端据此重新拉取完整状态
+	public static String state(String type, GameService service) {
+		GameModel model = service.getGameModel();
+		StringBuilder json = new StringBuilder(160);
+		json.append("{\"type\":\"").append(type).append("\",\"version\":").append(service.getVersion())
+				.append(",\"rows\":").append(model.getNumberOfRows())
+				.append(",\"cols\":").append(model.getNumberOfColumns())
+				.append(",\"winThreshold\":").append(model.getWinThreshold())
+				.append(",\"playerCount\":").append(model.getNumberOfPlayers());
+		appendStatus(json, model);
+		json.append('}');
+		return json.toString();
+	}
+
+	private static void appendStatus(StringBuilder json, GameModel model) {
+		json.append(",\"currentPlayer\":");
+		int current = model.getCurrentPlayerNumber();
+		appendLetter(json, current < model.getNumberOfPlayers() ? model.getPlayerByNumber(current) : null);
+		json.append(",\"winner\":");
+		appendLetter(json, model.getWinner());
+		json.append(",\"drawn\":").append(model.isGameDrawn());
+	}
+
+	private static void appendLetter(StringBuilder json, Player player) {
+		if (player == null) {
+			json.append("null");
+		} else {
+			json.append('"').append(player.getPlayingLetter()).append('"');
+		}
+	}
+}
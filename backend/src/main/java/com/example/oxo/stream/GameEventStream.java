@@ -0,0 +1,181 @@
+package com.example.oxo.stream;
+
+import com.example.oxo.service.GameEventListener;
+import com.example.oxo.service.GameService;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一局游戏的 Server-Sent Events 推送。
+ * 每个事件只编码一次，同一个事件对象被放入所有订阅者的有界队列；
+ * 队列满（客户端读得太慢）时直接断开该订阅者，不会拖慢落子或其他观战者；
+ * 单次写入卡住超过时限的订阅者由 {@link GameEventHub} 的看门狗断开，不会长期占住共享的写出线程。
+ */
+public class GameEventStream implements GameEventListener {
+
+	private final GameEventHub hub;
+	private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	GameEventStream(GameEventHub hub) {
+		this.hub = hub;
+	}
+
+	/** 新增订阅者，并立即推送一个携带当前版本号的 hello 事件 */
+	public SseEmitter subscribe(GameService service) {
+		SseEmitter emitter = new SseEmitter(hub.getEmitterTimeoutMillis());
+		Subscriber subscriber = new Subscriber(emitter);
+		emitter.onCompletion(() -> remove(subscriber));
+		emitter.onTimeout(() -> remove(subscriber));
+		emitter.onError(error -> remove(subscriber));
+		subscribers.add(subscriber);
+		hub.activeSubscribers.incrementAndGet();
+		subscriber.offer(encode("hello", service.getVersion(), GameEventJson.state("hello", service)));
+		return emitter;
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	/** 结束所有订阅（例如该局已移交给其他节点） */
+	public void closeAll() {
+		for (Subscriber subscriber : subscribers) {
+			remove(subscriber);
+			subscriber.emitter.complete();
+		}
+	}
+
+	// --- GameEventListener ---
+	@Override
+	public void onMove(GameService service, int row, int col, int playerNumber) {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+		publish(encode("move", service.getVersion(), GameEventJson.move(service, row, col, playerNumber)));
+	}
+
+	@Override
+	public void onPlayersChanged(GameService service, int count) {
+		publishState("players", service);
+	}
+
+	@Override
+	public void onBoardResized(GameService service, int rows, int cols) {
+		publishState("resize", service);
+	}
+
+	@Override
+	public void onReset(GameService service) {
+		publishState("reset", service);
+	}
+
+	@Override
+	public void onWinThresholdChanged(GameService service, int winThreshold) {
+		publishState("winThreshold", service);
+	}
+
+	@Override
+	public void onRestored(GameService service) {
+		publishState("restored", service);
+	}
+
+	private void publishState(String type, GameService service) {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+		publish(encode(type, service.getVersion(), GameEventJson.state(type, service)));
+	}
+
+	private static Set<ResponseBodyEmitter.DataWithMediaType> encode(String name, long version, String json) {
+		byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+		return SseEmitter.event()
+				.id(Long.toString(version))
+				.name(name)
+				.data(payload, MediaType.APPLICATION_JSON)
+				.build();
+	}
+
+	private void publish(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+		hub.eventsPublished.incrementAndGet();
+		for (Subscriber subscriber : subscribers) {
+			if (!subscriber.offer(event)) {
+				hub.slowConsumersDropped.incrementAndGet();
+				remove(subscriber);
+				subscriber.emitter.complete();
+			}
+		}
+	}
+
+	private void remove(Subscriber subscriber) {
+		if (subscribers.remove(subscriber)) {
+			hub.activeSubscribers.decrementAndGet();
+		}
+	}
+
+	/** 订阅者：有界队列 + 单线程排空，保证同一订阅者的事件按顺序写出 */
+	private final class Subscriber implements GameEventHub.Writer {
+		private final SseEmitter emitter;
+		private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+		private final AtomicBoolean draining = new AtomicBoolean(false);
+
+		Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+			this.queue = new ArrayBlockingQueue<>(hub.getQueueCapacity());
+		}
+
+		boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+			if (!queue.offer(event)) {
+				return false;
+			}
+			scheduleDrain();
+			return true;
+		}
+
+		private void scheduleDrain() {
+			if (draining.compareAndSet(false, true)) {
+				hub.getDispatcher().execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			try {
+				Set<ResponseBodyEmitter.DataWithMediaType> event;
+				while ((event = queue.poll()) != null) {
+					hub.sendStarted(this);
+					try {
+						emitter.send(event);
+					} finally {
+						hub.sendFinished(this);
+					}
+				}
+			} catch (IOException | IllegalStateException e) {
+				// 客户端已断开
+				queue.clear();
+				remove(this);
+				emitter.completeWithError(e);
+			} finally {
+				draining.set(false);
+				if (!queue.isEmpty()) {
+					scheduleDrain();
+				}
+			}
+		}
+
+		// 看门狗线程调用，此时 drain 仍阻塞在 send 中
+		@Override
+		public void abortStalledSend() {
+			remove(this);
+			queue.clear();
+			emitter.complete();
+		}
+	}
+}
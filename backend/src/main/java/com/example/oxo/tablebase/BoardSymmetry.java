@@ -0,0 +1,67 @@
+package com.example.oxo.tablebase;
+
+/**
+ * n x n 棋盘的 8 种对称变换（4 种旋转 × 是否镜像），作用于每格 2 位打包的局面键。
+ * 规范形式取 8 个变换结果中（无符号）最小的一个，对称的局面共用一条记录。
+ */
+final class BoardSymmetry {
+	static final int COUNT = 8;
+
+	final int size;
+	final int cells;
+	// forward[t][i]：格子 i 经变换 t 后的位置；inverse 为其逆
+	final int[][] forward;
+	final int[][] inverse;
+
+	BoardSymmetry(int size) {
+		this.size = size;
+		this.cells = size * size;
+		this.forward = new int[COUNT][cells];
+		this.inverse = new int[COUNT][cells];
+		for (int t = 0; t < COUNT; t++) {
+			for (int r = 0; r < size; r++) {
+				for (int c = 0; c < size; c++) {
+					int rr = r;
+					int cc = c;
+					if ((t & 4) != 0) {
+						cc = size - 1 - cc;  // 镜像
+					}
+					for (int k = 0; k < (t & 3); k++) {
+						int tmp = rr;  // 顺时针旋转 90 度
+						rr = cc;
+						cc = size - 1 - tmp;
+					}
+					forward[t][r * size + c] = rr * size + cc;
+					inverse[t][rr * size + cc] = r * size + c;
+				}
+			}
+		}
+	}
+
+	int transform(int key, int t) {
+		int[] map = forward[t];
+		int result = 0;
+		for (int i = 0; i < cells; i++) {
+			int value = (key >>> (2 * i)) & 3;
+			result |= value << (2 * map[i]);
+		}
+		return result;
+	}
+
+	/** 规范键；transformOut[0] 返回得到规范键所用的变换（可为 null） */
+	int canonical(int key, int[] transformOut) {
+		int best = key;
+		int bestT = 0;
+		for (int t = 1; t < COUNT; t++) {
+			int candidate = transform(key, t);
+			if (Integer.compareUnsigned(candidate, best) < 0) {
+				best = candidate;
+				bestT = t;
+			}
+		}
+		if (transformOut != null) {
+			transformOut[0] = bestT;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,153 @@
+package com.example.oxo.tablebase;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 内存映射的残局库文件（由 {@link TablebaseGenerator} 生成）。文件格式（小端）：
+ * <pre>
+ *   头部 32 字节：magic "OXTB" formatVersion size winThreshold slotCount entryCount reserved(8)
+ *   slotCount 个 8 字节槽位：规范局面键(4) 结果(1) 距终局步数(1) 最佳着法(1，规范朝向下的格子下标) 保留(1)
+ * </pre>
+ * 局面键为每格 2 位（0 空，1 先手，2 后手）的行优先打包；槽位按键的哈希开放寻址、线性探测，
+ * 因此查询是常数时间：一次规范化（8 种对称变换）加上几次内存读取，不做任何搜索。
+ */
+public class Tablebase implements Closeable {
+	static final int MAGIC = 0x4254584F;  // "OXTB"
+	static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int SLOT_SIZE = 8;
+	static final int EMPTY_KEY = -1;
+
+	static final byte LOSS = 0;
+	static final byte DRAW = 1;
+	static final byte WIN = 2;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int size;
+	private final int winThreshold;
+	private final int slotCount;
+	private final int entryCount;
+	private final BoardSymmetry symmetry;
+
+	private Tablebase(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Not a tablebase file");
+		}
+		this.size = buffer.getInt(8);
+		this.winThreshold = buffer.getInt(12);
+		this.slotCount = buffer.getInt(16);
+		this.entryCount = buffer.getInt(20);
+		if (Integer.bitCount(slotCount) != 1 || buffer.capacity() < HEADER_SIZE + (long) slotCount * SLOT_SIZE) {
+			throw new IOException("Truncated tablebase file");
+		}
+		this.symmetry = new BoardSymmetry(size);
+	}
+
+	public static Tablebase open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new Tablebase(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public boolean covers(GameModel model) {
+		return model.getNumberOfRows() == size && model.getNumberOfColumns() == size
+				&& model.getWinThreshold() == winThreshold && model.getNumberOfPlayers() == 2;
+	}
+
+	/**
+	 * 查询 model 当前局面。几何不匹配、局面已结束、轮到的玩家与棋子数不符（非标准开局）时返回 null。
+	 */
+	public TablebaseMove lookup(GameModel model) {
+		if (!covers(model) || model.getWinner() != null || model.isGameDrawn()) {
+			return null;
+		}
+		Player first = model.getPlayerByNumber(0);
+		int key = 0;
+		int firstCount = 0;
+		int secondCount = 0;
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				Player owner = model.getCellOwner(r, c);
+				if (owner == null) {
+					continue;
+				}
+				int value = owner == first ? 1 : 2;
+				key |= value << (2 * (r * size + c));
+				if (value == 1) {
+					firstCount++;
+				} else {
+					secondCount++;
+				}
+			}
+		}
+		int expectedPlayer = firstCount == secondCount ? 0 : 1;
+		if (model.getCurrentPlayerNumber() != expectedPlayer || firstCount - secondCount > 1 || firstCount < secondCount) {
+			return null;
+		}
+		return lookup(key);
+	}
+
+	/** 按局面键查询（每格 2 位，行优先） */
+	TablebaseMove lookup(int key) {
+		int[] transform = new int[1];
+		int canonical = symmetry.canonical(key, transform);
+		int mask = slotCount - 1;
+		int slot = slotOf(canonical, slotCount);
+		for (int probes = 0; probes < slotCount; probes++) {
+			int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			int stored = buffer.getInt(offset);
+			if (stored == EMPTY_KEY) {
+				return null;
+			}
+			if (stored == canonical) {
+				int move = symmetry.inverse[transform[0]][buffer.get(offset + 6)];
+				return new TablebaseMove(move / size, move % size, buffer.get(offset + 4), buffer.get(offset + 5));
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	static int slotOf(int key, int slotCount) {
+		int h = key * 0x9E3779B1;
+		return (h ^ (h >>> 16)) & (slotCount - 1);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getWinThreshold() {
+		return winThreshold;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	public long getFileBytes() {
+		return buffer.capacity();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
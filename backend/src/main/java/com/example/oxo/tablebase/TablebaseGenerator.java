@@ -0,0 +1,292 @@
+package com.example.oxo.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 离线求解 n x n 棋盘（两名玩家、winThreshold 连线）的所有可达局面，写出 {@link Tablebase} 文件。
+ * 从空棋盘出发做完整的 negamax，按对称规范形式记忆化，每个未结束的局面记录：
+ * 轮到的一方的结果（胜/和/负）、最优着法下距离终局的步数、最佳着法。
+ * 获胜方选最快的赢法，失败方选最慢的输法。
+ *
+ * 用法：java ... TablebaseGenerator &lt;size&gt; &lt;winThreshold&gt; &lt;output file&gt;
+ */
+public class TablebaseGenerator {
+	static final int MAX_SIZE = 4;
+	// 分值：胜 = WIN - 步数，负 = -(WIN - 步数)，和 = 0
+	private static final int WIN = 100;
+
+	private final int size;
+	private final int winThreshold;
+	private final int cells;
+	private final BoardSymmetry symmetry;
+	private final int[][] linesThrough;  // 经过每个格子的所有连线（格子位掩码）
+	private final IntIntMap memo = new IntIntMap(1 << 16);
+
+	public TablebaseGenerator(int size, int winThreshold) {
+		if (size < 1 || size > MAX_SIZE || winThreshold < 1 || winThreshold > size) {
+			throw new IllegalArgumentException("Unsupported tablebase geometry: " + size + "x" + size + "/" + winThreshold);
+		}
+		this.size = size;
+		this.winThreshold = winThreshold;
+		this.cells = size * size;
+		this.symmetry = new BoardSymmetry(size);
+		this.linesThrough = buildLines(size, winThreshold);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: TablebaseGenerator <size> <winThreshold> <output file>");
+			System.exit(2);
+		}
+		int size = Integer.parseInt(args[0]);
+		int winThreshold = Integer.parseInt(args[1]);
+		long start = System.currentTimeMillis();
+		int entries = new TablebaseGenerator(size, winThreshold).generate(Path.of(args[2]));
+		System.out.println("Solved " + entries + " positions in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/** 求解并写出文件，返回记录的局面数 */
+	public int generate(Path output) throws IOException {
+		solve(0);
+		int entries = memo.size();
+		// 负载因子不超过 2/3，线性探测的平均探测次数仍在 2 次以内
+		int slotCount = Integer.highestOneBit(Math.max(2, entries + entries / 2)) << 1;
+		ByteBuffer slots = ByteBuffer.allocate(slotCount * Tablebase.SLOT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (int s = 0; s < slotCount; s++) {
+			slots.putInt(s * Tablebase.SLOT_SIZE, Tablebase.EMPTY_KEY);
+		}
+		memo.forEach((key, packed) -> {
+			int score = (byte) (packed >>> 8);
+			int move = packed & 0xFF;
+			int slot = Tablebase.slotOf(key, slotCount);
+			while (slots.getInt(slot * Tablebase.SLOT_SIZE) != Tablebase.EMPTY_KEY) {
+				slot = (slot + 1) & (slotCount - 1);
+			}
+			int offset = slot * Tablebase.SLOT_SIZE;
+			slots.putInt(offset, key);
+			if (score > 0) {
+				slots.put(offset + 4, Tablebase.WIN);
+				slots.put(offset + 5, (byte) (WIN - score));
+			} else if (score < 0) {
+				slots.put(offset + 4, Tablebase.LOSS);
+				slots.put(offset + 5, (byte) (WIN + score));
+			} else {
+				slots.put(offset + 4, Tablebase.DRAW);
+				slots.put(offset + 5, (byte) (cells - Integer.bitCount(occupied(key))));
+			}
+			slots.put(offset + 6, (byte) move);
+		});
+
+		ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(Tablebase.MAGIC).putInt(Tablebase.FORMAT_VERSION).putInt(size)
+				.putInt(winThreshold).putInt(slotCount).putInt(entries).flip();
+		Path parent = output.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			channel.write(header, 0);
+			slots.rewind();
+			long position = Tablebase.HEADER_SIZE;
+			while (slots.hasRemaining()) {
+				position += channel.write(slots, position);
+			}
+			channel.force(true);
+		}
+		Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return entries;
+	}
+
+	/**
+	 * 返回规范局面 key 对轮到的一方的分值，并把 (分值, 最佳着法) 记入 memo。
+	 * 调用方保证 key 是规范形式且局面未结束。
+	 */
+	private int solve(int key) {
+		int known = memo.get(key);
+		if (known != IntIntMap.MISSING) {
+			return (byte) (known >>> 8);
+		}
+		// 格子值 1 为先手，2 为后手；双方棋子数相同时轮到先手
+		int first = 0;
+		int second = 0;
+		for (int i = 0; i < cells; i++) {
+			int value = (key >>> (2 * i)) & 3;
+			if (value == 1) {
+				first |= 1 << i;
+			} else if (value == 2) {
+				second |= 1 << i;
+			}
+		}
+		int toMove = Integer.bitCount(first) == Integer.bitCount(second) ? 1 : 2;
+		int own = toMove == 1 ? first : second;
+		int occupied = first | second;
+		int best = Integer.MIN_VALUE;
+		int bestMove = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if ((occupied & (1 << cell)) != 0) {
+				continue;
+			}
+			int score;
+			if (completesLine(own | (1 << cell), cell)) {
+				score = WIN - 1;
+			} else if (Integer.bitCount(occupied) + 1 == cells) {
+				score = 0;
+			} else {
+				int child = symmetry.canonical(key | (toMove << (2 * cell)), null);
+				score = -solve(child);
+				if (score > 0) {
+					score--;
+				} else if (score < 0) {
+					score++;
+				}
+			}
+			if (score > best) {
+				best = score;
+				bestMove = cell;
+			}
+		}
+		memo.put(key, ((best & 0xFF) << 8) | bestMove);
+		return best;
+	}
+
+	private boolean completesLine(int own, int cell) {
+		for (int line : linesThrough[cell]) {
+			if ((own & line) == line) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[][] buildLines(int n, int threshold) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		int[][] result = new int[n * n][];
+		int[] counts = new int[n * n];
+		int[] lines = new int[4 * n * n];
+		int lineCount = 0;
+		for (int r = 0; r < n; r++) {
+			for (int c = 0; c < n; c++) {
+				for (int[] d : directions) {
+					int er = r + d[0] * (threshold - 1);
+					int ec = c + d[1] * (threshold - 1);
+					if (er < 0 || er >= n || ec < 0 || ec >= n) {
+						continue;
+					}
+					int mask = 0;
+					for (int k = 0; k < threshold; k++) {
+						mask |= 1 << ((r + d[0] * k) * n + c + d[1] * k);
+					}
+					lines[lineCount++] = mask;
+				}
+			}
+		}
+		for (int cell = 0; cell < n * n; cell++) {
+			for (int l = 0; l < lineCount; l++) {
+				if ((lines[l] & (1 << cell)) != 0) {
+					counts[cell]++;
+				}
+			}
+			result[cell] = new int[counts[cell]];
+			int k = 0;
+			for (int l = 0; l < lineCount; l++) {
+				if ((lines[l] & (1 << cell)) != 0) {
+					result[cell][k++] = lines[l];
+				}
+			}
+		}
+		return result;
+	}
+
+	private int occupied(int key) {
+		int mask = 0;
+		for (int i = 0; i < cells; i++) {
+			if (((key >>> (2 * i)) & 3) != 0) {
+				mask |= 1 << i;
+			}
+		}
+		return mask;
+	}
+
+	/** 生成用的 int -> int 开放寻址表，避免百万级局面的装箱开销 */
+	static final class IntIntMap {
+		static final int MISSING = Integer.MIN_VALUE;
+
+		interface Visitor {
+			void visit(int key, int value);
+		}
+
+		private int[] keys;
+		private int[] values;
+		private int size;
+
+		IntIntMap(int capacity) {
+			keys = new int[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, Tablebase.EMPTY_KEY);
+		}
+
+		int get(int key) {
+			int mask = keys.length - 1;
+			int slot = Tablebase.slotOf(key, keys.length);
+			while (keys[slot] != Tablebase.EMPTY_KEY) {
+				if (keys[slot] == key) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return MISSING;
+		}
+
+		void put(int key, int value) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+			}
+			int mask = keys.length - 1;
+			int slot = Tablebase.slotOf(key, keys.length);
+			while (keys[slot] != Tablebase.EMPTY_KEY && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if (keys[slot] == Tablebase.EMPTY_KEY) {
+				size++;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void forEach(Visitor visitor) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != Tablebase.EMPTY_KEY) {
+					visitor.visit(keys[i], values[i]);
+				}
+			}
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new int[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			Arrays.fill(keys, Tablebase.EMPTY_KEY);
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != Tablebase.EMPTY_KEY) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.oxo.tablebase;
+
+/** 残局库的查询结果：最佳着法，以及双方都走最优时轮到的一方的结果和距终局的步数 */
+public class TablebaseMove {
+	private final int row;
+	private final int col;
+	private final byte outcome;
+	private final int pliesToEnd;
+
+	TablebaseMove(int row, int col, byte outcome, int pliesToEnd) {
+		this.row = row;
+		this.col = col;
+		this.outcome = outcome;
+		this.pliesToEnd = pliesToEnd;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getCol() {
+		return col;
+	}
+
+	/** win / draw / loss，均为轮到的一方视角 */
+	public String getOutcome() {
+		return switch (outcome) {
+			case Tablebase.WIN -> "win";
+			case Tablebase.LOSS -> "loss";
+			default -> "draw";
+		};
+	}
+
+	/** 双方最优应对下到终局还需的步数（双方各走一步算两步） */
+	public int getPliesToEnd() {
+		return pliesToEnd;
+	}
+}
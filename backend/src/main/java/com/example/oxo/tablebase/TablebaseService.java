@@ -0,0 +1,111 @@
+package com.example.oxo.tablebase;
+
+import com.example.oxo.model.GameModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 管理多个几何的残局库：启动时映射目录下已有的文件。
+ * 缺失的文件默认跳过，应事先用 {@link TablebaseGenerator#main} 离线生成；generateMissing 为 true 时在启动阶段现场生成（4x4 需要几秒）。
+ * 查询只读映射内存，线程安全。未启用时所有查询返回 null。
+ */
+public class TablebaseService implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(TablebaseService.class);
+
+	private final List<Tablebase> tablebases = new ArrayList<>();
+	private final AtomicLong lookups = new AtomicLong(0);
+	private final AtomicLong hits = new AtomicLong(0);
+
+	/**
+	 * @param geometries 形如 "3x3" 表示 3x3 棋盘连 3，"4x4/3" 表示 4x4 棋盘连 3
+	 */
+	public static TablebaseService create(boolean enabled, Path directory, List<String> geometries, boolean generateMissing) {
+		TablebaseService service = new TablebaseService();
+		if (!enabled) {
+			return service;
+		}
+		for (String geometry : geometries) {
+			String spec = geometry.trim();
+			if (spec.isEmpty()) {
+				continue;
+			}
+			int slash = spec.indexOf('/');
+			String[] dims = (slash < 0 ? spec : spec.substring(0, slash)).split("x");
+			int size = Integer.parseInt(dims[0].trim());
+			if (dims.length != 2 || Integer.parseInt(dims[1].trim()) != size) {
+				throw new IllegalArgumentException("Tablebases are only supported for square boards: " + spec);
+			}
+			int winThreshold = slash < 0 ? size : Integer.parseInt(spec.substring(slash + 1).trim());
+			Path file = directory.resolve("tablebase-" + size + "x" + size + "-" + winThreshold + ".bin");
+			try {
+				if (!Files.exists(file)) {
+					if (!generateMissing) {
+						log.warn("Tablebase {} not found, skipping; generate it with TablebaseGenerator {} {} {}",
+								file, size, winThreshold, file);
+						continue;
+					}
+					long start = System.currentTimeMillis();
+					int entries = new TablebaseGenerator(size, winThreshold).generate(file);
+					log.info("Generated tablebase {} ({} positions, {} ms)", file, entries, System.currentTimeMillis() - start);
+				}
+				service.tablebases.add(Tablebase.open(file));
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot load tablebase " + file, e);
+			}
+		}
+		return service;
+	}
+
+	/** 查询 model 的当前局面，没有对应的残局库或局面不在库中时返回 null */
+	public TablebaseMove lookup(GameModel model) {
+		if (tablebases.isEmpty()) {
+			return null;
+		}
+		lookups.incrementAndGet();
+		for (Tablebase tablebase : tablebases) {
+			if (tablebase.covers(model)) {
+				TablebaseMove move = tablebase.lookup(model);
+				if (move != null) {
+					hits.incrementAndGet();
+				}
+				return move;
+			}
+		}
+		return null;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		List<String> loaded = new ArrayList<>();
+		long bytes = 0;
+		long entries = 0;
+		for (Tablebase tablebase : tablebases) {
+			loaded.add(tablebase.getSize() + "x" + tablebase.getSize() + "/" + tablebase.getWinThreshold());
+			bytes += tablebase.getFileBytes();
+			entries += tablebase.getEntryCount();
+		}
+		stats.put("geometries", loaded);
+		stats.put("positions", entries);
+		stats.put("mappedBytes", bytes);
+		stats.put("lookups", lookups.get());
+		stats.put("hits", hits.get());
+		return stats;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Tablebase tablebase : tablebases) {
+			tablebase.close();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.oxo.wire;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.Player;
+import com.example.oxo.service.GameService;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 读取 {@link BoardStateEncoder#encodePacked} 写出的 PACKED 格式并恢复到一局游戏中。
+ * 直接从 ByteBuffer（可以是内存映射文件）解析，不先拷贝成 byte[]。
+ */
+public final class BoardStateDecoder {
+	private static final int NONE = 0xFF;
+
+	private BoardStateDecoder() {
+	}
+
+	/**
+	 * 从 in 的当前位置读取一个完整状态，覆盖 service 的棋盘、玩家、回合、胜负和版本号。
+	 * 读取结束后 in 的位置停在该状态之后。
+	 */
+	public static void restorePacked(ByteBuffer in, GameService service) {
+		// 先检查格式头，不是 PACKED 状态时不清空 service
+		int start = in.position();
+		if (in.remaining() < 3 || in.get(start) != 'O' || in.get(start + 1) != 'X' || in.get(start + 2) != 1) {
+			throw new IllegalArgumentException("Not a packed board state");
+		}
+		service.restoreState(() -> decodeInto(in, service));
+	}
+
+	// 由 restoreState 调用，棋盘已清空且不会发出 reset 事件
+	private static void decodeInto(ByteBuffer in, GameService service) {
+		in.position(in.position() + 3);
+		int rows = (int) readVarint(in);
+		int cols = (int) readVarint(in);
+		int winThreshold = (int) readVarint(in);
+		long version = readVarint(in);
+		int playerCount = in.get() & 0xFF;
+
+		GameModel model = service.getGameModel();
+		model.resetPlayers(playerCount);
+		for (int p = 0; p < playerCount; p++) {
+			model.setPlayer(p, new Player((char) (in.get() & 0xFF)));
+		}
+		model.resizeBoard(rows, cols);
+		model.setWinThreshold(winThreshold);
+		int current = in.get() & 0xFF;
+		int winner = in.get() & 0xFF;
+		int flags = in.get() & 0xFF;
+		int bitsPerCell = in.get() & 0xFF;
+		int mask = (1 << bitsPerCell) - 1;
+
+		long totalCells = (long) rows * cols;
+		long cursor = 0;
+		while (cursor < totalCells) {
+			cursor += readVarint(in);
+			int runLength = (int) readVarint(in);
+			int acc = 0;
+			int available = 0;
+			for (int k = 0; k < runLength; k++) {
+				if (available == 0) {
+					acc = in.get() & 0xFF;
+					available = 8;
+				}
+				int playerIndex = acc & mask;
+				acc >>>= bitsPerCell;
+				available -= bitsPerCell;
+				model.setCellOwner((int) (cursor / cols), (int) (cursor % cols), model.getPlayerByNumber(playerIndex));
+				cursor++;
+			}
+		}
+
+		model.setCurrentPlayerNumber(current == NONE ? 0 : current);
+		model.setWinner(winner == NONE ? null : model.getPlayerByNumber(winner));
+		model.setGameDrawn((flags & 1) != 0);
+		service.getMoveHistory().restore(version);
+	}
+
+	private static long readVarint(ByteBuffer in) {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+			shift += 7;
+		}
+	}
+}
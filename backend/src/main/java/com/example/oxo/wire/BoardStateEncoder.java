@@ -0,0 +1,219 @@
+package com.example.oxo.wire;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.Player;
+import com.example.oxo.service.GameService;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑格式的棋盘状态序列化器：直接从 GameModel 写出字节，不构造 Map/List 等中间集合。
+ *
+ * ROWS 格式（application/vnd.oxo.rows+json）与默认 JSON 字段相同，只是 board 为每行一个字符串。
+ * 它总是写出 rows*cols 个字符，稀疏棋盘和超出数组上限的棋盘不支持（见 {@link #supportsRows}）。
+ *
+ * PACKED 格式（application/vnd.oxo.packed），整数均为无符号 LEB128 varint：
+ * <pre>
+ *   'O' 'X' 格式版本(1)
+ *   rows cols winThreshold version
+ *   playerCount(1 字节) 各玩家字母(各 1 字节)
+ *   currentPlayer winner(1 字节，玩家下标，0xFF 表示无) flags(1 字节，bit0 平局)
+ *   bitsPerCell(1 字节，2/4/8)
+ *   重复 { emptyRun occupiedRun 打包的玩家下标 } 直到覆盖 rows*cols 个格子
+ * </pre>
+ * 每段连续的已落子格子按 bitsPerCell 打包（低位在前），字节对齐；空白格子只记录长度。
+ * 玩家下标只占 1 字节（0xFF 保留为"无"），玩家数不能超过 {@link #MAX_PLAYERS}。
+ */
+public final class BoardStateEncoder {
+	private static final int NONE = 0xFF;
+	public static final int MAX_PLAYERS = NONE - 1;
+	// 留出数组对象头，与 JDK 集合的上限相同
+	private static final long MAX_OUTPUT_BYTES = Integer.MAX_VALUE - 8;
+	private static final int ROWS_HEADER_BYTES = 160;
+
+	private BoardStateEncoder() {
+	}
+
+	public static byte[] encode(WireFormat format, GameService service) {
+		return switch (format) {
+			case ROWS -> encodeRows(service);
+			case PACKED -> encodePacked(service);
+			case JSON -> throw new IllegalArgumentException("JSON is produced by Jackson");
+		};
+	}
+
+	/** ROWS 格式能否表示该棋盘：非稀疏，且输出不超过一个数组的上限 */
+	public static boolean supportsRows(GameModel model) {
+		return !model.isSparse() && rowsCapacity(model) <= MAX_OUTPUT_BYTES;
+	}
+
+	/** 不支持的棋盘（见 {@link #supportsRows}）抛出 IllegalArgumentException */
+	public static byte[] encodeRows(GameService service) {
+		GameModel model = service.getGameModel();
+		if (!supportsRows(model)) {
+			throw new IllegalArgumentException("Board is too large for the rows format: "
+					+ model.getNumberOfRows() + "x" + model.getNumberOfColumns());
+		}
+		int rows = model.getNumberOfRows();
+		int cols = model.getNumberOfColumns();
+		ByteSink out = new ByteSink((int) rowsCapacity(model));
+		out.writeAscii("{\"rows\":");
+		out.writeLong(rows);
+		out.writeAscii(",\"cols\":");
+		out.writeLong(cols);
+		out.writeAscii(",\"winThreshold\":");
+		out.writeLong(model.getWinThreshold());
+		out.writeAscii(",\"playerCount\":");
+		out.writeLong(model.getNumberOfPlayers());
+		out.writeAscii(",\"currentPlayer\":");
+		writeLetter(out, currentPlayer(model));
+		out.writeAscii(",\"winner\":");
+		writeLetter(out, model.getWinner());
+		out.writeAscii(model.isGameDrawn() ? ",\"drawn\":true" : ",\"drawn\":false");
+		out.writeAscii(",\"version\":");
+		out.writeLong(service.getVersion());
+		out.writeAscii(",\"board\":[");
+		long[] occupied = sortedOccupiedCells(model);
+		int next = 0;
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				out.writeByte(',');
+			}
+			out.writeByte('"');
+			out.ensureCapacity(cols);
+			long rowStart = (long) i * cols;
+			for (int j = 0; j < cols; j++) {
+				if (next < occupied.length && position(occupied[next]) == rowStart + j) {
+					out.writeByte(model.getPlayerByNumber(playerIndex(occupied[next])).getPlayingLetter());
+					next++;
+				} else {
+					out.writeByte(' ');
+				}
+			}
+			out.writeByte('"');
+		}
+		out.writeAscii("]}");
+		return out.toByteArray();
+	}
+
+	/** 玩家数超过 {@link #MAX_PLAYERS} 时抛出 IllegalArgumentException */
+	public static byte[] encodePacked(GameService service) {
+		GameModel model = service.getGameModel();
+		int playerCount = model.getNumberOfPlayers();
+		int bitsPerCell = playerCount <= 4 ? 2 : playerCount <= 16 ? 4 : 8;
+		long[] occupied = sortedOccupiedCells(model);
+		ByteSink out = new ByteSink((int) Math.min(MAX_OUTPUT_BYTES,
+				64 + (long) occupied.length * bitsPerCell / 8 + occupied.length / 4));
+		out.writeByte('O');
+		out.writeByte('X');
+		out.writeByte(1);
+		out.writeVarint(model.getNumberOfRows());
+		out.writeVarint(model.getNumberOfColumns());
+		out.writeVarint(model.getWinThreshold());
+		out.writeVarint(service.getVersion());
+		out.writeByte(playerCount);
+		for (int p = 0; p < playerCount; p++) {
+			out.writeByte(model.getPlayerByNumber(p).getPlayingLetter());
+		}
+		Player current = currentPlayer(model);
+		out.writeByte(current == null ? NONE : model.getCurrentPlayerNumber());
+		out.writeByte(model.getWinner() == null ? NONE : indexOf(model, model.getWinner()));
+		out.writeByte(model.isGameDrawn() ? 1 : 0);
+		out.writeByte(bitsPerCell);
+
+		long totalCells = (long) model.getNumberOfRows() * model.getNumberOfColumns();
+		long cursor = 0;
+		int i = 0;
+		while (i < occupied.length) {
+			int runStart = i;
+			long runPosition = position(occupied[i]);
+			while (i + 1 < occupied.length && position(occupied[i + 1]) == position(occupied[i]) + 1) {
+				i++;
+			}
+			i++;
+			int runLength = i - runStart;
+			out.writeVarint(runPosition - cursor);
+			out.writeVarint(runLength);
+			writePackedRun(out, occupied, runStart, runLength, bitsPerCell);
+			cursor = runPosition + runLength;
+		}
+		if (cursor < totalCells) {
+			out.writeVarint(totalCells - cursor);
+			out.writeVarint(0);
+		}
+		return out.toByteArray();
+	}
+
+	private static void writePackedRun(ByteSink out, long[] occupied, int from, int length, int bitsPerCell) {
+		int acc = 0;
+		int filled = 0;
+		for (int k = 0; k < length; k++) {
+			acc |= playerIndex(occupied[from + k]) << filled;
+			filled += bitsPerCell;
+			if (filled == 8) {
+				out.writeByte(acc);
+				acc = 0;
+				filled = 0;
+			}
+		}
+		if (filled > 0) {
+			out.writeByte(acc);
+		}
+	}
+
+	/**
+	 * 收集已落子格子，每项为 (行优先位置 << 8 | 玩家下标)，按位置排序。
+	 * 稠密棋盘的遍历本身就是行优先的，稀疏/位棋盘需要排序。
+	 */
+	private static long[] sortedOccupiedCells(GameModel model) {
+		if (model.getNumberOfPlayers() > MAX_PLAYERS) {
+			throw new IllegalArgumentException("Too many players for the compact formats: " + model.getNumberOfPlayers());
+		}
+		long[] entries = new long[model.getOccupiedCount()];
+		int cols = model.getNumberOfColumns();
+		int[] count = {0};
+		model.forEachOccupiedCell((row, col, owner) ->
+				entries[count[0]++] = (((long) row * cols + col) << 8) | indexOf(model, owner));
+		Arrays.sort(entries, 0, count[0]);
+		return count[0] == entries.length ? entries : Arrays.copyOf(entries, count[0]);
+	}
+
+	private static long rowsCapacity(GameModel model) {
+		return ROWS_HEADER_BYTES + (long) model.getNumberOfRows() * (model.getNumberOfColumns() + 3);
+	}
+
+	private static long position(long entry) {
+		return entry >>> 8;
+	}
+
+	private static int playerIndex(long entry) {
+		return (int) (entry & 0xFF);
+	}
+
+	private static int indexOf(GameModel model, Player player) {
+		for (int p = 0; p < model.getNumberOfPlayers(); p++) {
+			if (model.getPlayerByNumber(p) == player) {
+				return p;
+			}
+		}
+		return NONE;
+	}
+
+	private static Player currentPlayer(GameModel model) {
+		int currentIndex = model.getCurrentPlayerNumber();
+		if (model.getNumberOfPlayers() > 0 && currentIndex < model.getNumberOfPlayers()) {
+			return model.getPlayerByNumber(currentIndex);
+		}
+		return null;
+	}
+
+	private static void writeLetter(ByteSink out, Player player) {
+		if (player == null) {
+			out.writeAscii("null");
+			return;
+		}
+		out.writeByte('"');
+		out.writeByte(player.getPlayingLetter());
+		out.writeByte('"');
+	}
+}
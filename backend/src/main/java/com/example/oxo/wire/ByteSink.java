@@ -0,0 +1,59 @@
+package com.example.oxo.wire;
+
+import java.util.Arrays;
+
+/** 可增长的字节缓冲区，序列化时直接写入，避免中间集合和 OutputStream 包装 */
+class ByteSink {
+	private byte[] buffer;
+	private int size;
+
+	ByteSink(int initialCapacity) {
+		buffer = new byte[Math.max(16, initialCapacity)];
+	}
+
+	void writeByte(int b) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) b;
+	}
+
+	/** 无符号 LEB128 变长整数 */
+	void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	void writeAscii(String s) {
+		ensureCapacity(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			buffer[size++] = (byte) s.charAt(i);
+		}
+	}
+
+	void writeLong(long value) {
+		writeAscii(Long.toString(value));
+	}
+
+	void writeBytes(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, size, length);
+		size += length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	byte[] toByteArray() {
+		return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+	}
+
+	void ensureCapacity(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+		}
+	}
+}
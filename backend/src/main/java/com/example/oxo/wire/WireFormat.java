@@ -0,0 +1,37 @@
+package com.example.oxo.wire;
+
+/**
+ * 棋盘状态的输出格式，通过 Accept 请求头选择。
+ * 未指定或无法识别时使用默认的 Jackson JSON（嵌套数组）。
+ */
+public enum WireFormat {
+	/** 默认：Jackson 序列化 getGameState() 的结果 */
+	JSON("application/json"),
+	/** JSON，但棋盘每行是一个字符串，如 ["X O", " X "] */
+	ROWS("application/vnd.oxo.rows+json"),
+	/** 二进制：每格 2/4/8 bit 打包，空白区域做游程编码，见 {@link BoardStateEncoder} */
+	PACKED("application/vnd.oxo.packed");
+
+	private final String mediaType;
+
+	WireFormat(String mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	public static WireFormat fromAcceptHeader(String accept) {
+		if (accept == null) {
+			return JSON;
+		}
+		if (accept.contains(PACKED.mediaType)) {
+			return PACKED;
+		}
+		if (accept.contains(ROWS.mediaType)) {
+			return ROWS;
+		}
+		return JSON;
+	}
+}
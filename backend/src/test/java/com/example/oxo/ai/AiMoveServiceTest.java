@@ -0,0 +1,129 @@
+package com.example.oxo.ai;
+
+import com.example.oxo.service.GameService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiMoveServiceTest {
+
+	/** 0 使用默认预算；负数和超过上限的预算被拒绝，默认预算本身也不超过上限 */
+	@Test
+	void budgetIsValidatedAgainstTheConfiguredMaximum() {
+		AiMoveService service = new AiMoveService(10, 500, 8, 1, 1024);
+		try {
+			service.setMaxBudgetMillis(2000);
+			assertEquals(500, service.budgetMillis(0));
+			assertEquals(2000, service.budgetMillis(2000));
+			assertThrows(IllegalArgumentException.class, () -> service.budgetMillis(-1));
+			assertThrows(IllegalArgumentException.class, () -> service.budgetMillis(2001));
+			assertThrows(IllegalArgumentException.class, () -> service.budgetMillis(Long.MAX_VALUE));
+
+			service.setMaxBudgetMillis(100);
+			assertEquals(100, service.budgetMillis(0));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	/** 搜索器都在使用中时，超过等待时限的请求抛出 AiBusyException，而不是无限期排队 */
+	@Test
+	void mctsRequestsBeyondTheSearcherPoolFailFast() throws InterruptedException, ExecutionException {
+		AiMoveService service = new AiMoveService(10, 500, 8, 2, 1 << 16);
+		try {
+			service.setMctsSearchers(1, 50);
+			AiMoveService.Position position = service.capture(newGame());
+			CompletableFuture<AiMove> running = CompletableFuture.supplyAsync(
+					() -> service.findBestMove(position, 1000, AiMoveService.Engine.MCTS));
+			while (service.getStats().get("mctsSearchers").equals(0)) {
+				Thread.sleep(1);
+			}
+			assertThrows(AiBusyException.class, () -> service.findBestMove(position, 100, AiMoveService.Engine.MCTS));
+			assertNotNull(running.get());
+			assertEquals(1L, service.getStats().get("mctsRejected"));
+			// 搜索器归还后可以再次使用
+			assertNotNull(service.findBestMove(position, 50, AiMoveService.Engine.MCTS));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	/** 池中有两个搜索器时，两个搜索同时进行，都能完成 */
+	@Test
+	void concurrentMctsSearchesUseSeparateSearchers() throws InterruptedException, ExecutionException {
+		AiMoveService service = new AiMoveService(10, 500, 8, 2, 1 << 16);
+		try {
+			service.setMctsSearchers(2, 50);
+			AiMoveService.Position position = service.capture(newGame());
+			CompletableFuture<AiMove> first = CompletableFuture.supplyAsync(
+					() -> service.findBestMove(position, 300, AiMoveService.Engine.MCTS));
+			CompletableFuture<AiMove> second = CompletableFuture.supplyAsync(
+					() -> service.findBestMove(position, 300, AiMoveService.Engine.MCTS));
+			assertNotNull(first.get());
+			assertNotNull(second.get());
+			assertEquals(0L, service.getStats().get("mctsRejected"));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	/** alpha-beta 搜索器同样有上限：很多线程轮流搜索也只分配池大小个置换表，池满时限时等待后失败 */
+	@Test
+	void alphaBetaSearchersAreBoundedAcrossThreads() throws InterruptedException, ExecutionException {
+		AiMoveService service = new AiMoveService(10, 500, 8, 1, 1024);
+		try {
+			service.setAlphaBetaSearchers(2, 5000);
+			GameService small = new GameService();
+			List<CompletableFuture<AiMove>> searches = new ArrayList<>();
+			ExecutorService threads = Executors.newFixedThreadPool(8);
+			for (int i = 0; i < 32; i++) {
+				// alpha-beta 在局面副本上原地落子和撤销，每个并发的搜索各用一份
+				AiMoveService.Position solved = service.capture(small);
+				searches.add(CompletableFuture.supplyAsync(
+						() -> service.findBestMove(solved, 100, AiMoveService.Engine.ALPHA_BETA), threads));
+			}
+			for (CompletableFuture<AiMove> search : searches) {
+				assertNotNull(search.get());
+			}
+			threads.shutdown();
+			assertTrue((Integer) service.getStats().get("alphaBetaSearchers") <= 2);
+			assertEquals(0L, service.getStats().get("alphaBetaRejected"));
+		} finally {
+			service.shutdown();
+		}
+
+		AiMoveService busy = new AiMoveService(10, 500, 64, 1, 1024);
+		try {
+			busy.setAlphaBetaSearchers(1, 50);
+			AiMoveService.Position position = busy.capture(newGame());
+			CompletableFuture<AiMove> running = CompletableFuture.supplyAsync(
+					() -> busy.findBestMove(position, 1000, AiMoveService.Engine.ALPHA_BETA));
+			while (busy.getStats().get("alphaBetaSearchers").equals(0)) {
+				Thread.sleep(1);
+			}
+			assertThrows(AiBusyException.class, () -> busy.findBestMove(position, 100, AiMoveService.Engine.ALPHA_BETA));
+			assertNotNull(running.get());
+			assertEquals(1L, busy.getStats().get("alphaBetaRejected"));
+		} finally {
+			busy.shutdown();
+		}
+	}
+
+	private static GameService newGame() {
+		GameService game = new GameService();
+		game.setBoardSize(15, 15);
+		game.setPlayers(2);
+		game.setWinThreshold(5);
+		return game;
+	}
+}
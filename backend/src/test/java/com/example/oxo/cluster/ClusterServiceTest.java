@@ -0,0 +1,196 @@
+package com.example.oxo.cluster;
+
+import com.example.oxo.model.MoveException;
+import com.example.oxo.persistence.GameJournal;
+import com.example.oxo.persistence.GamePersistence;
+import com.example.oxo.registry.GameMovedException;
+import com.example.oxo.registry.GameRegistry;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.GameService;
+import com.example.oxo.wire.BoardStateEncoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 接收移交：只有更新的版本覆盖本地副本，按环不该由发送方移交的批被拒绝，容量不足时整批撤销 */
+class ClusterServiceTest {
+
+	private static final String A = "http://a:1";
+	private static final String B = "http://b:1";
+	private static final String C = "http://c:1";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void onlyNewerVersionsReplaceTheLocalCopy() throws MoveException {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 10);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		GameSession local = registry.create("g");
+		local.execute(service -> {
+			service.handleMove(0, 0);
+			return null;
+		});
+
+		GameService newer = new GameService();
+		newer.handleMove(1, 1);
+		newer.handleMove(2, 2);
+		assertEquals(1, cluster.receive(batch("g", newer), null));
+		assertEquals(2, local.execute(service -> service.getGameModel().getOccupiedCount()).intValue());
+
+		// 重发同一版本或更旧的版本都保留本地副本
+		assertEquals(1, cluster.receive(batch("g", newer), null));
+		assertEquals(1, cluster.receive(batch("g", new GameService()), null));
+		assertEquals(2, local.execute(service -> service.getGameModel().getOccupiedCount()).intValue());
+		assertEquals(newer.getVersion(), local.execute(GameService::getVersion).longValue());
+		assertEquals(2L, cluster.getStats().get("staleIgnored"));
+	}
+
+	@Test
+	void fullRegistryRollsBackTheWholeBatch() {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 3);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		registry.create("a");
+		assertThrows(IllegalStateException.class,
+				() -> cluster.receive(batch(new GameService(), "b", "c", "d"), null));
+		assertEquals(1, registry.size());
+		assertNull(registry.get("b"));
+		assertNull(registry.get("c"));
+	}
+
+	/** 接收到的游戏重启后恢复为收到的状态，之后的落子回放在恢复出的棋盘上 */
+	@Test
+	void receivedGamesSurviveARestart() throws Exception {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 10);
+		GamePersistence persistence = openPersistence(registry);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		cluster.setPersister(persistence::writeSnapshot);
+
+		GameService sent = new GameService();
+		sent.handleMove(1, 1);
+		sent.handleMove(0, 2);
+		assertEquals(1, cluster.receive(batch("g", sent), null));
+		registry.get("g").execute(service -> {
+			service.handleMove(2, 0);
+			return null;
+		});
+		persistence.close();
+
+		GameRegistry restarted = new GameRegistry(GameService::new, 60_000, 10);
+		GamePersistence reopened = openPersistence(restarted);
+		GameService service = restarted.get("g").getGameService();
+		assertEquals(3, service.getGameModel().getOccupiedCount());
+		assertEquals(sent.getVersion() + 1, service.getVersion());
+		assertEquals(sent.getGameModel().getCellOwner(0, 2).getPlayingLetter(),
+				service.getGameModel().getCellOwner(0, 2).getPlayingLetter());
+		assertEquals(0L, reopened.getStats().get("replayErrors"));
+		reopened.close();
+	}
+
+	@Test
+	void failedPersistRollsBackTheBatch() {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 10);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		cluster.setPersister(() -> {
+			throw new IOException("disk full");
+		});
+		assertThrows(IllegalStateException.class, () -> cluster.receive(batch(new GameService(), "a", "b"), null));
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	void gamesOwnedByAThirdNodeAreRejected() {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 10);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		cluster.setMembers(List.of(A, B, C));
+		String ownedByB = idOwnedBy(cluster, B);
+		String ownedByC = idOwnedBy(cluster, C);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> cluster.receive(batch(new GameService(), ownedByB, ownedByC), B));
+		assertEquals(0, registry.size());
+		assertThrows(IllegalArgumentException.class, () -> cluster.receive(batch(new GameService(), ownedByB), null));
+
+		// 成员通知可能晚于移交到达：按本节点的环仍归属发送方的游戏照常接收
+		assertEquals(1, cluster.receive(batch(new GameService(), ownedByB), B));
+		assertEquals(1, registry.size());
+	}
+
+	/** 移交结果不确定的游戏在环又分回本节点后恢复在本地服务，而不是一直重定向到旧的归属节点 */
+	@Test
+	void inDoubtGamesOwnedLocallyAgainAreReclaimed() throws MoveException {
+		GameRegistry registry = new GameRegistry(GameService::new, 60_000, 10);
+		ClusterService cluster = new ClusterService(registry, () -> A, 16, 100, 1000);
+		cluster.setMembers(List.of(A, B));
+		GameSession session = registry.create(idOwnedBy(cluster, A));
+		session.getLock().lock();
+		try {
+			session.moveTo(B);
+		} finally {
+			session.getLock().unlock();
+		}
+		assertThrows(GameMovedException.class, () -> session.execute(GameService::getVersion));
+
+		assertEquals(0, cluster.handOff());
+		assertNull(session.getMovedTo());
+		session.execute(service -> {
+			service.handleMove(0, 0);
+			return null;
+		});
+		assertEquals(1L, cluster.getStats().get("handoffsReclaimed"));
+	}
+
+	@Test
+	void secretIsRequired() {
+		ClusterService cluster = new ClusterService(new GameRegistry(GameService::new, 60_000, 10), () -> A, 16, 100, 1000);
+		assertFalse(cluster.isAuthorized(""));
+		assertFalse(cluster.isAuthorized(null));
+		cluster.setSecret("s3cret");
+		assertFalse(cluster.isAuthorized("s3cre"));
+		assertFalse(cluster.isAuthorized(null));
+		assertTrue(cluster.isAuthorized("s3cret"));
+	}
+
+	private GamePersistence openPersistence(GameRegistry registry) {
+		GamePersistence persistence = GamePersistence.create(true, directory, 1024 * GameJournal.RECORD_SIZE,
+				GameJournal.FsyncPolicy.NEVER, 10);
+		persistence.recover(new GameSession(GamePersistence.GLOBAL_GAME_ID, new GameService()), registry);
+		return persistence;
+	}
+
+	private static ByteBuffer batch(String id, GameService state) {
+		return batch(state, id);
+	}
+
+	private static ByteBuffer batch(GameService state, String... ids) {
+		List<GameSession> sessions = new ArrayList<>();
+		List<byte[]> states = new ArrayList<>();
+		long[] versions = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			sessions.add(new GameSession(ids[i], state));
+			states.add(BoardStateEncoder.encodePacked(state));
+			versions[i] = state.getVersion();
+		}
+		return ByteBuffer.wrap(ClusterService.encodeBatch(sessions, versions, states));
+	}
+
+	private static String idOwnedBy(ClusterService cluster, String node) {
+		for (int i = 0; ; i++) {
+			String id = "game" + i;
+			if (node.equals(cluster.ownerOf(id))) {
+				return id;
+			}
+		}
+	}
+}
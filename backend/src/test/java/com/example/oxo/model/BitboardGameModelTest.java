@@ -0,0 +1,195 @@
+package com.example.oxo.model;
+
+import com.example.oxo.service.GameService;
+import com.example.oxo.service.OptimizedGameService;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 位棋盘的连线判定与列表棋盘逐格判定的随机等价性测试。
+ * 几何覆盖：跨 64 位字边界的宽棋盘、窗口恰好 63 位的 winThreshold = 32，以及退化为逐格计数的 winThreshold > 32。
+ */
+class BitboardGameModelTest {
+
+	// rows, cols, winThreshold, players
+	private static final int[][] GEOMETRIES = {
+		{3, 3, 3, 2},
+		{7, 7, 4, 3},
+		{19, 19, 5, 2},
+		{5, 130, 4, 2},
+		{4, 200, 17, 1},
+		{6, 150, 32, 1},
+		{70, 70, 33, 1},
+		{3, 260, 40, 1},
+		{90, 66, 35, 2},
+	};
+
+	/** 同样的随机对局分别交给 GameService（列表棋盘）和 OptimizedGameService（位棋盘），每一步后的胜负与和棋必须一致 */
+	@Test
+	void randomGamesMatchListModel() throws MoveException {
+		SplittableRandom random = new SplittableRandom(42);
+		for (int[] g : GEOMETRIES) {
+			int games = g[0] * g[1] > 2000 ? 10 : 200;
+			for (int game = 0; game < games; game++) {
+				GameService reference = newService(new GameService(new GameModel(3, 3, 3)), g);
+				GameService bitboard = newService(new OptimizedGameService(new BitboardGameModel(3, 3, 3)), g);
+				int[] cells = shuffledCells(g[0] * g[1], random);
+				for (int move = 0; move < cells.length; move++) {
+					int row = cells[move] / g[1];
+					int col = cells[move] % g[1];
+					reference.handleMove(row, col);
+					bitboard.handleMove(row, col);
+					String where = describe(g) + " game " + game + " move " + move + " (" + row + "," + col + ")";
+					assertEquals(letterOf(reference.getGameModel().getWinner()), letterOf(bitboard.getGameModel().getWinner()), where);
+					assertEquals(reference.getGameModel().isGameDrawn(), bitboard.getGameModel().isGameDrawn(), where);
+					if (reference.getGameModel().getWinner() != null || reference.getGameModel().isGameDrawn()) {
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/** 超过稀疏阈值的位棋盘改用稀疏存储，胜负判定仍与列表棋盘一致 */
+	@Test
+	void sparseBoardsMatchListModel() throws MoveException {
+		SplittableRandom random = new SplittableRandom(5);
+		int[] g = {30, 90, 5, 2};
+		for (int game = 0; game < 20; game++) {
+			GameService reference = newService(new GameService(new GameModel(3, 3, 3)), g);
+			BitboardGameModel model = new BitboardGameModel(3, 3, 3);
+			model.setSparseThresholdCells(1000);
+			GameService bitboard = newService(new OptimizedGameService(model), g);
+			assertTrue(model.isSparse());
+			assertEquals(0, model.getBoardWordCount());
+			int[] cells = shuffledCells(g[0] * g[1], random);
+			for (int move = 0; move < cells.length; move++) {
+				reference.handleMove(cells[move] / g[1], cells[move] % g[1]);
+				bitboard.handleMove(cells[move] / g[1], cells[move] % g[1]);
+				assertEquals(letterOf(reference.getGameModel().getWinner()), letterOf(model.getWinner()), "move " + move);
+				assertEquals(reference.getGameModel().getOccupiedCount(), model.getOccupiedCount());
+				if (model.getWinner() != null || model.isGameDrawn()) {
+					break;
+				}
+			}
+		}
+	}
+
+	/** 在随机填满的棋盘上，对每个格子比较 hasLineThrough 与沿四个方向逐格计数的结果 */
+	@Test
+	void hasLineThroughMatchesCellCount() {
+		SplittableRandom random = new SplittableRandom(7);
+		for (int[] g : GEOMETRIES) {
+			int threshold = g[2];
+			BitboardGameModel model = new BitboardGameModel(g[0], g[1], threshold);
+			model.resetPlayers(2);
+			model.setPlayer(0, new Player('X'));
+			model.setPlayer(1, new Player('O'));
+			for (int round = 0; round < 5; round++) {
+				model.clearBoard();
+				// 密度较高、偏向一方，长连线才会经常出现
+				for (int r = 0; r < g[0]; r++) {
+					for (int c = 0; c < g[1]; c++) {
+						int roll = random.nextInt(20);
+						model.setCellOwner(r, c, roll < 17 ? model.getPlayerByNumber(0) : roll < 19 ? model.getPlayerByNumber(1) : null);
+					}
+				}
+				for (int r = 0; r < g[0]; r++) {
+					for (int c = 0; c < g[1]; c++) {
+						Player owner = model.getCellOwner(r, c);
+						if (owner == null) {
+							continue;
+						}
+						int p = owner == model.getPlayerByNumber(0) ? 0 : 1;
+						boolean expected = longestRunThrough(model, r, c, owner) >= threshold;
+						int row = r;
+						int col = c;
+						assertEquals(expected, model.hasLineThrough(p, row, col),
+								() -> describe(g) + " cell (" + row + "," + col + ")");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void occupiedCellsAreVisitedOnce() {
+		BitboardGameModel model = new BitboardGameModel(9, 129, 5);
+		model.resetPlayers(3);
+		for (int p = 0; p < 3; p++) {
+			model.setPlayer(p, new Player((char) ('A' + p)));
+		}
+		SplittableRandom random = new SplittableRandom(3);
+		int[] expected = new int[9 * 129];
+		for (int i = 0; i < 500; i++) {
+			int cell = random.nextInt(expected.length);
+			int p = random.nextInt(4);
+			model.setCellOwner(cell / 129, cell % 129, p == 3 ? null : model.getPlayerByNumber(p));
+			expected[cell] = p == 3 ? 0 : p + 1;
+		}
+		int[] seen = new int[expected.length];
+		int[] count = {0};
+		model.forEachOccupiedCell((row, col, owner) -> {
+			assertEquals(0, seen[row * 129 + col], "visited twice");
+			seen[row * 129 + col] = owner.getPlayingLetter() - 'A' + 1;
+			count[0]++;
+		});
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], seen[i], "cell " + i);
+		}
+		assertEquals(count[0], model.getOccupiedCount());
+		assertTrue(count[0] > 0);
+	}
+
+	private static GameService newService(GameService service, int[] g) {
+		service.setBoardSize(g[0], g[1]);
+		service.setPlayers(g[3]);
+		service.setWinThreshold(g[2]);
+		return service;
+	}
+
+	private static int[] shuffledCells(int count, SplittableRandom random) {
+		int[] cells = new int[count];
+		for (int i = 0; i < count; i++) {
+			cells[i] = i;
+		}
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int cell = cells[i];
+			cells[i] = cells[j];
+			cells[j] = cell;
+		}
+		return cells;
+	}
+
+	private static int longestRunThrough(GameModel model, int row, int col, Player owner) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		int longest = 0;
+		for (int[] d : directions) {
+			int run = 1;
+			for (int sign = -1; sign <= 1; sign += 2) {
+				int r = row + sign * d[0];
+				int c = col + sign * d[1];
+				while (!model.isOutOfBounds(r, c) && model.getCellOwner(r, c) == owner) {
+					run++;
+					r += sign * d[0];
+					c += sign * d[1];
+				}
+			}
+			longest = Math.max(longest, run);
+		}
+		return longest;
+	}
+
+	private static Character letterOf(Player player) {
+		return player == null ? null : player.getPlayingLetter();
+	}
+
+	private static String describe(int[] g) {
+		return g[0] + "x" + g[1] + "/" + g[2] + "/" + g[3];
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.oxo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineRunIndexTest {
+
+	/** 随机落子与移除，每次落子后增量维护的最长连线必须等于逐格计数的结果 */
+	@Test
+	void lastPlacedRunMatchesCellCount() {
+		SplittableRandom random = new SplittableRandom(11);
+		int[][] geometries = {{3, 3}, {8, 8}, {17, 300}, {300, 17}, {40, 40}};
+		for (int[] g : geometries) {
+			GameModel model = new GameModel(g[0], g[1], 3);
+			Player[] players = {new Player('X'), new Player('O')};
+			for (int step = 0; step < 20000; step++) {
+				int row = random.nextInt(g[0]);
+				int col = random.nextInt(g[1]);
+				if (model.getCellOwner(row, col) != null) {
+					// 偶尔移除，覆盖 onRemoved 的端点重算
+					if (random.nextInt(4) == 0) {
+						model.setCellOwner(row, col, null);
+					}
+					continue;
+				}
+				Player player = players[random.nextInt(10) < 8 ? 0 : 1];
+				model.setCellOwner(row, col, player);
+				assertEquals(longestRunThrough(model, row, col, player), model.getLastPlacedRunLength(row, col),
+						g[0] + "x" + g[1] + " step " + step + " (" + row + "," + col + ")");
+				if (model.isBoardFull()) {
+					model.clearBoard();
+				}
+			}
+		}
+	}
+
+	@Test
+	void pagesAreAllocatedOnlyWhereMovesWereMade() {
+		GameModel model = new GameModel(2000, 2000, 5);
+		LineRunIndex index = new LineRunIndex(model, 2000, 2000);
+		assertEquals(0, index.getAllocatedPageCount());
+		Player player = new Player('X');
+		for (int i = 0; i < 5; i++) {
+			model.setCellOwner(1000, 1000 + i, player);
+			index.onPlaced(1000, 1000 + i, player);
+		}
+		assertEquals(5, index.lastPlacedRunLength(1000, 1004));
+		// 四个方向，每个方向至多两页
+		assertTrue(index.getAllocatedPageCount() <= 8, "pages: " + index.getAllocatedPageCount());
+		index.reset();
+		assertEquals(0, index.getAllocatedPageCount());
+	}
+
+	private static int longestRunThrough(GameModel model, int row, int col, Player owner) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		int longest = 0;
+		for (int[] d : directions) {
+			int run = 1;
+			for (int sign = -1; sign <= 1; sign += 2) {
+				int r = row + sign * d[0];
+				int c = col + sign * d[1];
+				while (!model.isOutOfBounds(r, c) && model.getCellOwner(r, c) == owner) {
+					run++;
+					r += sign * d[0];
+					c += sign * d[1];
+				}
+			}
+			longest = Math.max(longest, run);
+		}
+		return longest;
+	}
+}
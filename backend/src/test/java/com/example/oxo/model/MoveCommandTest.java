@@ -0,0 +1,83 @@
+package com.example.oxo.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MoveCommandTest {
+
+	/** 行按表格列名编号：z 之后是 aa，az 之后是 ba，zz 之后是 aaa；不区分大小写 */
+	@Test
+	void multiLetterRows() {
+		assertEquals(MoveCommand.pack(0, 0), MoveCommand.parse("a1"));
+		assertEquals(MoveCommand.pack(25, 0), MoveCommand.parse("z1"));
+		assertEquals(MoveCommand.pack(26, 0), MoveCommand.parse("aa1"));
+		assertEquals(MoveCommand.pack(51, 0), MoveCommand.parse("az1"));
+		assertEquals(MoveCommand.pack(52, 0), MoveCommand.parse("ba1"));
+		assertEquals(MoveCommand.pack(701, 0), MoveCommand.parse("zz1"));
+		assertEquals(MoveCommand.pack(702, 0), MoveCommand.parse("aaa1"));
+		assertEquals(MoveCommand.pack(26, 116), MoveCommand.parse("aa117"));
+		assertEquals(MoveCommand.pack(26, 116), MoveCommand.parse("AA117"));
+		assertEquals(MoveCommand.pack(26, 116), MoveCommand.parse("aA117"));
+	}
+
+	@Test
+	void malformedCommandsReturnErrorCodes() {
+		assertEquals(MoveException.INVALID_LENGTH, MoveCommand.parse(""));
+		assertEquals(MoveException.INVALID_LENGTH, MoveCommand.parse("a"));
+		// 没有列号
+		assertEquals(MoveException.INVALID_LENGTH, MoveCommand.parse("ab"));
+		// 没有行字母
+		assertEquals(MoveException.INVALID_ROW_CHARACTER, MoveCommand.parse("12"));
+		assertEquals(MoveException.INVALID_ROW_CHARACTER, MoveCommand.parse("@1"));
+		assertEquals(MoveException.INVALID_COLUMN_CHARACTER, MoveCommand.parse("a1b"));
+		assertEquals(MoveException.INVALID_COLUMN_CHARACTER, MoveCommand.parse("a-1"));
+		assertEquals(MoveException.INVALID_COLUMN_CHARACTER, MoveCommand.parse("a[1"));
+
+		String longest = "a" + "1".repeat(MoveCommand.MAX_LENGTH - 1);
+		assertFalse(MoveCommand.isError(MoveCommand.parse(longest)));
+		assertEquals(MoveException.INVALID_LENGTH, MoveCommand.parse(longest + "1"));
+	}
+
+	/** 列号 0 不是格式错误：解析为列 -1，落子时按越界处理 */
+	@Test
+	void columnZeroParsesToMinusOne() {
+		long parsed = MoveCommand.parse("a0");
+		assertFalse(MoveCommand.isError(parsed));
+		assertEquals(0, MoveCommand.row(parsed));
+		assertEquals(-1, MoveCommand.col(parsed));
+	}
+
+	/** 超长的行字母或列号停在 MAX_INDEX（0 起始为 Integer.MAX_VALUE，必然越界），不会溢出成负数或绕回小的坐标 */
+	@Test
+	void hugeIndexesSaturate() {
+		long rows = MoveCommand.parse("z".repeat(MoveCommand.MAX_LENGTH - 1) + "1");
+		assertEquals(Integer.MAX_VALUE, MoveCommand.row(rows));
+		assertEquals(0, MoveCommand.col(rows));
+
+		long cols = MoveCommand.parse("a" + "9".repeat(MoveCommand.MAX_LENGTH - 1));
+		assertEquals(0, MoveCommand.row(cols));
+		assertEquals(Integer.MAX_VALUE, MoveCommand.col(cols));
+
+		// 饱和值之下的编号都是精确的，包括 int 能表示的最大行列号
+		assertEquals(Integer.MAX_VALUE - 1, MoveCommand.col(MoveCommand.parse("a" + Integer.MAX_VALUE)));
+		assertEquals(Integer.MAX_VALUE, MoveCommand.col(MoveCommand.parse("a" + MoveCommand.MAX_INDEX)));
+		assertEquals(Integer.MAX_VALUE, MoveCommand.col(MoveCommand.parse("a" + (MoveCommand.MAX_INDEX + 1))));
+	}
+
+	@Test
+	void formatAndParseRoundTrip() {
+		int[] indexes = {0, 1, 9, 25, 26, 27, 51, 52, 99, 675, 701, 702, 18277, 18278, 123456, 1 << 20, (1 << 30) - 1, 1 << 30, Integer.MAX_VALUE - 1};
+		for (int row : indexes) {
+			for (int col : indexes) {
+				String command = MoveCommand.format(row, col);
+				assertEquals(MoveCommand.pack(row, col), MoveCommand.parse(command), command);
+				assertEquals(command, MoveCommand.format(MoveCommand.row(MoveCommand.parse(command)),
+						MoveCommand.col(MoveCommand.parse(command))));
+			}
+		}
+		assertEquals("aa117", MoveCommand.format(26, 116));
+		assertEquals("zz1", MoveCommand.format(701, 0));
+	}
+}
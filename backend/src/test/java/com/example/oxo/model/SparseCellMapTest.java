@@ -0,0 +1,79 @@
+package com.example.oxo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 与 HashMap 对照的随机操作测试。键集中在很小的范围内，插入和删除交替进行，
+ * 探测链频繁相连，回移删除的每个分支（包括跨过表尾回绕）都会被走到。
+ */
+class SparseCellMapTest {
+
+	@Test
+	void randomPutAndRemoveMatchHashMap() {
+		SplittableRandom random = new SplittableRandom(1);
+		Player[] players = {new Player('X'), new Player('O'), new Player('A')};
+		for (int keySpace : new int[] {8, 40, 300, 5000}) {
+			SparseCellMap map = new SparseCellMap();
+			Map<Long, Player> expected = new HashMap<>();
+			for (int step = 0; step < 200000; step++) {
+				int row = random.nextInt(keySpace);
+				int col = random.nextInt(keySpace) * 1000003;
+				// 删除略多于插入，表反复在扩容边界附近增减
+				Player player = random.nextInt(100) < 48 ? players[random.nextInt(players.length)] : null;
+				Player previous = player == null
+						? expected.remove(SparseCellMap.key(row, col))
+						: expected.put(SparseCellMap.key(row, col), player);
+				assertSame(previous, map.put(row, col, player), "step " + step);
+				assertEquals(expected.size(), map.size());
+				if (step % 1000 == 0) {
+					assertContents(expected, map);
+				}
+			}
+			assertContents(expected, map);
+		}
+	}
+
+	@Test
+	void removingEveryKeyLeavesAnEmptyMap() {
+		SparseCellMap map = new SparseCellMap();
+		Player player = new Player('X');
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i * 7, player);
+		}
+		for (int i = 999; i >= 0; i -= 2) {
+			map.put(i, i * 7, null);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertSame(i % 2 == 0 ? player : null, map.get(i, i * 7), "cell " + i);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			map.put(i, i * 7, null);
+		}
+		assertEquals(0, map.size());
+		map.forEach((row, col, owner) -> {
+			throw new AssertionError("unexpected cell " + row + "," + col);
+		});
+		assertNull(map.get(0, 0));
+	}
+
+	private static void assertContents(Map<Long, Player> expected, SparseCellMap map) {
+		for (Map.Entry<Long, Player> entry : expected.entrySet()) {
+			long key = entry.getKey();
+			assertSame(entry.getValue(), map.get(SparseCellMap.rowOf(key), SparseCellMap.colOf(key)));
+		}
+		int[] visited = {0};
+		map.forEach((row, col, owner) -> {
+			assertSame(expected.get(SparseCellMap.key(row, col)), owner);
+			visited[0]++;
+		});
+		assertEquals(expected.size(), visited[0]);
+	}
+}
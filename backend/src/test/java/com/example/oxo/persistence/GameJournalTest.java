@@ -0,0 +1,129 @@
+package com.example.oxo.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GameJournalTest {
+
+	// 每段只有 32 条记录，并发写入期间会频繁切换段
+	private static final int SEGMENT_SIZE = 32 * GameJournal.RECORD_SIZE;
+
+	@TempDir
+	Path directory;
+
+	/** 多个线程并发追加、频繁切换段，回放后每局的记录完整且顺序不变；写入结束后没有未关闭的旧段 */
+	@Test
+	void concurrentAppendsReplayInOrder() throws Exception {
+		for (GameJournal.FsyncPolicy policy : GameJournal.FsyncPolicy.values()) {
+			Path dir = directory.resolve(policy.name());
+			int threads = 8;
+			int perThread = policy == GameJournal.FsyncPolicy.SYNC ? 200 : 2000;
+			GameJournal journal = new GameJournal(dir, SEGMENT_SIZE, policy, 1);
+			journal.start();
+			AtomicReference<Throwable> failure = new AtomicReference<>();
+			CountDownLatch start = new CountDownLatch(1);
+			Thread[] writers = new Thread[threads];
+			for (int t = 0; t < threads; t++) {
+				String gameId = "game-" + t;
+				writers[t] = new Thread(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < perThread; i++) {
+							journal.append(GameJournal.MOVE, gameId, i, 0, 0, i);
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				});
+				writers[t].start();
+			}
+			start.countDown();
+			for (Thread writer : writers) {
+				writer.join();
+			}
+			assertNull(failure.get());
+			assertEquals(0, journal.getRetiredSegmentCount(), policy + ": retired segments left open");
+			journal.close();
+
+			Map<String, List<Integer>> replayed = replay(dir);
+			assertEquals(threads, replayed.size());
+			for (List<Integer> moves : replayed.values()) {
+				assertEquals(perThread, moves.size(), policy.name());
+				for (int i = 0; i < perThread; i++) {
+					assertEquals(i, moves.get(i).intValue(), policy.name());
+				}
+			}
+		}
+	}
+
+	/** 连续两次切换段（快照紧接着写满）后，两个旧段都被关闭 */
+	@Test
+	void backToBackRollsCloseEverySegment() throws IOException {
+		GameJournal journal = new GameJournal(directory, SEGMENT_SIZE, GameJournal.FsyncPolicy.NEVER, 10);
+		journal.start();
+		journal.append(GameJournal.CREATE, "a", 0, 0, 0, 0);
+		journal.rollForSnapshot();
+		journal.rollForSnapshot();
+		for (int i = 0; i < 40; i++) {
+			journal.append(GameJournal.MOVE, "a", i, 0, 0, i);
+		}
+		assertEquals(0, journal.getRetiredSegmentCount());
+		journal.close();
+		assertEquals(41, new GameJournal(directory, SEGMENT_SIZE, GameJournal.FsyncPolicy.NEVER, 10)
+				.replay(0, (type, gameId, a, b, c, version) -> { }));
+	}
+
+	/**
+	 * 模拟崩溃：某个写入者预留了位置但没写完（全 0），另一条记录只写了一半（CRC 不匹配），
+	 * 之后的记录已经写完。回放跳过这两个位置，之后的记录照常回放。
+	 */
+	@Test
+	void replaySkipsHolesLeftByUnfinishedWriters() throws IOException {
+		GameJournal journal = new GameJournal(directory, SEGMENT_SIZE, GameJournal.FsyncPolicy.NEVER, 10);
+		journal.start();
+		for (int i = 0; i < 10; i++) {
+			journal.append(GameJournal.MOVE, "a", i, 0, 0, i);
+		}
+		journal.close();
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.filter(p -> p.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+		}
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(GameJournal.RECORD_SIZE), 3L * GameJournal.RECORD_SIZE);
+			channel.write(ByteBuffer.wrap(new byte[] {(byte) 0x5A}), 6L * GameJournal.RECORD_SIZE + 30);
+		}
+
+		GameJournal reopened = new GameJournal(directory, SEGMENT_SIZE, GameJournal.FsyncPolicy.NEVER, 10);
+		List<Integer> moves = new ArrayList<>();
+		long count = reopened.replay(0, (type, gameId, a, b, c, version) -> moves.add(a));
+		assertEquals(8, count);
+		assertEquals(List.of(0, 1, 2, 4, 5, 7, 8, 9), moves);
+		// 段尾未使用的位置不算空洞
+		assertEquals(2, reopened.getReplayHoles());
+	}
+
+	private static Map<String, List<Integer>> replay(Path dir) throws IOException {
+		Map<String, List<Integer>> moves = new HashMap<>();
+		new GameJournal(dir, SEGMENT_SIZE, GameJournal.FsyncPolicy.NEVER, 10).replay(0,
+				(type, gameId, a, b, c, version) -> moves.computeIfAbsent(gameId, id -> new ArrayList<>()).add(a));
+		return moves;
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.oxo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** 每次结构变化只通知一次，内部的重置和放大棋盘不再产生额外的事件 */
+class GameServiceEventsTest {
+
+	@Test
+	void eachStructuralChangeIsReportedOnce() {
+		GameService service = new GameService();
+		List<String> events = new ArrayList<>();
+		service.addGameEventListener(new GameEventListener() {
+			@Override
+			public void onPlayersChanged(GameService s, int count) {
+				events.add("players:" + count);
+			}
+
+			@Override
+			public void onBoardResized(GameService s, int rows, int cols) {
+				events.add("resize:" + rows + "x" + cols);
+			}
+
+			@Override
+			public void onReset(GameService s) {
+				events.add("reset");
+			}
+
+			@Override
+			public void onWinThresholdChanged(GameService s, int winThreshold) {
+				events.add("winThreshold:" + winThreshold);
+			}
+		});
+
+		service.setPlayers(5);
+		assertEquals(List.of("players:5"), events);
+		assertEquals(5, service.getGameModel().getNumberOfRows());
+
+		events.clear();
+		service.setBoardSize(7, 8);
+		assertEquals(List.of("resize:7x8"), events);
+
+		events.clear();
+		service.setWinThreshold(4);
+		assertEquals(List.of("winThreshold:4"), events);
+
+		events.clear();
+		service.resetGame();
+		assertEquals(List.of("reset"), events);
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.oxo.service;
+
+import com.example.oxo.model.MoveCommand;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.registry.GameSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 带版本检查的落子：版本不匹配时一条也不执行；在该局的锁内调用时，同一个版本上最多只有一个请求成功 */
+class GameServiceVersionTest {
+
+	@Test
+	void staleBatchIsRejectedWithoutApplyingAnything() throws MoveException {
+		GameService service = new GameService();
+		long version = service.getVersion();
+		service.handleIncomingCommand("a1");
+		MoveException e = assertThrows(MoveException.class,
+				() -> service.handleIncomingCommands(List.of("b1", "c1"), version));
+		assertEquals(MoveException.VERSION_MISMATCH, e.getCode());
+		assertEquals(1, service.getGameModel().getOccupiedCount());
+
+		MoveBatchResult result = service.handleIncomingCommands(List.of("b1", "c1"), service.getVersion());
+		assertEquals(2, result.getAppliedCount());
+	}
+
+	@Test
+	void concurrentRequestsOnTheSameVersionApplyOnce() throws InterruptedException {
+		GameService service = new GameService();
+		service.setBoardSize(40, 40);
+		service.setWinThreshold(40);
+		GameSession session = new GameSession("test", service);
+		// 每次成功落子前的版本；同一个版本出现两次说明检查与落子之间插入了其他写入
+		Map<Long, Boolean> appliedAt = new ConcurrentHashMap<>();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		// 总尝试次数少于格子数，棋盘不会下满
+		int threads = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			SplittableRandom random = new SplittableRandom(t);
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+					for (int i = 0; i < 150; i++) {
+						long version = session.execute(GameService::getVersion);
+						String command = MoveCommand.format(random.nextInt(40), random.nextInt(40));
+						boolean batch = random.nextBoolean();
+						try {
+							boolean applied = session.execute(s -> {
+								if (batch) {
+									return s.handleIncomingCommands(List.of(command), version).getAppliedCount() == 1;
+								}
+								s.handleIncomingCommand(command, version);
+								return true;
+							});
+							if (applied) {
+								assertNull(appliedAt.putIfAbsent(version, Boolean.TRUE), "version " + version + " applied twice");
+							}
+						} catch (MoveException e) {
+							// 版本已变或格子已被占用
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			workers[t].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertNull(failure.get());
+		assertTrue(appliedAt.size() > 0);
+		assertEquals(appliedAt.size(), service.getGameModel().getOccupiedCount());
+	}
+}
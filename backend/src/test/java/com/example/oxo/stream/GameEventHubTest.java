@@ -0,0 +1,85 @@
+package com.example.oxo.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventHubTest {
+
+	/** 唯一的写出线程卡在一次写入上时，看门狗断开该订阅者并补一个线程，其他推送照常进行 */
+	@Test
+	void stalledSendDoesNotBlockOtherSubscribers() throws InterruptedException {
+		GameEventHub hub = new GameEventHub(1, 8, 60000, 100, 4);
+		try {
+			CountDownLatch socketBlocked = new CountDownLatch(1);
+			AtomicInteger aborted = new AtomicInteger();
+			GameEventHub.Writer stalled = aborted::incrementAndGet;
+			hub.getDispatcher().execute(() -> {
+				hub.sendStarted(stalled);
+				try {
+					socketBlocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					hub.sendFinished(stalled);
+				}
+			});
+			CountDownLatch delivered = new CountDownLatch(1);
+			hub.getDispatcher().execute(delivered::countDown);
+
+			assertTrue(delivered.await(5, TimeUnit.SECONDS), "other subscriber starved");
+			assertEquals(1, aborted.get());
+			assertEquals(2, hub.getDispatcher().getCorePoolSize());
+
+			// 卡住的写入结束后线程池恢复原来的大小
+			socketBlocked.countDown();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (hub.getDispatcher().getCorePoolSize() != 1 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, hub.getDispatcher().getCorePoolSize());
+			assertEquals(1, aborted.get());
+		} finally {
+			hub.shutdown();
+		}
+	}
+
+	/** 补充的线程数有上限，卡住的写入再多也不会无限制地创建线程 */
+	@Test
+	void replacementThreadsAreCapped() throws InterruptedException {
+		GameEventHub hub = new GameEventHub(1, 8, 60000, 50, 2);
+		CountDownLatch socketBlocked = new CountDownLatch(1);
+		try {
+			AtomicInteger aborted = new AtomicInteger();
+			for (int i = 0; i < 5; i++) {
+				GameEventHub.Writer writer = aborted::incrementAndGet;
+				hub.getDispatcher().execute(() -> {
+					hub.sendStarted(writer);
+					try {
+						socketBlocked.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						hub.sendFinished(writer);
+					}
+				});
+			}
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (aborted.get() < 3 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(200);
+			// 1 个原有线程 + 2 个补充线程，各卡住一次写入
+			assertEquals(3, aborted.get());
+			assertEquals(3, hub.getDispatcher().getCorePoolSize());
+		} finally {
+			socketBlocked.countDown();
+			hub.shutdown();
+		}
+	}
+}
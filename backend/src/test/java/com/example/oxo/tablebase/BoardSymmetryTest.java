@@ -0,0 +1,57 @@
+package com.example.oxo.tablebase;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardSymmetryTest {
+
+	/** 每个变换都是格子的置换，inverse 是它的逆，8 个变换互不相同 */
+	@Test
+	void transformsArePermutationsWithInverses() {
+		for (int size = 1; size <= TablebaseGenerator.MAX_SIZE; size++) {
+			BoardSymmetry symmetry = new BoardSymmetry(size);
+			Set<String> distinct = new HashSet<>();
+			for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+				Set<Integer> targets = new HashSet<>();
+				StringBuilder image = new StringBuilder();
+				for (int i = 0; i < symmetry.cells; i++) {
+					targets.add(symmetry.forward[t][i]);
+					assertEquals(i, symmetry.inverse[t][symmetry.forward[t][i]]);
+					image.append(symmetry.forward[t][i]).append(',');
+				}
+				assertEquals(symmetry.cells, targets.size());
+				distinct.add(image.toString());
+			}
+			assertEquals(size == 1 ? 1 : BoardSymmetry.COUNT, distinct.size());
+		}
+	}
+
+	/** 变换 0 是恒等变换；变换 1 把 3x3 的左上角转到右上角，变换 4 左右镜像 */
+	@Test
+	void transformMovesCellValues() {
+		BoardSymmetry symmetry = new BoardSymmetry(3);
+		int key = 1 | (2 << 2);  // (0,0) 先手，(0,1) 后手
+		assertEquals(key, symmetry.transform(key, 0));
+		assertEquals((1 << 4) | (2 << 10), symmetry.transform(key, 1));
+		assertEquals((1 << 4) | (2 << 2), symmetry.transform(key, 4));
+	}
+
+	/** 同一局面的 8 个变换得到同一个规范键，返回的变换确实把原局面变成规范键 */
+	@Test
+	void canonicalKeyIsSharedBySymmetricPositions() {
+		BoardSymmetry symmetry = new BoardSymmetry(3);
+		int key = 1 | (2 << 2) | (1 << 16);  // (0,0) (0,1) (2,2)
+		int[] transform = new int[1];
+		int canonical = symmetry.canonical(key, transform);
+		assertEquals(canonical, symmetry.transform(key, transform[0]));
+		for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+			int image = symmetry.transform(key, t);
+			assertEquals(canonical, symmetry.canonical(image, transform));
+			assertEquals(canonical, symmetry.transform(image, transform[0]));
+		}
+	}
+}
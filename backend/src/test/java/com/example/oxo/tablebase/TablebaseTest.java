@@ -0,0 +1,109 @@
+package com.example.oxo.tablebase;
+
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 生成 3x3 残局库后查询已知局面的每种旋转和镜像：着法落在空格上，结果和步数与朝向无关，且着法确实是最优的 */
+class TablebaseTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void lookupIsIndependentOfOrientation() throws IOException, MoveException {
+		Path file = directory.resolve("tablebase-3x3-3.bin");
+		int entries = new TablebaseGenerator(3, 3).generate(file);
+		try (Tablebase tablebase = Tablebase.open(file)) {
+			assertEquals(entries, tablebase.getEntryCount());
+			// 空棋盘：和棋，下满 9 步
+			assertOrientations(tablebase, new int[][]{}, "draw", 9);
+			// 先手占角、后手占中：和棋
+			assertOrientations(tablebase, new int[][]{{0, 0}, {1, 1}}, "draw", 7);
+			// 先手占中、后手占边：先手必胜
+			assertOrientations(tablebase, new int[][]{{1, 1}, {0, 1}}, "win", -1);
+			// 先手占角和中心、后手占相邻的边：后手只能堵一处，先手随后形成双杀
+			assertOrientations(tablebase, new int[][]{{0, 0}, {0, 1}, {1, 1}}, "loss", 4);
+			// 先手一步成线
+			assertOrientations(tablebase, new int[][]{{0, 0}, {1, 0}, {0, 1}, {1, 1}}, "win", 1);
+		}
+	}
+
+	/** 棋盘尺寸、连线长度不匹配或局面已结束时不查表 */
+	@Test
+	void uncoveredPositionsReturnNull() throws IOException, MoveException {
+		Path file = directory.resolve("tablebase-3x3-3.bin");
+		new TablebaseGenerator(3, 3).generate(file);
+		try (Tablebase tablebase = Tablebase.open(file)) {
+			assertNull(tablebase.lookup(new GameModel(4, 4, 3)));
+			assertNull(tablebase.lookup(new GameModel(3, 3, 2)));
+			GameService won = play(new int[][]{{0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 2}}, 0);
+			assertNull(tablebase.lookup(won.getGameModel()));
+		}
+	}
+
+	/**
+	 * 对 moves 的 8 种对称变换分别查表。pliesToEnd 为 -1 时只要求各朝向的步数一致。
+	 * 给出的着法走下去后，对手的结果应相反、步数少一（或直接获胜）。
+	 */
+	private static void assertOrientations(Tablebase tablebase, int[][] moves, String outcome, int pliesToEnd)
+			throws MoveException {
+		int plies = pliesToEnd;
+		for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+			GameService game = play(moves, t);
+			GameModel model = game.getGameModel();
+			TablebaseMove move = tablebase.lookup(model);
+			String orientation = "transform " + t;
+			assertNotNull(move, orientation);
+			assertNull(model.getCellOwner(move.getRow(), move.getCol()), orientation);
+			assertEquals(outcome, move.getOutcome(), orientation);
+			if (plies < 0) {
+				plies = move.getPliesToEnd();
+			}
+			assertEquals(plies, move.getPliesToEnd(), orientation);
+
+			game.handleMove(move.getRow(), move.getCol());
+			if (model.getWinner() != null) {
+				assertEquals("win", outcome, orientation);
+				assertEquals(1, plies, orientation);
+			} else if (model.isGameDrawn()) {
+				assertEquals("draw", outcome, orientation);
+				assertEquals(1, plies, orientation);
+			} else {
+				TablebaseMove reply = tablebase.lookup(model);
+				assertNotNull(reply, orientation);
+				assertEquals(opposite(outcome), reply.getOutcome(), orientation);
+				assertEquals(plies - 1, reply.getPliesToEnd(), orientation);
+			}
+		}
+		assertTrue(plies > 0);
+	}
+
+	private static GameService play(int[][] moves, int transform) throws MoveException {
+		BoardSymmetry symmetry = new BoardSymmetry(3);
+		GameService game = new GameService();
+		for (int[] move : moves) {
+			int cell = symmetry.forward[transform][move[0] * 3 + move[1]];
+			game.handleMove(cell / 3, cell % 3);
+		}
+		return game;
+	}
+
+	private static String opposite(String outcome) {
+		return switch (outcome) {
+			case "win" -> "loss";
+			case "loss" -> "win";
+			default -> "draw";
+		};
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.oxo.wire;
+
+import com.example.oxo.model.BitboardGameModel;
+import com.example.oxo.model.GameModel;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.model.Player;
+import com.example.oxo.service.GameService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardStateEncoderTest {
+
+	/** PACKED 编码后解码到另一局，再次编码的字节必须完全相同；覆盖 2/4/8 bit 每格和稀疏棋盘 */
+	@Test
+	void packedRoundTrip() throws MoveException {
+		SplittableRandom random = new SplittableRandom(9);
+		int[][] geometries = {{3, 3, 2}, {9, 9, 5}, {30, 30, 17}, {40, 70, GameService.MAX_PLAYERS}};
+		for (int[] g : geometries) {
+			for (boolean sparse : new boolean[] {false, true}) {
+				GameService source = newService(g, sparse);
+				for (int i = 0; i < g[0] * g[1] / 2 && source.getGameModel().getWinner() == null; i++) {
+					int row = random.nextInt(g[0]);
+					int col = random.nextInt(g[1]);
+					if (source.getGameModel().getCellOwner(row, col) == null) {
+						source.handleMove(row, col);
+					}
+				}
+				byte[] packed = BoardStateEncoder.encodePacked(source);
+				GameService target = new GameService(new BitboardGameModel(3, 3, 3));
+				BoardStateDecoder.restorePacked(ByteBuffer.wrap(packed), target);
+				assertArrayEquals(packed, BoardStateEncoder.encodePacked(target));
+				assertEquals(source.getVersion(), target.getVersion());
+				assertEquals(source.getGameModel().getOccupiedCount(), target.getGameModel().getOccupiedCount());
+			}
+		}
+	}
+
+	@Test
+	void playerCountIsCappedAtTheLetterRange() {
+		GameService service = new GameService();
+		service.setPlayers(1000);
+		assertEquals(GameService.MAX_PLAYERS, service.getGameModel().getNumberOfPlayers());
+		assertEquals('Z', service.getGameModel().getPlayerByNumber(GameService.MAX_PLAYERS - 1).getPlayingLetter());
+	}
+
+	@Test
+	void packedRejectsPlayerIndexesThatDoNotFitInAByte() {
+		GameService service = new GameService();
+		GameModel model = service.getGameModel();
+		model.resetPlayers(BoardStateEncoder.MAX_PLAYERS + 1);
+		for (int p = 0; p <= BoardStateEncoder.MAX_PLAYERS; p++) {
+			model.setPlayer(p, new Player((char) p));
+		}
+		assertThrows(IllegalArgumentException.class, () -> BoardStateEncoder.encodePacked(service));
+	}
+
+	@Test
+	void rowsFormatIsOnlyForDenseBoards() {
+		GameService service = new GameService();
+		service.setBoardSize(3, 4);
+		service.getGameModel().setCellOwner(1, 2, service.getGameModel().getPlayerByNumber(0));
+		String rows = new String(BoardStateEncoder.encodeRows(service), StandardCharsets.US_ASCII);
+		assertTrue(rows.contains("\"board\":[\"    \",\"  X \",\"    \"]"), rows);
+
+		GameModel model = service.getGameModel();
+		model.setSparseThresholdCells(100);
+		service.setBoardSize(1000, 1000);
+		assertTrue(model.isSparse());
+		assertFalse(BoardStateEncoder.supportsRows(model));
+		assertThrows(IllegalArgumentException.class, () -> BoardStateEncoder.encodeRows(service));
+
+		// 行数 x 列数超过 int 时容量按 long 计算，同样判为不支持而不是溢出
+		GameModel huge = new GameModel(0, 0, 3) {
+			@Override
+			public int getNumberOfRows() {
+				return 100_000;
+			}
+
+			@Override
+			public int getNumberOfColumns() {
+				return 100_000;
+			}
+		};
+		assertFalse(BoardStateEncoder.supportsRows(huge));
+	}
+
+	/** 格子总数封顶在 MAX_CELLS，排序键不会溢出，最远的格子也能正确编码和恢复 */
+	@Test
+	void hugeBoardsAreCappedSoPackedPositionsFit() {
+		GameService service = new GameService();
+		service.setBoardSize(Integer.MAX_VALUE, Integer.MAX_VALUE);
+		GameModel model = service.getGameModel();
+		int rows = model.getNumberOfRows();
+		int cols = model.getNumberOfColumns();
+		assertEquals(Integer.MAX_VALUE, rows);
+		assertTrue((long) rows * cols <= GameModel.MAX_CELLS);
+		// 直接写格子：在这么大的棋盘上落子，胜负判定要扫描整行整列
+		model.setCellOwner(rows - 1, cols - 1, model.getPlayerByNumber(0));
+		model.setCellOwner(0, 0, model.getPlayerByNumber(1));
+
+		byte[] packed = BoardStateEncoder.encodePacked(service);
+		GameService target = new GameService();
+		BoardStateDecoder.restorePacked(ByteBuffer.wrap(packed), target);
+		assertArrayEquals(packed, BoardStateEncoder.encodePacked(target));
+		assertEquals('X', target.getGameModel().getCellOwner(rows - 1, cols - 1).getPlayingLetter());
+		assertThrows(IllegalArgumentException.class, () -> model.resizeBoard(Integer.MAX_VALUE, Integer.MAX_VALUE));
+	}
+
+	private static GameService newService(int[] g, boolean sparse) {
+		GameModel model = new GameModel(3, 3, 3);
+		if (sparse) {
+			model.setSparseThresholdCells(1);
+		}
+		GameService service = new GameService(model);
+		service.setBoardSize(g[0], g[1]);
+		service.setPlayers(g[2]);
+		service.setWinThreshold(Math.min(g[0], 6));
+		return service;
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.DemoApplication;
+import com.example.oxo.config.WebConfig;
+import com.example.oxo.controller.ClusterController;
+import com.example.oxo.controller.GameController;
+import com.example.oxo.controller.GameSessionController;
+import com.example.oxo.controller.LobbyController;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * WebFlux（Netty）版本的入口：与 {@link DemoApplication} 共用服务层和 ServiceConfig，
+ * 但不加载依赖 Spring MVC 的控制器（SseEmitter / DeferredResult）和 WebConfig，
+ * /api/oxo 与 /api/oxo/lobby 由本包中的响应式控制器提供；/metrics 与栈无关，直接沿用。
+ * 构建与运行：mvn -Pwebflux spring-boot:run
+ *
+ * 本包中的类都只在响应式应用中生效，DemoApplication 扫描到它们时会跳过。
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ComponentScan(basePackages = "com.example.oxo", excludeFilters = @ComponentScan.Filter(
+		type = FilterType.ASSIGNABLE_TYPE,
+		classes = {DemoApplication.class, WebConfig.class, GameController.class, GameSessionController.class,
+				LobbyController.class, ClusterController.class}))
+public class ReactiveApplication {
+
+	public static void main(String[] args) {
+		builder().run(args);
+	}
+
+	/** Servlet 栈也在类路径上，必须显式指定为响应式应用 */
+	public static SpringApplicationBuilder builder() {
+		return new SpringApplicationBuilder(ReactiveApplication.class).web(WebApplicationType.REACTIVE);
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.GameEventListener;
+import com.example.oxo.service.GameService;
+import com.example.oxo.stream.GameEventJson;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一局游戏的推送，WebFlux 版本的 {@link com.example.oxo.stream.GameEventStream}。
+ * 事件只编码一次，经多播 Sink 分发给所有订阅者；空闲连接只占 Netty 的连接对象，不占线程。
+ * 每个订阅者有自己的有界缓冲，读得太慢（缓冲满）时只断开该订阅者。
+ */
+public class ReactiveEventStream implements GameEventListener {
+
+	private final Sinks.Many<ServerSentEvent<String>> sink = Sinks.many().multicast().directBestEffort();
+	private final int queueCapacity;
+	private final Duration timeout;
+	private final AtomicLong eventsPublished = new AtomicLong();
+	private final AtomicLong slowConsumersDropped = new AtomicLong();
+
+	public ReactiveEventStream(int queueCapacity, long timeoutMillis) {
+		this.queueCapacity = queueCapacity;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+	}
+
+	/**
+	 * 订阅后立即收到携带当前版本号的 hello 事件；先接上 Sink 再发 hello，中间的事件不会丢失。
+	 * hello 在订阅时才构造，在 lockScheduler 上持有该局的锁读取状态，不阻塞事件循环线程。
+	 */
+	public Flux<ServerSentEvent<String>> subscribe(GameSession session, Scheduler lockScheduler) {
+		Mono<ServerSentEvent<String>> hello = Mono.fromCallable(() -> {
+			session.getLock().lock();
+			try {
+				GameService service = session.getGameService();
+				return event("hello", service.getVersion(), GameEventJson.state("hello", service));
+			} finally {
+				session.getLock().unlock();
+			}
+		}).subscribeOn(lockScheduler);
+		return Flux.merge(sink.asFlux(), hello)
+				.onBackpressureBuffer(queueCapacity, dropped -> slowConsumersDropped.incrementAndGet())
+				.take(timeout);
+	}
+
+	public int getSubscriberCount() {
+		return sink.currentSubscriberCount();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new ConcurrentHashMap<>();
+		stats.put("activeSubscribers", sink.currentSubscriberCount());
+		stats.put("eventsPublished", eventsPublished.get());
+		stats.put("slowConsumersDropped", slowConsumersDropped.get());
+		stats.put("queueCapacity", queueCapacity);
+		return stats;
+	}
+
+	// --- GameEventListener ---
+	@Override
+	public void onMove(GameService service, int row, int col, int playerNumber) {
+		if (sink.currentSubscriberCount() == 0) {
+			return;
+		}
+		publish(event("move", service.getVersion(), GameEventJson.move(service, row, col, playerNumber)));
+	}
+
+	@Override
+	public void onPlayersChanged(GameService service, int count) {
+		publishState("players", service);
+	}
+
+	@Override
+	public void onBoardResized(GameService service, int rows, int cols) {
+		publishState("resize", service);
+	}
+
+	@Override
+	public void onReset(GameService service) {
+		publishState("reset", service);
+	}
+
+	@Override
+	public void onWinThresholdChanged(GameService service, int winThreshold) {
+		publishState("winThreshold", service);
+	}
+
+	@Override
+	public void onRestored(GameService service) {
+		publishState("restored", service);
+	}
+
+	private void publishState(String type, GameService service) {
+		if (sink.currentSubscriberCount() == 0) {
+			return;
+		}
+		publish(event(type, service.getVersion(), GameEventJson.state(type, service)));
+	}
+
+	private static ServerSentEvent<String> event(String name, long version, String json) {
+		return ServerSentEvent.builder(json).id(Long.toString(version)).event(name).build();
+	}
+
+	// Sink 不允许并发发射，落子可能来自多个请求线程，这里串行化（只是把事件交给各订阅者的缓冲）
+	private synchronized void publish(ServerSentEvent<String> event) {
+		eventsPublished.incrementAndGet();
+		sink.tryEmitNext(event);
+	}
+}
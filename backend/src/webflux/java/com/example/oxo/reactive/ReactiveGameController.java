@@ -0,0 +1,251 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.ai.AiBusyException;
+import com.example.oxo.ai.AiMove;
+import com.example.oxo.ai.AiMoveService;
+import com.example.oxo.benchmark.BenchmarkJob;
+import com.example.oxo.benchmark.BenchmarkJobService;
+import com.example.oxo.controller.GameController;
+import com.example.oxo.controller.MoveBatchRequest;
+import com.example.oxo.controller.MoveRequest;
+import com.example.oxo.controller.StateResponses;
+import com.example.oxo.model.MoveException;
+import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.registry.GameSession;
+import com.example.oxo.service.CachedGameService;
+import com.example.oxo.service.GameService;
+import com.example.oxo.service.MoveBatchResult;
+import com.example.oxo.tablebase.TablebaseService;
+import com.example.oxo.wire.WireFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * WebFlux 版本的 {@link GameController}：相同的 /api/oxo 路径、参数、响应体和状态码。
+ * 状态读取和落子都要持有全局棋盘的锁，批量落子和改尺寸的临界区并不短，在专用的 gameLockScheduler 上执行，
+ * 事件循环线程不会阻塞在锁上；该线程池排队已满时返回 503。
+ * 电脑玩家的搜索要占用整段思考时间，放到 boundedElastic 线程池，不阻塞事件循环。
+ */
+@RestController
+@RequestMapping("/api/oxo")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGameController {
+    private final GameService gameService;
+    private final GameSession globalSession;
+    private final PerformanceStats performanceStats;
+    private final ReactiveEventStream eventStream;
+    private final AiMoveService aiMoveService;
+    private final TablebaseService tablebaseService;
+    private final BenchmarkJobService benchmarkJobService;
+    private final Scheduler lockScheduler;
+
+    @Autowired
+    public ReactiveGameController(GameService gameService, GameSession globalGameSession, PerformanceStats performanceStats,
+                                  ReactiveEventStream eventStream, AiMoveService aiMoveService,
+                                  TablebaseService tablebaseService, BenchmarkJobService benchmarkJobService,
+                                  Scheduler gameLockScheduler) {
+        this.gameService = gameService;
+        this.globalSession = globalGameSession;
+        this.lockScheduler = gameLockScheduler;
+        this.performanceStats = performanceStats;
+        this.eventStream = eventStream;
+        this.aiMoveService = aiMoveService;
+        this.tablebaseService = tablebaseService;
+        this.benchmarkJobService = benchmarkJobService;
+    }
+
+    @GetMapping("/performance")
+    public Object getPerformanceStats() {
+        Map<String, Object> result = performanceStats.getStats();
+        if (gameService instanceof CachedGameService cachedService) {
+            Map<String, Object> mutableResult = new HashMap<>(result);
+            mutableResult.put("cacheStats", cachedService.getCacheStats());
+            mutableResult.put("eventStreams", eventStream.getStats());
+            mutableResult.put("ai", aiMoveService.getStats());
+            mutableResult.put("tablebase", tablebaseService.getStats());
+            return mutableResult;
+        }
+        return result;
+    }
+
+    @RequestMapping(value = "/run-demonstration", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<?> runDemonstration() {
+        try {
+            BenchmarkJob job = benchmarkJobService.submit();
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/oxo/benchmark-jobs/" + job.getJobId())
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/benchmark-jobs/{jobId}")
+    public ResponseEntity<?> getBenchmarkJob(@PathVariable String jobId) {
+        BenchmarkJob job = benchmarkJobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown benchmark job: " + jobId));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/benchmark-jobs")
+    public List<BenchmarkJob> listBenchmarkJobs() {
+        return benchmarkJobService.list();
+    }
+
+    @GetMapping("/state")
+    public Mono<ResponseEntity<?>> getGameState(@RequestParam(required = false) Long since,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 增量要遍历落子历史，ROWS/PACKED 直接读取棋盘：都与落子、改尺寸在同一把锁内，不会读到写了一半的状态
+        return execute(service -> since != null
+                ? StateResponses.stateSince(service, since, ifNoneMatch)
+                : StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept), ifNoneMatch));
+    }
+
+    /** 落子推送（Server-Sent Events），事件与 MVC 版本相同 */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamEvents() {
+        return eventStream.subscribe(globalSession, lockScheduler);
+    }
+
+    @PostMapping("/move")
+    public Mono<ResponseEntity<?>> makeMove(@RequestBody MoveRequest request,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(service -> {
+            if (expected != null) {
+                service.handleIncomingCommand(request.getCommand(), expected);
+            } else {
+                service.handleIncomingCommand(request.getCommand());
+            }
+            return StateResponses.fullState(service, WireFormat.fromAcceptHeader(accept));
+        });
+    }
+
+    @PostMapping("/moves")
+    public Mono<ResponseEntity<?>> makeMoves(@RequestBody MoveBatchRequest request,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ResponseEntity<?> rejected = StateResponses.rejectBatch(request);
+        if (rejected != null) {
+            return Mono.just(rejected);
+        }
+        Long expected = StateResponses.expectedVersion(request.getExpectedVersion(), ifMatch);
+        return execute(service -> {
+            // 版本检查与整批落子在同一把锁内完成
+            MoveBatchResult result = expected != null
+                    ? service.handleIncomingCommands(request.getCommands(), expected)
+                    : service.handleIncomingCommands(request.getCommands());
+            return GameController.batchResponse(result, service.getGameState());
+        });
+    }
+
+    @PostMapping("/ai-move")
+    public Mono<ResponseEntity<?>> makeAiMove(@RequestParam(required = false) Long budgetMs,
+                                              @RequestParam(required = false) String engine) {
+        return Mono.<ResponseEntity<?>>fromCallable(() -> aiMove(budgetMs, engine)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ResponseEntity<?> aiMove(Long budgetMs, String engine) {
+        try {
+            AiMoveService.Engine selected;
+            long budget;
+            AiMoveService.Position position;
+            try {
+                selected = AiMoveService.Engine.fromParam(engine);
+                budget = aiMoveService.budgetMillis(budgetMs == null ? 0 : budgetMs);
+                position = globalSession.execute(aiMoveService::capture);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            AiMove move = aiMoveService.findBestMove(position, budget, selected);
+            if (move == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "No legal move available"));
+            }
+            // 已经在 boundedElastic 线程上，直接获取锁
+            return executeLocked(service -> {
+                if (service.getVersion() != position.getVersion()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                            Map.of("error", "Game changed while searching", "version", service.getVersion()));
+                }
+                service.handleMove(move.getRow(), move.getCol());
+                return GameController.aiMoveResponse(move, service.getGameState());
+            });
+        } catch (MoveException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid Move: " + e.getMessage()));
+        } catch (AiBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/hint")
+    public Mono<ResponseEntity<?>> getHint() {
+        return execute(service -> GameController.hintResponse(tablebaseService.lookup(service.getGameModel())));
+    }
+
+    @PostMapping("/setPlayers")
+    public Mono<ResponseEntity<?>> setPlayers(@RequestParam int count) {
+        return execute(service -> {
+            service.setPlayers(count);
+            return service.getGameState();
+        });
+    }
+
+    @PostMapping("/setSize")
+    public Mono<ResponseEntity<?>> setBoardSize(@RequestParam int rows, @RequestParam int cols) {
+        return execute(service -> {
+            service.setBoardSize(rows, cols);
+            return service.getGameState();
+        });
+    }
+
+    @PostMapping("/reset")
+    public Mono<ResponseEntity<?>> resetGame() {
+        return execute(service -> {
+            service.resetGame();
+            return service.getGameState();
+        });
+    }
+
+    // 在 lockScheduler 上获取全局棋盘的锁并执行 action；排队已满时返回 503
+    private Mono<ResponseEntity<?>> execute(GameSession.Action<Object> action) {
+        return Mono.<ResponseEntity<?>>fromCallable(() -> executeLocked(action))
+                .subscribeOn(lockScheduler)
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Server busy, try again"))));
+    }
+
+    // 与 GameController 相同：在全局棋盘的锁内执行，异常转换为相同的响应；会阻塞调用线程，不能在事件循环上调用
+    private ResponseEntity<?> executeLocked(GameSession.Action<Object> action) {
+        try {
+            Object result = globalSession.execute(action);
+            if (result instanceof ResponseEntity<?> entity) {
+                return entity;
+            }
+            return ResponseEntity.ok(result);
+        } catch (MoveException e) {
+            return StateResponses.moveRejected(e, gameService);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("error", "Internal server error: " + e.getMessage())
+            );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.controller.JoinRequest;
+import com.example.oxo.controller.LobbyController;
+import com.example.oxo.matchmaking.Geometry;
+import com.example.oxo.matchmaking.MatchmakingService;
+import com.example.oxo.matchmaking.Ticket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * WebFlux 版本的 {@link LobbyController}：长轮询是一个等待票结束的 Mono，超时后返回 202 和票号。
+ * 挂起的请求不占任何线程，配对线程完成票时直接触发响应。
+ */
+@RestController
+@RequestMapping("/api/oxo/lobby")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLobbyController {
+    private final MatchmakingService matchmakingService;
+    private final Duration pollTimeout;
+
+    @Autowired
+    public ReactiveLobbyController(MatchmakingService matchmakingService,
+                                   @Value("${oxo.lobby.poll-timeout-ms:25000}") long pollTimeoutMillis) {
+        this.matchmakingService = matchmakingService;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMillis);
+    }
+
+    @PostMapping("/join")
+    public Mono<ResponseEntity<?>> join(@RequestBody(required = false) JoinRequest request) {
+        JoinRequest join = request != null ? request : new JoinRequest();
+        Ticket ticket;
+        try {
+            ticket = matchmakingService.join(Geometry.of(join.getRows(), join.getCols(), join.getWinThreshold(),
+                    join.getPlayers()));
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        } catch (IllegalStateException e) {
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage())));
+        }
+        return await(ticket);
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public Mono<ResponseEntity<?>> pollTicket(@PathVariable String ticketId) {
+        Ticket ticket = matchmakingService.poll(ticketId);
+        if (ticket == null) {
+            return Mono.just(LobbyController.ticketNotFound(ticketId));
+        }
+        return await(ticket);
+    }
+
+    @DeleteMapping("/tickets/{ticketId}")
+    public ResponseEntity<?> cancelTicket(@PathVariable String ticketId) {
+        if (matchmakingService.cancel(ticketId)) {
+            return ResponseEntity.ok(Map.of("ticketId", ticketId, "status", Ticket.Status.CANCELLED));
+        }
+        Ticket ticket = matchmakingService.poll(ticketId);
+        if (ticket == null) {
+            return LobbyController.ticketNotFound(ticketId);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(LobbyController.finished(ticket).getBody());
+    }
+
+    @GetMapping("/stats")
+    public Object getStats() {
+        return matchmakingService.getStats();
+    }
+
+    // 超时或客户端断开时取消的只是这个 Mono，票的 future 由所有轮询共享，不能随之取消
+    private Mono<ResponseEntity<?>> await(Ticket ticket) {
+        return Mono.fromFuture(ticket.getResult(), true)
+                .<ResponseEntity<?>>map(LobbyController::finished)
+                .timeout(pollTimeout, Mono.fromSupplier(() -> LobbyController.waiting(ticket)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.monitoring.PerformanceStats;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux 版本的 {@link com.example.oxo.monitoring.ApiMetricsInterceptor}：/api 请求按 "方法 路径模板" 计时。
+ * 计到响应头提交为止，SSE 这类长连接同样只计到开始推送，不计整个连接的时长。
+ */
+public class ReactiveMetricsFilter implements WebFilter {
+
+	private final PerformanceStats performanceStats;
+
+	public ReactiveMetricsFilter(PerformanceStats performanceStats) {
+		this.performanceStats = performanceStats;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (!exchange.getRequest().getPath().value().startsWith("/api/")) {
+			return chain.filter(exchange);
+		}
+		long start = System.nanoTime();
+		exchange.getResponse().beforeCommit(() -> {
+			record(exchange, start, null);
+			return Mono.empty();
+		});
+		// 未被处理的异常在这之后才会转换成 500，这里直接按 500 记
+		return chain.filter(exchange).doOnError(error -> record(exchange, start, error));
+	}
+
+	private void record(ServerWebExchange exchange, long start, Throwable error) {
+		// 异常与随后的错误响应只记一次
+		if (exchange.getAttributes().putIfAbsent(ReactiveMetricsFilter.class.getName(), Boolean.TRUE) != null) {
+			return;
+		}
+		long duration = System.nanoTime() - start;
+		Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String path = pattern instanceof PathPattern pathPattern
+				? pathPattern.getPatternString() : exchange.getRequest().getPath().value();
+		String route = exchange.getRequest().getMethod().name() + " " + path;
+		HttpStatusCode status = exchange.getResponse().getStatusCode();
+		int code = error != null ? 500 : status != null ? status.value() : 200;
+		performanceStats.recordApiCall(route, duration, code, error != null ? error.getClass().getSimpleName() : null);
+	}
+}
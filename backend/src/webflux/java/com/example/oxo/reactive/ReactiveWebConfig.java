@@ -0,0 +1,62 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.monitoring.PerformanceStats;
+import com.example.oxo.service.GameService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/** WebFlux 版本的 WebConfig：跨域设置、请求计时过滤器、全局棋盘的响应式推送，以及获取全局棋盘锁的线程池 */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+	@Value("${oxo.stream.queue-capacity:64}")
+	private int streamQueueCapacity;
+
+	@Value("${oxo.stream.timeout-ms:1800000}")
+	private long streamTimeoutMillis;
+
+	// 对全局棋盘的操作都要获取它的锁，在这个线程池里执行，事件循环线程不会阻塞在锁上。
+	// 这些操作本来就在锁内串行执行，线程不必多；排队的任务超过上限时返回 503
+	@Value("${oxo.reactive.lock-threads:2}")
+	private int lockThreads;
+
+	@Value("${oxo.reactive.lock-queue:10000}")
+	private int lockQueue;
+
+	@Override
+	public void addCorsMappings(CorsRegistry registry) {
+		registry.addMapping("/**")
+				.allowedOrigins(
+						"https://tic-tac-toe-1-fr16.onrender.com",
+						"http://localhost:5173"
+				)
+				.allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+				.allowedHeaders("*")
+				.exposedHeaders("ETag")
+				.allowCredentials(true);
+	}
+
+	@Bean
+	public ReactiveMetricsFilter reactiveMetricsFilter(PerformanceStats performanceStats) {
+		return new ReactiveMetricsFilter(performanceStats);
+	}
+
+	@Bean(destroyMethod = "dispose")
+	public Scheduler gameLockScheduler() {
+		return Schedulers.newBoundedElastic(lockThreads, lockQueue, "oxo-game-lock");
+	}
+
+	@Bean
+	public ReactiveEventStream reactiveEventStream(GameService gameService) {
+		ReactiveEventStream stream = new ReactiveEventStream(streamQueueCapacity, streamTimeoutMillis);
+		gameService.addGameEventListener(stream);
+		return stream;
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.oxo.reactive;
+
+import com.example.oxo.DemoApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MVC（Tomcat）与 WebFlux（Netty）两套栈的对比：依次在本进程内启动两个应用（随机端口），
+ * 先打开 idleConnections 个空闲的 SSE 连接（/api/oxo/events），记录服务端线程数和堆内存的增量，
+ * 然后在这些连接保持打开的情况下，用 concurrency 个并发客户端发出 requests 次 GET /api/oxo/state，统计吞吐和延迟分位数。
+ *
+ * 运行：mvn -Pwebflux compile exec:java -Dexec.mainClass=com.example.oxo.reactive.StackComparisonBenchmark
+ *      -Dexec.args="idleConnections requests concurrency"（默认 1000 20000 32）
+ * 客户端与服务端在同一进程，线程数和内存的绝对值包含客户端，只比较两次运行的增量。
+ */
+public final class StackComparisonBenchmark {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+	private StackComparisonBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int idleConnections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+		List<String> rows = new ArrayList<>();
+		for (WebApplicationType stack : new WebApplicationType[] {WebApplicationType.SERVLET, WebApplicationType.REACTIVE}) {
+			rows.add(run(stack, idleConnections, requests, concurrency));
+		}
+		System.out.printf("%n%d idle SSE connections, %d requests, concurrency %d%n", idleConnections, requests, concurrency);
+		System.out.printf("%-9s %12s %14s %12s %10s %10s %10s%n",
+				"stack", "+threads", "+heap/conn(KB)", "req/s", "p50(us)", "p99(us)", "p99.9(us)");
+		rows.forEach(System.out::println);
+	}
+
+	private static String run(WebApplicationType stack, int idleConnections, int requests, int concurrency)
+			throws Exception {
+		SpringApplicationBuilder builder = stack == WebApplicationType.REACTIVE
+				? ReactiveApplication.builder()
+				: new SpringApplicationBuilder(DemoApplication.class).web(WebApplicationType.SERVLET);
+		ConfigurableApplicationContext context = builder
+				.properties("server.port=0", "spring.main.banner-mode=off", "logging.level.org.springframework=WARN",
+						"oxo.tablebase.enabled=false", "oxo.journal.enabled=false",
+						"server.tomcat.max-connections=" + (idleConnections + 2 * concurrency + 100))
+				.run();
+		ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(clientExecutor)
+				.build();
+		List<InputStream> streams = new ArrayList<>(idleConnections);
+		try {
+			String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			HttpRequest state = HttpRequest.newBuilder(URI.create(base + "/api/oxo/state")).GET().build();
+			HttpRequest events = HttpRequest.newBuilder(URI.create(base + "/api/oxo/events")).GET().build();
+
+			// 预热：两套栈都先把处理路径跑热，避免把 JIT 计入对比
+			measure(client, state, Math.min(requests, 5000), concurrency);
+
+			int threadsBefore = THREADS.getThreadCount();
+			long heapBefore = usedHeapAfterGc();
+			List<CompletableFuture<HttpResponse<InputStream>>> pending = new ArrayList<>(idleConnections);
+			for (int i = 0; i < idleConnections; i++) {
+				pending.add(client.sendAsync(events, HttpResponse.BodyHandlers.ofInputStream()));
+			}
+			for (CompletableFuture<HttpResponse<InputStream>> response : pending) {
+				streams.add(response.get(60, TimeUnit.SECONDS).body());
+			}
+			int threadDelta = THREADS.getThreadCount() - threadsBefore;
+			double heapPerConnectionKb = (usedHeapAfterGc() - heapBefore) / 1024.0 / Math.max(1, idleConnections);
+
+			long[] latencies = measure(client, state, requests, concurrency);
+			return String.format("%-9s %12d %14.1f %12.0f %10d %10d %10d", stack.name().toLowerCase(), threadDelta,
+					heapPerConnectionKb, latencies[0] / 1.0, latencies[1], latencies[2], latencies[3]);
+		} finally {
+			for (InputStream stream : streams) {
+				stream.close();
+			}
+			clientExecutor.shutdownNow();
+			context.close();
+		}
+	}
+
+	/** 返回 {每秒请求数, p50, p99, p99.9}，延迟单位微秒 */
+	private static long[] measure(HttpClient client, HttpRequest request, int requests, int concurrency)
+			throws Exception {
+		long[] samples = new long[requests];
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		List<CompletableFuture<Void>> done = new ArrayList<>(concurrency);
+		long start = System.nanoTime();
+		for (int w = 0; w < concurrency; w++) {
+			done.add(CompletableFuture.runAsync(() -> {
+				for (int i; (i = next.getAndIncrement()) < requests; ) {
+					long begin = System.nanoTime();
+					try {
+						client.send(request, HttpResponse.BodyHandlers.discarding());
+					} catch (Exception e) {
+						throw new IllegalStateException("Request failed", e);
+					}
+					samples[i] = System.nanoTime() - begin;
+				}
+			}, workers));
+		}
+		CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).join();
+		long elapsed = System.nanoTime() - start;
+		workers.shutdown();
+		Arrays.sort(samples);
+		return new long[] {
+				requests * 1_000_000_000L / Math.max(1, elapsed),
+				percentile(samples, 0.50) / 1000,
+				percentile(samples, 0.99) / 1000,
+				percentile(samples, 0.999) / 1000
+		};
+	}
+
+	private static long percentile(long[] sorted, double q) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)];
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		System.gc();
+		Thread.sleep(200);
+		return MEMORY.getHeapMemoryUsage().getUsed();
+	}
+}